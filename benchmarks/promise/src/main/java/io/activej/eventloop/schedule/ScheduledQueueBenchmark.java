@@ -0,0 +1,95 @@
+package io.activej.eventloop.schedule;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ScheduledPriorityQueue} and {@link ScheduledTimerWheel}
+ * on a typical timeout workload: most of the scheduled tasks are cancelled before they are due
+ */
+@State(Scope.Benchmark)
+public class ScheduledQueueBenchmark {
+	private static final int TASKS = 100_000;
+	private static final int BATCH = 1_000;
+
+	@Param({"heap", "wheel"})
+	String queueType;
+
+	private final long[] delays = new long[TASKS];
+	private final ScheduledRunnable[] tasks = new ScheduledRunnable[TASKS];
+
+	private long now;
+	private ScheduledQueue queue;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+		for (int i = 0; i < TASKS; i++) {
+			delays[i] = 1_000 + random.nextInt(30_000);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setupQueue() {
+		now = 0;
+		queue = queueType.equals("heap") ?
+				ScheduledPriorityQueue.create() :
+				ScheduledTimerWheel.create(() -> now);
+		for (int i = 0; i < TASKS; i++) {
+			tasks[i] = schedule(i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void scheduleAndCancel() {
+		for (int i = 0; i < BATCH; i++) {
+			int index = (int) (now++ % TASKS);
+			tasks[index].cancel();
+			tasks[index] = schedule(index);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void scheduleAndPoll(Blackhole blackhole) {
+		for (int i = 0; i < BATCH; i++) {
+			int index = (int) (now++ % TASKS);
+			tasks[index] = schedule(index);
+			ScheduledRunnable task;
+			while ((task = queue.poll(now)) != null) {
+				blackhole.consume(task);
+			}
+		}
+	}
+
+	private ScheduledRunnable schedule(int index) {
+		ScheduledRunnable task = ScheduledRunnable.create(now + delays[index], () -> {});
+		queue.add(task);
+		return task;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		Options opt = new OptionsBuilder()
+				.include(ScheduledQueueBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -18,6 +18,8 @@ import io.activej.service.ServiceGraphModule;
 import io.activej.service.ServiceGraphModuleSettings;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.InetSocketAddress;
 
 import static io.activej.config.converter.ConfigConverters.*;
@@ -35,6 +37,7 @@ public class RpcBenchmark extends Launcher {
 	private static final int SERVICE_PORT = 25565;
 	private static final int ACTIVE_REQUESTS_MIN = 10000;
 	private static final int ACTIVE_REQUESTS_MAX = 10000;
+	private static final int REQUEST_TIMEOUT = 0;
 
 	@Inject
 	RpcClient rpcClient;
@@ -111,6 +114,7 @@ public class RpcBenchmark extends Launcher {
 	private int totalRequests;
 	private int activeRequestsMin;
 	private int activeRequestsMax;
+	private int requestTimeout;
 
 	@Override
 	protected void onStart() {
@@ -119,6 +123,7 @@ public class RpcBenchmark extends Launcher {
 		totalRequests = config.get(ofInteger(), "benchmark.totalRequests", TOTAL_REQUESTS);
 		activeRequestsMin = config.get(ofInteger(), "benchmark.activeRequestsMin", ACTIVE_REQUESTS_MIN);
 		activeRequestsMax = config.get(ofInteger(), "benchmark.activeRequestsMax", ACTIVE_REQUESTS_MAX);
+		requestTimeout = config.get(ofInteger(), "benchmark.requestTimeout", REQUEST_TIMEOUT);
 	}
 
 	/**
@@ -129,17 +134,24 @@ public class RpcBenchmark extends Launcher {
 	int sent;
 	int completed;
 
+	/**
+	 * Bytes allocated by a client eventloop thread during a round, or -1 if a JVM can not measure them
+	 */
+	long allocated;
+
 	@Override
 	protected void run() throws Exception {
 		long time = 0;
 		long bestTime = -1;
 		long worstTime = -1;
+		long totalAllocated = 0;
 
 		System.out.println("Warming up ...");
 		for (int i = 0; i < warmupRounds; i++) {
 			long roundTime = round();
 			long rps = totalRequests * 1000L / roundTime;
-			System.out.printf("Round: %d; Round time: %dms; RPS : %d%n", i + 1, roundTime, rps);
+			System.out.printf("Round: %d; Round time: %dms; RPS : %d; Allocated per request: %s%n",
+					i + 1, roundTime, rps, allocatedPerRequest(allocated, totalRequests));
 		}
 
 		System.out.println("Start benchmarking RPC");
@@ -157,13 +169,33 @@ public class RpcBenchmark extends Launcher {
 				worstTime = roundTime;
 			}
 
+			totalAllocated = allocated == -1 || totalAllocated == -1 ? -1 : totalAllocated + allocated;
+
 			long rps = totalRequests * 1000L / roundTime;
-			System.out.printf("Round: %d; Round time: %dms; RPS : %d%n", i + 1, roundTime, rps);
+			System.out.printf("Round: %d; Round time: %dms; RPS : %d; Allocated per request: %s%n",
+					i + 1, roundTime, rps, allocatedPerRequest(allocated, totalRequests));
 		}
 		double avgTime = (double) time / benchmarkRounds;
 		long requestsPerSecond = (long) (totalRequests / avgTime * 1000);
-		System.out.printf("Time: %dms; Average time: %sms; Best time: %dms; Worst time: %dms; Requests per second: %d%n",
-				time, avgTime, bestTime, worstTime, requestsPerSecond);
+		System.out.printf("Time: %dms; Average time: %sms; Best time: %dms; Worst time: %dms; Requests per second: %d; " +
+						"Allocated per request: %s%n",
+				time, avgTime, bestTime, worstTime, requestsPerSecond,
+				allocatedPerRequest(totalAllocated, (long) totalRequests * benchmarkRounds));
+	}
+
+	private static String allocatedPerRequest(long allocated, long requests) {
+		return allocated == -1 ? "n/a" : String.format("%.1f bytes", (double) allocated / requests);
+	}
+
+	private static long getAllocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
 	}
 
 	private long round() throws Exception {
@@ -174,6 +206,7 @@ public class RpcBenchmark extends Launcher {
 		SettablePromise<Long> promise = new SettablePromise<>();
 
 		long start = System.currentTimeMillis();
+		long allocatedAtStart = getAllocatedBytes();
 
 		sent = 0;
 		completed = 0;
@@ -194,18 +227,30 @@ public class RpcBenchmark extends Launcher {
 
 				if (active <= activeRequestsMin) {
 					for (int i = 0; i < min(activeRequestsMax - active, totalRequests - sent); i++, sent++) {
-						rpcClient.sendRequest(sent, this);
+						sendRequest(this);
 					}
 				}
 			}
 		};
 
 		for (int i = 0; i < min(activeRequestsMax, totalRequests); i++) {
-			rpcClient.sendRequest(sent, callback);
+			sendRequest(callback);
 			sent++;
 		}
 
-		return promise.map($ -> System.currentTimeMillis() - start);
+		return promise.map($ -> {
+			long allocatedAtEnd = getAllocatedBytes();
+			allocated = allocatedAtStart == -1 || allocatedAtEnd == -1 ? -1 : allocatedAtEnd - allocatedAtStart;
+			return System.currentTimeMillis() - start;
+		});
+	}
+
+	private void sendRequest(Callback<Integer> callback) {
+		if (requestTimeout == 0) {
+			rpcClient.sendRequest(sent, callback);
+		} else {
+			rpcClient.sendRequest(sent, requestTimeout, callback);
+		}
 	}
 
 	public static void main(String[] args) throws Exception {
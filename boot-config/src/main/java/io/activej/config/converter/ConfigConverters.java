@@ -427,6 +427,10 @@ public final class ConfigConverters {
 								ServerSocketSettings::withReuseAddress,
 								config.get(ofBoolean(), "reuseAddress",
 										defaultValue.hasReuseAddress() ? defaultValue.getReuseAddress() : null)))
+						.andThen(applyIfNotNull(
+								ServerSocketSettings::withReusePort,
+								config.get(ofBoolean(), "reusePort",
+										defaultValue.hasReusePort() ? defaultValue.getReusePort() : null)))
 						.apply(ServerSocketSettings.create(DEFAULT_BACKLOG));
 			}
 		};
@@ -472,6 +476,14 @@ public final class ConfigConverters {
 								SocketSettings::withImplReadBufferSize,
 								config.get(ofMemSize(), "implReadBufferSize",
 										defaultValue.hasReadBufferSize() ? defaultValue.getImplReadBufferSize() : null)))
+						.andThen(applyIfNotNull(
+								SocketSettings::withImplDirectBuffers,
+								config.get(ofBoolean(), "implDirectBuffers",
+										defaultValue.hasImplDirectBuffers() ? defaultValue.getImplDirectBuffers() : null)))
+						.andThen(applyIfNotNull(
+								SocketSettings::withImplReadAhead,
+								config.get(ofBoolean(), "implReadAhead",
+										defaultValue.hasImplReadAhead() ? defaultValue.getImplReadAhead() : null)))
 						.apply(SocketSettings.create());
 			}
 		};
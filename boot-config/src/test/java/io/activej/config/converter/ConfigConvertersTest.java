@@ -175,12 +175,14 @@ public class ConfigConvertersTest {
 	public void testServerSocketSettings() {
 		ServerSocketSettings expected = ServerSocketSettings.create(1)
 				.withReceiveBufferSize(MemSize.of(64))
-				.withReuseAddress(true);
+				.withReuseAddress(true)
+				.withReusePort(true);
 
 		ServerSocketSettings actual = Config.EMPTY.get(ofServerSocketSettings(), THIS, expected);
 		assertEquals(expected.getBacklog(), actual.getBacklog());
 		assertEquals(expected.getReceiveBufferSize(), actual.getReceiveBufferSize());
 		assertEquals(expected.getReuseAddress(), actual.getReuseAddress());
+		assertEquals(expected.getReusePort(), actual.getReusePort());
 	}
 
 	@Test
@@ -190,7 +192,8 @@ public class ConfigConvertersTest {
 				.withReuseAddress(false)
 				.withReceiveBufferSize(MemSize.of(256))
 				.withSendBufferSize(MemSize.of(512))
-				.withKeepAlive(true);
+				.withKeepAlive(true)
+				.withImplDirectBuffers(true);
 
 		SocketSettings actual = Config.EMPTY.get(ofSocketSettings(), THIS, expected);
 
@@ -201,6 +204,7 @@ public class ConfigConvertersTest {
 		assertEquals(expected.getReceiveBufferSize(), actual.getReceiveBufferSize());
 		assertEquals(expected.getSendBufferSize(), actual.getSendBufferSize());
 		assertEquals(expected.getKeepAlive(), actual.getKeepAlive());
+		assertEquals(expected.getImplDirectBuffers(), actual.getImplDirectBuffers());
 	}
 
 	@Test
@@ -20,12 +20,13 @@ package io.activej.fs.http;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.common.exception.UncheckedException;
 import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelConsumers;
 import io.activej.csp.ChannelSupplier;
 import io.activej.fs.ActiveFs;
 import io.activej.fs.exception.FileNotFoundException;
 import io.activej.fs.exception.FsExceptionCodec;
 import io.activej.http.*;
-import io.activej.http.MultipartDecoder.MultipartDataHandler;
+import io.activej.http.MultipartDecoder.MultipartPart;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
@@ -75,7 +76,7 @@ public final class ActiveFsServlet {
 							fs.upload(decodePath(request), size))
 							.mapEx(acknowledgeUpload(request));
 				})
-				.map(POST, "/" + UPLOAD, request -> request.handleMultipart(MultipartDataHandler.file(fs::upload))
+				.map(POST, "/" + UPLOAD, request -> uploadFiles(fs, request.getMultipartParts())
 						.mapEx(errorHandler()))
 				.map(POST, "/" + APPEND + "/*", request -> {
 					long offset = getNumberParameterOr(request, "offset", 0);
@@ -148,6 +149,20 @@ public final class ActiveFsServlet {
 						.mapEx(errorHandler()));
 	}
 
+	/**
+	 * Streams files of a multipart body into a given {@link ActiveFs}, each file being uploaded
+	 * under its file name as its part is received. Other form fields are skipped.
+	 */
+	@NotNull
+	public static Promise<Void> uploadFiles(ActiveFs fs, ChannelSupplier<MultipartPart> parts) {
+		return parts.streamTo(ChannelConsumer.of(part -> {
+			String fileName = part.getFileName();
+			return fileName != null ?
+					fs.upload(fileName).then(part.getBodyStream()::streamTo) :
+					part.getBodyStream().streamTo(ChannelConsumers.recycling());
+		}));
+	}
+
 	@NotNull
 	private static Promise<HttpResponse> rangeDownload(ActiveFs fs, boolean inline, String name, String rangeHeader) {
 		return fs.info(name)
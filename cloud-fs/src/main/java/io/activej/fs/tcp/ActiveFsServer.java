@@ -157,10 +157,9 @@ public final class ActiveFsServer extends AbstractServer<ActiveFsServer> {
 						return fs.download(name, offset, fixedLimit)
 								.then(supplier -> messaging.send(new DownloadSize(fixedLimit))
 										.whenException(supplier::closeEx)
-										.then(() -> supplier.streamTo(messaging.sendBinaryStream()
-												.withAcknowledgement(ack -> ack
-														.whenComplete(toLogger(logger, TRACE, "onDownloadComplete", meta, offset, fixedLimit, this))
-														.whenComplete(downloadFinishPromise.recordStats())))))
+										.then(() -> messaging.sendBinaryStream(supplier)
+												.whenComplete(toLogger(logger, TRACE, "onDownloadComplete", meta, offset, fixedLimit, this))
+												.whenComplete(downloadFinishPromise.recordStats())))
 								.whenComplete(toLogger(logger, "download", meta, offset, fixedLimit, this));
 					})
 					.whenComplete(downloadBeginPromise.recordStats());
@@ -13,6 +13,8 @@ import io.activej.fs.LocalActiveFs;
 import io.activej.fs.exception.FileNotFoundException;
 import io.activej.fs.exception.ForbiddenPathException;
 import io.activej.http.AsyncServlet;
+import io.activej.http.HttpRequest;
+import io.activej.http.HttpResponse;
 import io.activej.http.StubHttpClient;
 import io.activej.test.ExpectedException;
 import io.activej.test.rules.ByteBufRule;
@@ -34,11 +36,13 @@ import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
 import static io.activej.common.collection.CollectionUtils.set;
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
 import static io.activej.fs.Utils.initTempDir;
+import static io.activej.http.HttpHeaders.CONTENT_TYPE;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.util.Collections.singletonList;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
@@ -64,6 +68,8 @@ public final class ActiveFsServletAndClientTest {
 
 	private Path storage;
 
+	private AsyncServlet servlet;
+
 	private ActiveFs fs;
 
 	@Before
@@ -71,7 +77,7 @@ public final class ActiveFsServletAndClientTest {
 		storage = tmpFolder.newFolder("storage").toPath();
 
 		initTempDir(storage);
-		AsyncServlet servlet = ActiveFsServlet.create(LocalActiveFs.create(getCurrentEventloop(), newSingleThreadExecutor(), storage));
+		servlet = ActiveFsServlet.create(LocalActiveFs.create(getCurrentEventloop(), newSingleThreadExecutor(), storage));
 		fs = HttpActiveFs.create("http://localhost", StubHttpClient.of(servlet));
 
 		initializeDirs();
@@ -94,6 +100,33 @@ public final class ActiveFsServletAndClientTest {
 		assertEquals(content, strings.get(0));
 	}
 
+	@Test
+	public void uploadMultipart() throws IOException {
+		String boundary = "test-boundary";
+		String body = "--" + boundary + "\r\n" +
+				"Content-Disposition: form-data; name=\"description\"\r\n" +
+				"\r\n" +
+				"Some text\r\n" +
+				"--" + boundary + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"multipart1.txt\"\r\n" +
+				"\r\n" +
+				"First file\r\n" +
+				"--" + boundary + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"multipart2.txt\"\r\n" +
+				"\r\n" +
+				"Second file\r\n" +
+				"--" + boundary + "--\r\n";
+
+		HttpResponse response = await(StubHttpClient.of(servlet).request(HttpRequest.post("http://localhost/upload")
+				.withHeader(CONTENT_TYPE, "multipart/form-data; boundary=" + boundary)
+				.withBody(wrapUtf8(body))));
+
+		assertEquals(200, response.getCode());
+		assertEquals(singletonList("First file"), Files.readAllLines(storage.resolve("multipart1.txt")));
+		assertEquals(singletonList("Second file"), Files.readAllLines(storage.resolve("multipart2.txt")));
+		assertFalse(Files.exists(storage.resolve("description")));
+	}
+
 	@Test
 	public void uploadIncompleteFile() {
 		String filename = "incomplete.txt";
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Callbacks of in-flight requests of a connection, keyed by their cookies.
+ * <p>
+ * Callbacks are kept in an open-addressing table with linear probing, so neither cookies
+ * nor table entries are allocated per request. As cookies are sequential, they are used as their own hashes.
+ * <p>
+ * Timeouts are kept in a hashed timing wheel of coarse ticks, a bucket of a wheel holds cookies
+ * of all the requests which expire within the same tick (or within the same tick of later rounds of a wheel).
+ * Expired requests are {@link #pollExpired polled} once per tick, instead of scheduling a task per request.
+ */
+final class RpcActiveRequests {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int WHEEL_SIZE = 512;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	private static final long NO_DEADLINE = -1;
+
+	// table
+	private int[] cookies = new int[INITIAL_CAPACITY];
+	private Callback<?>[] callbacks = new Callback<?>[INITIAL_CAPACITY];
+	private long[] deadlines = new long[INITIAL_CAPACITY];
+	private int[] positions = new int[INITIAL_CAPACITY];
+	private int size;
+
+	// timing wheel
+	private final int[][] bucketCookies = new int[WHEEL_SIZE][];
+	private final long[][] bucketDeadlines = new long[WHEEL_SIZE][];
+	private final int[] bucketSizes = new int[WHEEL_SIZE];
+	private int timeouts;
+	private long sweepTick;
+	private int sweepPosition = -1;
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns a number of requests which have timeouts
+	 */
+	public int getTimeouts() {
+		return timeouts;
+	}
+
+	public void put(int cookie, Callback<?> cb) {
+		put(cookie, cb, NO_DEADLINE);
+	}
+
+	/**
+	 * Puts a callback of a request which expires once a given tick is {@link #pollExpired polled}
+	 */
+	public void put(int cookie, Callback<?> cb, long deadlineTick) {
+		if (size * 2 >= callbacks.length) {
+			resize(callbacks.length * 2);
+		}
+		int mask = callbacks.length - 1;
+		int slot = cookie & mask;
+		while (callbacks[slot] != null) {
+			if (cookies[slot] == cookie) {
+				throw new IllegalStateException("Duplicate cookie " + cookie);
+			}
+			slot = (slot + 1) & mask;
+		}
+		cookies[slot] = cookie;
+		callbacks[slot] = cb;
+		deadlines[slot] = deadlineTick;
+		size++;
+		if (deadlineTick != NO_DEADLINE) {
+			positions[slot] = addTimeout(cookie, deadlineTick);
+		}
+	}
+
+	@Nullable
+	public Callback<?> remove(int cookie) {
+		int mask = callbacks.length - 1;
+		for (int slot = cookie & mask; callbacks[slot] != null; slot = (slot + 1) & mask) {
+			if (cookies[slot] == cookie) {
+				Callback<?> cb = callbacks[slot];
+				if (deadlines[slot] != NO_DEADLINE) {
+					removeTimeout(deadlines[slot], positions[slot]);
+				}
+				removeSlot(slot);
+				return cb;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes all the callbacks
+	 */
+	public List<Callback<?>> removeAll() {
+		List<Callback<?>> result = new ArrayList<>(size);
+		for (int slot = 0; slot < callbacks.length; slot++) {
+			if (callbacks[slot] != null) {
+				result.add(callbacks[slot]);
+				callbacks[slot] = null;
+			}
+		}
+		size = 0;
+		Arrays.fill(bucketSizes, 0);
+		timeouts = 0;
+		sweepPosition = -1;
+		return result;
+	}
+
+	/**
+	 * Removes and returns a callback of a request which has expired by a given tick,
+	 * or returns {@code null} if there are no more such requests
+	 */
+	@Nullable
+	public Callback<?> pollExpired(long tick) {
+		if (timeouts == 0) {
+			sweepTick = tick;
+			sweepPosition = -1;
+			return null;
+		}
+		if (tick - sweepTick >= WHEEL_SIZE) {
+			// each bucket is swept only once
+			sweepTick = tick - WHEEL_SIZE + 1;
+			sweepPosition = -1;
+		}
+		while (true) {
+			int bucket = (int) (sweepTick & WHEEL_MASK);
+			int position = sweepPosition == -1 ? bucketSizes[bucket] - 1 : Math.min(sweepPosition, bucketSizes[bucket] - 1);
+			long[] bucketDeadlines = this.bucketDeadlines[bucket];
+			for (; position >= 0; position--) {
+				if (bucketDeadlines[position] <= tick) {
+					sweepPosition = position - 1;
+					return remove(bucketCookies[bucket][position]);
+				}
+			}
+			sweepPosition = -1;
+			if (sweepTick == tick) return null;
+			sweepTick++;
+		}
+	}
+
+	private int addTimeout(int cookie, long deadlineTick) {
+		int bucket = (int) (deadlineTick & WHEEL_MASK);
+		int position = bucketSizes[bucket];
+		if (bucketCookies[bucket] == null) {
+			bucketCookies[bucket] = new int[4];
+			bucketDeadlines[bucket] = new long[4];
+		} else if (position == bucketCookies[bucket].length) {
+			bucketCookies[bucket] = Arrays.copyOf(bucketCookies[bucket], position * 2);
+			bucketDeadlines[bucket] = Arrays.copyOf(bucketDeadlines[bucket], position * 2);
+		}
+		bucketCookies[bucket][position] = cookie;
+		bucketDeadlines[bucket][position] = deadlineTick;
+		bucketSizes[bucket] = position + 1;
+		timeouts++;
+		return position;
+	}
+
+	private void removeTimeout(long deadlineTick, int position) {
+		int bucket = (int) (deadlineTick & WHEEL_MASK);
+		int last = --bucketSizes[bucket];
+		timeouts--;
+		if (position != last) {
+			int movedCookie = bucketCookies[bucket][last];
+			bucketCookies[bucket][position] = movedCookie;
+			bucketDeadlines[bucket][position] = bucketDeadlines[bucket][last];
+			positions[findSlot(movedCookie)] = position;
+		}
+	}
+
+	private int findSlot(int cookie) {
+		int mask = callbacks.length - 1;
+		int slot = cookie & mask;
+		while (cookies[slot] != cookie || callbacks[slot] == null) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Removes an entry from a slot, shifting back the entries of the same probe sequence,
+	 * so that lookups need no tombstones
+	 */
+	private void removeSlot(int slot) {
+		int mask = callbacks.length - 1;
+		int hole = slot;
+		for (int next = (hole + 1) & mask; callbacks[next] != null; next = (next + 1) & mask) {
+			int home = cookies[next] & mask;
+			// an entry may be moved to a hole only if the hole is within its probe sequence
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				cookies[hole] = cookies[next];
+				callbacks[hole] = callbacks[next];
+				deadlines[hole] = deadlines[next];
+				positions[hole] = positions[next];
+				hole = next;
+			}
+		}
+		callbacks[hole] = null;
+		size--;
+	}
+
+	private void resize(int capacity) {
+		int[] oldCookies = cookies;
+		Callback<?>[] oldCallbacks = callbacks;
+		long[] oldDeadlines = deadlines;
+		int[] oldPositions = positions;
+		cookies = new int[capacity];
+		callbacks = new Callback<?>[capacity];
+		deadlines = new long[capacity];
+		positions = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldCallbacks.length; i++) {
+			if (oldCallbacks[i] == null) continue;
+			int slot = oldCookies[i] & mask;
+			while (callbacks[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			cookies[slot] = oldCookies[i];
+			callbacks[slot] = oldCallbacks[i];
+			deadlines[slot] = oldDeadlines[i];
+			positions[slot] = oldPositions[i];
+		}
+	}
+}
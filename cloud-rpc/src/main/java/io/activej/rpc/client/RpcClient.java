@@ -23,6 +23,7 @@ import io.activej.common.MemSize;
 import io.activej.common.api.WithInitializer;
 import io.activej.common.exception.AsyncTimeoutException;
 import io.activej.csp.process.frames.FrameFormat;
+import io.activej.datastream.StreamSupplier;
 import io.activej.datastream.csp.ChannelSerializer;
 import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
@@ -45,6 +46,7 @@ import io.activej.rpc.client.sender.RpcStrategy;
 import io.activej.rpc.protocol.RpcException;
 import io.activej.rpc.protocol.RpcMessage;
 import io.activej.rpc.protocol.RpcStream;
+import io.activej.rpc.protocol.RpcStreamEndpoint;
 import io.activej.rpc.server.RpcServer;
 import io.activej.serializer.BinarySerializer;
 import io.activej.serializer.SerializerBuilder;
@@ -109,6 +111,7 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 	private FrameFormat frameFormat;
 	private Duration autoFlushInterval = Duration.ZERO;
 	private Duration keepAliveInterval = Duration.ZERO;
+	private int streamWindow = RpcStreamEndpoint.DEFAULT_WINDOW;
 
 	private List<Class<?>> messageTypes;
 	private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT.toMillis();
@@ -245,6 +248,15 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		return this;
 	}
 
+	/**
+	 * Sets a maximum number of items of each stream which a server may send before they are consumed
+	 */
+	public RpcClient withStreamWindow(int streamWindow) {
+		Checks.checkArgument(streamWindow > 0, "Stream window should be positive");
+		this.streamWindow = streamWindow;
+		return this;
+	}
+
 	/**
 	 * Waits for a specified time before connecting.
 	 *
@@ -288,6 +300,10 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		return socketSettings;
 	}
 
+	int getStreamWindow() {
+		return streamWindow;
+	}
+
 	@NotNull
 	@Override
 	public Eventloop getEventloop() {
@@ -427,6 +443,40 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		requestSender.sendRequest(request, cb);
 	}
 
+	/**
+	 * Sends a request to a server, which replies with a stream of items.
+	 * <p>
+	 * A server should have a {@link io.activej.rpc.server.RpcStreamHandler stream handler} of requests of this class.
+	 * Items are sent by a server as long as they are consumed, and a stream is cancelled
+	 * on a server if a returned stream is closed before its end. A returned stream should be consumed,
+	 * otherwise a server waits for it to be consumed until a connection is closed.
+	 *
+	 * @param <I>     request class
+	 * @param <O>     class of items sent by a server
+	 * @param request request to a server
+	 * @return a stream of items sent by a server
+	 */
+	public <I, O> StreamSupplier<O> sendStreamRequest(I request) {
+		return sendStreamRequest(request, StreamSupplier.of());
+	}
+
+	/**
+	 * Sends a request to a server along with a stream of items, which is supplied
+	 * as an input of a {@link io.activej.rpc.server.RpcStreamHandler stream handler} of a server.
+	 *
+	 * @param <I>     request class
+	 * @param <T>     class of items sent to a server
+	 * @param <O>     class of items sent by a server
+	 * @param request request to a server
+	 * @param input   a stream of items sent to a server
+	 * @return a stream of items sent by a server
+	 * @see #sendStreamRequest(Object)
+	 */
+	public <I, T, O> StreamSupplier<O> sendStreamRequest(I request, StreamSupplier<T> input) {
+		if (CHECK) Checks.checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		return requestSender.sendStreamRequest(request, input);
+	}
+
 	public IRpcClient adaptToAnotherEventloop(Eventloop anotherEventloop) {
 		if (anotherEventloop == this.eventloop) {
 			return this;
@@ -461,6 +511,12 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
 			cb.accept(null, NO_SENDER_AVAILABLE_EXCEPTION);
 		}
+
+		@Override
+		public <I, T, O> StreamSupplier<O> sendStreamRequest(I request, @NotNull StreamSupplier<T> input) {
+			input.closeEx(NO_SENDER_AVAILABLE_EXCEPTION);
+			return StreamSupplier.closingWithError(NO_SENDER_AVAILABLE_EXCEPTION);
+		}
 	}
 
 	private static final class NoServersStrategy implements RpcStrategy {
@@ -547,6 +603,15 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		return count;
 	}
 
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public int getActiveStreams() {
+		int count = 0;
+		for (RpcClientConnection connection : connections.values()) {
+			count += connection.getActiveStreams();
+		}
+		return count;
+	}
+
 	@JmxAttribute(description = "exception that occurred because of protocol error " +
 			"(serialization, deserialization, compression, decompression, etc)")
 	public ExceptionStats getLastProtocolError() {
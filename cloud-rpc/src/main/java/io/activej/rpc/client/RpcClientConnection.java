@@ -23,8 +23,8 @@ import io.activej.common.exception.AsyncTimeoutException;
 import io.activej.common.exception.CloseException;
 import io.activej.common.time.Stopwatch;
 import io.activej.datastream.StreamDataAcceptor;
+import io.activej.datastream.StreamSupplier;
 import io.activej.eventloop.Eventloop;
-import io.activej.eventloop.schedule.ScheduledRunnable;
 import io.activej.jmx.api.JmxRefreshable;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
@@ -37,9 +37,10 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -49,6 +50,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 public final class RpcClientConnection implements RpcStream.Listener, RpcSender, JmxRefreshable {
 	private static final Logger logger = getLogger(RpcClientConnection.class);
 	private static final boolean CHECK = Checks.isEnabled(RpcClientConnection.class);
+	private static final long TIMEOUT_TICK_MILLIS = ApplicationSettings.getDuration(RpcClientConnection.class, "timeoutTick", Duration.ofMillis(10)).toMillis();
 
 	private static final RpcException CONNECTION_UNRESPONSIVE = new RpcException("Unresponsive connection");
 	private static final RpcOverloadException RPC_OVERLOAD_EXCEPTION = new RpcOverloadException("RPC client is overloaded");
@@ -61,7 +63,9 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 	private final RpcClient rpcClient;
 	private final RpcStream stream;
 	private final InetSocketAddress address;
-	private final Map<Integer, Callback<?>> activeRequests = new HashMap<>();
+	private final RpcActiveRequests activeRequests = new RpcActiveRequests();
+	private final Map<Integer, RpcStreamEndpoint<Object, Object>> streams = new HashMap<>();
+	private boolean sweepScheduled;
 
 	private ArrayList<RpcMessage> initialBuffer = new ArrayList<>();
 
@@ -111,51 +115,42 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 
 			if (timeout == Integer.MAX_VALUE) {
 				activeRequests.put(cookie, cb);
+				downstreamDataAcceptor.accept(RpcMessage.of(cookie, request));
 			} else {
-				ScheduledCallback<O> scheduledCallback = new ScheduledCallback<>(cookie, cb);
-				scheduledCallback.scheduledRunnable = eventloop.delayBackground(timeout, scheduledCallback);
-				activeRequests.put(cookie, scheduledCallback);
+				long timestamp = eventloop.currentTimeMillis();
+				long deadlineTick = (timestamp + timeout + TIMEOUT_TICK_MILLIS - 1) / TIMEOUT_TICK_MILLIS;
+				activeRequests.put(cookie, cb, deadlineTick);
+				scheduleSweep();
+				downstreamDataAcceptor.accept(RpcMessage.of(cookie, request, timestamp, timeout));
 			}
-
-			downstreamDataAcceptor.accept(RpcMessage.of(cookie, request));
 		} else {
 			doProcessOverloaded(cb);
 		}
 	}
 
-	private class ScheduledCallback<O> implements Runnable, Callback<O> {
-		ScheduledRunnable scheduledRunnable;
-		final Callback<O> cb;
-		final int cookie;
+	private void scheduleSweep() {
+		if (sweepScheduled) return;
+		sweepScheduled = true;
+		eventloop.delayBackground(TIMEOUT_TICK_MILLIS, this::sweepExpired);
+	}
 
-		ScheduledCallback(int cookie, @NotNull Callback<O> cb) {
-			this.cookie = cookie;
-			this.cb = cb;
-		}
+	private void sweepExpired() {
+		sweepScheduled = false;
+		long tick = eventloop.currentTimeMillis() / TIMEOUT_TICK_MILLIS;
+		Callback<?> expiredCb;
+		while ((expiredCb = activeRequests.pollExpired(tick)) != null) {
+			// jmx
+			connectionStats.getExpiredRequests().recordEvent();
+			rpcClient.getGeneralRequestsStats().getExpiredRequests().recordEvent();
 
-		@Override
-		public void accept(O result, @Nullable Throwable e) {
-			if (scheduledRunnable != null) {
-				scheduledRunnable.cancel();
-				cb.accept(result, e);
-			}
+			expiredCb.accept(null, new AsyncTimeoutException("RPC request has timed out"));
 		}
 
-		@Override
-		public void run() {
-			scheduledRunnable = null;
-			Callback<?> expiredCb = activeRequests.remove(cookie);
-			if (expiredCb != null) {
-				// jmx
-				connectionStats.getExpiredRequests().recordEvent();
-				rpcClient.getGeneralRequestsStats().getExpiredRequests().recordEvent();
-
-				expiredCb.accept(null, new AsyncTimeoutException("RPC request has timed out"));
-			}
-
-			if (serverClosing && activeRequests.size() == 0) {
-				RpcClientConnection.this.shutdown();
-			}
+		if (serverClosing && activeRequests.isEmpty()) {
+			shutdown();
+		}
+		if (activeRequests.getTimeouts() != 0) {
+			scheduleSweep();
 		}
 	}
 
@@ -183,6 +178,40 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public <I, T, O> StreamSupplier<O> sendStreamRequest(I request, @NotNull StreamSupplier<T> input) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+
+		// jmx
+		totalRequests.recordEvent();
+		connectionRequests.recordEvent();
+
+		if (overloaded && !(request instanceof RpcMandatoryData)) {
+			// jmx
+			rpcClient.getGeneralRequestsStats().getRejectedRequests().recordEvent();
+			connectionStats.getRejectedRequests().recordEvent();
+
+			input.closeEx(RPC_OVERLOAD_EXCEPTION);
+			return StreamSupplier.closingWithError(RPC_OVERLOAD_EXCEPTION);
+		}
+
+		int cookie = ++this.cookie;
+		RpcStreamEndpoint<Object, Object> endpoint = new RpcStreamEndpoint<>(cookie,
+				message -> downstreamDataAcceptor.accept(message), rpcClient.getStreamWindow(),
+				() -> {
+					if (streams.remove(cookie) == null) return;
+					if (serverClosing && activeRequests.isEmpty() && streams.isEmpty()) {
+						shutdown();
+					}
+				});
+		streams.put(cookie, endpoint);
+		downstreamDataAcceptor.accept(RpcMessage.of(cookie, request));
+		endpoint.start();
+		((StreamSupplier<Object>) input).streamTo(endpoint.getOutput());
+		return (StreamSupplier<O>) endpoint.getInput();
+	}
+
 	private <I, O> Callback<O> doJmxMonitoring(I request, int timeout, @NotNull Callback<O> cb) {
 		RpcRequestStats requestStatsPerClass = rpcClient.ensureRequestStatsPerClass(request.getClass());
 		requestStatsPerClass.getTotalRequests().recordEvent();
@@ -200,6 +229,14 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 
 	@Override
 	public void accept(RpcMessage message) {
+		if (!streams.isEmpty()) {
+			RpcStreamEndpoint<Object, Object> endpoint = streams.get(message.getCookie());
+			if (endpoint != null) {
+				endpoint.accept(message.getData());
+				return;
+			}
+		}
+		if (RpcStreamEndpoint.isStreamSignal(message.getData())) return;
 		if (message.getData().getClass() == RpcRemoteException.class) {
 			processErrorMessage(message);
 		} else if (message.getData().getClass() == RpcControlMessage.class) {
@@ -210,7 +247,7 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 			if (cb == null) return;
 
 			cb.accept(message.getData(), null);
-			if (serverClosing && activeRequests.size() == 0) {
+			if (serverClosing && activeRequests.isEmpty() && streams.isEmpty()) {
 				shutdown();
 			}
 		}
@@ -234,7 +271,7 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		if (controlMessage == RpcControlMessage.CLOSE) {
 			rpcClient.removeConnection(address);
 			serverClosing = true;
-			if (activeRequests.size() == 0) {
+			if (activeRequests.isEmpty() && streams.isEmpty()) {
 				shutdown();
 			}
 		} else if (controlMessage == RpcControlMessage.PONG) {
@@ -319,11 +356,16 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		rpcClient.removeConnection(address);
 
 		while (!activeRequests.isEmpty()) {
-			for (Integer cookie : new HashSet<>(activeRequests.keySet())) {
-				Callback<?> cb = activeRequests.remove(cookie);
-				if (cb != null) {
-					cb.accept(null, new CloseException("Connection closed"));
-				}
+			for (Callback<?> cb : activeRequests.removeAll()) {
+				cb.accept(null, new CloseException("Connection closed"));
+			}
+		}
+		if (!streams.isEmpty()) {
+			List<RpcStreamEndpoint<Object, Object>> endpoints = new ArrayList<>(streams.values());
+			streams.clear();
+			CloseException e = new CloseException("Connection closed");
+			for (RpcStreamEndpoint<Object, Object> endpoint : endpoints) {
+				endpoint.close(e);
 			}
 		}
 	}
@@ -357,6 +399,11 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		return activeRequests.size();
 	}
 
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public int getActiveStreams() {
+		return streams.size();
+	}
+
 	@Override
 	public void refresh(long timestamp) {
 		connectionStats.refresh(timestamp);
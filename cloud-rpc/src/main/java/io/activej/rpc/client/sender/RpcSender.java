@@ -17,6 +17,8 @@
 package io.activej.rpc.client.sender;
 
 import io.activej.async.callback.Callback;
+import io.activej.datastream.StreamSupplier;
+import io.activej.rpc.protocol.RpcException;
 import org.jetbrains.annotations.NotNull;
 
 public interface RpcSender {
@@ -25,4 +27,16 @@ public interface RpcSender {
 	default <I, O> void sendRequest(I request, @NotNull Callback<O> cb) {
 		sendRequest(request, Integer.MAX_VALUE, cb);
 	}
+
+	/**
+	 * Sends a request, along with a stream of items, which is replied with a stream of items.
+	 * <p>
+	 * Streaming requests are supported by senders which send a request to a single server,
+	 * so they are not supported by senders of {@link RpcStrategyFirstValidResult} and {@link RpcStrategyHedging}
+	 */
+	default <I, T, O> StreamSupplier<O> sendStreamRequest(I request, @NotNull StreamSupplier<T> input) {
+		RpcException e = new RpcException("Streaming requests are not supported by " + getClass().getSimpleName());
+		input.closeEx(e);
+		return StreamSupplier.closingWithError(e);
+	}
 }
@@ -87,6 +87,42 @@ public final class RpcStrategies {
 		return RpcStrategyRoundRobin.create(list);
 	}
 
+	public static RpcStrategyLoadAware leastOutstanding(RpcStrategy... senders) {
+		return leastOutstanding(asList(senders));
+	}
+
+	public static RpcStrategyLoadAware leastOutstanding(List<RpcStrategy> senders) {
+		return RpcStrategyLoadAware.leastOutstanding(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyLoadAware leastOutstanding(RpcStrategyList list) {
+		return RpcStrategyLoadAware.leastOutstanding(list);
+	}
+
+	public static RpcStrategyLoadAware powerOfTwoChoices(RpcStrategy... senders) {
+		return powerOfTwoChoices(asList(senders));
+	}
+
+	public static RpcStrategyLoadAware powerOfTwoChoices(List<RpcStrategy> senders) {
+		return RpcStrategyLoadAware.powerOfTwoChoices(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyLoadAware powerOfTwoChoices(RpcStrategyList list) {
+		return RpcStrategyLoadAware.powerOfTwoChoices(list);
+	}
+
+	public static RpcStrategyHedging hedging(RpcStrategy... senders) {
+		return hedging(asList(senders));
+	}
+
+	public static RpcStrategyHedging hedging(List<RpcStrategy> senders) {
+		return RpcStrategyHedging.create(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyHedging hedging(RpcStrategyList list) {
+		return RpcStrategyHedging.create(list);
+	}
+
 	public static RpcStrategySharding sharding(ShardingFunction<?> hashFunction,
 			RpcStrategy... senders) {
 		return sharding(hashFunction, asList(senders));
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.ConcurrentJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * A strategy which sends a backup ("hedged") request to another sub-strategy if a response
+ * to the original request is not received within a usual response time of a sub-strategy.
+ * <p>
+ * Original requests are distributed between sub-strategies in a round-robin manner,
+ * and a hedged request is sent to the next sub-strategy of a list. The first successful response is used,
+ * a response to the other request is ignored.
+ * <p>
+ * A hedging delay of a sub-strategy is an estimate of a {@link #withQuantile quantile} of its response times,
+ * but no less than a {@link #withMinDelay minimum delay}.
+ * A number of hedged requests is limited by a {@link #withBudget budget}, which is a ratio of hedged requests
+ * to original requests, so that hedging does not amplify load when all sub-strategies slow down.
+ * <p>
+ * Only idempotent requests should be hedged, other requests may be excluded by a {@link #withHedgeIf predicate}.
+ * Senders of this strategy should be created in an eventloop thread.
+ */
+public final class RpcStrategyHedging implements RpcStrategy, ConcurrentJmxBean {
+	public static final double DEFAULT_QUANTILE = 0.95;
+	public static final double DEFAULT_BUDGET = 0.05;
+	public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(1);
+
+	private static final int MAX_BUDGET_TOKENS = 10;
+	private static final double QUANTILE_STEP = 0.05;
+
+	private final RpcStrategyList list;
+	private final double quantile;
+	private final double budget;
+	private final long minDelayMillis;
+	private final Predicate<Object> hedgeIf;
+
+	@Nullable
+	private volatile Sender sender;
+
+	// region JMX
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicLong overBudget = new AtomicLong();
+	// endregion
+
+	private RpcStrategyHedging(RpcStrategyList list, double quantile, double budget, long minDelayMillis, Predicate<Object> hedgeIf) {
+		this.list = list;
+		this.quantile = quantile;
+		this.budget = budget;
+		this.minDelayMillis = minDelayMillis;
+		this.hedgeIf = hedgeIf;
+	}
+
+	public static RpcStrategyHedging create(RpcStrategyList list) {
+		return new RpcStrategyHedging(list, DEFAULT_QUANTILE, DEFAULT_BUDGET, DEFAULT_MIN_DELAY.toMillis(), $ -> true);
+	}
+
+	/**
+	 * Sets a quantile of response times of a sub-strategy after which a hedged request is sent
+	 */
+	public RpcStrategyHedging withQuantile(double quantile) {
+		checkArgument(quantile > 0 && quantile < 1, "Quantile should be within (0, 1)");
+		return new RpcStrategyHedging(list, quantile, budget, minDelayMillis, hedgeIf);
+	}
+
+	/**
+	 * Sets a maximum ratio of hedged requests to original requests
+	 */
+	public RpcStrategyHedging withBudget(double budget) {
+		checkArgument(budget >= 0 && budget <= 1, "Budget should be within [0, 1]");
+		return new RpcStrategyHedging(list, quantile, budget, minDelayMillis, hedgeIf);
+	}
+
+	/**
+	 * Sets a minimum time after which a hedged request may be sent
+	 */
+	public RpcStrategyHedging withMinDelay(@NotNull Duration minDelay) {
+		return new RpcStrategyHedging(list, quantile, budget, minDelay.toMillis(), hedgeIf);
+	}
+
+	/**
+	 * Sets a predicate of requests which may be hedged, like idempotent ones
+	 */
+	@SuppressWarnings("unchecked")
+	public RpcStrategyHedging withHedgeIf(@NotNull Predicate<?> hedgeIf) {
+		return new RpcStrategyHedging(list, quantile, budget, minDelayMillis, (Predicate<Object>) hedgeIf);
+	}
+
+	@Override
+	public Set<InetSocketAddress> getAddresses() {
+		return list.getAddresses();
+	}
+
+	@Nullable
+	@Override
+	public RpcSender createSender(RpcClientConnectionPool pool) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		List<SenderLatency> subSenders = new ArrayList<>();
+		for (int i = 0; i < list.size(); i++) {
+			RpcStrategy strategy = list.get(i);
+			RpcSender subSender = strategy.createSender(pool);
+			if (subSender != null) {
+				Set<InetSocketAddress> addresses = strategy.getAddresses();
+				String name = addresses.size() == 1 ? addresses.iterator().next().toString() : addresses.toString();
+				subSenders.add(new SenderLatency(eventloop, name, subSender));
+			}
+		}
+		if (subSenders.isEmpty()) {
+			sender = null;
+			return null;
+		}
+		Sender sender = new Sender(eventloop, subSenders.toArray(new SenderLatency[0]));
+		this.sender = sender;
+		return sender;
+	}
+
+	private final class Sender implements RpcSender {
+		private final Eventloop eventloop;
+		private final SenderLatency[] subSenders;
+		private int nextSender;
+		private double budgetTokens = MAX_BUDGET_TOKENS;
+
+		Sender(Eventloop eventloop, SenderLatency[] subSenders) {
+			this.eventloop = eventloop;
+			this.subSenders = subSenders;
+		}
+
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			SenderLatency primary = subSenders[nextSender];
+			nextSender = (nextSender + 1) % subSenders.length;
+			requests.incrementAndGet();
+			budgetTokens = Math.min(budgetTokens + budget, MAX_BUDGET_TOKENS);
+
+			if (subSenders.length == 1 || !hedgeIf.test(request)) {
+				primary.sendRequest(request, timeout, cb, eventloop.currentTimeMillis());
+				return;
+			}
+			if (budgetTokens < 1) {
+				overBudget.incrementAndGet();
+				primary.sendRequest(request, timeout, cb, eventloop.currentTimeMillis());
+				return;
+			}
+
+			HedgedCallback<I, O> hedgedCallback = new HedgedCallback<>(request, timeout, cb, nextSender);
+			long delay = Math.max(minDelayMillis, (long) primary.quantileMillis);
+			if (timeout == Integer.MAX_VALUE || delay < timeout) {
+				hedgedCallback.scheduledRunnable = eventloop.delay(delay, hedgedCallback);
+			}
+			primary.sendRequest(request, timeout, hedgedCallback, hedgedCallback.startTimestamp);
+		}
+
+		private final class HedgedCallback<I, O> implements Callback<O>, Runnable {
+			private final I request;
+			private final int timeout;
+			private final Callback<O> cb;
+			private final int backupIndex;
+			private final long startTimestamp = eventloop.currentTimeMillis();
+			@Nullable
+			private ScheduledRunnable scheduledRunnable;
+			private int outstanding = 1;
+			private boolean done;
+
+			HedgedCallback(I request, int timeout, Callback<O> cb, int backupIndex) {
+				this.request = request;
+				this.timeout = timeout;
+				this.cb = cb;
+				this.backupIndex = backupIndex;
+			}
+
+			@Override
+			public void run() {
+				scheduledRunnable = null;
+				if (done) return;
+				if (budgetTokens < 1) {
+					overBudget.incrementAndGet();
+					return;
+				}
+				budgetTokens--;
+				outstanding++;
+				hedges.incrementAndGet();
+				int remaining = timeout == Integer.MAX_VALUE ?
+						Integer.MAX_VALUE :
+						(int) (timeout - (eventloop.currentTimeMillis() - startTimestamp));
+				subSenders[backupIndex].sendRequest(request, Math.max(remaining, 1), (O result, @Nullable Throwable e) -> {
+					if (e == null && !done) {
+						hedgeWins.incrementAndGet();
+					}
+					accept(result, e);
+				}, eventloop.currentTimeMillis());
+			}
+
+			@Override
+			public void accept(O result, @Nullable Throwable e) {
+				outstanding--;
+				if (done) return;
+				if (e != null && outstanding != 0) {
+					// the other request may still succeed
+					return;
+				}
+				done = true;
+				if (scheduledRunnable != null) {
+					scheduledRunnable.cancel();
+					scheduledRunnable = null;
+				}
+				cb.accept(result, e);
+			}
+		}
+	}
+
+	/**
+	 * A sub-strategy with an estimate of a quantile of its response times
+	 */
+	private final class SenderLatency {
+		private final Eventloop eventloop;
+		private final String name;
+		private final RpcSender sender;
+		private volatile double quantileMillis;
+
+		SenderLatency(Eventloop eventloop, String name, RpcSender sender) {
+			this.eventloop = eventloop;
+			this.name = name;
+			this.sender = sender;
+		}
+
+		<I, O> void sendRequest(I request, int timeout, Callback<O> cb, long timestamp) {
+			sender.sendRequest(request, timeout, (O result, @Nullable Throwable e) -> {
+				if (e == null) {
+					recordLatency(eventloop.currentTimeMillis() - timestamp);
+				}
+				cb.accept(result, e);
+			});
+		}
+
+		/**
+		 * Updates a streaming estimate of a quantile, which moves up by {@code quantile} steps on samples above it
+		 * and down by {@code 1 - quantile} steps on samples below it, so that it stops at the quantile
+		 */
+		void recordLatency(long millis) {
+			double estimate = quantileMillis;
+			if (estimate == 0) {
+				quantileMillis = Math.max(millis, 1);
+			} else if (millis > estimate) {
+				quantileMillis = estimate * (1 + QUANTILE_STEP * quantile);
+			} else if (millis < estimate) {
+				quantileMillis = estimate / (1 + QUANTILE_STEP * (1 - quantile));
+			}
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public long getRequests() {
+		return requests.get();
+	}
+
+	@JmxAttribute
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	@JmxAttribute
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	@JmxAttribute(description = "number of requests which were not hedged because a hedging budget was exceeded")
+	public long getOverBudget() {
+		return overBudget.get();
+	}
+
+	@JmxAttribute(description = "ratio of hedged requests to all the requests")
+	public double getHedgeRate() {
+		long requests = this.requests.get();
+		return requests == 0 ? 0 : (double) hedges.get() / requests;
+	}
+
+	@JmxAttribute(description = "ratio of hedged requests which have completed before original ones")
+	public double getWinRate() {
+		long hedges = this.hedges.get();
+		return hedges == 0 ? 0 : (double) hedgeWins.get() / hedges;
+	}
+
+	@JmxAttribute(description = "estimated quantiles of response times of sub-strategies in milliseconds")
+	public Map<String, Double> getLatencyQuantiles() {
+		Sender sender = this.sender;
+		if (sender == null) return Collections.emptyMap();
+		Map<String, Double> result = new LinkedHashMap<>();
+		for (SenderLatency subSender : sender.subSenders) {
+			result.put(subSender.name, subSender.quantileMillis);
+		}
+		return result;
+	}
+
+	@JmxOperation
+	public void resetStats() {
+		requests.set(0);
+		hedges.set(0);
+		hedgeWins.set(0);
+		overBudget.set(0);
+	}
+	// endregion
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.datastream.StreamSupplier;
+import io.activej.jmx.api.ConcurrentJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import io.activej.rpc.protocol.RpcOverloadException;
+import io.activej.rpc.protocol.RpcRemoteException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * A load balancing strategy which takes load of its sub-strategies into account.
+ * <p>
+ * A load of a sub-strategy is estimated by a number of its outstanding requests
+ * and by an exponentially weighted moving average of its response times.
+ * A sub-strategy which replies with {@link RpcOverloadException} is not chosen for a
+ * {@link #withOverloadPenalty penalty period}, unless all the sub-strategies are penalized.
+ * <p>
+ * Two ways of choosing a sub-strategy are supported:
+ * <ul>
+ *     <li>least outstanding - a sub-strategy with the fewest outstanding requests is chosen</li>
+ *     <li>power of two choices - the less loaded one of two random sub-strategies is chosen,
+ *     which spreads load almost as well, but avoids herding of all the requests on the same sub-strategy</li>
+ * </ul>
+ * Loads of sub-strategies are tracked by this strategy itself, so requests which are sent
+ * to the same servers by other strategies are not accounted for.
+ */
+public final class RpcStrategyLoadAware implements RpcStrategy, ConcurrentJmxBean {
+	public static final Duration DEFAULT_OVERLOAD_PENALTY = Duration.ofSeconds(1);
+	public static final double DEFAULT_LATENCY_SMOOTHING = 0.1;
+
+	private static final long MIN_LATENCY_NANOS = 1_000;
+
+	private final RpcStrategyList list;
+	private final boolean powerOfTwoChoices;
+	private final int minActiveSubStrategies;
+	private final long overloadPenaltyNanos;
+	private final double latencySmoothing;
+
+	@Nullable
+	private volatile Sender sender;
+
+	private RpcStrategyLoadAware(RpcStrategyList list, boolean powerOfTwoChoices, int minActiveSubStrategies,
+			long overloadPenaltyNanos, double latencySmoothing) {
+		this.list = list;
+		this.powerOfTwoChoices = powerOfTwoChoices;
+		this.minActiveSubStrategies = minActiveSubStrategies;
+		this.overloadPenaltyNanos = overloadPenaltyNanos;
+		this.latencySmoothing = latencySmoothing;
+	}
+
+	public static RpcStrategyLoadAware leastOutstanding(RpcStrategyList list) {
+		return new RpcStrategyLoadAware(list, false, 0, DEFAULT_OVERLOAD_PENALTY.toNanos(), DEFAULT_LATENCY_SMOOTHING);
+	}
+
+	public static RpcStrategyLoadAware powerOfTwoChoices(RpcStrategyList list) {
+		return new RpcStrategyLoadAware(list, true, 0, DEFAULT_OVERLOAD_PENALTY.toNanos(), DEFAULT_LATENCY_SMOOTHING);
+	}
+
+	public RpcStrategyLoadAware withMinActiveSubStrategies(int minActiveSubStrategies) {
+		return new RpcStrategyLoadAware(list, powerOfTwoChoices, minActiveSubStrategies, overloadPenaltyNanos, latencySmoothing);
+	}
+
+	/**
+	 * Sets a time for which a sub-strategy is not chosen after it has replied with {@link RpcOverloadException}
+	 */
+	public RpcStrategyLoadAware withOverloadPenalty(@NotNull Duration overloadPenalty) {
+		return new RpcStrategyLoadAware(list, powerOfTwoChoices, minActiveSubStrategies, overloadPenalty.toNanos(), latencySmoothing);
+	}
+
+	/**
+	 * Sets a weight of the latest response time in a moving average of response times
+	 */
+	public RpcStrategyLoadAware withLatencySmoothing(double latencySmoothing) {
+		checkArgument(latencySmoothing > 0 && latencySmoothing <= 1, "Latency smoothing should be within (0, 1]");
+		return new RpcStrategyLoadAware(list, powerOfTwoChoices, minActiveSubStrategies, overloadPenaltyNanos, latencySmoothing);
+	}
+
+	@Override
+	public Set<InetSocketAddress> getAddresses() {
+		return list.getAddresses();
+	}
+
+	@Nullable
+	@Override
+	public RpcSender createSender(RpcClientConnectionPool pool) {
+		List<SenderLoad> loads = new ArrayList<>();
+		for (int i = 0; i < list.size(); i++) {
+			RpcStrategy strategy = list.get(i);
+			RpcSender subSender = strategy.createSender(pool);
+			if (subSender != null) {
+				Set<InetSocketAddress> addresses = strategy.getAddresses();
+				String name = addresses.size() == 1 ? addresses.iterator().next().toString() : addresses.toString();
+				loads.add(new SenderLoad(name, subSender));
+			}
+		}
+		if (loads.isEmpty() || loads.size() < minActiveSubStrategies) {
+			sender = null;
+			return null;
+		}
+		Sender sender = new Sender(loads.toArray(new SenderLoad[0]), new Random().nextLong() | 1);
+		this.sender = sender;
+		return sender;
+	}
+
+	private final class Sender implements RpcSender {
+		private final SenderLoad[] loads;
+		private long lastRandomLong;
+		private int nextIndex;
+
+		Sender(SenderLoad[] loads, long seed) {
+			this.loads = loads;
+			for (SenderLoad load : loads) {
+				load.owner = this;
+			}
+			this.lastRandomLong = seed;
+		}
+
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			long now = System.nanoTime();
+			SenderLoad load = loads.length == 1 ? loads[0] : powerOfTwoChoices ? chooseOfTwo(now) : chooseLeastOutstanding(now);
+			load.inFlight++;
+			load.sender.sendRequest(request, timeout, (O result, @Nullable Throwable e) -> {
+				load.inFlight--;
+				long completed = System.nanoTime();
+				if (e == null || e instanceof RpcRemoteException || e instanceof AsyncTimeoutException) {
+					load.recordLatency(completed - now, latencySmoothing);
+				} else if (e instanceof RpcOverloadException) {
+					load.penalizedUntil = completed + overloadPenaltyNanos;
+				}
+				cb.accept(result, e);
+			});
+		}
+
+		@Override
+		public <I, T, O> StreamSupplier<O> sendStreamRequest(I request, @NotNull StreamSupplier<T> input) {
+			long now = System.nanoTime();
+			SenderLoad load = loads.length == 1 ? loads[0] : powerOfTwoChoices ? chooseOfTwo(now) : chooseLeastOutstanding(now);
+			return load.sender.sendStreamRequest(request, input);
+		}
+
+		private SenderLoad chooseLeastOutstanding(long now) {
+			SenderLoad best = null;
+			boolean bestPenalized = true;
+			int length = loads.length;
+			int start = nextIndex;
+			nextIndex = start + 1 == length ? 0 : start + 1;
+			for (int i = 0; i < length; i++) {
+				int index = start + i;
+				SenderLoad load = loads[index < length ? index : index - length];
+				boolean penalized = load.isPenalized(now);
+				if (best == null ||
+						bestPenalized && !penalized ||
+						bestPenalized == penalized && load.inFlight < best.inFlight) {
+					best = load;
+					bestPenalized = penalized;
+				}
+			}
+			return best;
+		}
+
+		private SenderLoad chooseOfTwo(long now) {
+			int length = loads.length;
+			int first = nextRandom(length);
+			int second = nextRandom(length - 1);
+			if (second >= first) second++;
+			SenderLoad a = loads[first];
+			SenderLoad b = loads[second];
+			boolean aPenalized = a.isPenalized(now);
+			boolean bPenalized = b.isPenalized(now);
+			if (aPenalized != bPenalized) return aPenalized ? b : a;
+			if (aPenalized) return chooseLeastOutstanding(now);
+			return a.getCost() <= b.getCost() ? a : b;
+		}
+
+		private int nextRandom(int bound) {
+			lastRandomLong ^= (lastRandomLong << 21);
+			lastRandomLong ^= (lastRandomLong >>> 35);
+			lastRandomLong ^= (lastRandomLong << 4);
+			return (int) ((lastRandomLong & Long.MAX_VALUE) % bound);
+		}
+	}
+
+	/**
+	 * A load of a sub-strategy as seen by this strategy
+	 */
+	public static final class SenderLoad {
+		private final String name;
+		private final RpcSender sender;
+		private Sender owner;
+
+		private int inFlight;
+		private double latencyNanos;
+		private long penalizedUntil;
+
+		SenderLoad(String name, RpcSender sender) {
+			this.name = name;
+			this.sender = sender;
+		}
+
+		void recordLatency(long nanos, double smoothing) {
+			latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + (nanos - latencyNanos) * smoothing;
+		}
+
+		boolean isPenalized(long now) {
+			return penalizedUntil != 0 && now - penalizedUntil < 0;
+		}
+
+		/**
+		 * An estimated time to serve a request, if requests are served one by one
+		 */
+		double getCost() {
+			return (inFlight + 1) * Math.max(latencyNanos, MIN_LATENCY_NANOS);
+		}
+
+		@JmxAttribute
+		public int getInFlight() {
+			return inFlight;
+		}
+
+		@JmxAttribute(description = "moving average of response times in milliseconds")
+		public double getLatency() {
+			return latencyNanos / 1_000_000;
+		}
+
+		@JmxAttribute
+		public boolean isPenalized() {
+			return isPenalized(System.nanoTime());
+		}
+
+		@JmxAttribute(description = "expected share of requests, which is inversely proportional to an estimated load")
+		public double getWeight() {
+			long now = System.nanoTime();
+			double total = 0;
+			for (SenderLoad load : owner.loads) {
+				if (!load.isPenalized(now)) {
+					total += 1 / load.getCost();
+				}
+			}
+			return total == 0 || isPenalized(now) ? 0 : 1 / getCost() / total;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute(description = "loads of sub-strategies of a current sender")
+	public Map<String, SenderLoad> getSenderLoads() {
+		Sender sender = this.sender;
+		if (sender == null) return Collections.emptyMap();
+		Map<String, SenderLoad> result = new LinkedHashMap<>();
+		for (SenderLoad load : sender.loads) {
+			result.put(load.name, load);
+		}
+		return result;
+	}
+	// endregion
+}
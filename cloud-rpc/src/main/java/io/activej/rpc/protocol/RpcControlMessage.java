@@ -19,5 +19,13 @@ package io.activej.rpc.protocol;
 public enum RpcControlMessage {
 	CLOSE,
 	PING,
-	PONG
+	PONG,
+	/**
+	 * Signals that a sender of a stream has sent all its items
+	 */
+	END_OF_STREAM,
+	/**
+	 * Signals that a receiver of a stream no longer accepts items
+	 */
+	CANCEL
 }
@@ -20,20 +20,36 @@ import io.activej.serializer.annotations.Deserialize;
 import io.activej.serializer.annotations.Serialize;
 import io.activej.serializer.annotations.SerializeNullable;
 import io.activej.serializer.annotations.SerializeSubclasses;
+import io.activej.serializer.annotations.SerializeVarLength;
 
+/**
+ * An envelope of RPC requests and responses.
+ * <p>
+ * A request may carry a deadline, which consists of a timestamp of a client at the moment a request was sent
+ * and a timeout of the request. A deadline is relative, as clocks of a client and a server may differ.
+ */
 public final class RpcMessage {
 	public static final String MESSAGE_TYPES = "messageTypes";
 
 	private final int cookie;
 	private final Object data;
+	private final long timestamp;
+	private final int timeout;
 
-	private RpcMessage(int cookie, Object data) {
+	private RpcMessage(int cookie, Object data, long timestamp, int timeout) {
 		this.cookie = cookie;
 		this.data = data;
+		this.timestamp = timestamp;
+		this.timeout = timeout;
+	}
+
+	public static RpcMessage of(int cookie, Object data) {
+		return new RpcMessage(cookie, data, 0, 0);
 	}
 
-	public static RpcMessage of(@Deserialize("cookie") int cookie, @Deserialize("data") Object data) {
-		return new RpcMessage(cookie, data);
+	public static RpcMessage of(@Deserialize("cookie") int cookie, @Deserialize("data") Object data,
+			@Deserialize("timestamp") long timestamp, @Deserialize("timeout") int timeout) {
+		return new RpcMessage(cookie, data, timestamp, timeout);
 	}
 
 	@Serialize(order = 1)
@@ -43,7 +59,7 @@ public final class RpcMessage {
 
 	@Serialize(order = 2)
 	@SerializeSubclasses(
-			startIndex = -1, value = {RpcControlMessage.class, RpcRemoteException.class},
+			startIndex = -1, value = {RpcControlMessage.class, RpcRemoteException.class, RpcStreamCredit.class},
 			extraSubclassesId = MESSAGE_TYPES
 	)
 
@@ -52,11 +68,34 @@ public final class RpcMessage {
 		return data;
 	}
 
+	/**
+	 * Returns a time in milliseconds of a client at which a request was sent, or {@code 0} if a request has no deadline
+	 */
+	@Serialize(order = 3)
+	@SerializeVarLength
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns a timeout of a request in milliseconds, or {@code 0} if a request has no deadline
+	 */
+	@Serialize(order = 4)
+	@SerializeVarLength
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public boolean hasDeadline() {
+		return timeout != 0;
+	}
+
 	@Override
 	public String toString() {
 		return "RpcMessage{" +
 				"cookie=" + cookie +
 				", data=" + data +
+				(timeout != 0 ? ", timeout=" + timeout : "") +
 				'}';
 	}
 }
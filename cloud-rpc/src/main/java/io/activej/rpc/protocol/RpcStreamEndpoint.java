@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.protocol;
+
+import io.activej.datastream.AbstractStreamConsumer;
+import io.activej.datastream.AbstractStreamSupplier;
+import io.activej.datastream.StreamConsumer;
+import io.activej.datastream.StreamDataAcceptor;
+import io.activej.datastream.StreamSupplier;
+import org.jetbrains.annotations.NotNull;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * One end of a streaming RPC call, which is multiplexed over an {@link RpcStream} by a cookie of a call.
+ * <p>
+ * Items of a local {@link #getOutput() output} are sent to a peer, and items received from a peer
+ * are supplied by a local {@link #getInput() input}.
+ * <p>
+ * Each direction is flow controlled by credits: a receiver allows a sender to send up to a window of items,
+ * and grants more credits as soon as a half of a window has been consumed,
+ * so a slow consumer does not make items pile up in buffers of a connection.
+ * A receiver which no longer accepts items cancels a stream, which closes an output of a sender,
+ * and a sender replies with an end of stream, after which no more items of a stream arrive.
+ */
+public final class RpcStreamEndpoint<I, O> {
+	public static final int DEFAULT_WINDOW = 256;
+	public static final RpcException STREAM_CANCELLED = new RpcException("Stream has been cancelled by a receiver");
+
+	private final int cookie;
+	private final StreamDataAcceptor<RpcMessage> messageAcceptor;
+	private final int window;
+	private final Runnable onClose;
+
+	private final Input input = new Input();
+	private final Output output = new Output();
+
+	private boolean closed;
+
+	public RpcStreamEndpoint(int cookie, StreamDataAcceptor<RpcMessage> messageAcceptor, int window, Runnable onClose) {
+		checkArgument(window > 0, "Window should be positive");
+		this.cookie = cookie;
+		this.messageAcceptor = messageAcceptor;
+		this.window = window;
+		this.onClose = onClose;
+	}
+
+	public int getCookie() {
+		return cookie;
+	}
+
+	public StreamSupplier<I> getInput() {
+		return input;
+	}
+
+	public StreamConsumer<O> getOutput() {
+		return output;
+	}
+
+	/**
+	 * Grants initial credits to a peer, should be called after a request which opens a call has been sent
+	 */
+	public void start() {
+		input.grantCredits();
+	}
+
+	/**
+	 * Processes data of a message which has been received from a peer
+	 */
+	@SuppressWarnings("unchecked")
+	public void accept(Object data) {
+		if (data == RpcControlMessage.END_OF_STREAM) {
+			input.onPeerEndOfStream();
+		} else if (data == RpcControlMessage.CANCEL) {
+			output.onPeerCancel();
+		} else if (data instanceof RpcStreamCredit) {
+			output.onCredit(((RpcStreamCredit) data).getCredit());
+		} else if (data instanceof RpcRemoteException) {
+			input.onPeerError((RpcRemoteException) data);
+			output.onPeerError((RpcRemoteException) data);
+		} else {
+			input.onItem((I) data);
+		}
+	}
+
+	/**
+	 * Returns whether data of a message is a signal of a stream, which may still arrive after a stream has been closed
+	 */
+	public static boolean isStreamSignal(Object data) {
+		return data == RpcControlMessage.END_OF_STREAM || data == RpcControlMessage.CANCEL || data instanceof RpcStreamCredit;
+	}
+
+	/**
+	 * Cancels an input if it has not been consumed, so that a peer does not wait for credits
+	 */
+	public void cancelInputIfNotStarted() {
+		if (!input.isStarted()) {
+			input.closeEx(STREAM_CANCELLED);
+		}
+	}
+
+	/**
+	 * Closes both directions without notifying a peer, as a connection is closed
+	 */
+	public void close(@NotNull Throwable e) {
+		closed = true;
+		input.closeEx(e);
+		output.closeEx(e);
+	}
+
+	private void send(Object data) {
+		if (!closed) {
+			messageAcceptor.accept(RpcMessage.of(cookie, data));
+		}
+	}
+
+	private void onDirectionClosed() {
+		if (closed || !input.completed || !input.peerEnded || !output.completed) return;
+		closed = true;
+		onClose.run();
+	}
+
+	private final class Input extends AbstractStreamSupplier<I> {
+		private int credits;
+		private boolean peerEnded;
+		private boolean completed;
+
+		void onItem(I item) {
+			credits--;
+			send(item);
+			if (isReady()) {
+				grantCredits();
+			}
+		}
+
+		void onPeerEndOfStream() {
+			peerEnded = true;
+			sendEndOfStream();
+			onDirectionClosed();
+		}
+
+		void onPeerError(RpcRemoteException e) {
+			peerEnded = true;
+			closeEx(e);
+			onDirectionClosed();
+		}
+
+		void grantCredits() {
+			if (peerEnded || credits > window / 2) return;
+			int credit = window - credits;
+			credits = window;
+			RpcStreamEndpoint.this.send(new RpcStreamCredit(credit));
+		}
+
+		@Override
+		protected void onResumed() {
+			grantCredits();
+		}
+
+		@Override
+		protected void onAcknowledge() {
+			if (!peerEnded) {
+				RpcStreamEndpoint.this.send(RpcControlMessage.CANCEL);
+			}
+		}
+
+		@Override
+		protected void onError(Throwable e) {
+			if (!peerEnded) {
+				RpcStreamEndpoint.this.send(RpcControlMessage.CANCEL);
+			}
+		}
+
+		@Override
+		protected void onComplete() {
+			completed = true;
+			onDirectionClosed();
+		}
+	}
+
+	private final class Output extends AbstractStreamConsumer<O> {
+		private int credits;
+		private boolean peerCancelled;
+		private boolean completed;
+		private final StreamDataAcceptor<O> dataAcceptor = item -> {
+			send(item);
+			if (--credits == 0) {
+				suspend();
+			}
+		};
+
+		void onCredit(int credit) {
+			credits += credit;
+			if (credits > 0) {
+				resume(dataAcceptor);
+			}
+		}
+
+		void onPeerCancel() {
+			onPeerCancel(STREAM_CANCELLED);
+		}
+
+		/**
+		 * A peer which has failed, or has no handler of a stream, neither grants credits nor cancels a stream,
+		 * so an output is closed as if it has been cancelled
+		 */
+		void onPeerError(RpcRemoteException e) {
+			onPeerCancel(e);
+		}
+
+		private void onPeerCancel(Throwable e) {
+			if (isEndOfStream()) return;
+			peerCancelled = true;
+			send(RpcControlMessage.END_OF_STREAM);
+			closeEx(e);
+		}
+
+		@Override
+		protected void onEndOfStream() {
+			send(RpcControlMessage.END_OF_STREAM);
+			acknowledge();
+		}
+
+		@Override
+		protected void onError(Throwable e) {
+			if (!peerCancelled) {
+				send(e instanceof RpcRemoteException ? e : new RpcRemoteException(e));
+			}
+		}
+
+		@Override
+		protected void onComplete() {
+			completed = true;
+			onDirectionClosed();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RpcStreamEndpoint{cookie=" + cookie + ", input=" + input.credits + ", output=" + output.credits + '}';
+	}
+}
@@ -36,6 +36,7 @@ import io.activej.rpc.client.RpcClient;
 import io.activej.rpc.protocol.RpcControlMessage;
 import io.activej.rpc.protocol.RpcMessage;
 import io.activej.rpc.protocol.RpcStream;
+import io.activej.rpc.protocol.RpcStreamEndpoint;
 import io.activej.serializer.BinarySerializer;
 import io.activej.serializer.SerializerBuilder;
 import org.jetbrains.annotations.NotNull;
@@ -74,6 +75,14 @@ import static java.util.Arrays.asList;
  * <li>Run the server</li>
  * </ul>
  *
+ * <p>
+ * Requests may carry deadlines of clients. A request which has expired before it is handled
+ * is replied with an error instead, and a remaining time of a request which is being handled
+ * may be obtained by a {@link RpcRequestHandler} with {@link #getRemainingTime()}.
+ * <p>
+ * A {@link RpcStreamHandler stream handler} replies with a stream of items, which is sent
+ * over the same connection as other requests, with flow control of its own.
+ *
  * @see RpcRequestHandler
  * @see RpcClient
  */
@@ -87,6 +96,8 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	private Duration autoFlushInterval = Duration.ZERO;
 
 	private final Map<Class<?>, RpcRequestHandler<?, ?>> handlers = new LinkedHashMap<>();
+	private final Map<Class<?>, RpcStreamHandler<?, ?, ?>> streamHandlers = new LinkedHashMap<>();
+	private int streamWindow = RpcStreamEndpoint.DEFAULT_WINDOW;
 	private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 	private SerializerBuilder serializerBuilder = SerializerBuilder.create(classLoader);
 	private List<Class<?>> messageTypes;
@@ -97,6 +108,8 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 
 	private SettablePromise<Void> closeCallback;
 
+	static final ThreadLocal<long[]> REQUEST_DEADLINE = ThreadLocal.withInitial(() -> new long[1]);
+
 	// region JMX vars
 	static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
 	private final EventStats totalConnects = EventStats.create(SMOOTHING_WINDOW);
@@ -104,6 +117,8 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	private final EventStats successfulRequests = EventStats.create(SMOOTHING_WINDOW);
 	private final EventStats failedRequests = EventStats.create(SMOOTHING_WINDOW);
 	private final ValueStats requestHandlingTime = ValueStats.create(SMOOTHING_WINDOW).withUnit("milliseconds");
+	private final EventStats expiredRequests = EventStats.create(SMOOTHING_WINDOW);
+	private final ValueStats queueTime = ValueStats.create(SMOOTHING_WINDOW).withUnit("milliseconds");
 	private final ExceptionStats lastRequestHandlingException = ExceptionStats.create();
 	private final ExceptionStats lastProtocolError = ExceptionStats.create();
 	private boolean monitoring;
@@ -187,18 +202,68 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	 * @return server instance capable for handling requests of concrete types
 	 */
 	public <I, O> RpcServer withHandler(Class<I> requestClass, RpcRequestHandler<I, O> handler) {
-		checkArgument(!handlers.containsKey(requestClass), "Handler for {} has already been added", requestClass);
+		checkArgument(!handlers.containsKey(requestClass) && !streamHandlers.containsKey(requestClass),
+				"Handler for {} has already been added", requestClass);
 		handlers.put(requestClass, handler);
 		return this;
 	}
 
+	/**
+	 * Adds a handler for requests which are replied with streams of items.
+	 *
+	 * @param requestClass a class representing a request structure
+	 * @param handler      a handler which creates a stream of items
+	 * @param <I>          class of request
+	 * @param <T>          class of items sent by a client
+	 * @param <O>          class of items sent to a client
+	 * @return server instance capable for handling streaming requests of concrete types
+	 */
+	public <I, T, O> RpcServer withStreamHandler(Class<I> requestClass, RpcStreamHandler<I, T, O> handler) {
+		checkArgument(!handlers.containsKey(requestClass) && !streamHandlers.containsKey(requestClass),
+				"Handler for {} has already been added", requestClass);
+		streamHandlers.put(requestClass, handler);
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of items of each stream which a client may send before they are consumed
+	 */
+	public RpcServer withStreamWindow(int streamWindow) {
+		checkArgument(streamWindow > 0, "Stream window should be positive");
+		this.streamWindow = streamWindow;
+		return this;
+	}
+
 	// endregion
 
+	/**
+	 * Returns a deadline of a request which is being handled, as a time of an eventloop in milliseconds,
+	 * or {@code 0} if a request has no deadline.
+	 * <p>
+	 * This method should be called by a {@link RpcRequestHandler} before it returns a promise,
+	 * a deadline may be saved to be checked later on.
+	 */
+	public static long getRequestDeadline() {
+		return REQUEST_DEADLINE.get()[0];
+	}
+
+	/**
+	 * Returns a remaining time in milliseconds of a request which is being handled,
+	 * or {@link Long#MAX_VALUE} if a request has no deadline.
+	 *
+	 * @see #getRequestDeadline()
+	 */
+	public static long getRemainingTime() {
+		long deadline = getRequestDeadline();
+		if (deadline == 0) return Long.MAX_VALUE;
+		return Math.max(deadline - Eventloop.getCurrentEventloop().currentTimeMillis(), 0);
+	}
+
 	@Override
 	protected void serve(AsyncTcpSocket socket, InetAddress remoteAddress) {
 		RpcStream stream = new RpcStream(socket, serializer, initialBufferSize,
 				autoFlushInterval, frameFormat, true); // , statsSerializer, statsDeserializer, statsCompressor, statsDecompressor);
-		RpcServerConnection connection = new RpcServerConnection(this, remoteAddress, handlers, stream);
+		RpcServerConnection connection = new RpcServerConnection(this, remoteAddress, handlers, streamHandlers, streamWindow, stream);
 		stream.setListener(connection);
 		add(connection);
 
@@ -289,6 +354,15 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 		return connections.size();
 	}
 
+	@JmxAttribute(description = "current number of streaming requests", reducer = JmxReducerSum.class)
+	public int getActiveStreams() {
+		int activeStreams = 0;
+		for (RpcServerConnection connection : connections) {
+			activeStreams += connection.getActiveStreams();
+		}
+		return activeStreams;
+	}
+
 	@JmxAttribute
 	public EventStats getTotalConnects() {
 		return totalConnects;
@@ -323,6 +397,17 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 		return requestHandlingTime;
 	}
 
+	@JmxAttribute(extraSubAttributes = "totalCount", description = "number of requests which have expired before being handled")
+	public EventStats getExpiredRequests() {
+		return expiredRequests;
+	}
+
+	@JmxAttribute(description = "estimated time in milliseconds which requests with deadlines have spent " +
+			"in queues of a client, a network and a server before being handled")
+	public ValueStats getQueueTime() {
+		return queueTime;
+	}
+
 	@JmxAttribute(description = "exception that occurred because of business logic error " +
 			"(in RpcRequestHandler implementation)")
 	public ExceptionStats getLastRequestHandlingException() {
@@ -16,8 +16,12 @@
 
 package io.activej.rpc.server;
 
+import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.common.exception.CloseException;
 import io.activej.common.exception.MalformedDataException;
 import io.activej.datastream.StreamDataAcceptor;
+import io.activej.datastream.StreamSupplier;
+import io.activej.eventloop.Eventloop;
 import io.activej.jmx.api.JmxRefreshable;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.stats.EventStats;
@@ -28,38 +32,65 @@ import io.activej.rpc.protocol.RpcControlMessage;
 import io.activej.rpc.protocol.RpcMessage;
 import io.activej.rpc.protocol.RpcRemoteException;
 import io.activej.rpc.protocol.RpcStream;
+import io.activej.rpc.protocol.RpcStreamEndpoint;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public final class RpcServerConnection implements RpcStream.Listener, JmxRefreshable {
 	private static final Logger logger = LoggerFactory.getLogger(RpcServerConnection.class);
 
+	/**
+	 * A window of a minimum delay of requests, which should be short enough to follow
+	 * drift and adjustments of clocks, but long enough to contain requests which have not been queued
+	 */
+	static final long MIN_DELAY_WINDOW_MILLIS = 10_000;
+
 	private StreamDataAcceptor<RpcMessage> downstreamDataAcceptor;
 
+	private final Eventloop eventloop;
 	private final RpcServer rpcServer;
 	private final RpcStream stream;
 	private final Map<Class<?>, RpcRequestHandler<?, ?>> handlers;
+	private final Map<Class<?>, RpcStreamHandler<?, ?, ?>> streamHandlers;
+	private final int streamWindow;
+	private final Map<Integer, RpcStreamEndpoint<Object, Object>> streams = new HashMap<>();
+	private final long[] requestDeadline = RpcServer.REQUEST_DEADLINE.get();
 
 	private int activeRequests = 1;
 
+	// a delay of a request is a difference between a time of a server and a time of a client,
+	// its minimum within a window is taken as a delay of a request which has not been queued
+	private long minDelay = Long.MAX_VALUE;
+	private long prevMinDelay = Long.MAX_VALUE;
+	private long minDelayWindowStart;
+
 	// jmx
 	private final InetAddress remoteAddress;
 	private final ExceptionStats lastRequestHandlingException = ExceptionStats.create();
 	private final ValueStats requestHandlingTime = ValueStats.create(RpcServer.SMOOTHING_WINDOW).withUnit("milliseconds");
 	private final EventStats successfulRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
 	private final EventStats failedRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
+	private final EventStats expiredRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
+	private final ValueStats queueTime = ValueStats.create(RpcServer.SMOOTHING_WINDOW).withUnit("milliseconds");
 	private boolean monitoring = false;
 
 	RpcServerConnection(RpcServer rpcServer, InetAddress remoteAddress,
-			Map<Class<?>, RpcRequestHandler<?, ?>> handlers, RpcStream stream) {
+			Map<Class<?>, RpcRequestHandler<?, ?>> handlers, Map<Class<?>, RpcStreamHandler<?, ?, ?>> streamHandlers,
+			int streamWindow, RpcStream stream) {
+		this.eventloop = rpcServer.getEventloop();
 		this.rpcServer = rpcServer;
 		this.stream = stream;
 		this.handlers = handlers;
+		this.streamHandlers = streamHandlers;
+		this.streamWindow = streamWindow;
 
 		// jmx
 		this.remoteAddress = remoteAddress;
@@ -76,13 +107,52 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 
 	@Override
 	public void accept(RpcMessage message) {
+		int cookie = message.getCookie();
+		if (!streams.isEmpty()) {
+			RpcStreamEndpoint<Object, Object> endpoint = streams.get(cookie);
+			if (endpoint != null) {
+				endpoint.accept(message.getData());
+				return;
+			}
+		}
+		if (RpcStreamEndpoint.isStreamSignal(message.getData())) return;
+		if (!streamHandlers.isEmpty()) {
+			RpcStreamHandler<?, ?, ?> streamHandler = streamHandlers.get(message.getData().getClass());
+			if (streamHandler != null) {
+				serveStream(cookie, message.getData(), streamHandler);
+				return;
+			}
+		}
+
+		long deadline = 0;
+		if (message.hasDeadline()) {
+			long now = eventloop.currentTimeMillis();
+			long queued = estimateQueueTime(now, message.getTimestamp());
+			queueTime.recordValue((int) queued);
+			rpcServer.getQueueTime().recordValue((int) queued);
+			deadline = now - queued + message.getTimeout();
+			if (deadline <= now) {
+				expiredRequests.recordEvent();
+				rpcServer.getExpiredRequests().recordEvent();
+				downstreamDataAcceptor.accept(RpcMessage.of(cookie,
+						new RpcRemoteException(new AsyncTimeoutException("Request has expired before being handled"))));
+				return;
+			}
+		}
+
 		activeRequests++;
 
-		int cookie = message.getCookie();
 		long startTime = monitoring ? System.currentTimeMillis() : 0;
 
 		Object messageData = message.getData();
-		serve(messageData)
+		Promise<Object> promise;
+		requestDeadline[0] = deadline;
+		try {
+			promise = serve(messageData);
+		} finally {
+			requestDeadline[0] = 0;
+		}
+		promise
 				.whenComplete((result, e) -> {
 					if (startTime != 0) {
 						int value = (int) (System.currentTimeMillis() - startTime);
@@ -106,6 +176,56 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 				});
 	}
 
+	@SuppressWarnings("unchecked")
+	private void serveStream(int cookie, Object request, RpcStreamHandler<?, ?, ?> streamHandler) {
+		activeRequests++;
+
+		RpcStreamEndpoint<Object, Object> endpoint = new RpcStreamEndpoint<>(cookie,
+				message -> downstreamDataAcceptor.accept(message), streamWindow,
+				() -> {
+					if (streams.remove(cookie) == null) return;
+					if (--activeRequests == 0) {
+						doClose();
+						stream.sendEndOfStream();
+					}
+				});
+		streams.put(cookie, endpoint);
+		endpoint.start();
+
+		StreamSupplier<Object> output = ((RpcStreamHandler<Object, Object, Object>) streamHandler).run(request, endpoint.getInput());
+		output.streamTo(endpoint.getOutput())
+				.whenComplete(endpoint::cancelInputIfNotStarted)
+				.whenComplete(($, e) -> {
+					if (e == null) {
+						successfulRequests.recordEvent();
+						rpcServer.getSuccessfulRequests().recordEvent();
+					} else if (e != RpcStreamEndpoint.STREAM_CANCELLED) {
+						logger.warn("Exception while processing stream ID {}", cookie, e);
+						lastRequestHandlingException.recordException(e, request);
+						rpcServer.getLastRequestHandlingException().recordException(e, request);
+						failedRequests.recordEvent();
+						rpcServer.getFailedRequests().recordEvent();
+					}
+				});
+	}
+
+	/**
+	 * Estimates a time which a request has spent in queues as an excess of its delay
+	 * over a minimum delay of recent requests, so that clocks of a client and a server need not be synchronized
+	 */
+	private long estimateQueueTime(long now, long timestamp) {
+		long delay = now - timestamp;
+		if (now - minDelayWindowStart >= MIN_DELAY_WINDOW_MILLIS) {
+			prevMinDelay = minDelay;
+			minDelay = Long.MAX_VALUE;
+			minDelayWindowStart = now;
+		}
+		if (delay < minDelay) {
+			minDelay = delay;
+		}
+		return delay - Math.min(minDelay, prevMinDelay);
+	}
+
 	@Override
 	public void onReceiverEndOfStream() {
 		activeRequests--;
@@ -160,6 +280,14 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	private void doClose() {
 		rpcServer.remove(this);
 		downstreamDataAcceptor = $ -> {};
+		if (!streams.isEmpty()) {
+			List<RpcStreamEndpoint<Object, Object>> endpoints = new ArrayList<>(streams.values());
+			streams.clear();
+			CloseException e = new CloseException("Connection closed");
+			for (RpcStreamEndpoint<Object, Object> endpoint : endpoints) {
+				endpoint.close(e);
+			}
+		}
 	}
 
 	public void shutdown() {
@@ -192,6 +320,21 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 		return requestHandlingTime;
 	}
 
+	@JmxAttribute
+	public int getActiveStreams() {
+		return streams.size();
+	}
+
+	@JmxAttribute
+	public EventStats getExpiredRequests() {
+		return expiredRequests;
+	}
+
+	@JmxAttribute
+	public ValueStats getQueueTime() {
+		return queueTime;
+	}
+
 	@JmxAttribute
 	public ExceptionStats getLastRequestHandlingException() {
 		return lastRequestHandlingException;
@@ -207,6 +350,8 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 		successfulRequests.refresh(timestamp);
 		failedRequests.refresh(timestamp);
 		requestHandlingTime.refresh(timestamp);
+		expiredRequests.refresh(timestamp);
+		queueTime.refresh(timestamp);
 	}
 
 	@Override
@@ -216,6 +361,7 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 				",active=" + activeRequests +
 				", successes=" + successfulRequests.getTotalCount() +
 				", failures=" + failedRequests.getTotalCount() +
+				", expired=" + expiredRequests.getTotalCount() +
 				'}';
 	}
 }
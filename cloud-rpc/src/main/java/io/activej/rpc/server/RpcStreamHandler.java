@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.server;
+
+import io.activej.datastream.StreamSupplier;
+
+/**
+ * A handler of a streaming request, which replies with a stream of items instead of a single response.
+ * <p>
+ * A client may also send a stream of items along with a request, which is supplied as an input of a handler.
+ * An input which has not been consumed by the time an output ends is cancelled.
+ *
+ * @param <I> class of request
+ * @param <T> class of items sent by a client
+ * @param <O> class of items sent to a client
+ */
+@FunctionalInterface
+public interface RpcStreamHandler<I, T, O> {
+	StreamSupplier<O> run(I request, StreamSupplier<T> input);
+}
@@ -0,0 +1,93 @@
+package io.activej.rpc;
+
+import io.activej.common.collection.Try;
+import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.rpc.client.RpcClient;
+import io.activej.rpc.server.RpcServer;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.ClassBuilderConstantsRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.rpc.client.sender.RpcStrategies.server;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.*;
+
+public final class RpcDeadlineTest {
+	private static final int PORT = getFreePort();
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Rule
+	public final ClassBuilderConstantsRule classBuilderConstantsRule = new ClassBuilderConstantsRule();
+
+	@Test
+	public void testExpiredRequestsAreNotHandled() throws Exception {
+		Map<String, Long> remainingTimes = new ConcurrentHashMap<>();
+		Eventloop serverEventloop = Eventloop.create();
+		RpcServer server = RpcServer.create(serverEventloop)
+				.withMessageTypes(String.class)
+				.withHandler(String.class, request -> {
+					remainingTimes.put(request, RpcServer.getRemainingTime());
+					if (request.equals("block")) {
+						// requests which are sent meanwhile wait in queues
+						try {
+							Thread.sleep(300);
+						} catch (InterruptedException e) {
+							return Promise.ofException(e);
+						}
+					}
+					return Promise.of(request);
+				})
+				.withListenPort(PORT);
+		server.listen();
+		Thread serverThread = new Thread(serverEventloop);
+		serverThread.start();
+
+		RpcClient client = RpcClient.create(Eventloop.getCurrentEventloop())
+				.withMessageTypes(String.class)
+				.withStrategy(server(new InetSocketAddress("localhost", PORT)));
+
+		Try<Object> expired = await(client.start()
+				.then(() -> client.sendRequest("warmup", 1000))
+				.then(() -> {
+					Promise<Object> blocking = client.sendRequest("block", 1000);
+					return Promises.delay(Duration.ofMillis(50))
+							.then(() -> {
+								Promise<Try<Object>> expiring = client.sendRequest("short", 100).toTry();
+								return Promises.all(blocking, client.sendRequest("long", 1000))
+										.then(() -> expiring);
+							});
+				})
+				.whenComplete(client::stop));
+		server.closeFuture().get();
+		serverThread.join();
+
+		assertThat(expired.getException(), instanceOf(AsyncTimeoutException.class));
+		assertFalse(remainingTimes.containsKey("short"));
+		assertTrue(remainingTimes.get("warmup") > 900);
+		assertTrue(remainingTimes.get("long") > 0);
+		assertTrue(remainingTimes.get("long") < 900);
+
+		assertEquals(1, server.getExpiredRequests().getTotalCount());
+		assertEquals(4, server.getQueueTime().getCount());
+		assertTrue(server.getQueueTime().getLastValue() >= 100);
+	}
+}
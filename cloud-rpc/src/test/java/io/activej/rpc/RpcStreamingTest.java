@@ -0,0 +1,173 @@
+package io.activej.rpc;
+
+import io.activej.common.ref.RefInt;
+import io.activej.datastream.AbstractStreamSupplier;
+import io.activej.datastream.StreamConsumer;
+import io.activej.datastream.StreamSupplier;
+import io.activej.datastream.processor.StreamFilter;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.rpc.client.RpcClient;
+import io.activej.rpc.client.sender.RpcStrategyRandomSampling;
+import io.activej.rpc.protocol.RpcRemoteException;
+import io.activej.rpc.server.RpcServer;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.ClassBuilderConstantsRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.rpc.client.sender.RpcStrategies.server;
+import static io.activej.rpc.protocol.RpcStreamEndpoint.STREAM_CANCELLED;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.*;
+
+public final class RpcStreamingTest {
+	private static final int STREAM_WINDOW = 16;
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Rule
+	public final ClassBuilderConstantsRule classBuilderConstantsRule = new ClassBuilderConstantsRule();
+
+	private final int port = getFreePort();
+	private RpcServer server;
+	private RpcClient client;
+	private CountingSupplier infiniteSupplier;
+
+	@Before
+	public void setUp() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		server = RpcServer.create(eventloop)
+				.withMessageTypes(Integer.class, String.class, Long.class, Boolean.class)
+				.withStreamHandler(Integer.class, (Integer request, StreamSupplier<Void> input) ->
+						StreamSupplier.ofStream(IntStream.range(0, request).boxed()))
+				.withStreamHandler(String.class, (String request, StreamSupplier<String> input) ->
+						input.transformWith(StreamFilter.mapper(item -> request + item)))
+				.withStreamHandler(Long.class, (Long request, StreamSupplier<Void> input) -> {
+					if (request < 0) {
+						return StreamSupplier.closingWithError(new IllegalArgumentException("Negative request"));
+					}
+					infiniteSupplier = new CountingSupplier();
+					return infiniteSupplier;
+				})
+				.withListenPort(port)
+				.withAcceptOnce();
+		server.listen();
+
+		client = RpcClient.create(eventloop)
+				.withMessageTypes(Integer.class, String.class, Long.class, Boolean.class)
+				.withStreamWindow(STREAM_WINDOW)
+				.withStrategy(server(new InetSocketAddress("localhost", port)));
+	}
+
+	@Test
+	public void testServerStream() {
+		List<Integer> result = await(client.start()
+				.then(() -> client.<Integer, Integer>sendStreamRequest(100_000).toList())
+				.whenComplete(client::stop));
+
+		assertEquals(IntStream.range(0, 100_000).boxed().collect(toList()), result);
+		assertEquals(1, server.getSuccessfulRequests().getTotalCount());
+		assertEquals(0, server.getActiveStreams());
+	}
+
+	@Test
+	public void testRandomSamplingStream() {
+		RpcClient samplingClient = RpcClient.create(Eventloop.getCurrentEventloop())
+				.withMessageTypes(Integer.class, String.class, Long.class, Boolean.class)
+				.withStrategy(RpcStrategyRandomSampling.create()
+						.add(1, server(new InetSocketAddress("localhost", port))));
+		List<Integer> result = await(samplingClient.start()
+				.then(() -> samplingClient.<Integer, Integer>sendStreamRequest(100).toList())
+				.whenComplete(samplingClient::stop));
+
+		assertEquals(IntStream.range(0, 100).boxed().collect(toList()), result);
+	}
+
+	@Test
+	public void testBidirectionalStream() {
+		List<String> result = await(client.start()
+				.then(() -> client.<String, String, String>sendStreamRequest("x", StreamSupplier.of("a", "b", "c")).toList())
+				.whenComplete(client::stop));
+
+		assertEquals(asList("xa", "xb", "xc"), result);
+	}
+
+	@Test
+	public void testServerError() {
+		Throwable e = awaitException(client.start()
+				.then(() -> client.<Long, Long>sendStreamRequest(-1L).toList())
+				.whenComplete(client::stop));
+
+		assertThat(e, instanceOf(RpcRemoteException.class));
+		assertEquals(1, server.getFailedRequests().getTotalCount());
+	}
+
+	@Test
+	public void testNoStreamHandler() {
+		RefInt activeStreams = new RefInt(-1);
+		Throwable e = awaitException(client.start()
+				.then(() -> client.<Boolean, Integer, Integer>sendStreamRequest(true,
+						StreamSupplier.ofStream(IntStream.range(0, 1000).boxed())).toList())
+				.thenEx(($, streamException) -> Promises.delay(Duration.ofMillis(10))
+						.whenResult(() -> activeStreams.set(client.getActiveStreams()))
+						.then(() -> Promise.<List<Integer>>ofException(streamException)))
+				.whenComplete(client::stop));
+
+		assertThat(e, instanceOf(RpcRemoteException.class));
+		// an output which has not been granted credits is closed, so a stream does not stay active
+		assertEquals(0, activeStreams.get());
+	}
+
+	@Test
+	public void testSlowConsumerAndCancellation() {
+		await(client.start()
+				.then(() -> {
+					StreamSupplier<Long> supplier = client.sendStreamRequest(0L);
+					supplier.streamTo(StreamConsumer.idle());
+					return Promises.delay(Duration.ofMillis(100))
+							.then(() -> {
+								// a server stops producing items once a window of a client is full
+								assertTrue(infiniteSupplier.count <= STREAM_WINDOW + 1);
+								supplier.closeEx(new Exception("Cancelled"));
+								return Promises.delay(Duration.ofMillis(100));
+							});
+				})
+				.whenComplete(client::stop));
+
+		assertSame(STREAM_CANCELLED, infiniteSupplier.getAcknowledgement().getException());
+		assertEquals(0, server.getFailedRequests().getTotalCount());
+		assertEquals(0, server.getActiveStreams());
+	}
+
+	private static final class CountingSupplier extends AbstractStreamSupplier<Long> {
+		long count;
+
+		@Override
+		protected void onResumed() {
+			while (isReady()) {
+				send(count++);
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RpcActiveRequestsTest {
+	private static final Callback<Object> NOOP = ($, e) -> {};
+
+	@Test
+	public void testPutRemove() {
+		RpcActiveRequests requests = new RpcActiveRequests();
+		Map<Integer, Callback<?>> expected = new HashMap<>();
+		Random random = new Random(0);
+
+		int cookie = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) != 0) {
+				cookie += 1 + random.nextInt(3);
+				Callback<Object> cb = ($, e) -> {};
+				requests.put(cookie, cb);
+				expected.put(cookie, cb);
+			} else {
+				List<Integer> keys = new ArrayList<>(expected.keySet());
+				Integer key = keys.get(random.nextInt(keys.size()));
+				assertSame(expected.remove(key), requests.remove(key));
+				assertNull(requests.remove(key));
+			}
+			assertEquals(expected.size(), requests.size());
+		}
+		for (Map.Entry<Integer, Callback<?>> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), requests.remove(entry.getKey()));
+		}
+		assertTrue(requests.isEmpty());
+	}
+
+	@Test
+	public void testPollExpired() {
+		RpcActiveRequests requests = new RpcActiveRequests();
+		Callback<Object> first = ($, e) -> {};
+		Callback<Object> second = ($, e) -> {};
+		Callback<Object> third = ($, e) -> {};
+
+		assertNull(requests.pollExpired(100));
+		requests.put(1, first, 105);
+		requests.put(2, NOOP);
+		requests.put(3, second, 105);
+		requests.put(4, NOOP, 110);
+		// expires in a later round of a wheel, but within the same bucket
+		requests.put(5, third, 105 + 512);
+		assertEquals(4, requests.getTimeouts());
+
+		assertNull(requests.pollExpired(104));
+		assertNotNull(requests.remove(4));
+
+		Set<Callback<?>> expired = new HashSet<>();
+		Callback<?> cb;
+		while ((cb = requests.pollExpired(106)) != null) {
+			expired.add(cb);
+		}
+		assertEquals(new HashSet<>(Arrays.asList(first, second)), expired);
+		assertEquals(1, requests.getTimeouts());
+		assertEquals(2, requests.size());
+
+		assertNull(requests.pollExpired(600));
+		assertSame(third, requests.pollExpired(10_000));
+		assertNull(requests.pollExpired(10_000));
+		assertEquals(0, requests.getTimeouts());
+		assertNotNull(requests.remove(2));
+		assertTrue(requests.isEmpty());
+	}
+
+	@Test
+	public void testManyTimeouts() {
+		RpcActiveRequests requests = new RpcActiveRequests();
+		for (int cookie = 1; cookie <= 10_000; cookie++) {
+			requests.put(cookie, NOOP, cookie % 1000);
+		}
+		for (int cookie = 1; cookie <= 10_000; cookie += 2) {
+			assertNotNull(requests.remove(cookie));
+		}
+
+		int expired = 0;
+		for (long tick = 0; tick < 1000; tick++) {
+			while (requests.pollExpired(tick) != null) {
+				expired++;
+			}
+			assertEquals(expired, 5000 - requests.size());
+		}
+		assertEquals(5000, expired);
+		assertTrue(requests.isEmpty());
+	}
+}
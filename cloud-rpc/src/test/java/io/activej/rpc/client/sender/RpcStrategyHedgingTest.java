@@ -0,0 +1,157 @@
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.rpc.client.sender.helper.RpcClientConnectionPoolStub;
+import io.activej.test.rules.EventloopRule;
+import org.jetbrains.annotations.NotNull;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.rpc.client.sender.RpcStrategies.hedging;
+import static io.activej.rpc.client.sender.RpcStrategies.servers;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.*;
+
+public class RpcStrategyHedgingTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	private static final String HOST = "localhost";
+
+	private static final InetSocketAddress ADDRESS_1 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_2 = new InetSocketAddress(HOST, getFreePort());
+
+	@Test
+	public void itShouldUseFirstResponseOfHedgedRequest() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10));
+		RpcSender sender = strategy.createSender(pool);
+
+		SettablePromise<Object> result = new SettablePromise<>();
+		sender.sendRequest("request", 1000, result);
+		assertEquals(1, connection1.pending.size());
+		assertEquals(0, connection2.pending.size());
+
+		await(Promises.delay(Duration.ofMillis(20)));
+		assertEquals(1, connection2.pending.size());
+
+		connection2.pending.get(0).accept("second", null);
+		assertEquals("second", result.getResult());
+
+		// a late response is ignored
+		connection1.pending.get(0).accept("first", null);
+		assertEquals("second", result.getResult());
+
+		assertEquals(1, strategy.getHedges());
+		assertEquals(1, strategy.getHedgeWins());
+		assertEquals(1, strategy.getWinRate(), 0);
+	}
+
+	@Test
+	public void itShouldNotHedgeFastRequests() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10));
+		RpcSender sender = strategy.createSender(pool);
+
+		SettablePromise<Object> result = new SettablePromise<>();
+		sender.sendRequest("request", 1000, result);
+		connection1.pending.get(0).accept("first", null);
+		assertEquals("first", result.getResult());
+
+		await(Promises.delay(Duration.ofMillis(20)));
+		assertEquals(0, connection2.requests);
+		assertEquals(0, strategy.getHedges());
+	}
+
+	@Test
+	public void itShouldWaitForHedgedRequestIfOriginalFails() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcSender sender = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10))
+				.createSender(pool);
+
+		SettablePromise<Object> result = new SettablePromise<>();
+		sender.sendRequest("request", 1000, result);
+		await(Promises.delay(Duration.ofMillis(20)));
+
+		connection1.pending.get(0).accept(null, new Exception("failed"));
+		assertFalse(result.isComplete());
+		connection2.pending.get(0).accept("second", null);
+		assertEquals("second", result.getResult());
+	}
+
+	@Test
+	public void itShouldLimitHedgesByBudget() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10))
+				.withBudget(0.1);
+		RpcSender sender = strategy.createSender(pool);
+
+		for (int i = 0; i < 100; i++) {
+			sender.sendRequest("request", 1000, new SettablePromise<>());
+		}
+		await(Promises.delay(Duration.ofMillis(20)));
+
+		// an initial burst of hedges is allowed, and then hedges are limited by a budget
+		assertTrue(strategy.getHedges() <= 20);
+		assertTrue(strategy.getOverBudget() >= 80);
+		assertEquals(100 + strategy.getHedges(), connection1.requests + connection2.requests);
+	}
+
+	@Test
+	public void itShouldNotHedgeExcludedRequests() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcSender sender = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10))
+				.withHedgeIf(request -> !request.equals("update"))
+				.createSender(pool);
+
+		sender.sendRequest("update", 1000, new SettablePromise<>());
+		await(Promises.delay(Duration.ofMillis(20)));
+
+		assertEquals(1, connection1.requests + connection2.requests);
+	}
+
+	private static final class PendingSender implements RpcSender {
+		final List<Callback<Object>> pending = new ArrayList<>();
+		int requests;
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			requests++;
+			pending.add((Callback<Object>) cb);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.sender.helper.RpcClientConnectionPoolStub;
+import io.activej.rpc.protocol.RpcOverloadException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.activej.rpc.client.sender.Callbacks.ignore;
+import static io.activej.rpc.client.sender.RpcStrategies.*;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.*;
+
+public class RpcStrategyLoadAwareTest {
+
+	private static final String HOST = "localhost";
+
+	private static final InetSocketAddress ADDRESS_1 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_2 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_3 = new InetSocketAddress(HOST, getFreePort());
+
+	@Test
+	public void itShouldSendRequestToLeastOutstandingSender() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		PendingSender connection3 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		pool.put(ADDRESS_3, connection3);
+		RpcSender sender = leastOutstanding(servers(ADDRESS_1, ADDRESS_2, ADDRESS_3)).createSender(pool);
+
+		for (int i = 0; i < 9; i++) {
+			sender.sendRequest(new Object(), 50, ignore());
+		}
+		assertEquals(3, connection1.pending.size());
+		assertEquals(3, connection2.pending.size());
+		assertEquals(3, connection3.pending.size());
+
+		// a sender which replies faster receives more requests
+		for (int i = 0; i < 5; i++) {
+			connection2.completeAll();
+			sender.sendRequest(new Object(), 50, ignore());
+			sender.sendRequest(new Object(), 50, ignore());
+			sender.sendRequest(new Object(), 50, ignore());
+		}
+		assertEquals(3, connection1.pending.size());
+		assertEquals(3, connection3.pending.size());
+		assertEquals(18, connection2.requests);
+	}
+
+	@Test
+	public void itShouldPenalizeOverloadedSender() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcStrategyLoadAware strategy = powerOfTwoChoices(servers(ADDRESS_1, ADDRESS_2));
+		RpcSender sender = strategy.createSender(pool);
+
+		connection1.overloaded = true;
+		for (int i = 0; i < 10; i++) {
+			sender.sendRequest(new Object(), 50, ignore());
+		}
+		assertEquals(1, connection1.requests);
+		assertEquals(9, connection2.pending.size());
+
+		Map<String, RpcStrategyLoadAware.SenderLoad> loads = strategy.getSenderLoads();
+		assertTrue(loads.get(ADDRESS_1.toString()).isPenalized());
+		assertEquals(0, loads.get(ADDRESS_1.toString()).getWeight(), 0);
+		assertEquals(1, loads.get(ADDRESS_2.toString()).getWeight(), 0);
+		assertEquals(9, loads.get(ADDRESS_2.toString()).getInFlight());
+	}
+
+	@Test
+	public void itShouldSendRequestToPenalizedSendersIfAllArePenalized() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		PendingSender connection1 = new PendingSender();
+		PendingSender connection2 = new PendingSender();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcSender sender = powerOfTwoChoices(servers(ADDRESS_1, ADDRESS_2)).createSender(pool);
+
+		connection1.overloaded = true;
+		connection2.overloaded = true;
+		for (int i = 0; i < 10; i++) {
+			sender.sendRequest(new Object(), 50, ignore());
+		}
+		assertEquals(10, connection1.requests + connection2.requests);
+	}
+
+	@Test
+	public void itShouldNotCreateSenderIfNotEnoughSubSendersAreActive() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		pool.put(ADDRESS_1, new PendingSender());
+		RpcStrategy strategy = leastOutstanding(servers(ADDRESS_1, ADDRESS_2, ADDRESS_3))
+				.withMinActiveSubStrategies(2);
+
+		assertNull(strategy.createSender(pool));
+		pool.put(ADDRESS_2, new PendingSender());
+		assertNotNull(strategy.createSender(pool));
+	}
+
+	private static final class PendingSender implements RpcSender {
+		final List<Callback<Object>> pending = new ArrayList<>();
+		int requests;
+		boolean overloaded;
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			requests++;
+			if (overloaded) {
+				cb.accept(null, new RpcOverloadException("Overloaded"));
+			} else {
+				pending.add((Callback<Object>) cb);
+			}
+		}
+
+		void completeAll() {
+			List<Callback<Object>> callbacks = new ArrayList<>(pending);
+			pending.clear();
+			callbacks.forEach(cb -> cb.accept(null, null));
+		}
+	}
+}
@@ -66,4 +66,21 @@ public final class RpcMessageSerializeTest {
 		TestRpcMessageData messageData2 = (TestRpcMessageData) message2.getData();
 		assertEquals(messageData1.getS(), messageData2.getS());
 	}
+
+	@Test
+	public void testRpcMessageWithDeadline() {
+		RpcMessage message1 = RpcMessage.of(1, new TestRpcMessageData2(2), 1_600_000_000_000L, 1000);
+		BinarySerializer<RpcMessage> serializer = SerializerBuilder.create(getSystemClassLoader())
+				.withSubclasses(RpcMessage.MESSAGE_TYPES, TestRpcMessageData.class, TestRpcMessageData2.class)
+				.build(RpcMessage.class);
+
+		byte[] buf = new byte[1000];
+		serializer.encode(buf, 0, message1);
+		RpcMessage message2 = serializer.decode(buf, 0);
+		assertEquals(1, message2.getCookie());
+		assertEquals(2, ((TestRpcMessageData2) message2.getData()).getI());
+		assertTrue(message2.hasDeadline());
+		assertEquals(message1.getTimestamp(), message2.getTimestamp());
+		assertEquals(message1.getTimeout(), message2.getTimeout());
+	}
 }
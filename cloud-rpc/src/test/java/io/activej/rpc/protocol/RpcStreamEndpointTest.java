@@ -0,0 +1,121 @@
+package io.activej.rpc.protocol;
+
+import io.activej.datastream.StreamConsumerToList;
+import io.activej.datastream.StreamSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static io.activej.rpc.protocol.RpcStreamEndpoint.STREAM_CANCELLED;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public class RpcStreamEndpointTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	private final List<Object> sent = new ArrayList<>();
+	private boolean closed;
+
+	private final RpcStreamEndpoint<Integer, Integer> endpoint = new RpcStreamEndpoint<>(1,
+			message -> {
+				assertEquals(1, message.getCookie());
+				sent.add(message.getData());
+			},
+			10, () -> closed = true);
+
+	@Test
+	public void testOutputIsLimitedByCredits() {
+		Promise<Void> streamed = StreamSupplier.ofStream(IntStream.range(0, 100).boxed())
+				.streamTo(endpoint.getOutput());
+		run();
+		assertTrue(sent.isEmpty());
+
+		endpoint.accept(new RpcStreamCredit(10));
+		run();
+		assertEquals(IntStream.range(0, 10).boxed().collect(toList()), sent);
+
+		endpoint.accept(new RpcStreamCredit(5));
+		run();
+		assertEquals(15, sent.size());
+
+		endpoint.accept(RpcControlMessage.CANCEL);
+		run();
+		assertSame(STREAM_CANCELLED, streamed.getException());
+		assertEquals(16, sent.size());
+		assertSame(RpcControlMessage.END_OF_STREAM, sent.get(15));
+		assertFalse(closed);
+	}
+
+	@Test
+	public void testPeerErrorClosesBothDirections() {
+		endpoint.start();
+		Promise<Void> streamed = StreamSupplier.ofStream(IntStream.range(0, 100).boxed())
+				.streamTo(endpoint.getOutput());
+		StreamConsumerToList<Integer> consumer = StreamConsumerToList.create();
+		endpoint.getInput().streamTo(consumer);
+		run();
+
+		RpcRemoteException e = new RpcRemoteException("Failure");
+		endpoint.accept(e);
+		run();
+		assertSame(e, streamed.getException());
+		assertSame(e, consumer.getResult().getException());
+		assertSame(RpcControlMessage.END_OF_STREAM, sent.get(sent.size() - 1));
+		assertTrue(closed);
+	}
+
+	@Test
+	public void testInputGrantsCreditsAsItemsAreConsumed() {
+		endpoint.start();
+		for (int i = 0; i < 10; i++) {
+			endpoint.accept(i);
+		}
+		run();
+		assertEquals(1, sent.size());
+		assertEquals(10, ((RpcStreamCredit) sent.get(0)).getCredit());
+
+		StreamConsumerToList<Integer> consumer = StreamConsumerToList.create();
+		endpoint.getInput().streamTo(consumer);
+		run();
+		assertEquals(10, consumer.getList().size());
+		assertEquals(2, sent.size());
+		assertEquals(10, ((RpcStreamCredit) sent.get(1)).getCredit());
+
+		endpoint.accept(10);
+		endpoint.accept(RpcControlMessage.END_OF_STREAM);
+		endpoint.accept(new RpcStreamCredit(10));
+		StreamSupplier.<Integer>of().streamTo(endpoint.getOutput());
+		run();
+		assertEquals(IntStream.range(0, 11).boxed().collect(toList()), consumer.getResult().getResult());
+		assertSame(RpcControlMessage.END_OF_STREAM, sent.get(sent.size() - 1));
+		assertTrue(closed);
+	}
+
+	@Test
+	public void testInputIsCancelledIfNotConsumed() {
+		endpoint.start();
+		endpoint.cancelInputIfNotStarted();
+		run();
+		assertSame(RpcControlMessage.CANCEL, sent.get(sent.size() - 1));
+
+		// items which have been sent before a peer receives a cancel are ignored
+		endpoint.accept(1);
+		endpoint.accept(RpcControlMessage.END_OF_STREAM);
+		StreamSupplier.<Integer>closingWithError(new Exception("Failure")).streamTo(endpoint.getOutput());
+		run();
+		assertEquals(3, sent.size());
+		assertTrue(sent.get(2) instanceof RpcRemoteException);
+		assertTrue(closed);
+	}
+
+	private static void run() {
+		Eventloop.getCurrentEventloop().run();
+	}
+}
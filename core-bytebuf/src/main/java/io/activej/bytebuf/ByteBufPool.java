@@ -20,10 +20,12 @@ import io.activej.bytebuf.ByteBuf.ByteBufSlice;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.activej.common.Checks.checkArgument;
 import static java.lang.Integer.numberOfLeadingZeros;
@@ -92,6 +94,19 @@ public final class ByteBufPool {
 	static final double WATCHDOG_ERROR_MARGIN = ApplicationSettings.getDouble(ByteBufPool.class, "watchdogErrorMargin", 4.0);
 	private static final double SMOOTHING_COEFF = 1.0 - Math.pow(0.5, (double) WATCHDOG_INTERVAL.toMillis() / WATCHDOG_SMOOTHING_WINDOW.toMillis());
 
+	/**
+	 * Enables per-thread magazines of recycled ByteBufs, see {@link Magazine}.
+	 * By default set at value {@code false}. Useful when ByteBufs are allocated
+	 * and recycled by many threads concurrently, as it reduces contention on global slabs.
+	 */
+	static final boolean USE_MAGAZINES = ApplicationSettings.getBoolean(ByteBufPool.class, "useMagazines", false);
+
+	/**
+	 * Maximum number of ByteBufs held by a magazine for each of the slabs.
+	 * ByteBufs are moved between a magazine and a global slab in batches of half of this size.
+	 */
+	static final int MAGAZINE_SIZE = ApplicationSettings.getInt(ByteBufPool.class, "magazineSize", 64);
+
 	/**
 	 * {@code ByteBufConcurrentStack} allows to work with slabs and their ByteBufs.
 	 * Basically, it is a singly linked list with basic stack operations:
@@ -108,6 +123,15 @@ public final class ByteBufPool {
 
 	private static final ByteBufPoolStats stats = new ByteBufPoolStats();
 
+	static final Map<Thread, Magazine> magazines = Collections.synchronizedMap(new WeakHashMap<>());
+	private static final ThreadLocal<Magazine> MAGAZINE = ThreadLocal.withInitial(() -> {
+		Magazine magazine = new Magazine(MAGAZINE_SIZE);
+		magazines.put(currentThread(), magazine);
+		return magazine;
+	});
+	static final AtomicLong magazineTransfers = new AtomicLong();
+	static volatile int clearEpoch;
+
 	/**
 	 * Stores information about ByteBufs for stats.
 	 * <p>
@@ -219,8 +243,7 @@ public final class ByteBufPool {
 			}
 		}
 		int index = 32 - numberOfLeadingZeros(size - 1); // index==32 for size==0
-		ByteBufConcurrentQueue queue = slabs[index];
-		ByteBuf buf = queue.poll();
+		ByteBuf buf = USE_MAGAZINES ? MAGAZINE.get().poll(index) : slabs[index].poll();
 		if (buf != null) {
 			if (ByteBuf.CHECK_RECYCLE && buf.refs != -1) throw onByteBufRecycled(buf);
 			buf.tail = 0;
@@ -255,6 +278,7 @@ public final class ByteBufPool {
 		int slab = 32 - numberOfLeadingZeros(buf.array.length - 1);
 		ByteBufConcurrentQueue queue = slabs[slab];
 		queue.clear();
+		if (USE_MAGAZINES) MAGAZINE.get().clear(slab);
 		return new AssertionError("Attempt to use recycled ByteBuf" +
 				(REGISTRY ? ByteBufPool.getByteBufTrace(buf) : ""));
 	}
@@ -305,13 +329,16 @@ public final class ByteBufPool {
 	 */
 	static void recycle(@NotNull ByteBuf buf) {
 		int slab = 32 - numberOfLeadingZeros(buf.array.length - 1);
-		ByteBufConcurrentQueue queue = slabs[slab];
 		if (CLEAR_ON_RECYCLE) Arrays.fill(buf.array(), (byte) 0);
 		if (REGISTRY) {
 			recycleRegistry.put(buf, buildRegistryEntry(buf));
 			allocateRegistry.remove(buf);
 		}
-		queue.offer(buf);
+		if (USE_MAGAZINES) {
+			MAGAZINE.get().offer(slab, buf);
+		} else {
+			slabs[slab].offer(buf);
+		}
 	}
 
 	@NotNull
@@ -405,14 +432,19 @@ public final class ByteBufPool {
 
 	/**
 	 * Clears all of the slabs and stats.
+	 * <p>
+	 * Magazines of other threads are dropped lazily, on their next access.
 	 */
 	public static void clear() {
+		clearEpoch++;
+		if (USE_MAGAZINES) MAGAZINE.get().checkRequests();
 		for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; i++) {
 			slabs[i].clear();
 			created[i].set(0);
 			reused[i].set(0);
 			if (USE_WATCHDOG) slabStats[i].clear();
 		}
+		magazineTransfers.set(0);
 		allocateRegistry.clear();
 		recycleRegistry.clear();
 	}
@@ -437,10 +469,28 @@ public final class ByteBufPool {
 
 		long getTotalEvicted();
 
+		int getMagazineItems();
+
+		long getMagazineHits();
+
+		long getMagazineTransfers();
+
 		List<String> getPoolSlabs();
 
 		List<Entry> queryUnrecycledBufs(int limit);
 
+		int getDirectCreatedItems();
+
+		int getDirectReusedItems();
+
+		int getDirectPoolItems();
+
+		long getDirectPoolSizeKB();
+
+		List<String> getDirectPoolSlabs();
+
+		List<Entry> queryUnrecycledDirectBuffers(int limit);
+
 		void clear();
 
 		void clearRegistry();
@@ -474,14 +524,14 @@ public final class ByteBufPool {
 
 		@Override
 		public int getPoolItems() {
-			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum();
+			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum() + getMagazineItems();
 		}
 
 		public String getPoolItemsString() {
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; ++i) {
 				int createdItems = created[i].get();
-				int poolItems = slabs[i].size();
+				int poolItems = slabs[i].size() + getMagazineItems(i);
 				if (createdItems != poolItems) {
 					sb.append(String.format("Slab %d (%d) ", i, (1 << i)))
 							.append(" created: ").append(createdItems)
@@ -496,7 +546,7 @@ public final class ByteBufPool {
 			long result = 0;
 			for (int i = 0; i < slabs.length - 1; i++) {
 				long slabSize = 1L << i;
-				result += slabSize * slabs[i].size();
+				result += slabSize * (slabs[i].size() + getMagazineItems(i));
 			}
 			return result;
 		}
@@ -526,6 +576,41 @@ public final class ByteBufPool {
 			return totalEvicted;
 		}
 
+		/**
+		 * Approximate number of ByteBufs held in magazines of all threads
+		 */
+		@Override
+		public int getMagazineItems() {
+			return getMagazines().stream().mapToInt(Magazine::size).sum();
+		}
+
+		private int getMagazineItems(int slab) {
+			return getMagazines().stream().mapToInt(magazine -> magazine.size(slab)).sum();
+		}
+
+		/**
+		 * Number of allocations served by a magazine of a current thread without touching global slabs
+		 */
+		@Override
+		public long getMagazineHits() {
+			return getMagazines().stream().mapToLong(magazine -> magazine.hits).sum();
+		}
+
+		/**
+		 * Number of batches moved between magazines and global slabs
+		 */
+		@Override
+		public long getMagazineTransfers() {
+			return magazineTransfers.get();
+		}
+
+		private List<Magazine> getMagazines() {
+			if (!USE_MAGAZINES) return Collections.emptyList();
+			synchronized (magazines) {
+				return new ArrayList<>(magazines.values());
+			}
+		}
+
 		public Map<ByteBuf, Entry> getUnrecycledBufs() {
 			return new HashMap<>(allocateRegistry);
 		}
@@ -547,7 +632,7 @@ public final class ByteBufPool {
 				int idx = (i + 32) % slabs.length;
 				long slabSize = idx == 32 ? 0 : 1L << idx;
 				ByteBufConcurrentQueue slab = slabs[idx];
-				int count = slab.size();
+				int count = slab.size() + getMagazineItems(idx);
 				String slabInfo = slabSize + "," +
 						(STATS ? created[idx] : "-") + "," +
 						(STATS ? reused[idx] : "-") + "," +
@@ -566,15 +651,53 @@ public final class ByteBufPool {
 			return result;
 		}
 
+		// region direct buffers
+		@Override
+		public int getDirectCreatedItems() {
+			return DirectBufferPool.getCreatedItems();
+		}
+
+		@Override
+		public int getDirectReusedItems() {
+			return DirectBufferPool.getReusedItems();
+		}
+
+		@Override
+		public int getDirectPoolItems() {
+			return DirectBufferPool.getPoolItems();
+		}
+
+		public long getDirectPoolSize() {
+			return DirectBufferPool.getPoolSize();
+		}
+
+		@Override
+		public long getDirectPoolSizeKB() {
+			return getDirectPoolSize() / 1024;
+		}
+
+		@Override
+		public List<String> getDirectPoolSlabs() {
+			return DirectBufferPool.getPoolSlabs();
+		}
+
+		@Override
+		public List<Entry> queryUnrecycledDirectBuffers(int limit) {
+			return DirectBufferPool.queryUnrecycledBuffers(limit);
+		}
+		// endregion
+
 		@Override
 		public void clear() {
 			ByteBufPool.clear();
+			DirectBufferPool.clear();
 		}
 
 		@Override
 		public void clearRegistry() {
 			allocateRegistry.clear();
 			recycleRegistry.clear();
+			DirectBufferPool.clearRegistry();
 		}
 	}
 
@@ -603,6 +726,11 @@ public final class ByteBufPool {
 	}
 
 	private static void updateStats() {
+		if (USE_MAGAZINES) {
+			synchronized (magazines) {
+				magazines.values().forEach(Magazine::requestFlush);
+			}
+		}
 		for (int i = 0; i < slabs.length; i++) {
 			SlabStats stats = slabStats[i];
 			ByteBufConcurrentQueue slab = slabs[i];
@@ -638,4 +766,134 @@ public final class ByteBufPool {
 	}
 	//endregion
 
+	// region magazines
+
+	/**
+	 * A per-thread cache of recycled ByteBufs, bounded for each of the slabs.
+	 * <p>
+	 * ByteBufs are taken from and returned to a magazine of a current thread without any synchronization.
+	 * An empty magazine is refilled from a global slab and an overflown magazine
+	 * is partially flushed to a global slab, in both cases in batches of half of magazine capacity.
+	 * <p>
+	 * Magazines are not accessible to the watchdog, so each watchdog cycle asks magazines
+	 * to flush their ByteBufs back to global slabs, which is done by the owner thread on its next access.
+	 */
+	static final class Magazine {
+		private final int capacity;
+		private final ByteBuf[][] stacks = new ByteBuf[NUMBER_OF_SLABS][];
+		private final int[] sizes = new int[NUMBER_OF_SLABS];
+
+		private volatile boolean flushRequested;
+		private int epoch = clearEpoch;
+
+		long hits;
+
+		Magazine(int capacity) {
+			checkArgument(capacity > 0, "Magazine capacity must be positive");
+			this.capacity = capacity;
+		}
+
+		@Nullable
+		ByteBuf poll(int slab) {
+			checkRequests();
+			int size = sizes[slab];
+			if (size == 0) {
+				size = refill(slab);
+				if (size == 0) return null;
+			} else {
+				hits++;
+			}
+			ByteBuf[] stack = stacks[slab];
+			ByteBuf buf = stack[--size];
+			stack[size] = null;
+			sizes[slab] = size;
+			return buf;
+		}
+
+		void offer(int slab, ByteBuf buf) {
+			checkRequests();
+			ByteBuf[] stack = stacks[slab];
+			if (stack == null) {
+				stack = stacks[slab] = new ByteBuf[capacity];
+			}
+			int size = sizes[slab];
+			if (size == capacity) {
+				size = flush(slab, max(1, capacity / 2));
+			}
+			stack[size] = buf;
+			sizes[slab] = size + 1;
+		}
+
+		private int refill(int slab) {
+			ByteBuf[] stack = stacks[slab];
+			if (stack == null) {
+				stack = stacks[slab] = new ByteBuf[capacity];
+			}
+			ByteBufConcurrentQueue queue = slabs[slab];
+			int batch = max(1, capacity / 2);
+			int size = 0;
+			while (size < batch) {
+				ByteBuf buf = queue.poll();
+				if (buf == null) break;
+				stack[size++] = buf;
+			}
+			if (size != 0) magazineTransfers.incrementAndGet();
+			sizes[slab] = size;
+			return size;
+		}
+
+		private int flush(int slab, int count) {
+			ByteBuf[] stack = stacks[slab];
+			ByteBufConcurrentQueue queue = slabs[slab];
+			int size = sizes[slab];
+			for (int i = 0; i < count; i++) {
+				ByteBuf buf = stack[--size];
+				stack[size] = null;
+				queue.offer(buf);
+			}
+			sizes[slab] = size;
+			magazineTransfers.incrementAndGet();
+			return size;
+		}
+
+		void requestFlush() {
+			flushRequested = true;
+		}
+
+		void checkRequests() {
+			if (epoch != clearEpoch) {
+				epoch = clearEpoch;
+				for (int i = 0; i < NUMBER_OF_SLABS; i++) {
+					clear(i);
+				}
+				hits = 0;
+				flushRequested = false;
+			}
+			if (flushRequested) {
+				flushRequested = false;
+				for (int i = 0; i < NUMBER_OF_SLABS; i++) {
+					if (sizes[i] != 0) flush(i, sizes[i]);
+				}
+			}
+		}
+
+		void clear(int slab) {
+			if (stacks[slab] != null) Arrays.fill(stacks[slab], null);
+			sizes[slab] = 0;
+		}
+
+		int size(int slab) {
+			return sizes[slab];
+		}
+
+		int size() {
+			int result = 0;
+			for (int size : sizes) {
+				result += size;
+			}
+			return result;
+		}
+	}
+	// endregion
+
 }
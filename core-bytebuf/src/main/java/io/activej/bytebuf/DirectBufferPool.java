@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.bytebuf;
+
+import io.activej.bytebuf.ByteBufPool.Entry;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.activej.bytebuf.ByteBufPool.REGISTRY;
+import static io.activej.bytebuf.ByteBufPool.STATS;
+import static io.activej.common.Checks.checkArgument;
+import static java.lang.Integer.numberOfLeadingZeros;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.Thread.currentThread;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Represents a pool of direct (off-heap) {@link ByteBuffer ByteBuffers}.
+ * Like {@link ByteBufPool}, it has a slab for each capacity which is a power of two.
+ * <p>
+ * It is a pooled replacement for JDK's temporary direct buffer cache at the boundary with NIO channels:
+ * data is read from a channel into a pooled direct buffer and then copied into a {@link ByteBuf}, and vice versa.
+ * This is the same copy that JDK makes into its own temporary direct buffers, so no copying is saved,
+ * but JDK caches those buffers per thread and they may retain a lot of off-heap memory.
+ * <p>
+ * Buffers bigger than {@link #MAX_POOLED_SIZE} are not pooled.
+ * Stats and registry of unrecycled buffers are available through {@link ByteBufPool#getStats()}
+ * and are enabled by the same settings as for {@link ByteBufPool}.
+ */
+public final class DirectBufferPool {
+	private static final int NUMBER_OF_SLABS = 33;
+
+	/**
+	 * Defines the maximum capacity of direct buffers that are returned to this pool, 1 MB by default.
+	 */
+	public static final int MAX_POOLED_SIZE = ApplicationSettings.getMemSize(DirectBufferPool.class, "maxPooledSize", MemSize.megabytes(1)).toInt();
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0);
+
+	static final Slab[] slabs = new Slab[NUMBER_OF_SLABS];
+	static final AtomicInteger[] slabSizes;
+	static final AtomicInteger[] created;
+	static final AtomicInteger[] reused;
+
+	/**
+	 * Unlike heap bufs, direct buffers have content-based {@code equals()}, so identity map is used
+	 */
+	private static final Map<ByteBuffer, Entry> allocateRegistry = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	static {
+		slabSizes = new AtomicInteger[NUMBER_OF_SLABS];
+		created = new AtomicInteger[NUMBER_OF_SLABS];
+		reused = new AtomicInteger[NUMBER_OF_SLABS];
+		for (int i = 0; i < NUMBER_OF_SLABS; i++) {
+			slabs[i] = new Slab();
+			slabSizes[i] = new AtomicInteger();
+			created[i] = new AtomicInteger();
+			reused[i] = new AtomicInteger();
+		}
+	}
+
+	private DirectBufferPool() {}
+
+	static final class Slab {
+		final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+	}
+
+	/**
+	 * Allocates direct byte buffer from the pool with capacity of
+	 * <code>ceil(log<sub>2</sub>(size))<sup>2</sup></code> bytes.
+	 * Limit of the returned buffer is set to the requested size.
+	 *
+	 * @param size requested size
+	 * @return cleared direct byte buffer from this pool
+	 */
+	@NotNull
+	public static ByteBuffer allocate(int size) {
+		assert size >= 0 : "Allocating ByteBuffer with negative size";
+		if (size == 0) return EMPTY;
+		int index = 32 - numberOfLeadingZeros(size - 1);
+		ByteBuffer buffer = slabs[index].buffers.poll();
+		if (buffer != null) {
+			slabSizes[index].decrementAndGet();
+			buffer.clear();
+			if (STATS) reused[index].incrementAndGet();
+		} else {
+			buffer = ByteBuffer.allocateDirect(1 << index);
+			if (STATS) created[index].incrementAndGet();
+		}
+		buffer.limit(size);
+		if (REGISTRY) allocateRegistry.put(buffer, buildRegistryEntry(buffer));
+		return buffer;
+	}
+
+	/**
+	 * Returns provided direct buffer to the appropriate slab of this pool.
+	 * A buffer must not be used after it has been recycled.
+	 *
+	 * @param buffer direct buffer that has been allocated by {@link #allocate(int)}
+	 */
+	public static void recycle(@NotNull ByteBuffer buffer) {
+		checkArgument(buffer.isDirect(), "Not a direct buffer");
+		int capacity = buffer.capacity();
+		if (capacity == 0) return;
+		if (REGISTRY) allocateRegistry.remove(buffer);
+		if (capacity > MAX_POOLED_SIZE || (capacity & (capacity - 1)) != 0) return;
+		int index = 32 - numberOfLeadingZeros(capacity - 1);
+		slabs[index].buffers.offer(buffer);
+		slabSizes[index].incrementAndGet();
+	}
+
+	private static Entry buildRegistryEntry(ByteBuffer buffer) {
+		Thread thread = currentThread();
+		StackTraceElement[] stackTrace = thread.getStackTrace();
+		return new Entry(buffer.capacity(), currentTimeMillis(), thread,
+				Arrays.copyOfRange(stackTrace, 4, stackTrace.length));
+	}
+
+	/**
+	 * Clears all of the slabs and stats.
+	 */
+	public static void clear() {
+		for (int i = 0; i < NUMBER_OF_SLABS; i++) {
+			slabs[i].buffers.clear();
+			slabSizes[i].set(0);
+			created[i].set(0);
+			reused[i].set(0);
+		}
+		allocateRegistry.clear();
+	}
+
+	static void clearRegistry() {
+		allocateRegistry.clear();
+	}
+
+	// region stats
+	static int getCreatedItems() {
+		return Arrays.stream(created).mapToInt(AtomicInteger::get).sum();
+	}
+
+	static int getReusedItems() {
+		return Arrays.stream(reused).mapToInt(AtomicInteger::get).sum();
+	}
+
+	static int getPoolItems() {
+		return Arrays.stream(slabSizes).mapToInt(AtomicInteger::get).sum();
+	}
+
+	static long getPoolSize() {
+		long result = 0;
+		for (int i = 0; i < NUMBER_OF_SLABS - 1; i++) {
+			result += (1L << i) * slabSizes[i].get();
+		}
+		return result;
+	}
+
+	static List<String> getPoolSlabs() {
+		List<String> result = new ArrayList<>(NUMBER_OF_SLABS);
+		result.add("SlotSize,Created,Reused,InPool,Total(Kb)");
+		for (int i = 0; i < NUMBER_OF_SLABS - 1; i++) {
+			long slabSize = 1L << i;
+			if (slabSize > MAX_POOLED_SIZE) break;
+			int count = slabSizes[i].get();
+			result.add(slabSize + "," +
+					(STATS ? created[i] : "-") + "," +
+					(STATS ? reused[i] : "-") + "," +
+					count + "," +
+					slabSize * count / 1024);
+		}
+		return result;
+	}
+
+	static List<Entry> queryUnrecycledBuffers(int limit) {
+		if (limit < 1) throw new IllegalArgumentException("Limit must be >= 1");
+		List<Entry> entries;
+		synchronized (allocateRegistry) {
+			entries = new ArrayList<>(allocateRegistry.values());
+		}
+		return entries.stream().sorted(comparingLong(Entry::getTimestamp)).limit(limit).collect(toList());
+	}
+	// endregion
+}
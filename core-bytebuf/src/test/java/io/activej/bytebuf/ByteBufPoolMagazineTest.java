@@ -0,0 +1,85 @@
+package io.activej.bytebuf;
+
+import io.activej.bytebuf.ByteBufPool.Magazine;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.activej.bytebuf.ByteBufTest.initByteBufPool;
+import static org.junit.Assert.*;
+
+public class ByteBufPoolMagazineTest {
+	private static final int SLAB = 4;
+
+	static {
+		initByteBufPool();
+	}
+
+	@Before
+	public void setUp() {
+		ByteBufPool.clear();
+	}
+
+	@Test
+	public void testOfferAndPoll() {
+		Magazine magazine = new Magazine(4);
+		ByteBuf buf = ByteBuf.wrapForWriting(new byte[16]);
+		magazine.offer(SLAB, buf);
+
+		assertEquals(1, magazine.size(SLAB));
+		assertTrue(ByteBufPool.slabs[SLAB].isEmpty());
+		assertSame(buf, magazine.poll(SLAB));
+		assertEquals(1, magazine.hits);
+		assertNull(magazine.poll(SLAB));
+	}
+
+	@Test
+	public void testFlushOnOverflow() {
+		Magazine magazine = new Magazine(4);
+		for (int i = 0; i < 5; i++) {
+			magazine.offer(SLAB, ByteBuf.wrapForWriting(new byte[16]));
+		}
+
+		assertEquals(3, magazine.size(SLAB));
+		assertEquals(2, ByteBufPool.slabs[SLAB].size());
+		assertEquals(1, ByteBufPool.magazineTransfers.get());
+	}
+
+	@Test
+	public void testRefillFromGlobalSlab() {
+		for (int i = 0; i < 3; i++) {
+			ByteBufPool.slabs[SLAB].offer(ByteBuf.wrapForWriting(new byte[16]));
+		}
+		Magazine magazine = new Magazine(4);
+
+		assertNotNull(magazine.poll(SLAB));
+		assertEquals(1, magazine.size(SLAB));
+		assertEquals(1, ByteBufPool.slabs[SLAB].size());
+		assertEquals(0, magazine.hits);
+		assertEquals(1, ByteBufPool.magazineTransfers.get());
+	}
+
+	@Test
+	public void testRequestedFlush() {
+		Magazine magazine = new Magazine(4);
+		magazine.offer(SLAB, ByteBuf.wrapForWriting(new byte[16]));
+		magazine.offer(SLAB + 1, ByteBuf.wrapForWriting(new byte[32]));
+
+		magazine.requestFlush();
+		magazine.checkRequests();
+
+		assertEquals(0, magazine.size());
+		assertEquals(1, ByteBufPool.slabs[SLAB].size());
+		assertEquals(1, ByteBufPool.slabs[SLAB + 1].size());
+	}
+
+	@Test
+	public void testClear() {
+		Magazine magazine = new Magazine(4);
+		magazine.offer(SLAB, ByteBuf.wrapForWriting(new byte[16]));
+
+		ByteBufPool.clear();
+
+		assertNull(magazine.poll(SLAB));
+		assertEquals(0, magazine.size());
+	}
+}
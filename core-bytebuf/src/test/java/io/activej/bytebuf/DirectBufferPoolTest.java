@@ -0,0 +1,58 @@
+package io.activej.bytebuf;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class DirectBufferPoolTest {
+
+	@Before
+	public void setUp() {
+		DirectBufferPool.clear();
+	}
+
+	@Test
+	public void testAllocate() {
+		ByteBuffer buffer = DirectBufferPool.allocate(9);
+		assertTrue(buffer.isDirect());
+		assertEquals(16, buffer.capacity());
+		assertEquals(0, buffer.position());
+		assertEquals(9, buffer.limit());
+
+		DirectBufferPool.recycle(buffer);
+		assertEquals(1, DirectBufferPool.slabs[4].buffers.size());
+		assertEquals(1, DirectBufferPool.getPoolItems());
+		assertEquals(16, DirectBufferPool.getPoolSize());
+	}
+
+	@Test
+	public void testReuse() {
+		ByteBuffer buffer = DirectBufferPool.allocate(100);
+		buffer.put((byte) 1);
+		DirectBufferPool.recycle(buffer);
+
+		ByteBuffer reused = DirectBufferPool.allocate(128);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(128, reused.limit());
+		assertEquals(0, DirectBufferPool.getPoolItems());
+	}
+
+	@Test
+	public void testEmpty() {
+		ByteBuffer buffer = DirectBufferPool.allocate(0);
+		assertEquals(0, buffer.capacity());
+		DirectBufferPool.recycle(buffer);
+		assertEquals(0, DirectBufferPool.getPoolItems());
+	}
+
+	@Test
+	public void testNotPooledIfTooBig() {
+		ByteBuffer buffer = DirectBufferPool.allocate(DirectBufferPool.MAX_POOLED_SIZE + 1);
+		DirectBufferPool.recycle(buffer);
+		assertEquals(0, DirectBufferPool.getPoolItems());
+	}
+}
@@ -20,11 +20,18 @@ import io.activej.async.file.AsyncFileService;
 import io.activej.async.file.ExecutorAsyncFileService;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import io.activej.common.exception.CloseException;
+import io.activej.common.exception.TruncatedDataException;
 import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelConsumer;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,12 +43,15 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import static io.activej.common.Checks.checkArgument;
 import static java.nio.file.StandardOpenOption.READ;
 
 /**
  * This supplier allows you to asynchronously read binary data from a file.
+ * <p>
+ * File contents may also be sent to a socket without being read into bufs, see {@link #transferTo(AsyncTcpSocket)}.
  */
 public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 	private static final Logger logger = LoggerFactory.getLogger(ChannelFileReader.class);
@@ -50,24 +60,38 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 
 	public static final MemSize DEFAULT_BUFFER_SIZE = MemSize.kilobytes(8);
 
+	/**
+	 * If set, files are read and written through pooled direct buffers, see {@link DirectBufferAsyncFileService}
+	 */
+	public static final boolean DIRECT_BUFFERS = ApplicationSettings.getBoolean(ChannelFileReader.class, "directBuffers", false);
+
 	private final AsyncFileService fileService;
 	private final FileChannel channel;
+	@Nullable
+	private final Executor executor;
 
 	private int bufferSize = DEFAULT_BUFFER_SIZE.toInt();
 	private long position = 0;
 	private long limit = Long.MAX_VALUE;
 
-	private ChannelFileReader(AsyncFileService fileService, FileChannel channel) {
+	@Nullable
+	private SettablePromise<Void> endOfStream;
+	@Nullable
+	private Promise<Void> newEndOfStream;
+
+	private ChannelFileReader(AsyncFileService fileService, FileChannel channel, @Nullable Executor executor) {
 		this.fileService = fileService;
 		this.channel = channel;
+		this.executor = executor;
 	}
 
 	public static ChannelFileReader create(Executor executor, FileChannel channel) {
-		return create(new ExecutorAsyncFileService(executor), channel);
+		return new ChannelFileReader(DIRECT_BUFFERS ? DirectBufferAsyncFileService.create(executor) : new ExecutorAsyncFileService(executor),
+				channel, executor);
 	}
 
 	public static ChannelFileReader create(AsyncFileService fileService, FileChannel channel) {
-		return new ChannelFileReader(fileService, channel);
+		return new ChannelFileReader(fileService, channel, null);
 	}
 
 	public static Promise<ChannelFileReader> open(Executor executor, Path path) {
@@ -117,15 +141,79 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 		return this;
 	}
 
+	/**
+	 * Unlike default implementation, this method does not wrap this reader,
+	 * so that file contents can still be transferred directly to a socket
+	 */
+	@Override
+	public ChannelFileReader withEndOfStream(Function<Promise<Void>, Promise<Void>> fn) {
+		if (endOfStream == null) {
+			endOfStream = new SettablePromise<>();
+			newEndOfStream = fn.apply(endOfStream);
+		} else {
+			newEndOfStream = fn.apply(newEndOfStream);
+		}
+		return this;
+	}
+
 	public long getPosition() {
 		return position;
 	}
 
+	public long getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Sends remaining contents of a file to a given socket and closes this reader.
+	 * End of stream is not sent to the socket.
+	 * <p>
+	 * If a socket is a plain {@link AsyncTcpSocketNio} and this reader has been created with an executor,
+	 * file contents are transferred in that executor without being copied to user space
+	 * (see {@link AsyncTcpSocketNio#transferFrom(FileChannel, long, long, Executor)}).
+	 * Otherwise, file is read into bufs, as usual.
+	 * <p>
+	 * If a limit is set and a file is shorter than the limit, transfer fails
+	 * with {@link TruncatedDataException}, as the limit is usually already promised to a peer.
+	 *
+	 * @param socket a socket to which file contents are sent
+	 * @return promise that represents successful transfer
+	 */
+	public Promise<Void> transferTo(AsyncTcpSocket socket) {
+		if (!(socket instanceof AsyncTcpSocketNio) || executor == null) {
+			return streamTo(ChannelConsumer.of(socket::write, socket));
+		}
+		if (isClosed()) return Promise.ofException(getException());
+		long count;
+		try {
+			long available = Math.max(0, channel.size() - position);
+			if (limit != Long.MAX_VALUE && available < limit) {
+				closeEx(new TruncatedDataException("File has " + available + " bytes left, while " + limit + " bytes are expected"));
+				return onEndOfStreamException().toVoid();
+			}
+			count = Math.min(limit, available);
+		} catch (IOException e) {
+			closeEx(e);
+			return onEndOfStreamException().toVoid();
+		}
+		return ((AsyncTcpSocketNio) socket).transferFrom(channel, position, count, executor)
+				.thenEx(($, e) -> {
+					if (e != null) {
+						closeEx(e);
+						return onEndOfStreamException().toVoid();
+					}
+					position += count;
+					if (limit != Long.MAX_VALUE) {
+						limit -= count;
+					}
+					return onEndOfStream().toVoid();
+				});
+	}
+
 	@Override
 	protected Promise<ByteBuf> doGet() {
 		if (limit == 0) {
-			close();
-			return Promise.of(null);
+			return onEndOfStream();
 		}
 		ByteBuf buf = ByteBufPool.allocateExact((int) Math.min(bufferSize, limit));
 		return fileService.read(channel, position, buf.array(), buf.head(), buf.writeRemaining()) // reads are synchronized at least on asyncFile, so if produce() is called twice, position wont be broken (i hope)
@@ -133,12 +221,11 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 					if (e != null) {
 						buf.recycle();
 						closeEx(e);
-						return Promise.ofException(getException());
+						return onEndOfStreamException();
 					}
 					if (bytesRead == 0) { // no data read, assuming end of file
 						buf.recycle();
-						close();
-						return Promise.of(null);
+						return onEndOfStream();
 					}
 
 					buf.moveTail(Math.toIntExact(bytesRead));
@@ -150,8 +237,23 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 				});
 	}
 
+	private Promise<ByteBuf> onEndOfStream() {
+		if (endOfStream != null) {
+			endOfStream.trySet(null);
+		}
+		close();
+		return newEndOfStream == null ? Promise.of(null) : newEndOfStream.map($ -> null);
+	}
+
+	private Promise<ByteBuf> onEndOfStreamException() {
+		return newEndOfStream == null ? Promise.ofException(getException()) : newEndOfStream.map($ -> null);
+	}
+
 	@Override
 	protected void onClosed(@NotNull Throwable e) {
+		if (endOfStream != null) {
+			endOfStream.trySetException(e);
+		}
 		try {
 			if (!channel.isOpen()) {
 				throw new CloseException("File has been closed");
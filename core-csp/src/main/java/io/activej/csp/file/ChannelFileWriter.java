@@ -19,6 +19,7 @@ package io.activej.csp.file;
 import io.activej.async.file.AsyncFileService;
 import io.activej.async.file.ExecutorAsyncFileService;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.ApplicationSettings;
 import io.activej.csp.AbstractChannelConsumer;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
@@ -43,6 +44,11 @@ public final class ChannelFileWriter extends AbstractChannelConsumer<ByteBuf> {
 
 	private static final OpenOption[] DEFAULT_OPTIONS = new OpenOption[]{WRITE, CREATE_NEW, APPEND};
 
+	/**
+	 * If set, files are read and written through pooled direct buffers, see {@link DirectBufferAsyncFileService}
+	 */
+	public static final boolean DIRECT_BUFFERS = ApplicationSettings.getBoolean(ChannelFileWriter.class, "directBuffers", false);
+
 	private final AsyncFileService fileService;
 	private final FileChannel channel;
 
@@ -59,7 +65,7 @@ public final class ChannelFileWriter extends AbstractChannelConsumer<ByteBuf> {
 	}
 
 	public static ChannelFileWriter create(Executor executor, FileChannel channel) {
-		return create(new ExecutorAsyncFileService(executor), channel);
+		return create(DIRECT_BUFFERS ? DirectBufferAsyncFileService.create(executor) : new ExecutorAsyncFileService(executor), channel);
 	}
 
 	public static ChannelFileWriter create(AsyncFileService fileService, FileChannel channel) {
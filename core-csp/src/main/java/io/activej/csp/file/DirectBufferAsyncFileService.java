@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.csp.file;
+
+import io.activej.async.file.AsyncFileService;
+import io.activej.bytebuf.DirectBufferPool;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+
+import static io.activej.promise.Promise.ofBlockingCallable;
+
+/**
+ * An {@link AsyncFileService} that performs blocking file I/O on a given executor
+ * through direct buffers from {@link DirectBufferPool}.
+ * <p>
+ * Unlike {@link io.activej.async.file.ExecutorAsyncFileService}, it does not rely
+ * on JDK's temporary direct buffers, which are cached by each of executor's threads.
+ * <p>
+ * Can be passed to {@link ChannelFileReader#create(AsyncFileService, FileChannel)}
+ * and {@link ChannelFileWriter#create(AsyncFileService, FileChannel)}.
+ */
+public final class DirectBufferAsyncFileService implements AsyncFileService {
+	private final Executor executor;
+
+	private DirectBufferAsyncFileService(Executor executor) {
+		this.executor = executor;
+	}
+
+	public static DirectBufferAsyncFileService create(@NotNull Executor executor) {
+		return new DirectBufferAsyncFileService(executor);
+	}
+
+	@Override
+	public Promise<Integer> read(FileChannel channel, long position, byte[] array, int offset, int size) {
+		return ofBlockingCallable(executor, () -> {
+			ByteBuffer buffer = DirectBufferPool.allocate(size);
+			try {
+				long pos = position;
+				do {
+					int readBytes = channel.read(buffer, pos);
+					if (readBytes == -1) {
+						break;
+					}
+					pos += readBytes;
+				} while (buffer.hasRemaining());
+				buffer.flip();
+				int bytes = buffer.remaining();
+				buffer.get(array, offset, bytes);
+				return bytes;
+			} finally {
+				DirectBufferPool.recycle(buffer);
+			}
+		});
+	}
+
+	@Override
+	public Promise<Integer> write(FileChannel channel, long position, byte[] array, int offset, int size) {
+		return ofBlockingCallable(executor, () -> {
+			ByteBuffer buffer = DirectBufferPool.allocate(size);
+			try {
+				buffer.put(array, offset, size);
+				buffer.flip();
+				long pos = position;
+				do {
+					pos += channel.write(buffer, pos);
+				} while (buffer.hasRemaining());
+				return size;
+			} finally {
+				DirectBufferPool.recycle(buffer);
+			}
+		});
+	}
+}
@@ -25,6 +25,7 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
 import io.activej.csp.binary.ByteBufsCodec;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
@@ -117,6 +118,24 @@ public final class MessagingWithBinaryStreaming<I, O> extends AbstractAsyncClose
 						}));
 	}
 
+	/**
+	 * Sends a binary stream to the socket.
+	 * If a supplier is a {@link ChannelFileReader}, file contents are transferred directly to the socket.
+	 */
+	@Override
+	public Promise<Void> sendBinaryStream(ChannelSupplier<ByteBuf> supplier) {
+		if (!(supplier instanceof ChannelFileReader)) {
+			return supplier.streamTo(sendBinaryStream());
+		}
+		return ((ChannelFileReader) supplier).transferTo(socket)
+				.then(() -> socket.write(null))
+				.whenResult(() -> {
+					writeDone = true;
+					closeIfDone();
+				})
+				.whenException(this::closeEx);
+	}
+
 	@Override
 	public ChannelSupplier<ByteBuf> receiveBinaryStream() {
 		return ChannelSuppliers.concat(ChannelSupplier.ofIterator(bufs.asIterator()), ChannelSupplier.ofSocket(socket))
@@ -3,8 +3,10 @@ package io.activej.csp.file;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufs;
 import io.activej.common.MemSize;
+import io.activej.common.exception.TruncatedDataException;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import io.activej.test.rules.ByteBufRule;
@@ -14,17 +16,28 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.*;
 
 public final class ChannelFileReaderWriterTest {
@@ -56,6 +69,43 @@ public final class ChannelFileReaderWriterTest {
 		assertArrayEquals(Files.readAllBytes(Paths.get("test_data/in.dat")), byteBuf.asArray());
 	}
 
+	@Test
+	public void transferFileToSocket() throws Exception {
+		Path inPath = tempFolder.getRoot().toPath().resolve("in.dat");
+		byte[] data = new byte[1_000_000];
+		ThreadLocalRandom.current().nextBytes(data);
+		Files.write(inPath, data);
+		ExecutorService executor = newCachedThreadPool();
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			Future<byte[]> received = executor.submit(() -> readAll(serverSocket));
+			await(AsyncTcpSocketNio.connect(new InetSocketAddress("localhost", serverSocket.getLocalPort()))
+					.then(socket -> ChannelFileReader.open(executor, inPath)
+							.then(reader -> reader.withLimit(data.length).transferTo(socket))
+							.whenComplete(socket::close)));
+
+			assertArrayEquals(data, received.get());
+		}
+	}
+
+	@Test
+	public void transferTruncatedFileToSocket() throws Exception {
+		Path inPath = tempFolder.getRoot().toPath().resolve("in.dat");
+		Files.write(inPath, new byte[100]);
+		ExecutorService executor = newCachedThreadPool();
+
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			Future<byte[]> received = executor.submit(() -> readAll(serverSocket));
+			Throwable e = awaitException(AsyncTcpSocketNio.connect(new InetSocketAddress("localhost", serverSocket.getLocalPort()))
+					.then(socket -> ChannelFileReader.open(executor, inPath)
+							.then(reader -> reader.withLimit(200).transferTo(socket))
+							.whenComplete(socket::close)));
+
+			assertThat(e, instanceOf(TruncatedDataException.class));
+			assertEquals(0, received.get().length);
+		}
+	}
+
 	@Test
 	public void streamFileWriter() throws IOException {
 		Path tempPath = tempFolder.getRoot().toPath().resolve("out.dat");
@@ -67,6 +117,23 @@ public final class ChannelFileReaderWriterTest {
 		assertArrayEquals(bytes, Files.readAllBytes(tempPath));
 	}
 
+	@Test
+	public void streamFileWithDirectBuffers() throws IOException {
+		Path inPath = tempFolder.getRoot().toPath().resolve("in.dat");
+		Path outPath = tempFolder.getRoot().toPath().resolve("out.dat");
+		byte[] data = new byte[1000];
+		ThreadLocalRandom.current().nextBytes(data);
+		Files.write(inPath, data);
+		DirectBufferAsyncFileService fileService = DirectBufferAsyncFileService.create(newCachedThreadPool());
+
+		ChannelFileReader reader = ChannelFileReader.create(fileService, FileChannel.open(inPath, READ))
+				.withBufferSize(MemSize.of(64));
+		ChannelFileWriter writer = ChannelFileWriter.create(fileService, FileChannel.open(outPath, CREATE_NEW, WRITE));
+		await(reader.streamTo(writer));
+
+		assertArrayEquals(data, Files.readAllBytes(outPath));
+	}
+
 	@Test
 	public void streamFileWriterRecycle() {
 		Path tempPath = tempFolder.getRoot().toPath().resolve("out.dat");
@@ -127,4 +194,17 @@ public final class ChannelFileReaderWriterTest {
 
 		assertEquals("", byteBuf.asString(UTF_8));
 	}
+
+	private static byte[] readAll(ServerSocket serverSocket) throws IOException {
+		try (Socket socket = serverSocket.accept()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			InputStream in = socket.getInputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
 }
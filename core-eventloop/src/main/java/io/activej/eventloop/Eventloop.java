@@ -18,6 +18,7 @@ package io.activej.eventloop;
 
 import io.activej.async.callback.AsyncComputation;
 import io.activej.async.callback.Callback;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
 import io.activej.common.api.WithInitializer;
 import io.activej.common.exception.AsyncTimeoutException;
@@ -35,7 +36,10 @@ import io.activej.eventloop.inspector.EventloopStats;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
 import io.activej.eventloop.net.DatagramSocketSettings;
 import io.activej.eventloop.net.ServerSocketSettings;
+import io.activej.eventloop.schedule.ScheduledPriorityQueue;
+import io.activej.eventloop.schedule.ScheduledQueue;
 import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.eventloop.schedule.ScheduledTimerWheel;
 import io.activej.eventloop.schedule.Scheduler;
 import io.activej.eventloop.util.OptimizedSelectedKeysSet;
 import io.activej.eventloop.util.RunnableWithContext;
@@ -90,6 +94,7 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	public static final boolean JIGSAW_DETECTED;
 	public static final Duration DEFAULT_SMOOTHING_WINDOW = Duration.ofMinutes(1);
 	public static final Duration DEFAULT_IDLE_INTERVAL = Duration.ofSeconds(1);
+	public static final boolean DEFAULT_TIMER_WHEEL = ApplicationSettings.getBoolean(Eventloop.class, "timerWheel", false);
 
 	static {
 		JIGSAW_DETECTED = ReflectionUtils.isClassPresent("java.lang.Module");
@@ -114,13 +119,13 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	 * Collection of scheduled tasks that are scheduled
 	 * to be executed at particular timestamp.
 	 */
-	private final PriorityQueue<ScheduledRunnable> scheduledTasks = new PriorityQueue<>();
+	private ScheduledQueue scheduledTasks;
 
 	/**
 	 * Collection of background tasks,
 	 * if eventloop contains only background tasks, it will be closed.
 	 */
-	private final PriorityQueue<ScheduledRunnable> backgroundTasks = new PriorityQueue<>();
+	private ScheduledQueue backgroundTasks;
 
 	/**
 	 * Amount of concurrent operations in other threads,
@@ -191,6 +196,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	private Eventloop(@NotNull CurrentTimeProvider timeProvider) {
 		this.timeProvider = timeProvider;
 		refreshTimestamp();
+		this.scheduledTasks = createScheduledQueue(DEFAULT_TIMER_WHEEL);
+		this.backgroundTasks = createScheduledQueue(DEFAULT_TIMER_WHEEL);
 	}
 
 	public static Eventloop create() {
@@ -238,6 +245,22 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return this;
 	}
 
+	/**
+	 * Sets whether scheduled and background tasks are stored in a {@link ScheduledTimerWheel timer wheel}
+	 * rather than in a {@link ScheduledPriorityQueue binary heap}.
+	 * <p>
+	 * A timer wheel has constant time scheduling and eager removal of cancelled tasks,
+	 * which suits large amounts of timeouts that are mostly cancelled.
+	 */
+	@NotNull
+	public Eventloop withTimerWheel(boolean timerWheel) {
+		if (timerWheel == isTimerWheel()) return this;
+		checkState(scheduledTasks.isEmpty() && backgroundTasks.isEmpty(), "Some tasks have already been scheduled");
+		this.scheduledTasks = createScheduledQueue(timerWheel);
+		this.backgroundTasks = createScheduledQueue(timerWheel);
+		return this;
+	}
+
 	@NotNull
 	public Eventloop withCurrentThread() {
 		CURRENT_EVENTLOOP.set(this);
@@ -246,6 +269,10 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 
 	// endregion
 
+	private ScheduledQueue createScheduledQueue(boolean timerWheel) {
+		return timerWheel ? ScheduledTimerWheel.create(this) : ScheduledPriorityQueue.create();
+	}
+
 	@Nullable
 	public Selector getSelector() {
 		return selector;
@@ -450,16 +477,12 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return Math.min(getTimeBeforeExecution(scheduledTasks), getTimeBeforeExecution(backgroundTasks));
 	}
 
-	private long getTimeBeforeExecution(PriorityQueue<ScheduledRunnable> taskQueue) {
-		while (!taskQueue.isEmpty()) {
-			ScheduledRunnable first = taskQueue.peek();
-			if (first.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			return first.getTimestamp() - currentTimeMillis();
+	private long getTimeBeforeExecution(ScheduledQueue taskQueue) {
+		long nextTimestamp = taskQueue.nextTimestamp();
+		if (nextTimestamp == Long.MAX_VALUE) {
+			return idleInterval.toMillis();
 		}
-		return idleInterval.toMillis();
+		return nextTimestamp - currentTimeMillis();
 	}
 
 	/**
@@ -669,7 +692,7 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return executeScheduledTasks(backgroundTasks);
 	}
 
-	private int executeScheduledTasks(PriorityQueue<ScheduledRunnable> taskQueue) {
+	private int executeScheduledTasks(ScheduledQueue taskQueue) {
 		long startTimestamp = timestamp;
 		boolean background = taskQueue == backgroundTasks;
 
@@ -677,17 +700,9 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		Stopwatch sw = monitoring ? Stopwatch.createUnstarted() : null;
 
 		for (; ; ) {
-			ScheduledRunnable peeked = taskQueue.peek();
+			ScheduledRunnable peeked = taskQueue.poll(currentTimeMillis());
 			if (peeked == null)
 				break;
-			if (peeked.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			if (peeked.getTimestamp() > currentTimeMillis()) {
-				break;
-			}
-			taskQueue.poll();
 
 			Runnable runnable = peeked.getRunnable();
 			if (sw != null) {
@@ -837,25 +852,64 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@NotNull
 	public ServerSocketChannel listen(@Nullable InetSocketAddress address, @NotNull ServerSocketSettings serverSocketSettings, @NotNull Consumer<SocketChannel> acceptCallback) throws IOException {
 		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
+		ServerSocketChannel serverSocketChannel = bind(address, serverSocketSettings);
+		try {
+			listen(serverSocketChannel, acceptCallback);
+			return serverSocketChannel;
+		} catch (IOException e) {
+			closeChannel(serverSocketChannel, null);
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates {@link ServerSocketChannel} bound to InetSocketAddress, which is not registered in this eventloop yet.
+	 * <p>
+	 * Unlike {@link #listen(InetSocketAddress, ServerSocketSettings, Consumer)}, this method may be called
+	 * from any thread, even if this eventloop is not running, a channel is then registered
+	 * in this eventloop by {@link #listen(ServerSocketChannel, Consumer)}
+	 *
+	 * @param address              InetSocketAddress that server will listen to
+	 * @param serverSocketSettings settings from this server channel
+	 * @return bound server channel
+	 * @throws IOException If some I/O error occurs
+	 */
+	@NotNull
+	public ServerSocketChannel bind(@Nullable InetSocketAddress address, @NotNull ServerSocketSettings serverSocketSettings) throws IOException {
 		ServerSocketChannel serverSocketChannel = null;
 		try {
 			serverSocketChannel = ServerSocketChannel.open();
 			serverSocketSettings.applySettings(serverSocketChannel);
 			serverSocketChannel.configureBlocking(false);
 			serverSocketChannel.bind(address, serverSocketSettings.getBacklog());
-			serverSocketChannel.register(ensureSelector(), SelectionKey.OP_ACCEPT, acceptCallback);
-			if (selector != null) {
-				selector.wakeup();
-			}
 			return serverSocketChannel;
 		} catch (IOException e) {
 			if (serverSocketChannel != null) {
-				closeChannel(serverSocketChannel, null);
+				try {
+					serverSocketChannel.close();
+				} catch (IOException closeException) {
+					e.addSuppressed(closeException);
+				}
 			}
 			throw e;
 		}
 	}
 
+	/**
+	 * Registers a bound {@link ServerSocketChannel} in this eventloop, so that its connections are accepted by this eventloop
+	 *
+	 * @param serverSocketChannel server channel which has been bound by {@link #bind(InetSocketAddress, ServerSocketSettings)}
+	 * @param acceptCallback      callback that is called when new incoming connection is being accepted. It can be called multiple times.
+	 * @throws IOException If some I/O error occurs
+	 */
+	public void listen(@NotNull ServerSocketChannel serverSocketChannel, @NotNull Consumer<SocketChannel> acceptCallback) throws IOException {
+		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
+		serverSocketChannel.register(ensureSelector(), SelectionKey.OP_ACCEPT, acceptCallback);
+		if (selector != null) {
+			selector.wakeup();
+		}
+	}
+
 	/**
 	 * Registers new UDP connection in this eventloop.
 	 *
@@ -1036,8 +1090,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@NotNull
 	private ScheduledRunnable addScheduledTask(long timestamp, Runnable runnable, boolean background) {
 		ScheduledRunnable scheduledTask = ScheduledRunnable.create(timestamp, runnable);
-		PriorityQueue<ScheduledRunnable> taskQueue = background ? backgroundTasks : scheduledTasks;
-		taskQueue.offer(scheduledTask);
+		ScheduledQueue taskQueue = background ? backgroundTasks : scheduledTasks;
+		taskQueue.add(scheduledTask);
 		return scheduledTask;
 	}
 
@@ -1230,6 +1284,10 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return idleInterval;
 	}
 
+	public boolean isTimerWheel() {
+		return scheduledTasks instanceof ScheduledTimerWheel;
+	}
+
 	@JmxAttribute
 	public void setIdleInterval(Duration idleInterval) {
 		this.idleInterval = idleInterval;
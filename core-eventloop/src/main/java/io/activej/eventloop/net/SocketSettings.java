@@ -45,9 +45,11 @@ public final class SocketSettings {
 	private final int implWriteTimeout;
 	private final int implReadBufferSize;
 	private final int lingerTimeout;
+	private final byte implDirectBuffers;
+	private final byte implReadAhead;
 
 	// region builders
-	private SocketSettings(int sendBufferSize, int receiveBufferSize, byte keepAlive, byte reuseAddress, byte tcpNoDelay, int implReadTimeout, int implWriteTimeout, int implReadBufferSize, int lingerTimeout) {
+	private SocketSettings(int sendBufferSize, int receiveBufferSize, byte keepAlive, byte reuseAddress, byte tcpNoDelay, int implReadTimeout, int implWriteTimeout, int implReadBufferSize, int lingerTimeout, byte implDirectBuffers, byte implReadAhead) {
 		this.sendBufferSize = sendBufferSize;
 		this.receiveBufferSize = receiveBufferSize;
 		this.keepAlive = keepAlive;
@@ -57,10 +59,12 @@ public final class SocketSettings {
 		this.implWriteTimeout = implWriteTimeout;
 		this.implReadBufferSize = implReadBufferSize;
 		this.lingerTimeout = lingerTimeout;
+		this.implDirectBuffers = implDirectBuffers;
+		this.implReadAhead = implReadAhead;
 	}
 
 	public static SocketSettings create() {
-		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, DEF_BOOL, 0, 0, 0, -1);
+		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, DEF_BOOL, 0, 0, 0, -1, DEF_BOOL, DEF_BOOL);
 	}
 
 	/**
@@ -71,43 +75,65 @@ public final class SocketSettings {
 	 * @return default socket settings
 	 */
 	public static SocketSettings createDefault() {
-		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, TRUE, 0, 0, 0, -1);
+		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, TRUE, 0, 0, 0, -1, DEF_BOOL, DEF_BOOL);
 	}
 
 	public SocketSettings withSendBufferSize(@NotNull MemSize sendBufferSize) {
-		return new SocketSettings(sendBufferSize.toInt(), receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize.toInt(), receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withReceiveBufferSize(@NotNull MemSize receiveBufferSize) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize.toInt(), keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize.toInt(), keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withKeepAlive(boolean keepAlive) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive ? TRUE : FALSE, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive ? TRUE : FALSE, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withReuseAddress(boolean reuseAddress) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress ? TRUE : FALSE, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress ? TRUE : FALSE, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withTcpNoDelay(boolean tcpNoDelay) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay ? TRUE : FALSE, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay ? TRUE : FALSE, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withImplReadTimeout(@NotNull Duration implReadTimeout) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, (int) implReadTimeout.toMillis(), implWriteTimeout, implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, (int) implReadTimeout.toMillis(), implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withImplWriteTimeout(@NotNull Duration implWriteTimeout) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, (int) implWriteTimeout.toMillis(), implReadBufferSize, lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, (int) implWriteTimeout.toMillis(), implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withImplReadBufferSize(@NotNull MemSize implReadBufferSize) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize.toInt(), lingerTimeout);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize.toInt(), lingerTimeout, implDirectBuffers, implReadAhead);
 	}
 
 	public SocketSettings withLingerTimeout(Duration lingerTimeout) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, (int) (lingerTimeout.toMillis() / 1000));
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, (int) (lingerTimeout.toMillis() / 1000), implDirectBuffers, implReadAhead);
+	}
+
+	/**
+	 * Makes socket use pooled direct buffers (see {@code io.activej.bytebuf.DirectBufferPool})
+	 * in place of JDK's per-thread temporary direct buffers when reading from and writing to the channel.
+	 * <p>
+	 * Data is still copied between heap {@code ByteBufs} and direct buffers, just as JDK does,
+	 * so no copying is saved. Only the off-heap memory used for socket I/O is pooled and bounded
+	 */
+	public SocketSettings withImplDirectBuffers(boolean implDirectBuffers) {
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers ? TRUE : FALSE, implReadAhead);
+	}
+
+	/**
+	 * Makes socket keep reading from the channel while less than a read buffer size of data
+	 * is waiting to be read, instead of pausing reads as soon as any data is waiting.
+	 * <p>
+	 * This saves interest changes of sockets whose data is read a bit later than it arrives,
+	 * at the cost of buffering up to two read buffers of data per socket
+	 */
+	public SocketSettings withImplReadAhead(boolean implReadAhead) {
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, lingerTimeout, implDirectBuffers, implReadAhead ? TRUE : FALSE);
 	}
 
 	// endregion
@@ -230,6 +256,24 @@ public final class SocketSettings {
 		return implReadBufferSize;
 	}
 
+	public boolean hasImplDirectBuffers() {
+		return implDirectBuffers != DEF_BOOL;
+	}
+
+	public boolean getImplDirectBuffers() {
+		checkState(hasImplDirectBuffers(), "No 'implicit direct buffers' setting is present");
+		return implDirectBuffers != FALSE;
+	}
+
+	public boolean hasImplReadAhead() {
+		return implReadAhead != DEF_BOOL;
+	}
+
+	public boolean getImplReadAhead() {
+		checkState(hasImplReadAhead(), "No 'implicit read ahead' setting is present");
+		return implReadAhead != FALSE;
+	}
+
 	public boolean hasLingerTimeout() {
 		return lingerTimeout != -1;
 	}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A collection of {@link ScheduledRunnable scheduled tasks} that are due at particular timestamps.
+ * Used by {@link io.activej.eventloop.Eventloop Eventloop} to store scheduled and background tasks.
+ */
+public interface ScheduledQueue {
+	void add(@NotNull ScheduledRunnable task);
+
+	/**
+	 * Removes and returns a task whose timestamp is not after given timestamp.
+	 * Cancelled tasks are never returned.
+	 *
+	 * @param timestamp current timestamp
+	 * @return a due task or {@code null} if there are no due tasks
+	 */
+	@Nullable
+	ScheduledRunnable poll(long timestamp);
+
+	/**
+	 * Returns a timestamp at which next task may become due, or {@link Long#MAX_VALUE} if there are no tasks.
+	 * Returned timestamp may be earlier than the actual timestamp of the next task.
+	 */
+	long nextTimestamp();
+
+	boolean isEmpty();
+
+	int size();
+}
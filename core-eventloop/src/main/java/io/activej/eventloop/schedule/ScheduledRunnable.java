@@ -17,6 +17,7 @@
 package io.activej.eventloop.schedule;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ScheduledRunnable implements Comparable<ScheduledRunnable> {
 	private final long timestamp;
@@ -24,6 +25,16 @@ public final class ScheduledRunnable implements Comparable<ScheduledRunnable> {
 	private boolean cancelled;
 	private boolean complete;
 
+	// region intrusive links of ScheduledTimerWheel
+	@Nullable
+	ScheduledTimerWheel wheel;
+	@Nullable
+	ScheduledRunnable prev;
+	@Nullable
+	ScheduledRunnable next;
+	int slot;
+	// endregion
+
 	// region builders
 	private ScheduledRunnable(long timestamp, @NotNull Runnable runnable) {
 		this.timestamp = timestamp;
@@ -39,6 +50,9 @@ public final class ScheduledRunnable implements Comparable<ScheduledRunnable> {
 	public void cancel() {
 		cancelled = true;
 		runnable = null;
+		if (wheel != null) {
+			wheel.remove(this);
+		}
 	}
 
 	@SuppressWarnings("AssignmentToNull") // runnable has been completed
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import io.activej.common.time.CurrentTimeProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * A {@link ScheduledQueue} implemented as a hierarchical timing wheel with millisecond resolution.
+ * <p>
+ * There are 11 levels of 64 slots each, a slot of level {@code L} spans 64<sup>L</sup> milliseconds,
+ * so that each level corresponds to 6 bits of a timestamp. A task is put into a level that corresponds to the
+ * highest bits in which its timestamp differs from the current time of the wheel. When the current time reaches
+ * the beginning of a slot, tasks of that slot are either due (level 0) or are redistributed among lower levels.
+ * <p>
+ * Tasks are added and cancelled in O(1) time. Cancelled tasks are removed from the wheel immediately.
+ * Each task is moved between levels at most once per level, and non-empty slots are found
+ * with a bitmask per level, so an idle wheel does not iterate over empty slots.
+ * <p>
+ * Tasks that are due in the same millisecond are not ordered.
+ */
+public final class ScheduledTimerWheel implements ScheduledQueue {
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+	static final int DUE = -1;
+
+	private final CurrentTimeProvider timeProvider;
+
+	private final ScheduledRunnable[] slots = new ScheduledRunnable[LEVELS * SLOTS];
+	private final long[] occupied = new long[LEVELS];
+
+	@Nullable
+	private ScheduledRunnable dueHead;
+	@Nullable
+	private ScheduledRunnable dueTail;
+
+	/**
+	 * All of the tasks with timestamps not after current time are in the list of due tasks
+	 */
+	private long current;
+	private int size;
+
+	private ScheduledTimerWheel(CurrentTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+		this.current = Math.max(0, timeProvider.currentTimeMillis());
+	}
+
+	public static ScheduledTimerWheel create(@NotNull CurrentTimeProvider timeProvider) {
+		return new ScheduledTimerWheel(timeProvider);
+	}
+
+	@Override
+	public void add(@NotNull ScheduledRunnable task) {
+		checkArgument(task.wheel == null, "Task has already been added to a timer wheel");
+		if (task.isCancelled()) return;
+		if (size == 0) {
+			// there are no tasks that depend on current time
+			current = Math.max(0, timeProvider.currentTimeMillis());
+		}
+		task.wheel = this;
+		size++;
+		insert(task);
+	}
+
+	@Nullable
+	@Override
+	public ScheduledRunnable poll(long timestamp) {
+		if (dueHead == null) {
+			if (size == 0) return null;
+			advance(timestamp);
+			if (dueHead == null) return null;
+		}
+		ScheduledRunnable task = dueHead;
+		unlink(task);
+		return task;
+	}
+
+	@Override
+	public long nextTimestamp() {
+		if (dueHead != null) return dueHead.getTimestamp();
+		return nextSlotTimestamp();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Called when a task is cancelled
+	 */
+	void remove(ScheduledRunnable task) {
+		assert task.wheel == this;
+		unlink(task);
+	}
+
+	private void insert(ScheduledRunnable task) {
+		long timestamp = task.getTimestamp();
+		if (timestamp <= current) {
+			task.slot = DUE;
+			task.next = null;
+			task.prev = dueTail;
+			if (dueTail == null) {
+				dueHead = task;
+			} else {
+				dueTail.next = task;
+			}
+			dueTail = task;
+			return;
+		}
+		int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(timestamp ^ current)) / BITS;
+		int index = (int) (timestamp >>> (level * BITS)) & MASK;
+		int slot = level * SLOTS + index;
+		ScheduledRunnable head = slots[slot];
+		task.slot = slot;
+		task.prev = null;
+		task.next = head;
+		if (head != null) {
+			head.prev = task;
+		}
+		slots[slot] = task;
+		occupied[level] |= 1L << index;
+	}
+
+	private void unlink(ScheduledRunnable task) {
+		ScheduledRunnable prev = task.prev;
+		ScheduledRunnable next = task.next;
+		int slot = task.slot;
+		if (prev != null) {
+			prev.next = next;
+		} else if (slot == DUE) {
+			dueHead = next;
+		} else {
+			slots[slot] = next;
+			if (next == null) {
+				occupied[slot / SLOTS] &= ~(1L << (slot & MASK));
+			}
+		}
+		if (next != null) {
+			next.prev = prev;
+		} else if (slot == DUE) {
+			dueTail = prev;
+		}
+		task.prev = task.next = null;
+		task.wheel = null;
+		size--;
+	}
+
+	/**
+	 * Moves current time forward, either to given timestamp or to the beginning of the next non-empty slot,
+	 * whichever comes first, until some tasks become due or given timestamp is reached
+	 */
+	private void advance(long timestamp) {
+		while (current < timestamp && dueHead == null) {
+			long slotTimestamp = nextSlotTimestamp();
+			if (slotTimestamp > timestamp) {
+				current = timestamp;
+				return;
+			}
+			current = slotTimestamp;
+			int level = lowestOccupiedLevel();
+			int index = Long.numberOfTrailingZeros(occupied[level]);
+			int slot = level * SLOTS + index;
+			ScheduledRunnable task = slots[slot];
+			slots[slot] = null;
+			occupied[level] &= ~(1L << index);
+			while (task != null) {
+				ScheduledRunnable nextTask = task.next;
+				insert(task);
+				task = nextTask;
+			}
+		}
+	}
+
+	private int lowestOccupiedLevel() {
+		for (int level = 0; level < LEVELS; level++) {
+			if (occupied[level] != 0) return level;
+		}
+		return -1;
+	}
+
+	/**
+	 * Occupied slots of each level are always after the current slot of that level,
+	 * and slots of lower levels always begin before slots of higher levels
+	 */
+	private long nextSlotTimestamp() {
+		int level = lowestOccupiedLevel();
+		if (level == -1) return Long.MAX_VALUE;
+		int shift = level * BITS;
+		int prefixShift = shift + BITS;
+		long prefix = prefixShift >= Long.SIZE ? 0 : (current >>> prefixShift) << prefixShift;
+		return prefix | ((long) Long.numberOfTrailingZeros(occupied[level]) << shift);
+	}
+
+	@Override
+	public String toString() {
+		return "ScheduledTimerWheel{size=" + size + ", current=" + current + '}';
+	}
+}
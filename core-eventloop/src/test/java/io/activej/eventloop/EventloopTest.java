@@ -6,7 +6,10 @@ import io.activej.eventloop.util.RunnableWithContext;
 import org.junit.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
+import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static org.junit.Assert.assertEquals;
 
@@ -36,6 +39,20 @@ public final class EventloopTest {
 		assertEquals(contextString, sb.toString());
 	}
 
+	@Test
+	public void testTimerWheel() {
+		Eventloop eventloop = Eventloop.create().withCurrentThread().withTimerWheel(true);
+		List<Integer> executed = new ArrayList<>();
+		eventloop.delay(30, () -> executed.add(3));
+		eventloop.delay(10, () -> executed.add(1));
+		eventloop.delay(20, () -> executed.add(2));
+		eventloop.delay(1_000_000, () -> executed.add(4)).cancel();
+		// an unchanged setting is allowed after tasks have been scheduled
+		eventloop.withTimerWheel(true);
+		eventloop.run();
+		assertEquals(asList(1, 2, 3), executed);
+	}
+
 	@Test
 	public void testGetSmoothingWindow() {
 		Duration smoothingWindow = Eventloop.create().withInspector(EventloopStats.create()).getSmoothingWindow();
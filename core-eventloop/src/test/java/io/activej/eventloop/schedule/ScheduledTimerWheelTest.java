@@ -0,0 +1,96 @@
+package io.activej.eventloop.schedule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public final class ScheduledTimerWheelTest {
+	private static final long START = 1_600_000_000_000L;
+
+	private long now = START;
+	private final ScheduledTimerWheel wheel = ScheduledTimerWheel.create(() -> now);
+
+	@Test
+	public void testPollDueTasks() {
+		ScheduledRunnable task1 = schedule(START + 10);
+		ScheduledRunnable task2 = schedule(START + 5_000);
+		ScheduledRunnable task3 = schedule(START);
+
+		assertEquals(3, wheel.size());
+		assertEquals(START, wheel.nextTimestamp());
+		assertSame(task3, wheel.poll(now));
+		assertNull(wheel.poll(now));
+
+		assertTrue(wheel.nextTimestamp() <= START + 10);
+		assertNull(wheel.poll(START + 9));
+		assertSame(task1, wheel.poll(START + 10));
+
+		assertNull(wheel.poll(START + 4_999));
+		assertSame(task2, wheel.poll(START + 100_000));
+		assertTrue(wheel.isEmpty());
+		assertEquals(Long.MAX_VALUE, wheel.nextTimestamp());
+	}
+
+	@Test
+	public void testCancel() {
+		ScheduledRunnable task1 = schedule(START + 100);
+		ScheduledRunnable task2 = schedule(START + 100);
+		ScheduledRunnable task3 = schedule(START + 1_000_000);
+
+		task1.cancel();
+		task3.cancel();
+		assertEquals(1, wheel.size());
+
+		assertSame(task2, wheel.poll(START + 2_000_000));
+		assertTrue(wheel.isEmpty());
+		assertEquals(Long.MAX_VALUE, wheel.nextTimestamp());
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		ScheduledPriorityQueue queue = ScheduledPriorityQueue.create();
+		Random random = new Random(0);
+		List<ScheduledRunnable> scheduled = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			long delay = random.nextInt(4) == 0 ? random.nextInt(100_000_000) : random.nextInt(1000);
+			ScheduledRunnable task = schedule(now + delay);
+			queue.add(task);
+			scheduled.add(task);
+			if (random.nextInt(3) == 0) {
+				scheduled.get(random.nextInt(scheduled.size())).cancel();
+			}
+			if (random.nextInt(10) == 0) {
+				now += random.nextInt(2000);
+				drainAndCompare(queue);
+			}
+		}
+		now += 100_000_000;
+		drainAndCompare(queue);
+		assertTrue(wheel.isEmpty());
+	}
+
+	private void drainAndCompare(ScheduledPriorityQueue queue) {
+		List<Long> expected = new ArrayList<>();
+		ScheduledRunnable task;
+		while ((task = queue.poll(now)) != null) {
+			expected.add(task.getTimestamp());
+		}
+		List<Long> actual = new ArrayList<>();
+		while ((task = wheel.poll(now)) != null) {
+			assertFalse(task.isCancelled());
+			actual.add(task.getTimestamp());
+		}
+		actual.sort(null);
+		assertEquals(expected, actual);
+	}
+
+	private ScheduledRunnable schedule(long timestamp) {
+		ScheduledRunnable task = ScheduledRunnable.create(timestamp, () -> {});
+		wheel.add(task);
+		return task;
+	}
+}
@@ -100,7 +100,7 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 
 				DnsQueryCacheResult cacheResult = cache.tryToResolve(query);
 				if (cacheResult != null) {
-					if (cacheResult.doesNeedRefreshing() && !refreshingNow.add(query)) {
+					if (cacheResult.doesNeedRefreshing() && !refreshingNow.contains(query)) {
 						eventloop.execute(() -> refresh(query));
 					}
 					return cacheResult.getResponseAsPromise();
@@ -137,12 +137,20 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 			logger.trace("{} needs refreshing, but it does so right now", query);
 			return;
 		}
+		if (pending.containsKey(query)) {
+			refreshingNow.remove(query);
+			return;
+		}
 		logger.trace("Refreshing {}", query);
-		client.resolve(query)
+		Promise<DnsResponse> refresh = client.resolve(query)
 				.whenComplete((response, e) -> {
 					addToCache(query, response, e);
 					refreshingNow.remove(query);
 				});
+		if (refresh.isComplete()) return;
+		// requests for a domain that expires while it is being refreshed join the refresh
+		pending.put(query, refresh);
+		refresh.whenComplete(() -> pending.remove(query));
 	}
 
 	@Override
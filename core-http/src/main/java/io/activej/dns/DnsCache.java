@@ -19,10 +19,9 @@ package io.activej.dns;
 import io.activej.common.Checks;
 import io.activej.common.StringFormatUtils;
 import io.activej.common.time.CurrentTimeProvider;
+import io.activej.dns.protocol.*;
+import io.activej.dns.protocol.DnsProtocol.RecordType;
 import io.activej.dns.protocol.DnsProtocol.ResponseErrorCode;
-import io.activej.dns.protocol.DnsQuery;
-import io.activej.dns.protocol.DnsQueryException;
-import io.activej.dns.protocol.DnsResponse;
 import io.activej.eventloop.Eventloop;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxOperation;
@@ -33,7 +32,13 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.*;
 import java.util.Map.Entry;
@@ -42,10 +47,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Represents a cache for storing resolved domains during its time to live.
+ * <p>
+ * An entry whose time to live has passed is still served for a {@link #withHardExpirationDelta hard expiration delta},
+ * while it is being resolved again in the background. With a {@link #withRefreshAhead refresh-ahead} interval,
+ * entries which are accessed shortly before their expiration are refreshed in advance,
+ * so that frequently used domains are never resolved on a request path.
+ * <p>
+ * A number of cached domains may be bounded, in which case domains which are the closest to expiration
+ * are evicted first. Cache contents may be saved to a file and loaded on startup.
  */
 public final class DnsCache {
 	private static final Logger logger = LoggerFactory.getLogger(DnsCache.class);
@@ -55,6 +70,8 @@ public final class DnsCache {
 	public static final Duration DEFAULT_TIMED_OUT_EXPIRATION = Duration.ofSeconds(1);
 	public static final Duration DEFAULT_HARD_EXPIRATION_DELTA = Duration.ofMinutes(1);
 	public static final Duration DEFAULT_MAX_TTL = null;
+	public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ZERO;
+	public static final int DEFAULT_MAX_SIZE = 0;
 
 	private final Map<DnsQuery, CachedDnsQueryResult> cache = new ConcurrentHashMap<>();
 	private final Eventloop eventloop;
@@ -63,6 +80,10 @@ public final class DnsCache {
 	private long timedOutExpiration = DEFAULT_TIMED_OUT_EXPIRATION.toMillis();
 	private long hardExpirationDelta = DEFAULT_HARD_EXPIRATION_DELTA.toMillis();
 	private long maxTtl = Long.MAX_VALUE;
+	private long refreshAhead = DEFAULT_REFRESH_AHEAD.toMillis();
+	private int maxSize = DEFAULT_MAX_SIZE;
+
+	private long evictedDomains;
 
 	private final AtomicBoolean cleaningUpNow = new AtomicBoolean(false);
 	private final PriorityQueue<CachedDnsQueryResult> expirations = new PriorityQueue<>();
@@ -113,6 +134,24 @@ public final class DnsCache {
 		return this;
 	}
 
+	/**
+	 * @param refreshAhead an interval before expiration of an entry, during which an access
+	 *                     to the entry triggers its refresh
+	 */
+	public DnsCache withRefreshAhead(Duration refreshAhead) {
+		this.refreshAhead = refreshAhead.toMillis();
+		return this;
+	}
+
+	/**
+	 * @param maxSize maximum number of cached domains, or {@code 0} if a number of domains is not bounded
+	 */
+	public DnsCache withMaxSize(int maxSize) {
+		checkArgument(maxSize >= 0, "Max size should not be negative");
+		this.maxSize = maxSize;
+		return this;
+	}
+
 	/**
 	 * Tries to get status of the entry for some query from the cache.
 	 *
@@ -151,7 +190,7 @@ public final class DnsCache {
 	}
 
 	private boolean isSoftExpired(CachedDnsQueryResult cachedResult) {
-		return now.currentTimeMillis() >= cachedResult.expirationTime;
+		return now.currentTimeMillis() >= cachedResult.expirationTime - refreshAhead;
 	}
 
 	/**
@@ -174,7 +213,11 @@ public final class DnsCache {
 					timedOutExpiration :
 					errorCacheExpiration;
 		}
-		CachedDnsQueryResult cachedResult = new CachedDnsQueryResult(response, expirationTime);
+		put(query, response, expirationTime);
+	}
+
+	private void put(DnsQuery query, DnsResponse response, long expirationTime) {
+		CachedDnsQueryResult cachedResult = new CachedDnsQueryResult(query, response, expirationTime);
 		CachedDnsQueryResult old = cache.put(query, cachedResult);
 		expirations.add(cachedResult);
 
@@ -183,6 +226,20 @@ public final class DnsCache {
 			logger.trace("Refreshed cache entry for {}", query);
 		} else {
 			logger.trace("Added cache entry for {}", query);
+			evictOverflow();
+		}
+	}
+
+	private void evictOverflow() {
+		if (maxSize == 0) return;
+		while (cache.size() > maxSize) {
+			CachedDnsQueryResult evicted = expirations.poll();
+			if (evicted == null) break;
+			if (evicted.response != null) {
+				cache.remove(evicted.query);
+				evictedDomains++;
+				logger.trace("Evicted cache entry for {}", evicted.query);
+			}
 		}
 	}
 
@@ -193,18 +250,93 @@ public final class DnsCache {
 		long currentTime = now.currentTimeMillis();
 
 		CachedDnsQueryResult peeked;
-		while ((peeked = expirations.peek()) != null && peeked.expirationTime <= currentTime) {
-			DnsResponse response = peeked.response;
-			if (response != null) { // if it was not refreshed(so there is a newer response in the queue)
-				DnsQuery query = response.getTransaction().getQuery();
-				cache.remove(query); // we drop it from cache
-				logger.trace("Cache entry expired for {}", query);
+		while ((peeked = expirations.peek()) != null && peeked.expirationTime + hardExpirationDelta <= currentTime) {
+			if (peeked.response != null) { // if it was not refreshed(so there is a newer response in the queue)
+				cache.remove(peeked.query); // we drop it from cache
+				logger.trace("Cache entry expired for {}", peeked.query);
 			}
 			expirations.poll();
 		}
 		cleaningUpNow.set(false);
 	}
 
+	/**
+	 * Saves successfully resolved domains of this cache to a file, so that they may be
+	 * {@link #loadSnapshot loaded} on the next startup. A file is replaced atomically.
+	 * <p>
+	 * This method performs blocking I/O.
+	 */
+	public void saveSnapshot(Path file) throws IOException {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tempFile, UTF_8)) {
+			for (CachedDnsQueryResult cachedResult : cache.values()) {
+				DnsResponse response = cachedResult.response;
+				if (response == null || !response.isSuccessful()) continue;
+				DnsResourceRecord record = response.getRecord();
+				assert record != null;
+				writer.write(cachedResult.query.getDomainName() + ' ' + cachedResult.query.getRecordType() + ' ' +
+						cachedResult.expirationTime + ' ' + record.getMinTtl());
+				for (InetAddress ip : record.getIps()) {
+					writer.write(' ' + ip.getHostAddress());
+				}
+				writer.newLine();
+			}
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads domains which were {@link #saveSnapshot saved} to a file and are not yet hard expired.
+	 * Loaded domains which are already expired are served while they are being refreshed.
+	 * A missing file is ignored.
+	 * <p>
+	 * This method performs blocking I/O and should be called from the eventloop thread, before any resolves.
+	 *
+	 * @return number of loaded domains
+	 */
+	public int loadSnapshot(Path file) throws IOException {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Concurrent cache adds are not allowed");
+		if (!Files.exists(file)) {
+			return 0;
+		}
+		long currentTime = now.currentTimeMillis();
+		int loaded = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(" ");
+				if (parts.length < 5) {
+					logger.warn("Skipping malformed DNS cache snapshot line: {}", line);
+					continue;
+				}
+				long expirationTime;
+				int minTtl;
+				RecordType recordType;
+				try {
+					expirationTime = Long.parseLong(parts[2]);
+					minTtl = Integer.parseInt(parts[3]);
+					recordType = RecordType.valueOf(parts[1]);
+				} catch (IllegalArgumentException e) {
+					logger.warn("Skipping malformed DNS cache snapshot line: {}", line, e);
+					continue;
+				}
+				if (currentTime >= expirationTime + hardExpirationDelta) {
+					continue;
+				}
+				InetAddress[] ips = new InetAddress[parts.length - 4];
+				for (int i = 0; i < ips.length; i++) {
+					ips[i] = InetAddress.getByName(parts[i + 4]);
+				}
+				DnsQuery query = DnsQuery.of(parts[0], recordType);
+				DnsResponse response = DnsResponse.of(DnsTransaction.of((short) 0, query), DnsResourceRecord.of(ips, minTtl));
+				put(query, response, expirationTime);
+				loaded++;
+			}
+		}
+		logger.trace("Loaded {} cache entries from {}", loaded, file);
+		return loaded;
+	}
+
 	@JmxAttribute
 	public Duration getErrorCacheExpiration() {
 		return Duration.ofMillis(errorCacheExpiration);
@@ -249,6 +381,32 @@ public final class DnsCache {
 		}
 	}
 
+	@JmxAttribute
+	public Duration getRefreshAhead() {
+		return Duration.ofMillis(refreshAhead);
+	}
+
+	@JmxAttribute
+	public void setRefreshAhead(Duration refreshAhead) {
+		this.refreshAhead = refreshAhead.toMillis();
+	}
+
+	@JmxAttribute
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	@JmxAttribute
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		eventloop.submit(this::evictOverflow);
+	}
+
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getEvictedDomainsCount() {
+		return evictedDomains;
+	}
+
 	@JmxAttribute(reducer = JmxReducerSum.class)
 	public int getDomainsCount() {
 		return cache.size();
@@ -406,11 +564,13 @@ public final class DnsCache {
 	}
 
 	static final class CachedDnsQueryResult implements Comparable<CachedDnsQueryResult> {
+		final DnsQuery query;
 		@Nullable
 		DnsResponse response;
 		final long expirationTime;
 
-		CachedDnsQueryResult(@Nullable DnsResponse response, long expirationTime) {
+		CachedDnsQueryResult(DnsQuery query, @Nullable DnsResponse response, long expirationTime) {
+			this.query = query;
 			this.response = response;
 			this.expirationTime = expirationTime;
 		}
@@ -44,21 +44,27 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.channels.DatagramChannel;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.promise.Promises.timeout;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Implementation of {@link AsyncDnsClient} that asynchronously
  * connects to some <i>real</i> DNS server and gets the response from it.
+ * <p>
+ * Multiple DNS servers may be specified, in which case each query is sent to a server
+ * with the lowest smoothed response time. If a server times out or fails, a query is resent
+ * to the next server, and a server that has timed out is tried last for a {@link #withServerBackoff backoff} period.
  */
 public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxBeanEx {
 	private final Logger logger = LoggerFactory.getLogger(RemoteAsyncDnsClient.class);
 	private static final boolean CHECK = Checks.isEnabled(RemoteAsyncDnsClient.class);
 
 	public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(3);
+	public static final Duration DEFAULT_SERVER_BACKOFF = Duration.ofSeconds(30);
 	private static final int DNS_SERVER_PORT = 53;
 	public static final InetSocketAddress GOOGLE_PUBLIC_DNS = new InetSocketAddress("8.8.8.8", DNS_SERVER_PORT);
 	public static final InetSocketAddress LOCAL_DNS = new InetSocketAddress("192.168.0.1", DNS_SERVER_PORT);
@@ -67,11 +73,9 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 	private final Map<DnsTransaction, SettablePromise<DnsResponse>> transactions = new HashMap<>();
 
 	private DatagramSocketSettings datagramSocketSettings = DatagramSocketSettings.create();
-	private InetSocketAddress dnsServerAddress = GOOGLE_PUBLIC_DNS;
+	private DnsServer[] dnsServers = {new DnsServer(GOOGLE_PUBLIC_DNS)};
 	private Duration timeout = DEFAULT_TIMEOUT;
-
-	@Nullable
-	private AsyncUdpSocket socket;
+	private long serverBackoffMillis = DEFAULT_SERVER_BACKOFF.toMillis();
 
 	@Nullable
 	private AsyncUdpSocketNio.Inspector socketInspector;
@@ -98,12 +102,28 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 	}
 
 	public RemoteAsyncDnsClient withDnsServerAddress(InetSocketAddress address) {
-		this.dnsServerAddress = address;
-		return this;
+		return withDnsServerAddresses(Collections.singletonList(address));
 	}
 
 	public RemoteAsyncDnsClient withDnsServerAddress(InetAddress address) {
-		this.dnsServerAddress = new InetSocketAddress(address, DNS_SERVER_PORT);
+		return withDnsServerAddress(new InetSocketAddress(address, DNS_SERVER_PORT));
+	}
+
+	/**
+	 * Sets DNS servers to which queries are sent, a query fails over to the next server
+	 * if a server times out or fails
+	 */
+	public RemoteAsyncDnsClient withDnsServerAddresses(List<InetSocketAddress> addresses) {
+		checkArgument(!addresses.isEmpty(), "At least one DNS server address should be specified");
+		this.dnsServers = addresses.stream().map(DnsServer::new).toArray(DnsServer[]::new);
+		return this;
+	}
+
+	/**
+	 * Sets a period during which a DNS server that has timed out is tried only after other servers
+	 */
+	public RemoteAsyncDnsClient withServerBackoff(Duration serverBackoff) {
+		this.serverBackoffMillis = serverBackoff.toMillis();
 		return this;
 	}
 
@@ -128,35 +148,16 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 	@Override
 	public void close() {
 		if (CHECK) checkState(eventloop.inEventloopThread());
-		if (socket == null) {
+		boolean closed = false;
+		for (DnsServer dnsServer : dnsServers) {
+			closed |= dnsServer.closeSocket();
+		}
+		if (!closed) {
 			return;
 		}
-		socket.close();
-		socket = null;
 		CloseException closeException = new CloseException();
-		transactions.values().forEach(s -> s.setException(closeException));
-	}
-
-	private Promise<AsyncUdpSocket> getSocket() {
-		AsyncUdpSocket socket = this.socket;
-		if (socket != null) {
-			return Promise.of(socket);
-		}
-		try {
-			logger.trace("Incoming query, opening UDP socket");
-			DatagramChannel channel = Eventloop.createDatagramChannel(datagramSocketSettings, null, dnsServerAddress);
-			return AsyncUdpSocketNio.connect(eventloop, channel)
-					.map(s -> {
-						if (socketInspector != null) {
-							socketInspector.onCreate(s);
-							s.setInspector(socketInspector);
-						}
-						return this.socket = s;
-					});
-		} catch (IOException e) {
-			logger.error("UDP socket creation failed.", e);
-			return Promise.ofException(e);
-		}
+		new ArrayList<>(transactions.values()).forEach(s -> s.setException(closeException));
+		transactions.clear();
 	}
 
 	@Override
@@ -167,79 +168,182 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 			logger.trace("{} already contained an IP address within itself", query);
 			return Promise.of(fromQuery);
 		}
-		// ignore the result because sooner or later it will be sent and just completed
-		// here we use that transactions map because it easily could go completely out of order and we should be ok with that
-		return getSocket()
-				.then(socket -> {
-					logger.trace("Resolving {} with DNS server {}", query, dnsServerAddress);
+		DnsServer[] servers = dnsServers;
+		if (servers.length != 1) {
+			long currentTime = eventloop.currentTimeMillis();
+			servers = servers.clone();
+			Arrays.sort(servers, Comparator
+					.comparing((DnsServer server) -> server.backoffUntil > currentTime)
+					.thenComparingLong(server -> server.smoothedResponseTime));
+		}
+		return resolve(query, servers, 0);
+	}
 
-					DnsTransaction transaction = DnsTransaction.of(DnsProtocol.generateTransactionId(), query);
-					SettablePromise<DnsResponse> promise = new SettablePromise<>();
+	private Promise<DnsResponse> resolve(DnsQuery query, DnsServer[] servers, int index) {
+		DnsServer server = servers[index];
+		return server.resolve(query)
+				.thenEx((queryResult, e) -> {
+					if (e != null && index + 1 < servers.length && isRecoverable(e)) {
+						logger.trace("{} failed with DNS server {}, failing over to {}", query, server.address, servers[index + 1].address);
+						if (inspector != null) {
+							inspector.onDnsServerFailover(query, server.address);
+						}
+						return resolve(query, servers, index + 1);
+					}
+					return Promise.of(queryResult, e);
+				});
+	}
 
-					transactions.put(transaction, promise);
+	private static boolean isRecoverable(Throwable e) {
+		if (e instanceof DnsQueryException) {
+			DnsProtocol.ResponseErrorCode errorCode = ((DnsQueryException) e).getResult().getErrorCode();
+			return errorCode == DnsProtocol.ResponseErrorCode.TIMED_OUT ||
+					errorCode == DnsProtocol.ResponseErrorCode.SERVER_FAILURE ||
+					errorCode == DnsProtocol.ResponseErrorCode.REFUSED;
+		}
+		return e instanceof IOException;
+	}
 
-					ByteBuf payload = DnsProtocol.createDnsQueryPayload(transaction);
-					if (inspector != null) {
-						inspector.onDnsQuery(query, payload);
-					}
+	/**
+	 * A DNS server with its own UDP socket, which is opened on demand and closed once
+	 * all of the queries sent to the server are completed
+	 */
+	private final class DnsServer {
+		final InetSocketAddress address;
 
-					// ignore the result because soon or later it will be sent and just completed
-					socket.send(UdpPacket.of(payload, dnsServerAddress));
-
-					// here we use that transactions map because it easily could go completely out of order and we should be ok with that
-					socket.receive()
-							.whenResult(packet -> {
-								try {
-									DnsResponse queryResult = DnsProtocol.readDnsResponse(packet.getBuf());
-									SettablePromise<DnsResponse> cb = transactions.remove(queryResult.getTransaction());
-									if (cb == null) {
-										logger.warn("Received a DNS response that had no listener (most likely because it timed out) : {}", queryResult);
-										return;
-									}
-									if (queryResult.isSuccessful()) {
-										cb.set(queryResult);
-									} else {
-										cb.setException(new DnsQueryException(queryResult));
+		@Nullable
+		AsyncUdpSocket socket;
+		int pendingQueries;
+
+		long smoothedResponseTime;
+		long backoffUntil;
+
+		DnsServer(InetSocketAddress address) {
+			this.address = address;
+		}
+
+		Promise<AsyncUdpSocket> getSocket() {
+			AsyncUdpSocket socket = this.socket;
+			if (socket != null) {
+				return Promise.of(socket);
+			}
+			try {
+				logger.trace("Incoming query, opening UDP socket to {}", address);
+				DatagramChannel channel = Eventloop.createDatagramChannel(datagramSocketSettings, null, address);
+				return AsyncUdpSocketNio.connect(eventloop, channel)
+						.map(s -> {
+							if (socketInspector != null) {
+								socketInspector.onCreate(s);
+								s.setInspector(socketInspector);
+							}
+							return this.socket = s;
+						});
+			} catch (IOException e) {
+				logger.error("UDP socket creation failed.", e);
+				return Promise.ofException(e);
+			}
+		}
+
+		boolean closeSocket() {
+			if (socket == null) {
+				return false;
+			}
+			socket.close();
+			socket = null;
+			return true;
+		}
+
+		Promise<DnsResponse> resolve(DnsQuery query) {
+			return getSocket()
+					.then(socket -> {
+						logger.trace("Resolving {} with DNS server {}", query, address);
+
+						DnsTransaction transaction = DnsTransaction.of(DnsProtocol.generateTransactionId(), query);
+						SettablePromise<DnsResponse> promise = new SettablePromise<>();
+
+						transactions.put(transaction, promise);
+						pendingQueries++;
+						long sentTimestamp = eventloop.currentTimeMillis();
+
+						ByteBuf payload = DnsProtocol.createDnsQueryPayload(transaction);
+						if (inspector != null) {
+							inspector.onDnsQuery(query, payload);
+						}
+
+						// ignore the result because soon or later it will be sent and just completed
+						socket.send(UdpPacket.of(payload, address));
+
+						// here we use that transactions map because it easily could go completely out of order and we should be ok with that
+						socket.receive()
+								.whenResult(packet -> {
+									try {
+										DnsResponse queryResult = DnsProtocol.readDnsResponse(packet.getBuf());
+										SettablePromise<DnsResponse> cb = transactions.remove(queryResult.getTransaction());
+										if (cb == null) {
+											logger.warn("Received a DNS response that had no listener (most likely because it timed out) : {}", queryResult);
+											return;
+										}
+										onResponse(eventloop.currentTimeMillis() - sentTimestamp);
+										if (queryResult.isSuccessful()) {
+											cb.set(queryResult);
+										} else {
+											cb.setException(new DnsQueryException(queryResult));
+										}
+									} catch (MalformedDataException e) {
+										logger.warn("Received a UDP packet than cannot be decoded as a DNS server response.", e);
+									} finally {
+										packet.recycle();
 									}
-									closeIfDone();
-								} catch (MalformedDataException e) {
-									logger.warn("Received a UDP packet than cannot be decoded as a DNS server response.", e);
-								} finally {
-									packet.recycle();
-								}
-							});
-
-					return timeout(timeout, promise)
-							.thenEx((queryResult, e) -> {
-								if (e == null) {
-									if (inspector != null) {
-										inspector.onDnsQueryResult(query, queryResult);
+								});
+
+						return timeout(timeout, promise)
+								.thenEx((queryResult, e) -> {
+									pendingQueries--;
+									if (e == null) {
+										if (inspector != null) {
+											inspector.onDnsQueryResult(query, queryResult);
+										}
+										logger.trace("DNS query {} resolved as {}", query, queryResult.getRecord());
+										closeIfDone();
+										return Promise.of(queryResult);
 									}
-									logger.trace("DNS query {} resolved as {}", query, queryResult.getRecord());
-									return Promise.of(queryResult);
-								}
-								if (e instanceof AsyncTimeoutException) {
-									if (inspector != null) {
-										inspector.onDnsQueryExpiration(query);
+									if (e instanceof AsyncTimeoutException) {
+										if (inspector != null) {
+											inspector.onDnsQueryExpiration(query);
+										}
+										logger.trace("{} timed out", query);
+										e = new DnsQueryException(DnsResponse.ofFailure(transaction, DnsProtocol.ResponseErrorCode.TIMED_OUT));
+										transactions.remove(transaction);
+										backoffUntil = eventloop.currentTimeMillis() + serverBackoffMillis;
+									} else if (inspector != null) {
+										inspector.onDnsQueryError(query, e);
 									}
-									logger.trace("{} timed out", query);
-									e = new DnsQueryException(DnsResponse.ofFailure(transaction, DnsProtocol.ResponseErrorCode.TIMED_OUT));
-									transactions.remove(transaction);
 									closeIfDone();
-								} else if (inspector != null) {
-									inspector.onDnsQueryError(query, e);
-								}
-								return Promise.ofException(e);
-							});
-				});
-	}
+									return Promise.ofException(e);
+								});
+					});
+		}
 
-	private void closeIfDone() {
-		if (!transactions.isEmpty()) {
-			return;
+		void onResponse(long responseTime) {
+			smoothedResponseTime = smoothedResponseTime == 0 ?
+					responseTime :
+					(smoothedResponseTime * 3 + responseTime) / 4;
+			backoffUntil = 0;
+		}
+
+		void closeIfDone() {
+			if (pendingQueries != 0) {
+				return;
+			}
+			logger.trace("All queries to {} are completed, closing UDP socket", address);
+			closeSocket();
+		}
+
+		@Override
+		public String toString() {
+			return address + " (responseTime=" + smoothedResponseTime + "ms" +
+					(backoffUntil > eventloop.currentTimeMillis() ? ", backoff" : "") + ')';
 		}
-		logger.trace("All queries are completed, closing UDP socket");
-		close(); // transactions is empty so no loops here
 	}
 
 	// region JMX
@@ -251,6 +355,9 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		void onDnsQueryError(DnsQuery query, Throwable e);
 
 		void onDnsQueryExpiration(DnsQuery query);
+
+		default void onDnsServerFailover(DnsQuery query, InetSocketAddress failedServer) {
+		}
 	}
 
 	public static class JmxInspector extends AbstractInspector<Inspector> implements Inspector {
@@ -259,6 +366,7 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		private final EventStats queries = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats failedQueries = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats expirations = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats failovers = EventStats.create(SMOOTHING_WINDOW);
 
 		@Override
 		public void onDnsQuery(DnsQuery query, ByteBuf payload) {
@@ -282,6 +390,11 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 			expirations.recordEvent();
 		}
 
+		@Override
+		public void onDnsServerFailover(DnsQuery query, InetSocketAddress failedServer) {
+			failovers.recordEvent();
+		}
+
 		@JmxAttribute
 		public EventStats getQueries() {
 			return queries;
@@ -296,9 +409,19 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		public EventStats getExpirations() {
 			return expirations;
 		}
+
+		@JmxAttribute
+		public EventStats getFailovers() {
+			return failovers;
+		}
 	}
 	// endregion
 
+	@JmxAttribute
+	public List<String> getDnsServers() {
+		return Arrays.stream(dnsServers).map(DnsServer::toString).collect(toList());
+	}
+
 	@JmxAttribute
 	@Nullable
 	public AsyncUdpSocketNio.JmxInspector getSocketStats() {
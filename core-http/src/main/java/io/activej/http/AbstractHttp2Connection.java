@@ -0,0 +1,1005 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufs;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.stream.BufsConsumerGzipDeflater;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.HttpHeaderValue.ofBytes;
+import static io.activej.http.HttpHeaderValue.ofDecimal;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.HttpUtils.translateToHttpException;
+import static java.lang.Math.min;
+
+/**
+ * Common part of HTTP/2 connections (RFC 7540): framing, stream states and flow control.
+ * <p>
+ * Streams of a connection are multiplexed over a single socket, frames written
+ * during a single eventloop tick are coalesced into a single socket write.
+ * Message bodies are received as a whole, so a size of a buffered body is limited per stream
+ * even if a maximum body size is not set, and a total size of buffered bodies is limited per connection.
+ * Outgoing bodies are sent as soon as stream and connection windows of a peer allow.
+ */
+abstract class AbstractHttp2Connection extends AbstractHttpConnection {
+	static final MemSize INITIAL_WINDOW_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "initialWindowSize", MemSize.megabytes(1));
+	static final int MAX_CONCURRENT_STREAMS = ApplicationSettings.getInt(AbstractHttp2Connection.class, "maxConcurrentStreams", 100);
+	static final MemSize MAX_HEADER_LIST_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "maxHeaderListSize", MemSize.kilobytes(64));
+	static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "maxBodySize", MemSize.megabytes(16));
+	static final MemSize MAX_BUFFERED_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "maxBufferedSize", MemSize.megabytes(64));
+
+	static final byte[] PREFACE = encodeAscii("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+	static final String ALPN_PROTOCOL = "h2";
+
+	static final int FRAME_HEADER_SIZE = 9;
+	static final int DEFAULT_WINDOW_SIZE = 65535;
+	static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+	static final int MAX_FRAME_SIZE = 16777215;
+	static final int HEADER_TABLE_SIZE = 4096;
+	private static final int FLUSH_THRESHOLD = 65536;
+
+	private static final HttpHeader HEADER_KEEP_ALIVE = HttpHeaders.of("Keep-Alive");
+	private static final HttpHeader HEADER_PROXY_CONNECTION = HttpHeaders.of("Proxy-Connection");
+
+	// region frame types
+	static final int FRAME_DATA = 0x0;
+	static final int FRAME_HEADERS = 0x1;
+	static final int FRAME_PRIORITY = 0x2;
+	static final int FRAME_RST_STREAM = 0x3;
+	static final int FRAME_SETTINGS = 0x4;
+	static final int FRAME_PUSH_PROMISE = 0x5;
+	static final int FRAME_PING = 0x6;
+	static final int FRAME_GOAWAY = 0x7;
+	static final int FRAME_WINDOW_UPDATE = 0x8;
+	static final int FRAME_CONTINUATION = 0x9;
+	// endregion
+
+	// region flags
+	static final int FLAG_END_STREAM = 0x1;
+	static final int FLAG_ACK = 0x1;
+	static final int FLAG_END_HEADERS = 0x4;
+	static final int FLAG_PADDED = 0x8;
+	static final int FLAG_PRIORITY = 0x20;
+	// endregion
+
+	// region settings
+	static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	static final int SETTINGS_ENABLE_PUSH = 0x2;
+	static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+	static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+	// endregion
+
+	// region error codes
+	static final int NO_ERROR = 0x0;
+	static final int PROTOCOL_ERROR = 0x1;
+	static final int INTERNAL_ERROR = 0x2;
+	static final int FLOW_CONTROL_ERROR = 0x3;
+	static final int STREAM_CLOSED = 0x5;
+	static final int FRAME_SIZE_ERROR = 0x6;
+	static final int REFUSED_STREAM = 0x7;
+	static final int CANCEL = 0x8;
+	static final int COMPRESSION_ERROR = 0x9;
+	// endregion
+
+	private final HpackDecoder decoder = new HpackDecoder(HEADER_TABLE_SIZE, MAX_HEADER_LIST_SIZE.toInt());
+	protected final HpackEncoder encoder = new HpackEncoder();
+
+	protected final HashMap<Integer, Http2Stream> streams = new HashMap<>();
+	private final LinkedHashSet<Http2Stream> blockedStreams = new LinkedHashSet<>();
+	private final ArrayList<byte[]> headerFields = new ArrayList<>();
+
+	private final int localWindowSize = INITIAL_WINDOW_SIZE.toInt();
+	private int receiveWindow = DEFAULT_WINDOW_SIZE;
+
+	// a body size limit of a stream, which applies when a maximum body size is not set
+	private final int maxStreamBodySize;
+	private final int maxBufferedSize;
+	private int bufferedBytes;
+
+	protected int peerMaxConcurrentStreams = Integer.MAX_VALUE;
+	private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+	private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+	private int sendWindow = DEFAULT_WINDOW_SIZE;
+	private boolean settingsReceived;
+
+	private int headerBlockStreamId;
+	private boolean headerBlockEndStream;
+	@Nullable
+	private ByteBuf headerBlock;
+
+	protected boolean goAwaySent;
+	protected boolean goAwayReceived;
+	private int errorCode = NO_ERROR;
+
+	@Nullable
+	private ByteBuf writeBuf;
+
+	AbstractHttp2Connection(Eventloop eventloop, AsyncTcpSocket socket, int maxBodySize) {
+		super(eventloop, socket, maxBodySize);
+		this.maxStreamBodySize = maxBodySize != 0 ? maxBodySize : MAX_BODY_SIZE.toInt();
+		this.maxBufferedSize = Math.max(MAX_BUFFERED_SIZE.toInt(), maxStreamBodySize);
+	}
+
+	/**
+	 * Sends local settings and starts reading frames
+	 */
+	protected final void start() {
+		ensureWriteBuffer(FRAME_HEADER_SIZE * 2 + 6 * 4 + 4);
+		writeFrameHeader(6 * 4, FRAME_SETTINGS, 0, 0);
+		writeSetting(SETTINGS_ENABLE_PUSH, 0);
+		writeSetting(SETTINGS_MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS);
+		writeSetting(SETTINGS_INITIAL_WINDOW_SIZE, localWindowSize);
+		writeSetting(SETTINGS_MAX_HEADER_LIST_SIZE, MAX_HEADER_LIST_SIZE.toInt());
+		if (localWindowSize > DEFAULT_WINDOW_SIZE) {
+			writeWindowUpdate(0, localWindowSize - DEFAULT_WINDOW_SIZE);
+			receiveWindow = localWindowSize;
+		}
+		flush();
+		if (readBufs.hasRemaining()) {
+			try {
+				readMessage();
+			} catch (MalformedHttpException e) {
+				closeWithError(e);
+			}
+		} else {
+			socket.read().whenComplete(readMessageConsumer);
+		}
+	}
+
+	// region abstract methods
+	protected abstract void onHeaders(int streamId, List<byte[]> fields, boolean endStream) throws MalformedHttpException;
+
+	/**
+	 * Called when a data is received on a stream, the data is owned by the callee
+	 */
+	protected abstract void onData(Http2Stream stream, ByteBuf data, boolean endStream);
+
+	/**
+	 * Called once a stream is closed, either normally when {@code e} is {@code null}, or abnormally
+	 */
+	protected abstract void onStreamClosed(Http2Stream stream, @Nullable Throwable e);
+
+	protected abstract void onGoAway(int lastStreamId);
+
+	protected abstract void onConnectionClosed();
+	// endregion
+
+	// region frames reading
+	@Override
+	protected final void readMessage() throws MalformedHttpException {
+		while (readBufs.hasRemainingBytes(FRAME_HEADER_SIZE)) {
+			int length = ((readBufs.peekByte(0) & 0xFF) << 16) | ((readBufs.peekByte(1) & 0xFF) << 8) | (readBufs.peekByte(2) & 0xFF);
+			if (length > DEFAULT_MAX_FRAME_SIZE) {
+				throw connectionError(FRAME_SIZE_ERROR, "Frame exceeds maximum frame size");
+			}
+			if (!readBufs.hasRemainingBytes(FRAME_HEADER_SIZE + length)) break;
+			readBufs.skip(3);
+			int type = readBufs.getByte() & 0xFF;
+			int frameFlags = readBufs.getByte() & 0xFF;
+			int streamId = readInt(readBufs) & 0x7FFFFFFF;
+			ByteBuf payload = readBufs.takeExactSize(length);
+			if (!settingsReceived && type != FRAME_SETTINGS) {
+				payload.recycle();
+				throw connectionError(PROTOCOL_ERROR, "Expected SETTINGS frame");
+			}
+			if (headerBlockStreamId != 0 && type != FRAME_CONTINUATION) {
+				payload.recycle();
+				throw connectionError(PROTOCOL_ERROR, "Expected CONTINUATION frame");
+			}
+			if (type == FRAME_DATA) {
+				onDataFrame(frameFlags, streamId, payload);
+			} else {
+				try {
+					onFrame(type, frameFlags, streamId, payload);
+				} finally {
+					payload.recycle();
+				}
+			}
+			if (isClosed()) return;
+		}
+		flush();
+		if (isClosed()) return;
+		socket.read().whenComplete(readMessageConsumer);
+	}
+
+	private void onFrame(int type, int frameFlags, int streamId, ByteBuf payload) throws MalformedHttpException {
+		switch (type) {
+			case FRAME_HEADERS:
+				onHeadersFrame(frameFlags, streamId, payload);
+				break;
+			case FRAME_CONTINUATION:
+				onContinuationFrame(frameFlags, streamId, payload);
+				break;
+			case FRAME_SETTINGS:
+				onSettingsFrame(frameFlags, streamId, payload);
+				break;
+			case FRAME_WINDOW_UPDATE:
+				onWindowUpdateFrame(streamId, payload);
+				break;
+			case FRAME_RST_STREAM:
+				if (streamId == 0 || payload.readRemaining() != 4) {
+					throw connectionError(PROTOCOL_ERROR, "Malformed RST_STREAM frame");
+				}
+				Http2Stream stream = streams.get(streamId);
+				if (stream != null) {
+					closeStream(stream, new HttpException("Stream has been reset by a peer with error code " + payload.readInt()));
+				}
+				break;
+			case FRAME_PING:
+				if (streamId != 0 || payload.readRemaining() != 8) {
+					throw connectionError(PROTOCOL_ERROR, "Malformed PING frame");
+				}
+				if ((frameFlags & FLAG_ACK) == 0) {
+					ensureWriteBuffer(FRAME_HEADER_SIZE + 8);
+					writeFrameHeader(8, FRAME_PING, FLAG_ACK, 0);
+					writeBuf.put(payload);
+				}
+				break;
+			case FRAME_GOAWAY:
+				if (streamId != 0 || payload.readRemaining() < 8) {
+					throw connectionError(PROTOCOL_ERROR, "Malformed GOAWAY frame");
+				}
+				goAwayReceived = true;
+				onGoAway(payload.readInt() & 0x7FFFFFFF);
+				break;
+			case FRAME_PUSH_PROMISE:
+				throw connectionError(PROTOCOL_ERROR, "Server push is disabled");
+			case FRAME_PRIORITY:
+			default:
+				// priorities are not supported and unknown frames are ignored
+				break;
+		}
+	}
+
+	private void onHeadersFrame(int frameFlags, int streamId, ByteBuf payload) throws MalformedHttpException {
+		if (streamId == 0) throw connectionError(PROTOCOL_ERROR, "HEADERS frame on a connection stream");
+		stripPadding(frameFlags, payload);
+		if ((frameFlags & FLAG_PRIORITY) != 0) {
+			if (payload.readRemaining() < 5) throw connectionError(PROTOCOL_ERROR, "Malformed HEADERS frame");
+			payload.moveHead(5);
+		}
+		boolean endStream = (frameFlags & FLAG_END_STREAM) != 0;
+		if ((frameFlags & FLAG_END_HEADERS) != 0) {
+			onHeaderBlock(streamId, payload, endStream);
+		} else {
+			headerBlockStreamId = streamId;
+			headerBlockEndStream = endStream;
+			headerBlock = ByteBufPool.allocate(payload.readRemaining() * 2);
+			headerBlock.put(payload);
+		}
+	}
+
+	private void onContinuationFrame(int frameFlags, int streamId, ByteBuf payload) throws MalformedHttpException {
+		if (streamId == 0 || streamId != headerBlockStreamId) {
+			throw connectionError(PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+		}
+		assert headerBlock != null;
+		if (headerBlock.readRemaining() + payload.readRemaining() > MAX_HEADER_LIST_SIZE.toInt()) {
+			throw connectionError(PROTOCOL_ERROR, "Header block is too large");
+		}
+		headerBlock = ByteBufPool.append(headerBlock, payload.array(), payload.head(), payload.readRemaining());
+		if ((frameFlags & FLAG_END_HEADERS) != 0) {
+			ByteBuf block = headerBlock;
+			headerBlock = null;
+			headerBlockStreamId = 0;
+			try {
+				onHeaderBlock(streamId, block, headerBlockEndStream);
+			} finally {
+				block.recycle();
+			}
+		}
+	}
+
+	private void onHeaderBlock(int streamId, ByteBuf block, boolean endStream) throws MalformedHttpException {
+		headerFields.clear();
+		try {
+			decoder.decode(block.array(), block.head(), block.readRemaining(), (name, value) -> {
+				headerFields.add(name);
+				headerFields.add(value);
+			});
+		} catch (MalformedHttpException e) {
+			throw connectionError(COMPRESSION_ERROR, e.getMessage());
+		}
+		onHeaders(streamId, headerFields, endStream);
+	}
+
+	private void onDataFrame(int frameFlags, int streamId, ByteBuf payload) throws MalformedHttpException {
+		if (streamId == 0) {
+			payload.recycle();
+			throw connectionError(PROTOCOL_ERROR, "DATA frame on a connection stream");
+		}
+		int length = payload.readRemaining();
+		receiveWindow -= length;
+		if (receiveWindow < 0) {
+			payload.recycle();
+			throw connectionError(FLOW_CONTROL_ERROR, "Connection window has been exceeded");
+		}
+		// received data is buffered up to limits of a stream and a connection, so the window is replenished right away
+		if (receiveWindow <= localWindowSize / 2) {
+			writeWindowUpdate(0, localWindowSize - receiveWindow);
+			receiveWindow = localWindowSize;
+		}
+		try {
+			stripPadding(frameFlags, payload);
+		} catch (MalformedHttpException e) {
+			payload.recycle();
+			throw e;
+		}
+		boolean endStream = (frameFlags & FLAG_END_STREAM) != 0;
+		Http2Stream stream = streams.get(streamId);
+		if (stream == null || stream.remoteClosed) {
+			payload.recycle();
+			writeRstStream(streamId, STREAM_CLOSED);
+			return;
+		}
+		stream.receiveWindow -= length;
+		if (stream.receiveWindow < 0) {
+			payload.recycle();
+			resetStream(stream, FLOW_CONTROL_ERROR, new HttpException("Stream window has been exceeded"));
+			return;
+		}
+		if (!endStream && stream.receiveWindow <= localWindowSize / 2) {
+			writeWindowUpdate(streamId, localWindowSize - stream.receiveWindow);
+			stream.receiveWindow = localWindowSize;
+		}
+		if (endStream) {
+			stream.remoteClosed = true;
+		}
+		onData(stream, payload, endStream);
+		if (endStream) {
+			closeStreamIfDone(stream);
+		}
+	}
+
+	private void onSettingsFrame(int frameFlags, int streamId, ByteBuf payload) throws MalformedHttpException {
+		if (streamId != 0) throw connectionError(PROTOCOL_ERROR, "SETTINGS frame on a non-connection stream");
+		if ((frameFlags & FLAG_ACK) != 0) {
+			if (payload.canRead()) throw connectionError(FRAME_SIZE_ERROR, "Malformed SETTINGS acknowledgement");
+			return;
+		}
+		if (payload.readRemaining() % 6 != 0) throw connectionError(FRAME_SIZE_ERROR, "Malformed SETTINGS frame");
+		boolean windowIncreased = false;
+		while (payload.canRead()) {
+			int id = ((payload.readByte() & 0xFF) << 8) | (payload.readByte() & 0xFF);
+			int value = payload.readInt();
+			switch (id) {
+				case SETTINGS_ENABLE_PUSH:
+					if (value != 0 && value != 1) throw connectionError(PROTOCOL_ERROR, "Invalid ENABLE_PUSH setting");
+					break;
+				case SETTINGS_MAX_CONCURRENT_STREAMS:
+					peerMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+					break;
+				case SETTINGS_INITIAL_WINDOW_SIZE:
+					if (value < 0) throw connectionError(FLOW_CONTROL_ERROR, "Invalid INITIAL_WINDOW_SIZE setting");
+					int delta = value - peerInitialWindowSize;
+					for (Http2Stream stream : streams.values()) {
+						if ((long) stream.sendWindow + delta > Integer.MAX_VALUE) {
+							throw connectionError(FLOW_CONTROL_ERROR, "Stream window overflow");
+						}
+						stream.sendWindow += delta;
+					}
+					peerInitialWindowSize = value;
+					windowIncreased |= delta > 0;
+					break;
+				case SETTINGS_MAX_FRAME_SIZE:
+					if (value < DEFAULT_MAX_FRAME_SIZE || value > MAX_FRAME_SIZE) {
+						throw connectionError(PROTOCOL_ERROR, "Invalid MAX_FRAME_SIZE setting");
+					}
+					peerMaxFrameSize = value;
+					break;
+				case SETTINGS_HEADER_TABLE_SIZE:
+				case SETTINGS_MAX_HEADER_LIST_SIZE:
+				default:
+					// the encoder does not use a dynamic table
+					break;
+			}
+		}
+		ensureWriteBuffer(FRAME_HEADER_SIZE);
+		writeFrameHeader(0, FRAME_SETTINGS, FLAG_ACK, 0);
+		settingsReceived = true;
+		if (windowIncreased) {
+			resumeBlockedStreams();
+		}
+	}
+
+	private void onWindowUpdateFrame(int streamId, ByteBuf payload) throws MalformedHttpException {
+		if (payload.readRemaining() != 4) throw connectionError(FRAME_SIZE_ERROR, "Malformed WINDOW_UPDATE frame");
+		int increment = payload.readInt() & 0x7FFFFFFF;
+		if (streamId == 0) {
+			if (increment == 0) throw connectionError(PROTOCOL_ERROR, "Zero window increment");
+			if ((long) sendWindow + increment > Integer.MAX_VALUE) {
+				throw connectionError(FLOW_CONTROL_ERROR, "Connection window overflow");
+			}
+			sendWindow += increment;
+			resumeBlockedStreams();
+			return;
+		}
+		Http2Stream stream = streams.get(streamId);
+		if (stream == null) return;
+		if (increment == 0 || (long) stream.sendWindow + increment > Integer.MAX_VALUE) {
+			resetStream(stream, increment == 0 ? PROTOCOL_ERROR : FLOW_CONTROL_ERROR, new HttpException("Invalid stream window update"));
+			return;
+		}
+		stream.sendWindow += increment;
+		if (blockedStreams.remove(stream)) {
+			sendData(stream);
+		}
+	}
+
+	private static void stripPadding(int frameFlags, ByteBuf payload) throws MalformedHttpException {
+		if ((frameFlags & FLAG_PADDED) == 0) return;
+		if (!payload.canRead()) throw new MalformedHttpException("Malformed padded frame");
+		int padLength = payload.readByte() & 0xFF;
+		if (padLength > payload.readRemaining()) throw new MalformedHttpException("Padding exceeds frame payload");
+		payload.tail(payload.tail() - padLength);
+	}
+
+	private static int readInt(ByteBufs bufs) {
+		return ((bufs.getByte() & 0xFF) << 24) | ((bufs.getByte() & 0xFF) << 16) | ((bufs.getByte() & 0xFF) << 8) | (bufs.getByte() & 0xFF);
+	}
+	// endregion
+
+	// region streams
+	protected final Http2Stream openStream(int streamId) {
+		Http2Stream stream = new Http2Stream(streamId, peerInitialWindowSize, localWindowSize);
+		streams.put(streamId, stream);
+		return stream;
+	}
+
+	/**
+	 * Sends a header block, which is split into CONTINUATION frames if needed
+	 */
+	private void writeHeaders(Http2Stream stream, ByteBuf block, boolean endStream) {
+		int length = block.readRemaining();
+		int offset = 0;
+		int type = FRAME_HEADERS;
+		do {
+			int size = min(length - offset, peerMaxFrameSize);
+			boolean last = offset + size == length;
+			ensureWriteBuffer(FRAME_HEADER_SIZE + size);
+			writeFrameHeader(size, type,
+					(type == FRAME_HEADERS && endStream ? FLAG_END_STREAM : 0) | (last ? FLAG_END_HEADERS : 0), stream.id);
+			//noinspection ConstantConditions
+			writeBuf.put(block.array(), block.head() + offset, size);
+			offset += size;
+			type = FRAME_CONTINUATION;
+		} while (offset < length);
+		block.recycle();
+		if (endStream) {
+			stream.localClosed = true;
+			closeStreamIfDone(stream);
+		}
+	}
+
+	/**
+	 * Moves a body of a message to a stream, so that it is sent after headers of the message.
+	 * Headers which describe the body are added to the message
+	 */
+	protected final void prepareBody(Http2Stream stream, HttpMessage message) {
+		ByteBuf body = message.body;
+		ChannelSupplier<ByteBuf> bodyStream = message.bodyStream;
+		message.body = null;
+		message.bodyStream = null;
+		if ((message.flags & HttpMessage.USE_GZIP) != 0) {
+			if (body != null) {
+				body = GzipProcessorUtils.toGzip(body);
+				message.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
+			} else if (bodyStream != null) {
+				BufsConsumerGzipDeflater deflater = BufsConsumerGzipDeflater.create();
+				bodyStream.bindTo(deflater.getInput());
+				bodyStream = deflater.getOutput().getSupplier();
+				message.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
+			}
+		}
+		if (body != null) {
+			message.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
+		} else if (bodyStream == null && message.isContentLengthExpected()) {
+			message.addHeader(CONTENT_LENGTH, ofDecimal(0));
+		}
+		stream.pendingData = body;
+		stream.pendingStream = bodyStream;
+	}
+
+	/**
+	 * Sends a header block of a message followed by a body which has been {@link #prepareBody prepared}
+	 */
+	protected final void writeMessage(Http2Stream stream, ByteBuf block) {
+		ByteBuf body = stream.pendingData;
+		boolean endStream = stream.pendingStream == null && (body == null || !body.canRead());
+		if (endStream && body != null) {
+			body.recycle();
+			stream.pendingData = null;
+		}
+		writeHeaders(stream, block, endStream);
+		if (!endStream) {
+			sendData(stream);
+		}
+	}
+
+	/**
+	 * Buffers data received on a stream, unless a body of a stream exceeds its maximum size
+	 * or a connection buffers too much data, in which case a stream is reset
+	 *
+	 * @return {@code true} if data has been buffered
+	 */
+	protected final boolean receiveData(Http2Stream stream, ByteBuf data) {
+		int size = data.readRemaining();
+		if (stream.receivedBytes() + size > maxStreamBodySize) {
+			data.recycle();
+			resetStream(stream, CANCEL, new MalformedHttpException("Body exceeds maximum body size"));
+			return false;
+		}
+		if (bufferedBytes + size > maxBufferedSize) {
+			data.recycle();
+			resetStream(stream, CANCEL, new HttpException("Connection buffers too many bodies"));
+			return false;
+		}
+		bufferedBytes += size;
+		stream.receive(data);
+		return true;
+	}
+
+	/**
+	 * Takes a body which has been received on a stream, inflating it if the body is gzipped
+	 */
+	protected final ByteBuf takeBody(Http2Stream stream, HttpMessage message) throws MalformedHttpException {
+		bufferedBytes -= stream.receivedBytes();
+		ByteBuf body = stream.takeReceived();
+		String contentEncoding = message.getHeader(CONTENT_ENCODING);
+		if (contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip") && body.canRead()) {
+			return GzipProcessorUtils.fromGzip(body, maxStreamBodySize);
+		}
+		return body;
+	}
+
+	private void sendData(Http2Stream stream) {
+		while (!stream.localClosed && !stream.closed && !isClosed()) {
+			ByteBuf data = stream.pendingData;
+			if (data == null) {
+				ChannelSupplier<ByteBuf> bodyStream = stream.pendingStream;
+				if (bodyStream == null) {
+					writeData(stream, ByteBuf.empty(), 0, true);
+					return;
+				}
+				if (stream.pulling) return;
+				Promise<ByteBuf> next = bodyStream.get();
+				if (next.isResult()) {
+					onPulled(stream, next.getResult());
+					continue;
+				}
+				if (next.isException()) {
+					resetStream(stream, INTERNAL_ERROR, next.getException());
+					return;
+				}
+				stream.pulling = true;
+				next.whenComplete((buf, e) -> {
+					stream.pulling = false;
+					if (stream.closed || isClosed()) {
+						if (buf != null) buf.recycle();
+						return;
+					}
+					if (e == null) {
+						onPulled(stream, buf);
+						sendData(stream);
+					} else {
+						resetStream(stream, INTERNAL_ERROR, e);
+					}
+					flush();
+				});
+				return;
+			}
+			int remaining = data.readRemaining();
+			if (remaining == 0 && stream.pendingStream != null) {
+				data.recycle();
+				stream.pendingData = null;
+				continue;
+			}
+			int window = min(sendWindow, stream.sendWindow);
+			if (window <= 0 && remaining != 0) {
+				blockedStreams.add(stream);
+				return;
+			}
+			int size = min(min(window, peerMaxFrameSize), remaining);
+			boolean last = size == remaining;
+			if (last) {
+				// the stream may be closed by the last frame, so the data must not be recycled along with it
+				stream.pendingData = null;
+			}
+			writeData(stream, data, size, last && stream.pendingStream == null);
+			sendWindow -= size;
+			stream.sendWindow -= size;
+			if (last) {
+				data.recycle();
+			}
+		}
+	}
+
+	private void onPulled(Http2Stream stream, @Nullable ByteBuf buf) {
+		if (buf == null) {
+			stream.pendingStream = null;
+		}
+		stream.pendingData = buf;
+	}
+
+	private void writeData(Http2Stream stream, ByteBuf data, int size, boolean endStream) {
+		ensureWriteBuffer(FRAME_HEADER_SIZE + size);
+		writeFrameHeader(size, FRAME_DATA, endStream ? FLAG_END_STREAM : 0, stream.id);
+		//noinspection ConstantConditions
+		writeBuf.put(data.array(), data.head(), size);
+		data.moveHead(size);
+		if (writeBuf.readRemaining() >= FLUSH_THRESHOLD) {
+			flush();
+		}
+		if (endStream) {
+			stream.localClosed = true;
+			closeStreamIfDone(stream);
+		}
+	}
+
+	private void resumeBlockedStreams() {
+		for (int i = blockedStreams.size(); i > 0 && sendWindow > 0 && !blockedStreams.isEmpty(); i--) {
+			Iterator<Http2Stream> iterator = blockedStreams.iterator();
+			Http2Stream stream = iterator.next();
+			iterator.remove();
+			sendData(stream);
+		}
+	}
+
+	protected final void resetStream(Http2Stream stream, int errorCode, @NotNull Throwable e) {
+		if (stream.closed) return;
+		writeRstStream(stream.id, errorCode);
+		closeStream(stream, e);
+	}
+
+	protected final void closeStreamIfDone(Http2Stream stream) {
+		if (stream.localClosed && stream.remoteClosed && !stream.closed) {
+			closeStream(stream, null);
+		}
+	}
+
+	private void closeStream(Http2Stream stream, @Nullable Throwable e) {
+		stream.closed = true;
+		streams.remove(stream.id);
+		blockedStreams.remove(stream);
+		bufferedBytes -= stream.receivedBytes();
+		recycleStream(stream);
+		onStreamClosed(stream, e);
+	}
+
+	private static void recycleStream(Http2Stream stream) {
+		if (stream.pendingData != null) {
+			stream.pendingData.recycle();
+			stream.pendingData = null;
+		}
+		if (stream.pendingStream != null) {
+			stream.pendingStream.close();
+			stream.pendingStream = null;
+		}
+		if (stream.receivedData != null) {
+			stream.receivedData.recycle();
+			stream.receivedData = null;
+		}
+	}
+	// endregion
+
+	// region frames writing
+	static int estimateHeadersSize(HttpMessage message) {
+		int size = estimateHeadersSize(message.serverHeadersTemplate) + estimateHeadersSize(message.headersTemplate);
+		Object[] kvPairs = message.headers.kvPairs;
+		for (int i = 0; i < kvPairs.length - 1; i += 2) {
+			HttpHeader k = (HttpHeader) kvPairs[i];
+			if (k != null) {
+				size += HpackEncoder.estimateSize(k, (HttpHeaderValue) kvPairs[i + 1]);
+			}
+		}
+		return size;
+	}
+
+	private static int estimateHeadersSize(@Nullable HttpHeadersTemplate template) {
+		if (template == null) return 0;
+		int size = 0;
+		for (int i = 0; i < template.getHeadersCount(); i++) {
+			size += HpackEncoder.estimateSize(template.getHeader(i), template.getValue(i));
+		}
+		return size;
+	}
+
+	/**
+	 * Encodes headers of a message along with its header templates,
+	 * except for connection-specific ones which are not allowed in HTTP/2
+	 */
+	protected final void encodeHeaders(ByteBuf buf, HttpMessage message) {
+		encodeHeaders(buf, message.serverHeadersTemplate, message);
+		encodeHeaders(buf, message.headersTemplate, null);
+		Object[] kvPairs = message.headers.kvPairs;
+		for (int i = 0; i < kvPairs.length - 1; i += 2) {
+			HttpHeader k = (HttpHeader) kvPairs[i];
+			if (k != null && !isConnectionSpecific(k)) {
+				encoder.encodeHeader(buf, k, (HttpHeaderValue) kvPairs[i + 1]);
+			}
+		}
+	}
+
+	/**
+	 * Encodes headers of a template, except for the ones which a given message sets by itself
+	 */
+	private void encodeHeaders(ByteBuf buf, @Nullable HttpHeadersTemplate template, @Nullable HttpMessage message) {
+		if (template == null) return;
+		for (int i = 0; i < template.getHeadersCount(); i++) {
+			HttpHeader header = template.getHeader(i);
+			if (!isConnectionSpecific(header) && (message == null || !message.hasOwnHeader(header))) {
+				encoder.encodeHeader(buf, header, template.getValue(i));
+			}
+		}
+	}
+
+	private static boolean isConnectionSpecific(HttpHeader header) {
+		return header == CONNECTION || header == TRANSFER_ENCODING || header == UPGRADE || header == HOST ||
+				header.equals(HEADER_KEEP_ALIVE) || header.equals(HEADER_PROXY_CONNECTION);
+	}
+
+	static HttpHeader toHttpHeader(byte[] name) {
+		int hashCode = 1;
+		for (byte b : name) {
+			if (b >= 'A' && b <= 'Z') {
+				b += 'a' - 'A';
+			}
+			hashCode = 31 * hashCode + b;
+		}
+		return HttpHeaders.of(name, 0, name.length, hashCode);
+	}
+
+	protected final void writeGoAway(int lastStreamId, int errorCode) {
+		goAwaySent = true;
+		ensureWriteBuffer(FRAME_HEADER_SIZE + 8);
+		writeFrameHeader(8, FRAME_GOAWAY, 0, 0);
+		//noinspection ConstantConditions
+		writeBuf.writeInt(lastStreamId);
+		writeBuf.writeInt(errorCode);
+	}
+
+	protected final void writeRstStream(int streamId, int errorCode) {
+		ensureWriteBuffer(FRAME_HEADER_SIZE + 4);
+		writeFrameHeader(4, FRAME_RST_STREAM, 0, streamId);
+		//noinspection ConstantConditions
+		writeBuf.writeInt(errorCode);
+	}
+
+	private void writeWindowUpdate(int streamId, int increment) {
+		ensureWriteBuffer(FRAME_HEADER_SIZE + 4);
+		writeFrameHeader(4, FRAME_WINDOW_UPDATE, 0, streamId);
+		//noinspection ConstantConditions
+		writeBuf.writeInt(increment);
+	}
+
+	private void writeSetting(int id, int value) {
+		//noinspection ConstantConditions
+		writeBuf.writeShort((short) id);
+		writeBuf.writeInt(value);
+	}
+
+	@SuppressWarnings("ConstantConditions")
+	private void writeFrameHeader(int length, int type, int frameFlags, int streamId) {
+		writeBuf.writeByte((byte) (length >>> 16));
+		writeBuf.writeByte((byte) (length >>> 8));
+		writeBuf.writeByte((byte) length);
+		writeBuf.writeByte((byte) type);
+		writeBuf.writeByte((byte) frameFlags);
+		writeBuf.writeInt(streamId);
+	}
+
+	private void ensureWriteBuffer(int size) {
+		if (writeBuf == null) {
+			writeBuf = ByteBufPool.allocate(Math.max(size, 256));
+		} else {
+			writeBuf = ByteBufPool.ensureWriteRemaining(writeBuf, size);
+		}
+	}
+
+	/**
+	 * Writes all of the frames which have been written since the last flush
+	 */
+	protected final void flush() {
+		ByteBuf writeBuf = this.writeBuf;
+		if (writeBuf == null || isClosed()) return;
+		this.writeBuf = null;
+		if (!writeBuf.canRead()) {
+			writeBuf.recycle();
+			return;
+		}
+		socket.write(writeBuf)
+				.whenException(e -> closeWithError(translateToHttpException(e)));
+	}
+
+	protected final MalformedHttpException connectionError(int errorCode, String message) {
+		this.errorCode = errorCode;
+		return new MalformedHttpException(message);
+	}
+	// endregion
+
+	@Override
+	protected final void onClosed() {
+		if (!goAwaySent) {
+			writeGoAway(lastStreamId(), errorCode);
+		}
+		ByteBuf writeBuf = this.writeBuf;
+		this.writeBuf = null;
+		if (writeBuf != null) {
+			// best effort, the socket is going to be closed right away
+			socket.write(writeBuf);
+		}
+		if (headerBlock != null) {
+			headerBlock.recycle();
+			headerBlock = null;
+		}
+		HttpException closed = new HttpException("Connection has been closed");
+		for (Http2Stream stream : new ArrayList<>(streams.values())) {
+			stream.closed = true;
+			recycleStream(stream);
+			onStreamClosed(stream, closed);
+		}
+		streams.clear();
+		blockedStreams.clear();
+		onConnectionClosed();
+	}
+
+	/**
+	 * Returns an identifier of the last stream initiated by a peer
+	 */
+	protected abstract int lastStreamId();
+
+	// region HTTP/1.1 parser callbacks, not used by HTTP/2
+	@Override
+	protected final void onStartLine(byte[] line, int limit) {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+
+	@Override
+	protected final void onHeaderBuf(ByteBuf buf) {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+
+	@Override
+	protected final void onHeader(HttpHeader header, byte[] array, int off, int len) {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+
+	@Override
+	protected final void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier) {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+
+	@Override
+	protected final void onBodyReceived() {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+
+	@Override
+	protected final void onBodySent() {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+
+	@Override
+	protected final void onNoContentLength() {
+		throw new AssertionError("HTTP/2 connection does not parse HTTP/1.1 messages");
+	}
+	// endregion
+
+	/**
+	 * Sets application protocols to be negotiated via ALPN, if it is supported by JDK
+	 *
+	 * @return {@code true} if protocols have been set
+	 */
+	static boolean setApplicationProtocols(SSLEngine engine, String... protocols) {
+		try {
+			Method method = SSLParameters.class.getMethod("setApplicationProtocols", String[].class);
+			SSLParameters parameters = engine.getSSLParameters();
+			method.invoke(parameters, (Object) protocols);
+			engine.setSSLParameters(parameters);
+			return true;
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns an application protocol negotiated via ALPN, or {@code null} if it is unknown
+	 */
+	@Nullable
+	static String getApplicationProtocol(SSLEngine engine) {
+		try {
+			Method method = SSLEngine.class.getMethod("getApplicationProtocol");
+			String protocol = (String) method.invoke(engine);
+			return protocol == null || protocol.isEmpty() ? null : protocol;
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	static final class Http2Stream {
+		final int id;
+		int sendWindow;
+		int receiveWindow;
+
+		boolean remoteClosed;
+		boolean localClosed;
+		boolean closed;
+		boolean pulling;
+
+		@Nullable
+		ByteBuf pendingData;
+		@Nullable
+		ChannelSupplier<ByteBuf> pendingStream;
+		@Nullable
+		ByteBufs receivedData;
+
+		@Nullable
+		HttpRequest request;
+		@Nullable
+		HttpResponse response;
+		@Nullable
+		SettablePromise<HttpResponse> promise;
+
+		Http2Stream(int id, int sendWindow, int receiveWindow) {
+			this.id = id;
+			this.sendWindow = sendWindow;
+			this.receiveWindow = receiveWindow;
+		}
+
+		int receivedBytes() {
+			return receivedData == null ? 0 : receivedData.remainingBytes();
+		}
+
+		void receive(ByteBuf data) {
+			if (receivedData == null) {
+				receivedData = new ByteBufs();
+			}
+			receivedData.add(data);
+		}
+
+		ByteBuf takeReceived() {
+			if (receivedData == null) return ByteBuf.empty();
+			ByteBuf buf = receivedData.takeRemaining();
+			receivedData = null;
+			return buf;
+		}
+
+		@Override
+		public String toString() {
+			return "Http2Stream{id=" + id + ", sendWindow=" + sendWindow + ", receiveWindow=" + receiveWindow +
+					", remoteClosed=" + remoteClosed + ", localClosed=" + localClosed + '}';
+		}
+	}
+}
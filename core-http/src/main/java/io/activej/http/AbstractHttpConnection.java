@@ -29,9 +29,11 @@ import io.activej.csp.ChannelOutput;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.stream.*;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
@@ -514,10 +516,23 @@ public abstract class AbstractHttpConnection {
 	}
 
 	protected void writeHttpMessageAsStream(@Nullable ByteBuf writeBuf, HttpMessage httpMessage) {
+		writeHttpMessageAsStream(writeBuf, httpMessage, this::onWriteComplete);
+	}
+
+	/**
+	 * Sends a message with a streamed body, the callback is called once the whole message has been sent
+	 */
+	protected void writeHttpMessageAsStream(@Nullable ByteBuf writeBuf, HttpMessage httpMessage, Callback<Void> cb) {
 		ChannelSupplier<ByteBuf> bodyStream = httpMessage.bodyStream;
 		assert bodyStream != null;
 		httpMessage.bodyStream = null;
 
+		if (bodyStream instanceof ChannelFileReader && socket instanceof AsyncTcpSocketNio && !isWebSocket() &&
+				(httpMessage.flags & HttpMessage.USE_GZIP) == 0 && httpMessage.headers.get(CONTENT_LENGTH) != null) {
+			writeHttpMessageWithFile(writeBuf, httpMessage, (ChannelFileReader) bodyStream, cb);
+			return;
+		}
+
 		if (!isWebSocket()) {
 			if ((httpMessage.flags & HttpMessage.USE_GZIP) != 0) {
 				httpMessage.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
@@ -537,27 +552,50 @@ public abstract class AbstractHttpConnection {
 		ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize());
 		httpMessage.writeTo(buf);
 
-		writeStream(ChannelSuppliers.concat(writeBuf != null ? ChannelSupplier.of(writeBuf, buf) : ChannelSupplier.of(buf), bodyStream));
+		writeStream(ChannelSuppliers.concat(writeBuf != null ? ChannelSupplier.of(writeBuf, buf) : ChannelSupplier.of(buf), bodyStream))
+				.whenComplete(cb);
+	}
+
+	/**
+	 * Sends a message whose body is a file of a known size, file contents are transferred directly to the socket
+	 */
+	private void writeHttpMessageWithFile(@Nullable ByteBuf writeBuf, HttpMessage httpMessage, ChannelFileReader fileReader,
+			Callback<Void> cb) {
+		ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize());
+		httpMessage.writeTo(buf);
+
+		if (writeBuf != null) {
+			socket.write(writeBuf);
+		}
+		socket.write(buf);
+		fileReader.transferTo(socket)
+				.whenComplete(cb);
 	}
 
 	protected void writeBuf(ByteBuf buf) {
 		socket.write(buf)
-				.whenComplete(($, e) -> {
-					if (isClosed()) return;
-					if (e == null) {
-						onBodySent();
-					} else {
-						closeWithError(translateToHttpException(e));
-					}
-				});
+				.whenComplete(this::onWriteComplete);
+	}
+
+	protected void writeBufs(ByteBufs bufs) {
+		socket.writeBufs(bufs)
+				.whenComplete(this::onWriteComplete);
+	}
+
+	private void onWriteComplete(@Nullable Void $, @Nullable Throwable e) {
+		if (isClosed()) return;
+		if (e == null) {
+			onBodySent();
+		} else {
+			closeWithError(translateToHttpException(e));
+		}
 	}
 
-	private void writeStream(ChannelSupplier<ByteBuf> supplier) {
-		supplier.streamTo(ChannelConsumer.of(
+	private Promise<Void> writeStream(ChannelSupplier<ByteBuf> supplier) {
+		return supplier.streamTo(ChannelConsumer.of(
 				buf -> socket.write(buf)
 						.whenException(e -> closeWithError(translateToHttpException(e))),
-				e -> closeWithError(translateToHttpException(e))))
-				.whenResult(this::onBodySent);
+				e -> closeWithError(translateToHttpException(e))));
 	}
 
 	protected void switchPool(ConnectionsLinkedList newPool) {
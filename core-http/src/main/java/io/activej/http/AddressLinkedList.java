@@ -25,6 +25,7 @@ final class AddressLinkedList {
 
 	private HttpClientConnection first;
 	private HttpClientConnection last;
+	private int size;
 
 	public boolean isEmpty() {
 		return first == null;
@@ -34,6 +35,7 @@ final class AddressLinkedList {
 		if (last == null)
 			return null;
 		HttpClientConnection node = last;
+		size--;
 		last = node.addressPrev;
 		if (node.addressPrev != null) {
 			node.addressPrev.addressNext = node.addressNext;
@@ -47,6 +49,7 @@ final class AddressLinkedList {
 
 	public void addLastNode(HttpClientConnection node) {
 		if (CHECK) checkArgument(node.addressPrev == null && node.addressNext == null);
+		size++;
 		if (last != null) {
 			assert last.addressNext == null;
 			last.addressNext = node;
@@ -59,6 +62,7 @@ final class AddressLinkedList {
 	}
 
 	public void removeNode(HttpClientConnection node) {
+		size--;
 		if (node.addressPrev != null) {
 			node.addressPrev.addressNext = node.addressNext;
 		} else {
@@ -75,10 +79,6 @@ final class AddressLinkedList {
 	}
 
 	public int size() {
-		int count = 0;
-		for (HttpClientConnection connection = first; connection != null; connection = connection.addressNext) {
-			count++;
-		}
-		return count;
+		return size;
 	}
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+
+/**
+ * HTTP/1.1 connections of {@link AsyncHttpClient} to a single remote address.
+ * <p>
+ * Idle connections are reused in LIFO order, so that the most recently used connection,
+ * which is the least likely to be closed by a server, is taken first.
+ * Requests which exceed a connection limit of an address wait in FIFO order.
+ */
+final class AddressPool {
+	final InetSocketAddress address;
+	final AddressLinkedList keepAlive = new AddressLinkedList();
+	final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+	/**
+	 * Number of connections to the address, including the ones which are being established
+	 */
+	int connections;
+
+	AddressPool(InetSocketAddress address) {
+		this.address = address;
+	}
+
+	int getBusyConnections() {
+		return connections - keepAlive.size();
+	}
+
+	boolean isEmpty() {
+		return connections == 0 && pendingRequests.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "AddressPool{" +
+				"address=" + address +
+				", connections=" + connections +
+				", keepAlive=" + keepAlive.size() +
+				", pendingRequests=" + pendingRequests.size() +
+				'}';
+	}
+
+	static final class PendingRequest {
+		final HttpRequest request;
+		final boolean isWebSocket;
+		final SettablePromise<Object> promise = new SettablePromise<>();
+		final long timestamp;
+		@Nullable
+		ScheduledRunnable timeout;
+
+		PendingRequest(HttpRequest request, boolean isWebSocket, long timestamp) {
+			this.request = request;
+			this.isWebSocket = isWebSocket;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.ApplicationSettings;
+import io.activej.common.api.WithInitializer;
+import io.activej.common.exception.UncheckedException;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.inspector.ThrottlingController;
+import io.activej.eventloop.jmx.EventloopJmxBean;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import io.activej.jmx.stats.ValueStats;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
+
+/**
+ * A servlet decorator which limits a number of requests that are served concurrently.
+ * <p>
+ * Requests which exceed a {@link ConcurrencyLimit concurrency limit} wait in a bounded queue and are
+ * rejected with a {@code 503 Service Unavailable} response if a queue is full or if they have waited for too long.
+ * Requests are rejected before a servlet is called, so bodies of rejected requests are never read.
+ * <p>
+ * Requests may be split into priority classes, class {@code 0} being the most critical one.
+ * Queued requests are served in the order of their priority classes, and once a queue is full,
+ * requests of less critical classes are shed in favor of more critical ones.
+ * If a {@link ThrottlingController} is set, only requests of class {@code 0} are admitted while an eventloop is overloaded.
+ * <p>
+ * A limit is shared by all the servlets decorated by the same instance, so a separate instance
+ * should be used for each route which should be limited independently.
+ * An instance should be used from the thread of its eventloop.
+ */
+public final class AdmissionControl implements AsyncServletDecorator, EventloopJmxBean, WithInitializer<AdmissionControl> {
+	public static final int DEFAULT_MAX_QUEUE_SIZE = ApplicationSettings.getInt(AdmissionControl.class, "maxQueueSize", 0);
+	public static final Duration DEFAULT_QUEUE_TIMEOUT = ApplicationSettings.getDuration(AdmissionControl.class, "queueTimeout", Duration.ofSeconds(1));
+
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+
+	private final Eventloop eventloop;
+	private final ConcurrencyLimit limit;
+
+	private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+	private long queueTimeoutMillis = DEFAULT_QUEUE_TIMEOUT.toMillis();
+	private ToIntFunction<HttpRequest> priorityFn = $ -> 0;
+	private List<ArrayDeque<Waiter>> queues = createQueues(1);
+	@Nullable
+	private ThrottlingController throttlingController;
+
+	private int inFlight;
+	private int queued;
+
+	// region JMX
+	private final EventStats admitted = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats rejected = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats shed = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats timedOut = EventStats.create(SMOOTHING_WINDOW);
+	private final ValueStats queueTime = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
+	private final ValueStats latency = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
+	// endregion
+
+	private AdmissionControl(Eventloop eventloop, ConcurrencyLimit limit) {
+		this.eventloop = eventloop;
+		this.limit = limit;
+	}
+
+	public static AdmissionControl create(Eventloop eventloop, ConcurrencyLimit limit) {
+		return new AdmissionControl(eventloop, limit);
+	}
+
+	public static AdmissionControl create(Eventloop eventloop, int maxConcurrency) {
+		return new AdmissionControl(eventloop, ConcurrencyLimit.fixed(maxConcurrency));
+	}
+
+	/**
+	 * Sets a maximum number of requests which wait for being served,
+	 * a zero size means that requests which exceed a limit are rejected immediately
+	 */
+	public AdmissionControl withMaxQueueSize(int maxQueueSize) {
+		checkArgument(maxQueueSize >= 0, "Max queue size should not be negative");
+		this.maxQueueSize = maxQueueSize;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum time a request may wait in a queue before being rejected
+	 */
+	public AdmissionControl withQueueTimeout(@NotNull Duration queueTimeout) {
+		this.queueTimeoutMillis = queueTimeout.toMillis();
+		return this;
+	}
+
+	/**
+	 * Splits requests into a given number of priority classes
+	 *
+	 * @param priorityClasses number of priority classes
+	 * @param priorityFn      a function which returns a class of a request, {@code 0} being the most critical one.
+	 *                        Values out of range are treated as the least critical class
+	 */
+	public AdmissionControl withPriorities(int priorityClasses, @NotNull ToIntFunction<HttpRequest> priorityFn) {
+		checkArgument(priorityClasses > 0, "Number of priority classes should be positive");
+		this.queues = createQueues(priorityClasses);
+		this.priorityFn = priorityFn;
+		return this;
+	}
+
+	/**
+	 * Sheds all but the most critical requests while an eventloop is overloaded
+	 */
+	public AdmissionControl withThrottlingController(@NotNull ThrottlingController throttlingController) {
+		this.throttlingController = throttlingController;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public AsyncServlet serve(@NotNull AsyncServlet servlet) {
+		return request -> admit(servlet, request);
+	}
+
+	private Promise<HttpResponse> admit(AsyncServlet servlet, HttpRequest request) {
+		int priority = priorityOf(request);
+		if (priority != 0 && throttlingController != null && throttlingController.isOverloaded()) {
+			return reject();
+		}
+		if (queued == 0 && inFlight < limit.getLimit()) {
+			return execute(servlet, request);
+		}
+		if (queued >= maxQueueSize && !shedLessCritical(priority)) {
+			return reject();
+		}
+
+		Waiter waiter = new Waiter(servlet, request, priority, eventloop.currentTimeMillis());
+		queues.get(priority).add(waiter);
+		queued++;
+		waiter.timeout = eventloop.delay(queueTimeoutMillis, () -> {
+			if (queues.get(waiter.priority).remove(waiter)) {
+				queued--;
+				timedOut.recordEvent();
+				waiter.promise.set(rejectionResponse());
+			}
+		});
+		return waiter.promise;
+	}
+
+	private Promise<HttpResponse> execute(AsyncServlet servlet, HttpRequest request) {
+		admitted.recordEvent();
+		inFlight++;
+		long start = eventloop.currentTimeMillis();
+		Promise<HttpResponse> servletResult;
+		try {
+			servletResult = servlet.serveAsync(request);
+		} catch (UncheckedException u) {
+			servletResult = Promise.ofException(u.getCause());
+		} catch (RuntimeException e) {
+			servletResult = Promise.ofException(e);
+		}
+		return servletResult
+				.whenComplete(() -> {
+					long elapsed = eventloop.currentTimeMillis() - start;
+					latency.recordValue((int) elapsed);
+					limit.onSample(elapsed, inFlight);
+					inFlight--;
+					drain();
+				});
+	}
+
+	private void drain() {
+		while (queued != 0 && inFlight < limit.getLimit()) {
+			Waiter waiter = pollMostCritical();
+			assert waiter != null && waiter.timeout != null;
+			waiter.timeout.cancel();
+			queueTime.recordValue((int) (eventloop.currentTimeMillis() - waiter.timestamp));
+			execute(waiter.servlet, waiter.request)
+					.whenComplete(waiter.promise::accept);
+		}
+	}
+
+	@Nullable
+	private Waiter pollMostCritical() {
+		for (ArrayDeque<Waiter> queue : queues) {
+			Waiter waiter = queue.poll();
+			if (waiter != null) {
+				queued--;
+				return waiter;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Rejects the most recent request of the least critical class which is less critical than a given one
+	 */
+	private boolean shedLessCritical(int priority) {
+		for (int i = queues.size() - 1; i > priority; i--) {
+			Waiter waiter = queues.get(i).pollLast();
+			if (waiter != null) {
+				queued--;
+				assert waiter.timeout != null;
+				waiter.timeout.cancel();
+				shed.recordEvent();
+				waiter.promise.set(rejectionResponse());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int priorityOf(HttpRequest request) {
+		int priority = priorityFn.applyAsInt(request);
+		return priority < 0 || priority >= queues.size() ? queues.size() - 1 : priority;
+	}
+
+	private Promise<HttpResponse> reject() {
+		rejected.recordEvent();
+		return Promise.of(rejectionResponse());
+	}
+
+	private static HttpResponse rejectionResponse() {
+		return HttpResponse.ofCode(503);
+	}
+
+	private static List<ArrayDeque<Waiter>> createQueues(int priorityClasses) {
+		List<ArrayDeque<Waiter>> queues = new ArrayList<>(priorityClasses);
+		for (int i = 0; i < priorityClasses; i++) {
+			queues.add(new ArrayDeque<>());
+		}
+		return queues;
+	}
+
+	private static final class Waiter {
+		final AsyncServlet servlet;
+		final HttpRequest request;
+		final int priority;
+		final long timestamp;
+		final SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		@Nullable
+		ScheduledRunnable timeout;
+
+		Waiter(AsyncServlet servlet, HttpRequest request, int priority, long timestamp) {
+			this.servlet = servlet;
+			this.request = request;
+			this.priority = priority;
+			this.timestamp = timestamp;
+		}
+	}
+
+	/**
+	 * A limit of concurrently served requests, which may adapt to measured latency of requests
+	 */
+	public interface ConcurrencyLimit {
+		int getLimit();
+
+		/**
+		 * Called once a request has been served
+		 *
+		 * @param latencyMillis time it took to serve a request
+		 * @param inFlight      number of requests which were served concurrently, including this one
+		 */
+		void onSample(long latencyMillis, int inFlight);
+
+		static ConcurrencyLimit fixed(int limit) {
+			checkArgument(limit > 0, "Limit should be positive");
+			return new ConcurrencyLimit() {
+				@Override
+				public int getLimit() {
+					return limit;
+				}
+
+				@Override
+				public void onSample(long latencyMillis, int inFlight) {
+				}
+
+				@Override
+				public String toString() {
+					return "Fixed{limit=" + limit + '}';
+				}
+			};
+		}
+
+		/**
+		 * Additive increase/multiplicative decrease limit: a limit is decreased by a backoff ratio
+		 * whenever a request takes longer than a latency threshold, and is increased by one
+		 * while requests are fast and a limit is actually used.
+		 */
+		static ConcurrencyLimit aimd(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio) {
+			checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit, "Invalid limits");
+			checkArgument(backoffRatio > 0 && backoffRatio < 1, "Backoff ratio should be in range (0, 1)");
+			long thresholdMillis = latencyThreshold.toMillis();
+			return new ConcurrencyLimit() {
+				int limit = initialLimit;
+
+				@Override
+				public int getLimit() {
+					return limit;
+				}
+
+				@Override
+				public void onSample(long latencyMillis, int inFlight) {
+					if (latencyMillis > thresholdMillis) {
+						limit = Math.max(minLimit, (int) (limit * backoffRatio));
+					} else if (inFlight * 2 >= limit) {
+						limit = Math.min(maxLimit, limit + 1);
+					}
+				}
+
+				@Override
+				public String toString() {
+					return "AIMD{limit=" + limit + '}';
+				}
+			};
+		}
+
+		static ConcurrencyLimit aimd(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+			return aimd(initialLimit, minLimit, maxLimit, latencyThreshold, 0.9);
+		}
+
+		/**
+		 * A limit which follows a gradient of latency: it is reduced in proportion to how much
+		 * a latency of requests exceeds a minimal latency observed without load,
+		 * and grows by a square root of a limit while latency stays close to the minimal one
+		 */
+		static ConcurrencyLimit gradient(int initialLimit, int minLimit, int maxLimit) {
+			checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit, "Invalid limits");
+			double smoothing = 0.2;
+			double tolerance = 1.5;
+			return new ConcurrencyLimit() {
+				double limit = initialLimit;
+				double minLatency = Double.MAX_VALUE;
+
+				@Override
+				public int getLimit() {
+					return (int) limit;
+				}
+
+				@Override
+				public void onSample(long latencyMillis, int inFlight) {
+					double sample = Math.max(latencyMillis, 1);
+					// minimal latency slowly drifts up, so that it follows a changing baseline
+					minLatency = Math.min(minLatency * 1.001, sample);
+					if (inFlight * 2 < limit) {
+						return;
+					}
+					double gradient = Math.max(0.5, Math.min(1.0, tolerance * minLatency / sample));
+					double newLimit = limit * gradient + Math.sqrt(limit);
+					limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + newLimit * smoothing));
+				}
+
+				@Override
+				public String toString() {
+					return "Gradient{limit=" + (int) limit + ", minLatency=" + minLatency + '}';
+				}
+			};
+		}
+	}
+
+	// region JMX
+	@NotNull
+	@Override
+	public Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	@JmxAttribute
+	public int getLimit() {
+		return limit.getLimit();
+	}
+
+	@JmxAttribute
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	@JmxAttribute
+	public int getQueueSize() {
+		return queued;
+	}
+
+	@JmxAttribute
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	@JmxAttribute
+	public void setMaxQueueSize(int maxQueueSize) {
+		checkArgument(maxQueueSize >= 0, "Max queue size should not be negative");
+		this.maxQueueSize = maxQueueSize;
+	}
+
+	@JmxAttribute
+	public EventStats getAdmitted() {
+		return admitted;
+	}
+
+	@JmxAttribute
+	public EventStats getRejected() {
+		return rejected;
+	}
+
+	@JmxAttribute
+	public EventStats getShed() {
+		return shed;
+	}
+
+	@JmxAttribute
+	public EventStats getTimedOut() {
+		return timedOut;
+	}
+
+	@JmxAttribute
+	public ValueStats getQueueTime() {
+		return queueTime;
+	}
+
+	@JmxAttribute
+	public ValueStats getLatency() {
+		return latency;
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "AdmissionControl{" +
+				"limit=" + limit +
+				", inFlight=" + inFlight +
+				", queued=" + queued +
+				'}';
+	}
+}
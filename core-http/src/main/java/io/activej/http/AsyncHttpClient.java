@@ -21,6 +21,7 @@ import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
 import io.activej.common.MemSize;
 import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.common.exception.CloseException;
 import io.activej.common.inspector.AbstractInspector;
 import io.activej.common.inspector.BaseInspector;
 import io.activej.dns.AsyncDnsClient;
@@ -31,20 +32,25 @@ import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
 import io.activej.eventloop.net.SocketSettings;
 import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.http.AddressPool.PendingRequest;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxOperation;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.jmx.stats.EventStats;
 import io.activej.jmx.stats.ExceptionStats;
+import io.activej.jmx.stats.ValueStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -52,6 +58,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Executor;
 
@@ -83,6 +90,10 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "maxBodySize", MemSize.ZERO);
 	public static final MemSize MAX_WEB_SOCKET_MESSAGE_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "maxWebSocketMessageSize", MemSize.megabytes(1));
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxKeepAliveRequests", 0);
+	public static final boolean HTTP2 = ApplicationSettings.getBoolean(AsyncHttpClient.class, "http2", false);
+	public static final int MAX_CONNECTIONS_PER_ADDRESS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxConnectionsPerAddress", 0);
+	public static final int MIN_IDLE_CONNECTIONS = ApplicationSettings.getInt(AsyncHttpClient.class, "minIdleConnections", 0);
+	public static final Duration POOL_WAIT_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpClient.class, "poolWaitTimeout", Duration.ZERO);
 
 	@NotNull
 	private final Eventloop eventloop;
@@ -91,9 +102,10 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 	@NotNull
 	private SocketSettings socketSettings = DEFAULT_SOCKET_SETTINGS;
 
-	final HashMap<InetSocketAddress, AddressLinkedList> addresses = new HashMap<>();
+	final HashMap<InetSocketAddress, AddressPool> addresses = new HashMap<>();
 	final ConnectionsLinkedList poolKeepAlive = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
+	final HashMap<InetSocketAddress, Promise<Http2ClientConnection>> http2Connections = new HashMap<>();
 	private int poolKeepAliveExpired;
 	private int poolReadWriteExpired;
 
@@ -107,7 +119,13 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxWebSocketMessageSize = MAX_WEB_SOCKET_MESSAGE_SIZE.toInt();
+	@Nullable
+	PerMessageDeflate webSocketDeflate;
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	boolean http2 = HTTP2;
+	int maxConnectionsPerAddress = MAX_CONNECTIONS_PER_ADDRESS;
+	int minIdleConnections = MIN_IDLE_CONNECTIONS;
+	int poolWaitTimeoutMillis = (int) POOL_WAIT_TIMEOUT.toMillis();
 
 	// SSL
 	private SSLContext sslContext;
@@ -131,6 +149,19 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 
 		void onConnectError(HttpRequest request, InetSocketAddress address, Throwable e);
 
+		/**
+		 * Called once a connection to an address is acquired for an HTTP/1.1 request
+		 *
+		 * @param waitTime          time in milliseconds the request has waited for a connection
+		 * @param busyConnections   number of connections to the address which are in use, including the acquired one
+		 * @param maxConnections    connection limit of an address, or {@code 0} if there is no limit
+		 */
+		default void onConnectionAcquired(HttpRequest request, InetSocketAddress address, long waitTime, int busyConnections, int maxConnections) {
+		}
+
+		default void onPoolWaitTimeout(HttpRequest request, InetSocketAddress address) {
+		}
+
 		void onHttpResponse(HttpResponse response);
 
 		void onHttpError(HttpClientConnection connection, Throwable e);
@@ -152,6 +183,7 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		private long responsesErrors;
 		private final EventStats sslErrors = EventStats.create(SMOOTHING_WINDOW);
 		private long activeConnections;
+		private final Map<InetSocketAddress, AddressStats> addressStats = new HashMap<>();
 
 		@Override
 		public void onRequest(HttpRequest request) {
@@ -178,6 +210,21 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 			connectErrors.recordException(e, request.getUrl().getHost());
 		}
 
+		@Override
+		public void onConnectionAcquired(HttpRequest request, InetSocketAddress address, long waitTime, int busyConnections, int maxConnections) {
+			AddressStats stats = addressStats.computeIfAbsent(address, $ -> new AddressStats());
+			stats.poolWaitTime.recordValue(waitTime);
+			stats.busyConnections.recordValue(busyConnections);
+			if (maxConnections != 0) {
+				stats.utilization.recordValue(busyConnections * 100 / maxConnections);
+			}
+		}
+
+		@Override
+		public void onPoolWaitTimeout(HttpRequest request, InetSocketAddress address) {
+			addressStats.computeIfAbsent(address, $ -> new AddressStats()).poolWaitTimeouts.recordEvent();
+		}
+
 		@Override
 		public void onHttpResponse(HttpResponse response) {
 			responses++;
@@ -255,6 +302,38 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		public long getActiveConnections() {
 			return activeConnections;
 		}
+
+		@JmxAttribute(description = "connection pool stats distributed by remote address")
+		public Map<InetSocketAddress, AddressStats> getAddressStats() {
+			return addressStats;
+		}
+
+		public static final class AddressStats {
+			private final ValueStats poolWaitTime = ValueStats.create(SMOOTHING_WINDOW).withUnit("milliseconds");
+			private final ValueStats busyConnections = ValueStats.create(SMOOTHING_WINDOW);
+			private final ValueStats utilization = ValueStats.create(SMOOTHING_WINDOW).withUnit("percents");
+			private final EventStats poolWaitTimeouts = EventStats.create(SMOOTHING_WINDOW);
+
+			@JmxAttribute(description = "time requests have waited for a connection")
+			public ValueStats getPoolWaitTime() {
+				return poolWaitTime;
+			}
+
+			@JmxAttribute(description = "number of connections in use when a connection is acquired")
+			public ValueStats getBusyConnections() {
+				return busyConnections;
+			}
+
+			@JmxAttribute(description = "ratio of connections in use to a connection limit of an address")
+			public ValueStats getUtilization() {
+				return utilization;
+			}
+
+			@JmxAttribute
+			public EventStats getPoolWaitTimeouts() {
+				return poolWaitTimeouts;
+			}
+		}
 	}
 
 	private int inetAddressIdx = 0;
@@ -301,6 +380,50 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		return this;
 	}
 
+	/**
+	 * Enables HTTP/2 for non-web socket requests.
+	 * <p>
+	 * Servers are expected to support HTTP/2, either with prior knowledge over cleartext connections
+	 * or via ALPN over SSL. Requests to the same address are multiplexed over a single connection.
+	 */
+	public AsyncHttpClient withHttp2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
+	/**
+	 * Limits a number of connections to a single remote address, requests which exceed the limit
+	 * wait until one of the connections is released
+	 *
+	 * @param maxConnectionsPerAddress maximum number of connections per address, or {@code 0} for no limit
+	 */
+	public AsyncHttpClient withMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+		checkArgument(maxConnectionsPerAddress >= 0, "Maximum number of connections per address should not be less than zero");
+		this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum time a request may wait for a connection to an address
+	 * which has reached its connection limit, zero timeout means that requests wait indefinitely
+	 */
+	public AsyncHttpClient withPoolWaitTimeout(@NotNull Duration poolWaitTimeout) {
+		this.poolWaitTimeoutMillis = (int) poolWaitTimeout.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a number of idle keep-alive connections per address which are not closed
+	 * once a keep-alive timeout expires
+	 *
+	 * @see #prewarm(String, int)
+	 */
+	public AsyncHttpClient withMinIdleConnections(int minIdleConnections) {
+		checkArgument(minIdleConnections >= 0, "Minimum number of idle connections should not be less than zero");
+		this.minIdleConnections = minIdleConnections;
+		return this;
+	}
+
 	public AsyncHttpClient withReadWriteTimeout(@NotNull Duration readWriteTimeout) {
 		this.readWriteTimeoutMillis = (int) readWriteTimeout.toMillis();
 		return this;
@@ -331,6 +454,14 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		return this;
 	}
 
+	/**
+	 * Offers a <i>permessage-deflate</i> extension in web socket requests
+	 */
+	public AsyncHttpClient withWebSocketCompression(@NotNull PerMessageDeflate webSocketDeflate) {
+		this.webSocketDeflate = webSocketDeflate;
+		return this;
+	}
+
 	public AsyncHttpClient withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -351,7 +482,7 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		assert expiredConnectionsCheck == null;
 		expiredConnectionsCheck = eventloop.delayBackground(1000L, () -> {
 			expiredConnectionsCheck = null;
-			poolKeepAliveExpired += poolKeepAlive.closeExpiredConnections(eventloop.currentTimeMillis() - keepAliveTimeoutMillis);
+			poolKeepAliveExpired += closeExpiredKeepAliveConnections(eventloop.currentTimeMillis() - keepAliveTimeoutMillis);
 			boolean isClosing = closePromise != null;
 			if (readWriteTimeoutMillis != 0 || isClosing) {
 				poolReadWriteExpired += poolReadWrite.closeExpiredConnections(eventloop.currentTimeMillis() -
@@ -366,37 +497,131 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		});
 	}
 
+	private int closeExpiredKeepAliveConnections(long expiration) {
+		if (minIdleConnections == 0 || closePromise != null) {
+			return poolKeepAlive.closeExpiredConnections(expiration);
+		}
+		return poolKeepAlive.closeExpiredConnectionsExcept(expiration, connection -> {
+			if (!(connection instanceof HttpClientConnection)) return false;
+			AddressPool addressPool = addresses.get(((HttpClientConnection) connection).remoteAddress);
+			return addressPool != null && addressPool.keepAlive.size() <= minIdleConnections;
+		});
+	}
+
 	@Nullable
-	private HttpClientConnection takeKeepAliveConnection(InetSocketAddress address) {
-		AddressLinkedList addresses = this.addresses.get(address);
-		if (addresses == null)
+	private HttpClientConnection takeKeepAliveConnection(AddressPool addressPool) {
+		HttpClientConnection connection = addressPool.keepAlive.removeLastNode();
+		if (connection == null)
 			return null;
-		HttpClientConnection connection = addresses.removeLastNode();
-		assert connection != null;
 		assert connection.pool == poolKeepAlive;
-		assert connection.remoteAddress.equals(address);
+		assert connection.remoteAddress.equals(addressPool.address);
 		connection.pool.removeNode(connection); // moving from keep-alive state to taken(null) state
-		if (addresses.isEmpty()) {
-			this.addresses.remove(address);
-		}
 		return connection;
 	}
 
 	void returnToKeepAlivePool(HttpClientConnection connection) {
 		assert !connection.isClosed();
-		AddressLinkedList addresses = this.addresses.get(connection.remoteAddress);
-		if (addresses == null) {
-			addresses = new AddressLinkedList();
-			this.addresses.put(connection.remoteAddress, addresses);
+		AddressPool addressPool = addresses.get(connection.remoteAddress);
+		addressPool.keepAlive.addLastNode(connection);
+		if (connection.pool != null) {
+			connection.switchPool(poolKeepAlive);
+		} else {
+			(connection.pool = poolKeepAlive).addLastNode(connection);
+			connection.poolTimestamp = eventloop.currentTimeMillis();
+		}
+
+		if (!addressPool.pendingRequests.isEmpty()) {
+			eventloop.post(() -> sendPendingRequests(addressPool));
 		}
-		addresses.addLastNode(connection);
-		connection.switchPool(poolKeepAlive);
 
 		if (expiredConnectionsCheck == null) {
 			scheduleExpiredConnectionsCheck();
 		}
 	}
 
+	/**
+	 * Removes a closed connection from its address pool, a connection slot which is released
+	 * is taken by a pending request, if there is any
+	 */
+	void releaseConnection(HttpClientConnection connection) {
+		AddressPool addressPool = addresses.get(connection.remoteAddress);
+		if (addressPool == null) {
+			logger.warn("No address pool for a released connection {}", connection);
+			return;
+		}
+		if (connection.pool == poolKeepAlive) {
+			addressPool.keepAlive.removeNode(connection);
+		}
+		releaseConnection(addressPool);
+	}
+
+	private void releaseConnection(AddressPool addressPool) {
+		addressPool.connections--;
+		PendingRequest pendingRequest = addressPool.pendingRequests.poll();
+		if (pendingRequest != null) {
+			onConnectionAcquired(addressPool, pendingRequest);
+			connect(addressPool, pendingRequest.request, pendingRequest.isWebSocket)
+					.whenComplete(pendingRequest.promise::accept);
+		} else if (addressPool.isEmpty()) {
+			addresses.remove(addressPool.address);
+		}
+	}
+
+	private void sendPendingRequests(AddressPool addressPool) {
+		while (!addressPool.pendingRequests.isEmpty()) {
+			HttpClientConnection connection = takeKeepAliveConnection(addressPool);
+			if (connection == null) return;
+			PendingRequest pendingRequest = addressPool.pendingRequests.poll();
+			onConnectionAcquired(addressPool, pendingRequest);
+			send(connection, pendingRequest.request, pendingRequest.isWebSocket)
+					.whenComplete(pendingRequest.promise::accept);
+		}
+	}
+
+	private void onConnectionAcquired(AddressPool addressPool, PendingRequest pendingRequest) {
+		if (pendingRequest.timeout != null) {
+			pendingRequest.timeout.cancel();
+		}
+		if (inspector != null) {
+			inspector.onConnectionAcquired(pendingRequest.request, addressPool.address,
+					eventloop.currentTimeMillis() - pendingRequest.timestamp,
+					addressPool.getBusyConnections() + 1, maxConnectionsPerAddress);
+		}
+	}
+
+	private Promise<?> waitForConnection(AddressPool addressPool, HttpRequest request, boolean isWebSocket) {
+		PendingRequest pendingRequest = new PendingRequest(request, isWebSocket, eventloop.currentTimeMillis());
+		addressPool.pendingRequests.add(pendingRequest);
+		if (poolWaitTimeoutMillis != 0) {
+			pendingRequest.timeout = eventloop.delay(poolWaitTimeoutMillis, () -> {
+				addressPool.pendingRequests.remove(pendingRequest);
+				if (addressPool.isEmpty()) {
+					addresses.remove(addressPool.address);
+				}
+				if (inspector != null) inspector.onPoolWaitTimeout(request, addressPool.address);
+				request.recycle();
+				pendingRequest.promise.setException(new AsyncTimeoutException("Pool wait timeout"));
+			});
+		}
+		return pendingRequest.promise;
+	}
+
+	private void failPendingRequests(Exception e) {
+		for (AddressPool addressPool : new ArrayList<>(addresses.values())) {
+			PendingRequest pendingRequest;
+			while ((pendingRequest = addressPool.pendingRequests.poll()) != null) {
+				if (pendingRequest.timeout != null) {
+					pendingRequest.timeout.cancel();
+				}
+				pendingRequest.request.recycle();
+				pendingRequest.promise.setException(e);
+			}
+			if (addressPool.isEmpty()) {
+				addresses.remove(addressPool.address);
+			}
+		}
+	}
+
 	@Override
 	public Promise<HttpResponse> request(HttpRequest request) {
 		if (CHECK) checkArgument(request.getProtocol(), protocol -> protocol == HTTP || protocol == HTTPS);
@@ -455,15 +680,65 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		InetAddress inetAddress = inetAddresses[(inetAddressIdx++ & Integer.MAX_VALUE) % inetAddresses.length];
 		InetSocketAddress address = new InetSocketAddress(inetAddress, request.getUrl().getPort());
 
-		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(address);
+		if (request.getProtocol().isSecure() && sslContext == null) {
+			request.recycle();
+			return Promise.ofException(new IllegalArgumentException("Cannot send Secure Request without SSL enabled"));
+		}
+
+		if (http2 && !isWebSocket) {
+			return sendHttp2(request, address);
+		}
+
+		AddressPool addressPool = addresses.computeIfAbsent(address, AddressPool::new);
+		if (!addressPool.pendingRequests.isEmpty()) {
+			return waitForConnection(addressPool, request, isWebSocket);
+		}
+
+		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(addressPool);
 		if (keepAliveConnection != null) {
-			if (isWebSocket) {
-				return keepAliveConnection.sendWebSocketRequest(request);
-			} else {
-				return keepAliveConnection.send(request);
+			if (inspector != null) {
+				inspector.onConnectionAcquired(request, address, 0, addressPool.getBusyConnections(), maxConnectionsPerAddress);
 			}
+			return send(keepAliveConnection, request, isWebSocket);
+		}
+
+		if (maxConnectionsPerAddress != 0 && addressPool.connections >= maxConnectionsPerAddress) {
+			return waitForConnection(addressPool, request, isWebSocket);
+		}
+
+		if (inspector != null) {
+			inspector.onConnectionAcquired(request, address, 0, addressPool.getBusyConnections() + 1, maxConnectionsPerAddress);
 		}
+		return connect(addressPool, request, isWebSocket);
+	}
+
+	private static Promise<?> send(HttpClientConnection connection, HttpRequest request, boolean isWebSocket) {
+		if (isWebSocket) {
+			return connection.sendWebSocketRequest(request);
+		} else {
+			return connection.send(request);
+		}
+	}
 
+	private Promise<?> connect(AddressPool addressPool, HttpRequest request, boolean isWebSocket) {
+		return openConnection(addressPool, request)
+				.thenEx((connection, e) -> {
+					if (e == null) {
+						return send(connection, request, isWebSocket);
+					} else {
+						request.recycle();
+						return Promise.ofException(e);
+					}
+				});
+	}
+
+	/**
+	 * Opens a new connection to an address, the connection is counted towards
+	 * a connection limit of the address right away
+	 */
+	private Promise<HttpClientConnection> openConnection(AddressPool addressPool, HttpRequest request) {
+		InetSocketAddress address = addressPool.address;
+		addressPool.connections++;
 		return AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
 				.thenEx((asyncTcpSocketImpl, e) -> {
 					if (e == null) {
@@ -474,10 +749,6 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 							asyncTcpSocketImpl.setInspector(socketInspector);
 						}
 
-						if (isSecure && sslContext == null) {
-							throw new IllegalArgumentException("Cannot send Secure Request without SSL enabled");
-						}
-
 						String host = request.getUrl().getHost();
 						assert host != null;
 
@@ -494,17 +765,134 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 						if (expiredConnectionsCheck == null)
 							scheduleExpiredConnectionsCheck();
 
-						if (isWebSocket) {
-							return connection.sendWebSocketRequest(request);
-						} else {
-							return connection.send(request);
-						}
+						return Promise.of(connection);
 					} else {
 						if (inspector != null) inspector.onConnectError(request, address, e);
+						releaseConnection(addressPool);
+						return Promise.ofException(translateToHttpException(e));
+					}
+				});
+	}
+
+	/**
+	 * Opens connections to each of the addresses of a URL host in advance,
+	 * so that subsequent requests do not wait for TCP and SSL handshakes.
+	 * <p>
+	 * Opened connections are put into a keep-alive pool, so a non-zero keep-alive timeout is required.
+	 *
+	 * @param url         a URL of a host
+	 * @param connections a number of connections per address of a host, including already opened connections
+	 * @return a promise which is completed once all of the connections are opened
+	 */
+	public Promise<Void> prewarm(@NotNull String url, int connections) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		checkState(keepAliveTimeoutMillis != 0, "Keep-alive timeout should be set to prewarm connections");
+		HttpRequest request = HttpRequest.get(url);
+		String host = request.getUrl().getHost();
+		assert host != null;
+		if (request.getProtocol().isSecure() && sslContext == null) {
+			request.recycle();
+			return Promise.ofException(new IllegalArgumentException("Cannot connect to a secure host without SSL enabled"));
+		}
+
+		return asyncDnsClient.resolve4(host)
+				.then(dnsResponse -> {
+					if (!dnsResponse.isSuccessful()) {
+						return Promise.ofException(new HttpException(new DnsQueryException(dnsResponse)));
+					}
+					List<Promise<?>> promises = new ArrayList<>();
+					//noinspection ConstantConditions - dnsResponse is successful (not null)
+					for (InetAddress inetAddress : dnsResponse.getRecord().getIps()) {
+						InetSocketAddress address = new InetSocketAddress(inetAddress, request.getUrl().getPort());
+						if (http2) {
+							if (!http2Connections.containsKey(address)) {
+								promises.add(connectHttp2(request, address));
+							}
+							continue;
+						}
+						AddressPool addressPool = addresses.computeIfAbsent(address, AddressPool::new);
+						int limit = maxConnectionsPerAddress != 0 ? Math.min(connections, maxConnectionsPerAddress) : connections;
+						while (addressPool.connections < limit) {
+							promises.add(openConnection(addressPool, request)
+									.whenResult(HttpClientConnection::returnToKeepAlivePool));
+						}
+						if (addressPool.isEmpty()) {
+							addresses.remove(address);
+						}
+					}
+					return Promises.all(promises);
+				})
+				.whenComplete(request::recycle);
+	}
+
+	private Promise<HttpResponse> sendHttp2(HttpRequest request, InetSocketAddress address) {
+		Promise<Http2ClientConnection> connectionPromise = http2Connections.get(address);
+		if (connectionPromise == null || connectionPromise.isResult() && !connectionPromise.getResult().isAvailable()) {
+			connectionPromise = connectHttp2(request, address);
+		}
+		return connectionPromise
+				.thenEx((connection, e) -> {
+					if (e != null) {
 						request.recycle();
+						return Promise.ofException(e);
+					}
+					if (!connection.isAvailable()) {
+						return sendHttp2(request, address);
+					}
+					return connection.send(request);
+				});
+	}
+
+	private Promise<Http2ClientConnection> connectHttp2(HttpRequest request, InetSocketAddress address) {
+		boolean isSecure = request.getProtocol().isSecure();
+		if (isSecure && sslContext == null) {
+			return Promise.ofException(new IllegalArgumentException("Cannot send Secure Request without SSL enabled"));
+		}
+		String host = request.getUrl().getHost();
+		assert host != null;
+
+		Promise<Http2ClientConnection> connectionPromise = AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
+				.thenEx((asyncTcpSocketImpl, e) -> {
+					if (e != null) {
+						if (inspector != null) inspector.onConnectError(request, address, e);
 						return Promise.ofException(translateToHttpException(e));
 					}
+					AsyncTcpSocketNio.Inspector socketInspector = isSecure ? socketSslInspector : this.socketInspector;
+					if (socketInspector != null) {
+						socketInspector.onConnect(asyncTcpSocketImpl);
+						asyncTcpSocketImpl.setInspector(socketInspector);
+					}
+
+					AsyncTcpSocket asyncTcpSocket = asyncTcpSocketImpl;
+					if (isSecure) {
+						SSLEngine sslEngine = sslContext.createSSLEngine(host, request.getUrl().getPort());
+						sslEngine.setUseClientMode(true);
+						AbstractHttp2Connection.setApplicationProtocols(sslEngine, AbstractHttp2Connection.ALPN_PROTOCOL);
+						asyncTcpSocket = AsyncTcpSocketSsl.create(asyncTcpSocketImpl, sslEngine, sslExecutor);
+					}
+
+					Http2ClientConnection connection = new Http2ClientConnection(eventloop, this, asyncTcpSocket, address);
+					connection.connect();
+
+					if (expiredConnectionsCheck == null)
+						scheduleExpiredConnectionsCheck();
+
+					return Promise.of(connection);
 				});
+		http2Connections.put(address, connectionPromise);
+		connectionPromise.whenException(e -> {
+			if (http2Connections.get(address) == connectionPromise) {
+				http2Connections.remove(address);
+			}
+		});
+		return connectionPromise;
+	}
+
+	void onHttp2ConnectionClosed(Http2ClientConnection connection) {
+		Promise<Http2ClientConnection> connectionPromise = http2Connections.get(connection.remoteAddress);
+		if (connectionPromise != null && connectionPromise.getResult() == connection) {
+			http2Connections.remove(connection.remoteAddress);
+		}
 	}
 
 	@NotNull
@@ -537,8 +925,8 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 
 		SettablePromise<Void> promise = new SettablePromise<>();
 
+		failPendingRequests(new CloseException("Client is stopped"));
 		poolKeepAlive.closeAllConnections();
-		assert addresses.isEmpty();
 		keepAliveTimeoutMillis = 0;
 		if (getConnectionsCount() == 0) {
 			assert poolReadWrite.isEmpty();
@@ -550,6 +938,22 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		return promise;
 	}
 
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	public int getMaxConnectionsPerAddress() {
+		return maxConnectionsPerAddress;
+	}
+
+	public Duration getPoolWaitTimeout() {
+		return Duration.ofMillis(poolWaitTimeoutMillis);
+	}
+
+	public int getMinIdleConnections() {
+		return minIdleConnections;
+	}
+
 	// region jmx
 	@JmxAttribute(description = "current number of connections", reducer = JmxReducerSum.class)
 	public int getConnectionsCount() {
@@ -571,6 +975,15 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		return poolKeepAliveExpired;
 	}
 
+	@JmxAttribute(description = "current number of requests waiting for a connection", reducer = JmxReducerSum.class)
+	public int getPendingRequestsCount() {
+		int count = 0;
+		for (AddressPool addressPool : addresses.values()) {
+			count += addressPool.pendingRequests.size();
+		}
+		return count;
+	}
+
 	@JmxAttribute(reducer = JmxReducerSum.class)
 	public int getConnectionsReadWriteExpired() {
 		return poolReadWriteExpired;
@@ -581,11 +994,11 @@ public final class AsyncHttpClient implements IAsyncHttpClient, IAsyncWebSocketC
 		if (addresses.isEmpty())
 			return "";
 		List<String> result = new ArrayList<>();
-		result.add("SocketAddress,ConnectionsCount");
-		for (Entry<InetSocketAddress, AddressLinkedList> entry : addresses.entrySet()) {
+		result.add("SocketAddress,ConnectionsCount,KeepAliveCount,PendingRequestsCount");
+		for (Entry<InetSocketAddress, AddressPool> entry : addresses.entrySet()) {
 			InetSocketAddress address = entry.getKey();
-			AddressLinkedList connections = entry.getValue();
-			result.add(address + ", " + connections.size());
+			AddressPool addressPool = entry.getValue();
+			result.add(address + ", " + addressPool.connections + ", " + addressPool.keepAlive.size() + ", " + addressPool.pendingRequests.size());
 		}
 		return formatListAsMultilineString(result);
 	}
@@ -34,12 +34,16 @@ import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.http.HttpHeaders.DATE;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -55,6 +59,9 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpServer.class, "maxBodySize", MemSize.ZERO);
 	public static final MemSize MAX_WEB_SOCKET_MESSAGE_SIZE = ApplicationSettings.getMemSize(AsyncHttpServer.class, "maxWebSocketMessageSize", MemSize.megabytes(1));
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpServer.class, "maxKeepAliveRequests", 0);
+	public static final int PIPELINING_DEPTH = ApplicationSettings.getInt(AsyncHttpServer.class, "pipeliningDepth", 1);
+	public static final boolean HTTP2 = ApplicationSettings.getBoolean(AsyncHttpServer.class, "http2", false);
+	public static final boolean DATE_HEADER = ApplicationSettings.getBoolean(AsyncHttpServer.class, "dateHeader", false);
 
 	@NotNull
 	private final AsyncServlet servlet;
@@ -68,7 +75,17 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxWebSocketMessageSize = MAX_WEB_SOCKET_MESSAGE_SIZE.toInt();
+	@Nullable
+	PerMessageDeflate webSocketDeflate;
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	int pipeliningDepth = PIPELINING_DEPTH;
+	boolean http2 = HTTP2;
+	boolean dateHeader = DATE_HEADER;
+	@Nullable
+	HttpHeadersTemplate headersTemplate;
+
+	private long dateSeconds = -1;
+	private HttpHeaderValue date;
 
 	final ConnectionsLinkedList poolNew = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
@@ -202,6 +219,31 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return this;
 	}
 
+	/**
+	 * Sets a maximum number of pipelined requests of a single connection that may be served concurrently.
+	 * <p>
+	 * While a servlet is serving a request, subsequent requests that have already been received
+	 * are parsed and passed to the servlet, responses are sent in the order of requests.
+	 * A default value of 1 means that requests of a connection are served one by one.
+	 */
+	public AsyncHttpServer withPipeliningDepth(int pipeliningDepth) {
+		checkArgument(pipeliningDepth >= 1, "Pipelining depth must be positive");
+		this.pipeliningDepth = pipeliningDepth;
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/2 alongside HTTP/1.1.
+	 * <p>
+	 * A connection is served as HTTP/2 one if it starts with HTTP/2 connection preface.
+	 * Cleartext connections require clients with prior knowledge of HTTP/2 support,
+	 * over SSL "h2" protocol is offered via ALPN if it is supported by JDK.
+	 */
+	public AsyncHttpServer withHttp2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
 	public AsyncHttpServer withNoKeepAlive() {
 		return withKeepAliveTimeout(Duration.ZERO);
 	}
@@ -236,6 +278,34 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return this;
 	}
 
+	/**
+	 * Accepts offers of a <i>permessage-deflate</i> extension from web socket clients
+	 */
+	public AsyncHttpServer withWebSocketCompression(@NotNull PerMessageDeflate webSocketDeflate) {
+		this.webSocketDeflate = webSocketDeflate;
+		return this;
+	}
+
+	/**
+	 * Adds a {@code Date} header to each response which has none, a value of the header
+	 * is rendered at most once per second of this server's eventloop time
+	 */
+	public AsyncHttpServer withDateHeader(boolean dateHeader) {
+		this.dateHeader = dateHeader;
+		return this;
+	}
+
+	/**
+	 * Sets a template of headers, like {@code Server}, which is written into every response of this server
+	 * along with a template of the response itself, unless a response sets a header of the template by itself
+	 *
+	 * @see HttpResponse#withHeaders(HttpHeadersTemplate)
+	 */
+	public AsyncHttpServer withHeaders(@NotNull HttpHeadersTemplate headersTemplate) {
+		this.headersTemplate = headersTemplate;
+		return this;
+	}
+
 	public AsyncHttpServer withHttpErrorFormatter(@NotNull HttpExceptionFormatter httpExceptionFormatter) {
 		errorFormatter = httpExceptionFormatter;
 		return this;
@@ -252,6 +322,18 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return Duration.ofMillis(keepAliveTimeoutMillis);
 	}
 
+	public int getPipeliningDepth() {
+		return pipeliningDepth;
+	}
+
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	public boolean isDateHeader() {
+		return dateHeader;
+	}
+
 	public Duration getReadWriteTimeout() {
 		return Duration.ofMillis(readWriteTimeoutMillis);
 	}
@@ -290,6 +372,15 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		connection.serve();
 	}
 
+	@Override
+	protected SSLEngine createSslEngine(SSLContext sslContext) {
+		SSLEngine sslEngine = super.createSslEngine(sslContext);
+		if (http2) {
+			AbstractHttp2Connection.setApplicationProtocols(sslEngine, AbstractHttp2Connection.ALPN_PROTOCOL, "http/1.1");
+		}
+		return sslEngine;
+	}
+
 	private final SettablePromise<@Nullable Void> closeNotification = new SettablePromise<>();
 
 	@Nullable
@@ -370,6 +461,33 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return poolReadWriteExpired;
 	}
 
+	/**
+	 * Returns a value of a {@code Date} header, which is cached for a current second
+	 */
+	HttpHeaderValue getDateHeaderValue() {
+		long seconds = eventloop.currentTimeMillis() / 1000L;
+		if (seconds != dateSeconds) {
+			byte[] bytes = new byte[29];
+			int size = HttpDate.render(seconds, bytes, 0);
+			date = HttpHeaderValue.ofBytes(bytes, 0, size);
+			dateSeconds = seconds;
+		}
+		return date;
+	}
+
+	/**
+	 * Adds a template of server headers and a {@code Date} header, if enabled, to a response,
+	 * this is done for responses of both HTTP/1.1 and HTTP/2 connections
+	 */
+	void addServerHeaders(HttpResponse httpResponse) {
+		httpResponse.serverHeadersTemplate = headersTemplate;
+		if (dateHeader && httpResponse.headers.get(DATE) == null &&
+				(httpResponse.headersTemplate == null || httpResponse.headersTemplate.get(DATE) == null) &&
+				(headersTemplate == null || headersTemplate.get(DATE) == null)) {
+			httpResponse.addHeader(DATE, getDateHeaderValue());
+		}
+	}
+
 	HttpResponse formatHttpError(Throwable e) {
 		return errorFormatter.formatException(e);
 	}
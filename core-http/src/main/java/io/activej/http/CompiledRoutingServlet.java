@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static io.activej.http.Protocol.WS;
+import static io.activej.http.Protocol.WSS;
+
+/**
+ * An immutable snapshot of a {@link RoutingServlet}, which is created by {@link RoutingServlet#compile()}.
+ * <p>
+ * Static path segments of each route node are compiled into a radix trie, which is matched
+ * directly against characters of a raw request URL. Path parameters are recorded as spans
+ * of a URL and are decoded only when requested, so routing itself does not create any strings.
+ * <p>
+ * Matching semantics are the same as of {@link RoutingServlet}: static segments take precedence
+ * over path parameters, fallback servlets are used if nothing matches in a subtree,
+ * and web socket requests are only routed to web socket servlets.
+ * Changes made to the source {@link RoutingServlet} after compilation are not reflected.
+ */
+public final class CompiledRoutingServlet implements AsyncServlet {
+	private final Node root;
+
+	CompiledRoutingServlet(RoutingServlet servlet) {
+		this.root = compile(servlet, new IdentityHashMap<>());
+	}
+
+	@NotNull
+	@Override
+	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
+		Protocol protocol = request.getProtocol();
+		int ordinal = protocol == WS || protocol == WSS ? RoutingServlet.WS_ORDINAL : request.getMethod().ordinal();
+		Promise<HttpResponse> processed = tryServe(root, request, request.getUrl(), ordinal);
+		return processed != null ?
+				processed :
+				Promise.ofException(HttpError.notFound404());
+	}
+
+	@Nullable
+	private static Promise<HttpResponse> tryServe(Node node, HttpRequest request, UrlParser url, int ordinal) {
+		String raw = url.raw;
+		int pathEnd = url.pathEnd;
+		int introPosition = url.pos;
+
+		int start = introPosition + 1;
+		int end = start;
+		if (introPosition < pathEnd) {
+			int nextSlash = raw.indexOf('/', start);
+			end = nextSlash > pathEnd ? pathEnd : nextSlash;
+			url.pos = (short) (end == -1 ? raw.length() : end);
+			if (end == -1) {
+				end = pathEnd;
+			}
+		}
+
+		if (start >= end) {
+			AsyncServlet servlet = RoutingServlet.getOrDefault(node.rootServlets, ordinal);
+			if (servlet != null) {
+				return servlet.serveAsync(request);
+			}
+		} else {
+			int position = url.pos;
+			Node transit = node.routes != null ? node.routes.find(raw, start, end) : null;
+			if (transit != null) {
+				Promise<HttpResponse> result = tryServe(transit, request, url, ordinal);
+				if (result != null) {
+					return result;
+				}
+				url.pos = (short) position;
+			}
+			for (int i = 0; i < node.parameterNames.length; i++) {
+				request.pushPathParameter(node.parameterNames[i], start, end);
+				Promise<HttpResponse> result = tryServe(node.parameters[i], request, url, ordinal);
+				if (result != null) {
+					return result;
+				}
+				request.popPathParameter();
+				url.pos = (short) position;
+			}
+		}
+
+		AsyncServlet servlet = RoutingServlet.getOrDefault(node.fallbackServlets, ordinal);
+		if (servlet != null) {
+			url.pos = (short) introPosition;
+			return servlet.serveAsync(request);
+		}
+		return null;
+	}
+
+	private static Node compile(RoutingServlet servlet, Map<RoutingServlet, Node> compiled) {
+		Node node = compiled.get(servlet);
+		if (node != null) {
+			return node;
+		}
+
+		String[] keys = servlet.routes.keySet().toArray(new String[0]);
+		Arrays.sort(keys);
+		Node[] targets = new Node[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			targets[i] = compile(servlet.routes.get(keys[i]), compiled);
+		}
+
+		String[] parameterNames = new String[servlet.parameters.size()];
+		Node[] parameters = new Node[parameterNames.length];
+		int i = 0;
+		for (Map.Entry<String, RoutingServlet> entry : servlet.parameters.entrySet()) {
+			parameterNames[i] = entry.getKey();
+			parameters[i++] = compile(entry.getValue(), compiled);
+		}
+
+		node = new Node(
+				servlet.rootServlets.clone(),
+				servlet.fallbackServlets.clone(),
+				keys.length != 0 ? RadixNode.build(keys, targets, 0, keys.length, 0) : null,
+				parameterNames,
+				parameters);
+		compiled.put(servlet, node);
+		return node;
+	}
+
+	private static final class Node {
+		final AsyncServlet[] rootServlets;
+		final AsyncServlet[] fallbackServlets;
+		@Nullable
+		final RadixNode routes;
+		final String[] parameterNames;
+		final Node[] parameters;
+
+		Node(AsyncServlet[] rootServlets, AsyncServlet[] fallbackServlets, @Nullable RadixNode routes,
+				String[] parameterNames, Node[] parameters) {
+			this.rootServlets = rootServlets;
+			this.fallbackServlets = fallbackServlets;
+			this.routes = routes;
+			this.parameterNames = parameterNames;
+			this.parameters = parameters;
+		}
+	}
+
+	/**
+	 * A node of a radix trie of static path segments, which has a common label of all of its keys
+	 * and children indexed by a first character that follows the label
+	 */
+	private static final class RadixNode {
+		final char[] label;
+		@Nullable
+		final Node target;
+		final char[] childChars;
+		final RadixNode[] children;
+
+		RadixNode(char[] label, @Nullable Node target, char[] childChars, RadixNode[] children) {
+			this.label = label;
+			this.target = target;
+			this.childChars = childChars;
+			this.children = children;
+		}
+
+		/**
+		 * Builds a trie of sorted keys in range [from, to), all of which share first {@code depth} characters
+		 */
+		static RadixNode build(String[] keys, Node[] targets, int from, int to, int depth) {
+			String first = keys[from];
+			String last = keys[to - 1];
+			int labelEnd = depth;
+			while (labelEnd < first.length() && labelEnd < last.length() && first.charAt(labelEnd) == last.charAt(labelEnd)) {
+				labelEnd++;
+			}
+
+			Node target = null;
+			if (first.length() == labelEnd) {
+				target = targets[from++];
+			}
+
+			List<Character> childChars = new ArrayList<>();
+			List<RadixNode> children = new ArrayList<>();
+			while (from < to) {
+				char c = keys[from].charAt(labelEnd);
+				int groupEnd = from + 1;
+				while (groupEnd < to && keys[groupEnd].charAt(labelEnd) == c) {
+					groupEnd++;
+				}
+				childChars.add(c);
+				children.add(build(keys, targets, from, groupEnd, labelEnd + 1));
+				from = groupEnd;
+			}
+
+			char[] chars = new char[childChars.size()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = childChars.get(i);
+			}
+			return new RadixNode(first.substring(depth, labelEnd).toCharArray(), target, chars, children.toArray(new RadixNode[0]));
+		}
+
+		@Nullable
+		Node find(String raw, int start, int end) {
+			RadixNode node = this;
+			int pos = start;
+			while (true) {
+				char[] label = node.label;
+				if (end - pos < label.length) {
+					return null;
+				}
+				for (char c : label) {
+					if (raw.charAt(pos++) != c) {
+						return null;
+					}
+				}
+				if (pos == end) {
+					return node.target;
+				}
+				int index = Arrays.binarySearch(node.childChars, raw.charAt(pos++));
+				if (index < 0) {
+					return null;
+				}
+				node = node.children[index];
+			}
+		}
+	}
+}
@@ -19,6 +19,8 @@ package io.activej.http;
 import io.activej.common.exception.AsyncTimeoutException;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.function.Predicate;
+
 final class ConnectionsLinkedList {
 	private int size;
 
@@ -83,6 +85,29 @@ final class ConnectionsLinkedList {
 		return count;
 	}
 
+	/**
+	 * Closes expired connections, except for the ones which should be retained
+	 *
+	 * @param retain a predicate which is tested against each of the expired connections
+	 * @return number of closed connections
+	 */
+	public int closeExpiredConnectionsExcept(long expiration, Predicate<AbstractHttpConnection> retain) {
+		int count = 0;
+		AbstractHttpConnection connection = first;
+		while (connection != null) {
+			AbstractHttpConnection next = connection.next;
+			if (connection.poolTimestamp > expiration)
+				break; // connections must back ordered by activity
+			if (!retain.test(connection)) {
+				connection.close();
+				assert connection.prev == null && connection.next == null;
+				count++;
+			}
+			connection = next;
+		}
+		return count;
+	}
+
 	public void closeAllConnections() {
 		AbstractHttpConnection connection = first;
 		while (connection != null) {
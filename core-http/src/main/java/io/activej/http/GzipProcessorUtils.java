@@ -22,6 +22,7 @@ import io.activej.common.Checks;
 import io.activej.common.collection.ConcurrentStack;
 
 import java.util.function.Supplier;
+import java.util.zip.Adler32;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
@@ -36,10 +37,15 @@ public final class GzipProcessorUtils {
 	private static final boolean CHECK = Checks.isEnabled(GzipProcessorUtils.class);
 
 	// rfc 1952 section 2.3.1
-	private static final byte[] GZIP_HEADER = {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+	static final byte[] GZIP_HEADER = {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
 	private static final int GZIP_HEADER_SIZE = GZIP_HEADER.length;
 	private static final int GZIP_FOOTER_SIZE = 8;
 
+	// rfc 1950 section 2.2, 32K window and default compression
+	static final byte[] ZLIB_HEADER = {(byte) 0x78, (byte) 0x9c};
+	private static final int ZLIB_HEADER_SIZE = ZLIB_HEADER.length;
+	private static final int ZLIB_FOOTER_SIZE = 4;
+
 	private static final int FHCRC = 2;
 	private static final int FEXTRA = 4;
 	private static final int FNAME = 8;
@@ -81,9 +87,16 @@ public final class GzipProcessorUtils {
 	}
 
 	public static ByteBuf toGzip(ByteBuf src) {
+		return toGzip(src, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Compresses data into a <i>gzip</i> format (RFC 1952) with a given compression level
+	 */
+	public static ByteBuf toGzip(ByteBuf src, int level) {
 		if (CHECK) checkArgument(src.readRemaining() >= 0);
 
-		Deflater compressor = ensureCompressor();
+		Deflater compressor = ensureCompressor(level);
 		compressor.setInput(src.array(), src.head(), src.readRemaining());
 		compressor.finish();
 		int dataSize = src.readRemaining();
@@ -100,6 +113,30 @@ public final class GzipProcessorUtils {
 		return dst;
 	}
 
+	/**
+	 * Compresses data into a <i>zlib</i> format (RFC 1950) with a given compression level,
+	 * which is used by a {@code deflate} content coding
+	 */
+	public static ByteBuf toDeflate(ByteBuf src, int level) {
+		if (CHECK) checkArgument(src.readRemaining() >= 0);
+
+		Deflater compressor = ensureCompressor(level);
+		compressor.setInput(src.array(), src.head(), src.readRemaining());
+		compressor.finish();
+		int dataSize = src.readRemaining();
+		Adler32 adler32 = new Adler32();
+		adler32.update(src.array(), src.head(), dataSize);
+		int maxDataSize = estimateMaxCompressedSize(dataSize);
+		ByteBuf dst = ByteBufPool.allocate(ZLIB_HEADER_SIZE + maxDataSize + ZLIB_FOOTER_SIZE + SPARE_BYTES_COUNT);
+		dst.put(ZLIB_HEADER);
+		dst = writeCompressedData(compressor, src, dst);
+		dst.writeInt((int) adler32.getValue());
+
+		moveCompressorToPool(compressor);
+		src.recycle();
+		return dst;
+	}
+
 	private static int readExpectedInputSize(ByteBuf buf) throws MalformedHttpException {
 		// trailer size - 8 bytes. 4 bytes for CRC32, 4 bytes for ISIZE
 		check(buf.readRemaining() >= 8, buf, () -> new MalformedHttpException("Corrupted GZIP header"));
@@ -205,15 +242,20 @@ public final class GzipProcessorUtils {
 		decompressors.push(decompressor);
 	}
 
-	private static Deflater ensureCompressor() {
+	/**
+	 * Takes a pooled compressor of raw deflate data, which should be returned with {@link #moveCompressorToPool}
+	 */
+	static Deflater ensureCompressor(int level) {
 		Deflater compressor = compressors.pop();
 		if (compressor == null) {
-			compressor = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			compressor = new Deflater(level, true);
+		} else {
+			compressor.setLevel(level);
 		}
 		return compressor;
 	}
 
-	private static void moveCompressorToPool(Deflater compressor) {
+	static void moveCompressorToPool(Deflater compressor) {
 		compressor.reset();
 		compressors.push(compressor);
 	}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static io.activej.http.Hpack.*;
+
+/**
+ * Decoder of HPACK header blocks (RFC 7541) with its own dynamic table.
+ * <p>
+ * There is a single decoder per HTTP/2 connection, as the dynamic table
+ * is shared by all the header blocks received over the connection.
+ */
+final class HpackDecoder {
+	interface HeaderListener {
+		void onHeader(byte[] name, byte[] value) throws MalformedHttpException;
+	}
+
+	private final int maxTableSize;
+	private final int maxHeaderListSize;
+
+	// the newest entry is the last one
+	private final ArrayList<byte[]> names = new ArrayList<>();
+	private final ArrayList<byte[]> values = new ArrayList<>();
+	private int tableSize;
+	private int tableCapacity;
+
+	private byte[] array;
+	private int pos;
+	private int limit;
+
+	HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+		this.maxTableSize = maxTableSize;
+		this.maxHeaderListSize = maxHeaderListSize;
+		this.tableCapacity = maxTableSize;
+	}
+
+	int getTableSize() {
+		return tableSize;
+	}
+
+	int getTableLength() {
+		return names.size();
+	}
+
+	void decode(byte[] array, int offset, int length, HeaderListener listener) throws MalformedHttpException {
+		this.array = array;
+		this.pos = offset;
+		this.limit = offset + length;
+		int headerListSize = 0;
+		boolean headersStarted = false;
+		try {
+			while (pos < limit) {
+				int b = array[pos] & 0xFF;
+				byte[] name;
+				byte[] value;
+				if ((b & 0x80) != 0) {
+					int index = readInt(7);
+					if (index == 0) throw new MalformedHttpException("Invalid header index");
+					name = getName(index);
+					value = getValue(index);
+				} else if ((b & 0x40) != 0) {
+					int index = readInt(6);
+					name = index == 0 ? readString() : getName(index);
+					value = readString();
+					addEntry(name, value);
+				} else if ((b & 0x20) != 0) {
+					if (headersStarted) throw new MalformedHttpException("Dynamic table size update after headers");
+					int capacity = readInt(5);
+					if (capacity > maxTableSize) throw new MalformedHttpException("Dynamic table size exceeds its maximum");
+					tableCapacity = capacity;
+					evict(0);
+					continue;
+				} else {
+					int index = readInt(4);
+					name = index == 0 ? readString() : getName(index);
+					value = readString();
+				}
+				headersStarted = true;
+				headerListSize += name.length + value.length + ENTRY_OVERHEAD;
+				if (headerListSize > maxHeaderListSize) {
+					throw new MalformedHttpException("Header list exceeds its maximum size");
+				}
+				listener.onHeader(name, value);
+			}
+		} finally {
+			this.array = null;
+		}
+	}
+
+	private int readInt(int prefixBits) throws MalformedHttpException {
+		int mask = (1 << prefixBits) - 1;
+		int result = array[pos++] & mask;
+		if (result < mask) return result;
+		for (int shift = 0; ; shift += 7) {
+			if (pos == limit) throw new MalformedHttpException("Truncated header block");
+			if (shift > 21) throw new MalformedHttpException("Integer overflow in header block");
+			int b = array[pos++];
+			result += (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return result;
+		}
+	}
+
+	private byte[] readString() throws MalformedHttpException {
+		if (pos == limit) throw new MalformedHttpException("Truncated header block");
+		boolean huffman = (array[pos] & 0x80) != 0;
+		int length = readInt(7);
+		if (length > limit - pos) throw new MalformedHttpException("Truncated header block");
+		byte[] result = huffman ?
+				huffmanDecode(array, pos, length) :
+				Arrays.copyOfRange(array, pos, pos + length);
+		pos += length;
+		return result;
+	}
+
+	private byte[] getName(int index) throws MalformedHttpException {
+		if (index <= STATIC_TABLE_LENGTH) return STATIC_NAMES[index];
+		return names.get(dynamicIndex(index));
+	}
+
+	private byte[] getValue(int index) throws MalformedHttpException {
+		if (index <= STATIC_TABLE_LENGTH) return STATIC_VALUES[index];
+		return values.get(dynamicIndex(index));
+	}
+
+	private int dynamicIndex(int index) throws MalformedHttpException {
+		int i = index - STATIC_TABLE_LENGTH - 1;
+		if (i >= names.size()) throw new MalformedHttpException("Invalid header index");
+		return names.size() - 1 - i;
+	}
+
+	private void addEntry(byte[] name, byte[] value) {
+		int size = name.length + value.length + ENTRY_OVERHEAD;
+		evict(size);
+		if (size > tableCapacity) return;
+		names.add(name);
+		values.add(value);
+		tableSize += size;
+	}
+
+	private void evict(int required) {
+		int evicted = 0;
+		while (tableSize + required > tableCapacity && evicted < names.size()) {
+			tableSize -= names.get(evicted).length + values.get(evicted).length + ENTRY_OVERHEAD;
+			evicted++;
+		}
+		if (evicted != 0) {
+			names.subList(0, evicted).clear();
+			values.subList(0, evicted).clear();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.http.Hpack.*;
+import static java.lang.Math.max;
+
+/**
+ * Encoder of HPACK header blocks (RFC 7541).
+ * <p>
+ * It never adds entries to a dynamic table of a peer, so that the encoder
+ * keeps no state between header blocks. Header names are indexed using the static table
+ * and literal strings are Huffman encoded whenever it makes them shorter.
+ */
+final class HpackEncoder {
+	private static final Map<HttpHeader, Integer> STATIC_INDEXES = new HashMap<>();
+
+	static {
+		for (int i = FIRST_REGULAR_HEADER; i <= STATIC_TABLE_LENGTH; i++) {
+			STATIC_INDEXES.putIfAbsent(HttpHeaders.of(decodeAscii(STATIC_NAMES[i])), i);
+		}
+	}
+
+	private static final int[] STATUS_CODES = {200, 204, 206, 304, 400, 404, 500};
+
+	private byte[] nameBuffer = new byte[64];
+	private byte[] valueBuffer = new byte[256];
+
+	/**
+	 * Returns an upper bound of a size of an encoded header field
+	 */
+	static int estimateSize(HttpHeader header, HttpHeaderValue value) {
+		return header.size() + value.estimateSize() + 12;
+	}
+
+	static int estimateSize(byte[] value) {
+		return value.length + 12;
+	}
+
+	void encodeStatus(ByteBuf buf, int code) {
+		for (int i = 0; i < STATUS_CODES.length; i++) {
+			if (STATUS_CODES[i] == code) {
+				writeInt(buf, 0x80, 7, STATUS + i);
+				return;
+			}
+		}
+		byte[] value = {(byte) ('0' + code / 100 % 10), (byte) ('0' + code / 10 % 10), (byte) ('0' + code % 10)};
+		encodeLiteral(buf, STATUS, value);
+	}
+
+	void encodeIndexed(ByteBuf buf, int index) {
+		writeInt(buf, 0x80, 7, index);
+	}
+
+	void encodeLiteral(ByteBuf buf, int nameIndex, byte[] value) {
+		writeInt(buf, 0x00, 4, nameIndex);
+		writeString(buf, value, 0, value.length);
+	}
+
+	void encodeHeader(ByteBuf buf, HttpHeader header, HttpHeaderValue value) {
+		Integer index = STATIC_INDEXES.get(header);
+		if (index != null) {
+			writeInt(buf, 0x00, 4, index);
+		} else {
+			int length = header.size();
+			if (nameBuffer.length < length) {
+				nameBuffer = new byte[max(length, nameBuffer.length * 2)];
+			}
+			header.writeTo(nameBuffer, 0);
+			for (int i = 0; i < length; i++) {
+				byte b = nameBuffer[i];
+				if (b >= 'A' && b <= 'Z') {
+					nameBuffer[i] = (byte) (b + ('a' - 'A'));
+				}
+			}
+			buf.writeByte((byte) 0);
+			writeString(buf, nameBuffer, 0, length);
+		}
+		int estimatedSize = value.estimateSize();
+		if (valueBuffer.length < estimatedSize) {
+			valueBuffer = new byte[max(estimatedSize, valueBuffer.length * 2)];
+		}
+		int length = value.writeTo(valueBuffer, 0);
+		writeString(buf, valueBuffer, 0, length);
+	}
+
+	static void writeInt(ByteBuf buf, int flags, int prefixBits, int value) {
+		int mask = (1 << prefixBits) - 1;
+		if (value < mask) {
+			buf.writeByte((byte) (flags | value));
+			return;
+		}
+		buf.writeByte((byte) (flags | mask));
+		value -= mask;
+		while (value >= 0x80) {
+			buf.writeByte((byte) (value | 0x80));
+			value >>>= 7;
+		}
+		buf.writeByte((byte) value);
+	}
+
+	private static void writeString(ByteBuf buf, byte[] array, int offset, int length) {
+		int huffmanLength = huffmanEncodedLength(array, offset, length);
+		if (huffmanLength < length) {
+			writeInt(buf, 0x80, 7, huffmanLength);
+			huffmanEncode(array, offset, length, buf);
+		} else {
+			writeInt(buf, 0x00, 7, length);
+			buf.put(array, offset, length);
+		}
+	}
+}
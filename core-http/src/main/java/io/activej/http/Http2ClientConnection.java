@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpClient.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.Hpack.*;
+import static io.activej.http.HttpHeaders.HOST;
+import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
+import static io.activej.http.HttpMethod.GET;
+import static io.activej.http.HttpMethod.POST;
+import static io.activej.http.HttpUtils.translateToHttpException;
+import static io.activej.http.HttpVersion.HTTP_2_0;
+
+/**
+ * Client side of an HTTP/2 connection.
+ * <p>
+ * A single connection is shared by all of the requests to the same address,
+ * each request is sent over its own stream. Requests which exceed
+ * a limit of concurrent streams of a server are queued until some streams are closed.
+ */
+final class Http2ClientConnection extends AbstractHttp2Connection {
+	private static final byte[] PSEUDO_STATUS = encodeAscii(":status");
+	private static final byte[] ROOT_PATH = encodeAscii("/");
+
+	final InetSocketAddress remoteAddress;
+	private final AsyncHttpClient client;
+	@Nullable
+	private final Inspector inspector;
+
+	private final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+	private int nextStreamId = 1;
+
+	Http2ClientConnection(Eventloop eventloop, AsyncHttpClient client, AsyncTcpSocket asyncTcpSocket, InetSocketAddress remoteAddress) {
+		super(eventloop, asyncTcpSocket, client.maxBodySize);
+		this.remoteAddress = remoteAddress;
+		this.client = client;
+		this.inspector = client.inspector;
+	}
+
+	void connect() {
+		(pool = client.poolKeepAlive).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		ByteBuf preface = ByteBufPool.allocate(PREFACE.length);
+		preface.put(PREFACE);
+		socket.write(preface)
+				.whenException(e -> closeWithError(translateToHttpException(e)));
+		start();
+	}
+
+	/**
+	 * Returns {@code true} if new requests may be sent over this connection
+	 */
+	boolean isAvailable() {
+		return !isClosed() && !goAwayReceived && !goAwaySent && nextStreamId > 0 &&
+				(client.maxKeepAliveRequests == 0 || numberOfRequests < client.maxKeepAliveRequests);
+	}
+
+	/**
+	 * Sends the request over a new stream and recycles it
+	 *
+	 * @param request request for sending
+	 */
+	Promise<HttpResponse> send(HttpRequest request) {
+		assert isAvailable();
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		numberOfRequests++;
+		switchPool(client.poolReadWrite);
+		if (streams.size() >= peerMaxConcurrentStreams) {
+			pendingRequests.add(new PendingRequest(request, promise));
+		} else {
+			sendRequest(request, promise);
+			flush();
+		}
+		return promise;
+	}
+
+	private void sendRequest(HttpRequest request, SettablePromise<HttpResponse> promise) {
+		Http2Stream stream = openStream(nextStreamId);
+		nextStreamId += 2;
+		stream.promise = promise;
+
+		UrlParser url = request.getUrl();
+		String authority = request.getHeader(HOST);
+		if (authority == null) {
+			authority = url.getHostAndPort();
+		}
+		byte[] authorityBytes = authority != null ? encodeAscii(authority) : null;
+		byte[] path = encodeAscii(url.getPathAndQuery());
+
+		prepareBody(stream, request);
+		ByteBuf block = ByteBufPool.allocate(estimateHeadersSize(request) +
+				HpackEncoder.estimateSize(path) +
+				(authorityBytes != null ? HpackEncoder.estimateSize(authorityBytes) : 0) + 32);
+		HttpMethod method = request.getMethod();
+		if (method == GET) {
+			encoder.encodeIndexed(block, METHOD_GET);
+		} else if (method == POST) {
+			encoder.encodeIndexed(block, METHOD_POST);
+		} else {
+			encoder.encodeLiteral(block, METHOD_GET, method.bytes);
+		}
+		encoder.encodeIndexed(block, request.getProtocol().isSecure() ? SCHEME_HTTPS : SCHEME_HTTP);
+		if (authorityBytes != null) {
+			encoder.encodeLiteral(block, AUTHORITY, authorityBytes);
+		}
+		if (Arrays.equals(path, ROOT_PATH)) {
+			encoder.encodeIndexed(block, PATH);
+		} else {
+			encoder.encodeLiteral(block, PATH, path);
+		}
+		encodeHeaders(block, request);
+		request.recycle();
+		writeMessage(stream, block);
+	}
+
+	@Override
+	protected void onHeaders(int streamId, List<byte[]> fields, boolean endStream) throws MalformedHttpException {
+		Http2Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if ((streamId & 1) == 0 || streamId >= nextStreamId) {
+				throw connectionError(PROTOCOL_ERROR, "Invalid stream identifier");
+			}
+			// a stream has been reset already
+			return;
+		}
+		if (stream.response != null) {
+			// trailers, which are ignored
+			if (!endStream) throw connectionError(PROTOCOL_ERROR, "Unexpected HEADERS frame");
+			stream.remoteClosed = true;
+			completeResponse(stream);
+			closeStreamIfDone(stream);
+			return;
+		}
+		HttpResponse response = createResponse(fields);
+		if (response == null) {
+			resetStream(stream, PROTOCOL_ERROR, new MalformedHttpException("Malformed response headers"));
+			return;
+		}
+		if (response.getCode() < 200) {
+			// informational responses are skipped
+			response.recycle();
+			return;
+		}
+		stream.response = response;
+		if (endStream) {
+			stream.remoteClosed = true;
+			completeResponse(stream);
+			closeStreamIfDone(stream);
+		}
+	}
+
+	@Nullable
+	private HttpResponse createResponse(List<byte[]> fields) {
+		int code = -1;
+		int i = 0;
+		for (; i < fields.size(); i += 2) {
+			byte[] name = fields.get(i);
+			if (name.length == 0 || name[0] != ':') break;
+			byte[] value = fields.get(i + 1);
+			if (!Arrays.equals(name, PSEUDO_STATUS) || value.length != 3) return null;
+			code = 0;
+			for (byte b : value) {
+				if (b < '0' || b > '9') return null;
+				code = code * 10 + (b - '0');
+			}
+		}
+		if (code < 100) return null;
+
+		HttpResponse response = new HttpResponse(HTTP_2_0, code, null);
+		for (; i < fields.size(); i += 2) {
+			byte[] name = fields.get(i);
+			if (name.length != 0 && name[0] == ':' || response.headers.size() >= MAX_HEADERS) {
+				response.recycle();
+				return null;
+			}
+			response.addHeader(toHttpHeader(name), fields.get(i + 1));
+		}
+		return response;
+	}
+
+	@Override
+	protected void onData(Http2Stream stream, ByteBuf data, boolean endStream) {
+		if (stream.response == null) {
+			data.recycle();
+			resetStream(stream, PROTOCOL_ERROR, new MalformedHttpException("DATA frame before response headers"));
+			return;
+		}
+		if (!receiveData(stream, data)) return;
+		if (endStream) {
+			completeResponse(stream);
+		}
+	}
+
+	private void completeResponse(Http2Stream stream) {
+		HttpResponse response = stream.response;
+		SettablePromise<HttpResponse> promise = stream.promise;
+		if (response == null || promise == null) return;
+		stream.response = null;
+		stream.promise = null;
+
+		response.flags |= MUST_LOAD_BODY;
+		try {
+			response.body = takeBody(stream, response);
+		} catch (MalformedHttpException e) {
+			response.recycle();
+			promise.setException(e);
+			return;
+		}
+		if (inspector != null) inspector.onHttpResponse(response);
+		promise.set(response);
+		response.recycle();
+	}
+
+	@Override
+	protected void onStreamClosed(Http2Stream stream, @Nullable Throwable e) {
+		if (stream.response != null) {
+			stream.response.recycle();
+			stream.response = null;
+		}
+		SettablePromise<HttpResponse> promise = stream.promise;
+		if (promise != null) {
+			stream.promise = null;
+			promise.setException(e != null ? e : new HttpException("Stream has been closed without a response"));
+		}
+		if (isClosed()) return;
+		while (!pendingRequests.isEmpty() && streams.size() < peerMaxConcurrentStreams) {
+			PendingRequest pendingRequest = pendingRequests.poll();
+			sendRequest(pendingRequest.request, pendingRequest.promise);
+		}
+		if (streams.isEmpty()) {
+			onIdle();
+		}
+	}
+
+	private void onIdle() {
+		if (!isAvailable() || client.keepAliveTimeoutMillis == 0) {
+			flush();
+			close();
+		} else {
+			switchPool(client.poolKeepAlive);
+		}
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		HttpException e = new HttpException("Connection is going away");
+		for (Http2Stream stream : new ArrayList<>(streams.values())) {
+			if (stream.id > lastStreamId) {
+				resetStream(stream, REFUSED_STREAM, e);
+			}
+		}
+		failPendingRequests(e);
+		if (streams.isEmpty() && !isClosed()) {
+			flush();
+			close();
+		}
+	}
+
+	private void failPendingRequests(Throwable e) {
+		while (!pendingRequests.isEmpty()) {
+			PendingRequest pendingRequest = pendingRequests.poll();
+			pendingRequest.request.recycle();
+			pendingRequest.promise.setException(e);
+		}
+	}
+
+	@Override
+	protected int lastStreamId() {
+		// server push is disabled, so a server never initiates streams
+		return 0;
+	}
+
+	@Override
+	protected void onClosedWithError(@NotNull Throwable e) {
+		for (Http2Stream stream : new ArrayList<>(streams.values())) {
+			SettablePromise<HttpResponse> promise = stream.promise;
+			if (promise != null) {
+				stream.promise = null;
+				promise.setException(e);
+			}
+		}
+		failPendingRequests(e);
+	}
+
+	@Override
+	protected void onConnectionClosed() {
+		failPendingRequests(new HttpException("Connection has been closed"));
+		client.onHttp2ConnectionClosed(this);
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		client.onConnectionClosed();
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ClientConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", streams=" + streams.size() +
+				", pendingRequests=" + pendingRequests.size() +
+				", numberOfRequests=" + numberOfRequests +
+				super.toString() +
+				'}';
+	}
+
+	private static final class PendingRequest {
+		final HttpRequest request;
+		final SettablePromise<HttpResponse> promise;
+
+		PendingRequest(HttpRequest request, SettablePromise<HttpResponse> promise) {
+			this.request = request;
+			this.promise = promise;
+		}
+	}
+}
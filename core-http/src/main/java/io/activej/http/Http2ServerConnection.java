@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.Checks;
+import io.activej.common.exception.UncheckedException;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpServer.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.common.Checks.checkState;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
+import static io.activej.http.HttpVersion.HTTP_2_0;
+import static io.activej.http.Protocol.HTTP;
+import static io.activej.http.Protocol.HTTPS;
+
+/**
+ * Server side of an HTTP/2 connection.
+ * <p>
+ * It takes over a socket of {@link HttpServerConnection} once a connection preface is received,
+ * which is the case for both cleartext connections with prior knowledge and for
+ * SSL connections which negotiated "h2" protocol via ALPN.
+ * Each stream is served by a servlet of a server independently of other streams.
+ */
+final class Http2ServerConnection extends AbstractHttp2Connection {
+	private static final boolean CHECK = Checks.isEnabled(Http2ServerConnection.class);
+
+	private static final byte[] PSEUDO_METHOD = encodeAscii(":method");
+	private static final byte[] PSEUDO_SCHEME = encodeAscii(":scheme");
+	private static final byte[] PSEUDO_AUTHORITY = encodeAscii(":authority");
+	private static final byte[] PSEUDO_PATH = encodeAscii(":path");
+
+	private final InetAddress remoteAddress;
+	private final AsyncHttpServer server;
+	private final AsyncServlet servlet;
+	private final HttpServerConnection connection;
+	@Nullable
+	private final Inspector inspector;
+
+	private int lastStreamId;
+
+	/**
+	 * Creates a new instance of Http2ServerConnection
+	 *
+	 * @param connection an HTTP/1.1 connection which has received a connection preface,
+	 *                   it is used to identify this connection for an inspector of a server
+	 */
+	Http2ServerConnection(Eventloop eventloop, AsyncTcpSocket asyncTcpSocket, InetAddress remoteAddress,
+			AsyncHttpServer server, AsyncServlet servlet, HttpServerConnection connection) {
+		super(eventloop, asyncTcpSocket, server.maxBodySize);
+		this.remoteAddress = remoteAddress;
+		this.server = server;
+		this.servlet = servlet;
+		this.connection = connection;
+		this.inspector = server.inspector;
+	}
+
+	void serve() {
+		(pool = server.poolKeepAlive).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		start();
+	}
+
+	@Override
+	protected void onHeaders(int streamId, List<byte[]> fields, boolean endStream) throws MalformedHttpException {
+		Http2Stream stream = streams.get(streamId);
+		if (stream != null) {
+			// trailers, which are ignored
+			if (!endStream || stream.remoteClosed) throw connectionError(PROTOCOL_ERROR, "Unexpected HEADERS frame");
+			stream.remoteClosed = true;
+			serveStream(stream);
+			closeStreamIfDone(stream);
+			return;
+		}
+		if ((streamId & 1) == 0 || streamId <= lastStreamId) {
+			throw connectionError(PROTOCOL_ERROR, "Invalid stream identifier");
+		}
+		lastStreamId = streamId;
+
+		if (goAwaySent || streams.size() >= MAX_CONCURRENT_STREAMS || server.getCloseNotification().isComplete()) {
+			writeRstStream(streamId, REFUSED_STREAM);
+			return;
+		}
+
+		HttpRequest request = createRequest(fields);
+		if (request == null) {
+			writeRstStream(streamId, PROTOCOL_ERROR);
+			return;
+		}
+
+		stream = openStream(streamId);
+		stream.request = request;
+		numberOfRequests++;
+		if (server.maxKeepAliveRequests != 0 && numberOfRequests >= server.maxKeepAliveRequests) {
+			writeGoAway(lastStreamId, NO_ERROR);
+		}
+		if (pool != server.poolServing) {
+			switchPool(server.poolServing);
+		}
+
+		if (endStream) {
+			stream.remoteClosed = true;
+			serveStream(stream);
+		}
+	}
+
+	@Nullable
+	private HttpRequest createRequest(List<byte[]> fields) {
+		HttpMethod method = null;
+		byte[] path = null;
+		byte[] authority = null;
+		int i = 0;
+		for (; i < fields.size(); i += 2) {
+			byte[] name = fields.get(i);
+			if (name.length == 0 || name[0] != ':') break;
+			byte[] value = fields.get(i + 1);
+			if (Arrays.equals(name, PSEUDO_METHOD)) {
+				method = getHttpMethod(value);
+				if (method == null) return null;
+			} else if (Arrays.equals(name, PSEUDO_PATH)) {
+				path = value;
+			} else if (Arrays.equals(name, PSEUDO_AUTHORITY)) {
+				authority = value;
+			} else if (!Arrays.equals(name, PSEUDO_SCHEME)) {
+				return null;
+			}
+		}
+		if (method == null || path == null || path.length == 0) return null;
+
+		HttpRequest request;
+		try {
+			request = new HttpRequest(HTTP_2_0, method, UrlParser.parse(decodeAscii(path)), null);
+		} catch (MalformedHttpException e) {
+			return null;
+		}
+		request.maxBodySize = maxBodySize;
+		request.setProtocol(socket instanceof AsyncTcpSocketSsl ? HTTPS : HTTP);
+		request.setRemoteAddress(remoteAddress);
+		if (authority != null) {
+			request.addHeader(HOST, authority);
+		}
+		for (; i < fields.size(); i += 2) {
+			byte[] name = fields.get(i);
+			if (name.length != 0 && name[0] == ':' || request.headers.size() >= MAX_HEADERS) {
+				request.recycle();
+				return null;
+			}
+			HttpHeader header = toHttpHeader(name);
+			if (header == HOST && authority != null) continue;
+			request.addHeader(header, fields.get(i + 1));
+		}
+		return request;
+	}
+
+	@Nullable
+	private static HttpMethod getHttpMethod(byte[] value) {
+		for (HttpMethod method : HttpMethod.values()) {
+			if (method.compareTo(value, 0, value.length)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected void onData(Http2Stream stream, ByteBuf data, boolean endStream) {
+		if (stream.request == null) {
+			// a stream is being served already
+			data.recycle();
+			return;
+		}
+		if (!receiveData(stream, data)) return;
+		if (endStream) {
+			serveStream(stream);
+		}
+	}
+
+	private void serveStream(Http2Stream stream) {
+		HttpRequest request = stream.request;
+		if (request == null) return;
+		stream.request = null;
+
+		request.flags |= MUST_LOAD_BODY;
+		try {
+			request.body = takeBody(stream, request);
+		} catch (MalformedHttpException e) {
+			request.recycle();
+			resetStream(stream, PROTOCOL_ERROR, e);
+			return;
+		}
+		if (inspector != null) inspector.onHttpRequest(request);
+
+		Promise<HttpResponse> servletResult;
+		try {
+			servletResult = servlet.serveAsync(request);
+		} catch (UncheckedException u) {
+			servletResult = Promise.ofException(u.getCause());
+		}
+		servletResult.whenComplete((response, e) -> {
+			if (CHECK) checkState(eventloop.inEventloopThread());
+			if (isClosed() || stream.closed) {
+				request.recycle();
+				if (response != null) {
+					response.recycle();
+				}
+				return;
+			}
+			if (e == null) {
+				if (inspector != null) {
+					inspector.onHttpResponse(request, response);
+				}
+				writeResponse(stream, response);
+			} else {
+				if (inspector != null) {
+					inspector.onServletException(request, e);
+				}
+				writeResponse(stream, server.formatHttpError(e));
+			}
+			request.recycle();
+			flush();
+		});
+	}
+
+	private void writeResponse(Http2Stream stream, HttpResponse response) {
+		server.addServerHeaders(response);
+		prepareBody(stream, response);
+		ByteBuf block = ByteBufPool.allocate(estimateHeadersSize(response) + 16);
+		encoder.encodeStatus(block, response.getCode());
+		encodeHeaders(block, response);
+		response.recycle();
+		writeMessage(stream, block);
+	}
+
+	@Override
+	protected void onStreamClosed(Http2Stream stream, @Nullable Throwable e) {
+		if (stream.request != null) {
+			stream.request.recycle();
+			stream.request = null;
+		}
+		if (streams.isEmpty() && !isClosed()) {
+			onIdle();
+		}
+	}
+
+	private void onIdle() {
+		if (goAwaySent || goAwayReceived || server.keepAliveTimeoutMillis == 0) {
+			flush();
+			close();
+		} else {
+			switchPool(server.poolKeepAlive);
+		}
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		if (streams.isEmpty()) {
+			flush();
+			close();
+		}
+	}
+
+	@Override
+	protected int lastStreamId() {
+		return lastStreamId;
+	}
+
+	@Override
+	protected void onClosedWithError(@NotNull Throwable e) {
+		if (inspector != null) {
+			inspector.onHttpError(connection, e);
+		}
+	}
+
+	@Override
+	protected void onConnectionClosed() {
+		if (inspector != null) inspector.onDisconnect(connection);
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		server.onConnectionClosed();
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ServerConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", streams=" + streams.size() +
+				", lastStreamId=" + lastStreamId +
+				", numberOfRequests=" + numberOfRequests +
+				super.toString() +
+				'}';
+	}
+}
@@ -24,6 +24,7 @@ import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.queue.ChannelZeroBuffer;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.AsyncHttpClient.Inspector;
+import io.activej.http.PerMessageDeflate.Negotiated;
 import io.activej.http.stream.BufsConsumerGzipInflater;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promise;
@@ -36,8 +37,7 @@ import java.net.InetSocketAddress;
 import static io.activej.bytebuf.ByteBufStrings.SP;
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.csp.ChannelSuppliers.concat;
-import static io.activej.http.HttpHeaders.CONNECTION;
-import static io.activej.http.HttpHeaders.SEC_WEBSOCKET_KEY;
+import static io.activej.http.HttpHeaders.*;
 import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
 import static io.activej.http.HttpUtils.*;
 import static io.activej.http.WebSocketConstants.HANDSHAKE_FAILED;
@@ -265,6 +265,10 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 
 		byte[] encodedKey = generateWebSocketKey();
 		request.addHeader(SEC_WEBSOCKET_KEY, encodedKey);
+		PerMessageDeflate webSocketDeflate = client.webSocketDeflate;
+		if (webSocketDeflate != null) {
+			request.addHeader(SEC_WEBSOCKET_EXTENSIONS, webSocketDeflate.getOffer());
+		}
 
 		ChannelZeroBuffer<ByteBuf> buffer = new ChannelZeroBuffer<>();
 		request.setBodyStream(buffer.getSupplier());
@@ -282,14 +286,28 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 						closeWithError(HANDSHAKE_FAILED);
 						return Promise.ofException(HANDSHAKE_FAILED);
 					}
+					Negotiated deflate = null;
+					String extensions = res.getHeader(SEC_WEBSOCKET_EXTENSIONS);
+					if (webSocketDeflate != null) {
+						try {
+							deflate = webSocketDeflate.acceptResponse(extensions);
+						} catch (HttpException e) {
+							closeWithError(e);
+							return Promise.ofException(e);
+						}
+					} else if (extensions != null) {
+						closeWithError(HANDSHAKE_FAILED);
+						return Promise.ofException(HANDSHAKE_FAILED);
+					}
 					int maxWebSocketMessageSize = client.maxWebSocketMessageSize;
 
-					WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(true);
+					WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(true, deflate);
 					WebSocketBufsToFrames decoder = WebSocketBufsToFrames.create(
 							maxWebSocketMessageSize,
 							encoder::sendPong,
 							ByteBuf::recycle,
-							false);
+							false,
+							deflate);
 
 					bindWebSocketTransformers(encoder, decoder);
 
@@ -347,26 +365,34 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 
 		if ((flags & KEEP_ALIVE) != 0 && client.keepAliveTimeoutMillis != 0 && contentLength != UNSET_CONTENT_LENGTH) {
 			flags = 0;
-			socket.read()
-					.whenComplete((buf, e) -> {
-						if (e == null) {
-							if (buf != null) {
-								buf.recycle();
-								closeWithError(new HttpException("Unexpected read data"));
-							} else {
-								close();
-							}
-						} else {
-							closeWithError(translateToHttpException(e));
-						}
-					});
-			if (isClosed()) return;
-			client.returnToKeepAlivePool(this);
+			returnToKeepAlivePool();
 		} else {
 			close();
 		}
 	}
 
+	/**
+	 * Moves an idle connection to a keep-alive pool of a client, the connection is closed
+	 * as soon as a server closes it or sends unexpected data
+	 */
+	void returnToKeepAlivePool() {
+		socket.read()
+				.whenComplete((buf, e) -> {
+					if (e == null) {
+						if (buf != null) {
+							buf.recycle();
+							closeWithError(new HttpException("Unexpected read data"));
+						} else {
+							close();
+						}
+					} else {
+						closeWithError(translateToHttpException(e));
+					}
+				});
+		if (isClosed()) return;
+		client.returnToKeepAlivePool(this);
+	}
+
 	/**
 	 * Sends the request, recycles it and closes connection in case of timeout
 	 *
@@ -417,13 +443,7 @@ public final class HttpClientConnection extends AbstractHttpConnection {
 			this.promise = null;
 			promise.setException(new CloseException("Connection closed"));
 		}
-		if (pool == client.poolKeepAlive) {
-			AddressLinkedList addresses = client.addresses.get(remoteAddress);
-			addresses.removeNode(this);
-			if (addresses.isEmpty()) {
-				client.addresses.remove(remoteAddress);
-			}
-		}
+		client.releaseConnection(this);
 
 		// pool will be null if socket was closed by the value just before connection.send() invocation
 		// (eg. if connection was in open(null) or taken(null) states)
@@ -116,6 +116,7 @@ public final class HttpHeaders {
 	public static final HttpHeader SEC_WEBSOCKET_KEY = headers.register("Sec-WebSocket-Key");
 	public static final HttpHeader SEC_WEBSOCKET_ACCEPT = headers.register("Sec-WebSocket-Accept");
 	public static final HttpHeader SEC_WEBSOCKET_VERSION = headers.register("Sec-WebSocket-Version");
+	public static final HttpHeader SEC_WEBSOCKET_EXTENSIONS = headers.register("Sec-WebSocket-Extensions");
 
 	public static HttpHeader register(String headerName){
 		return headers.register(headerName);
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+import static io.activej.bytebuf.ByteBufStrings.*;
+
+/**
+ * An immutable block of HTTP headers which is encoded once and may be shared between many messages.
+ * <p>
+ * Headers of a template are written into a message with a single array copy,
+ * which saves encoding of headers that are the same for many responses,
+ * like {@code Server}, {@code Content-Type} or {@code Cache-Control}.
+ * <p>
+ * Headers of a template should not be added to a message separately, as that would duplicate them.
+ *
+ * @see HttpResponse#withHeaders(HttpHeadersTemplate)
+ */
+public final class HttpHeadersTemplate {
+	private static final HttpHeadersTemplate EMPTY = new HttpHeadersTemplate(new HttpHeader[0], new HttpHeaderValue[0], new byte[0]);
+
+	private final HttpHeader[] headers;
+	private final HttpHeaderValue[] values;
+	private final byte[] bytes;
+
+	private HttpHeadersTemplate(HttpHeader[] headers, HttpHeaderValue[] values, byte[] bytes) {
+		this.headers = headers;
+		this.values = values;
+		this.bytes = bytes;
+	}
+
+	public static HttpHeadersTemplate create() {
+		return EMPTY;
+	}
+
+	/**
+	 * Returns a copy of this template with an additional header
+	 */
+	public HttpHeadersTemplate withHeader(@NotNull HttpHeader header, @NotNull String value) {
+		return withHeader(header, HttpHeaderValue.ofBytes(encodeAscii(value)));
+	}
+
+	/**
+	 * Returns a copy of this template with an additional header
+	 */
+	public HttpHeadersTemplate withHeader(@NotNull HttpHeader header, @NotNull HttpHeaderValue value) {
+		HttpHeader[] headers = Arrays.copyOf(this.headers, this.headers.length + 1);
+		HttpHeaderValue[] values = Arrays.copyOf(this.values, this.values.length + 1);
+		headers[headers.length - 1] = header;
+		values[values.length - 1] = value;
+
+		// CR,LF,header,": ",value
+		byte[] bytes = Arrays.copyOf(this.bytes, this.bytes.length + 2 + header.size() + 2 + value.estimateSize());
+		int offset = writeHeader(bytes, this.bytes.length, header, value);
+		return new HttpHeadersTemplate(headers, values, offset == bytes.length ? bytes : Arrays.copyOf(bytes, offset));
+	}
+
+	/**
+	 * Returns a copy of this template with all the headers of another template appended
+	 */
+	public HttpHeadersTemplate withHeaders(@NotNull HttpHeadersTemplate template) {
+		if (template.headers.length == 0) return this;
+		if (headers.length == 0) return template;
+		HttpHeader[] headers = Arrays.copyOf(this.headers, this.headers.length + template.headers.length);
+		HttpHeaderValue[] values = Arrays.copyOf(this.values, this.values.length + template.values.length);
+		System.arraycopy(template.headers, 0, headers, this.headers.length, template.headers.length);
+		System.arraycopy(template.values, 0, values, this.values.length, template.values.length);
+		byte[] bytes = Arrays.copyOf(this.bytes, this.bytes.length + template.bytes.length);
+		System.arraycopy(template.bytes, 0, bytes, this.bytes.length, template.bytes.length);
+		return new HttpHeadersTemplate(headers, values, bytes);
+	}
+
+	@Nullable
+	HttpHeaderValue get(HttpHeader header) {
+		for (int i = 0; i < headers.length; i++) {
+			if (headers[i].equals(header)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	int getHeadersCount() {
+		return headers.length;
+	}
+
+	HttpHeader getHeader(int index) {
+		return headers[index];
+	}
+
+	HttpHeaderValue getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Returns an exact number of bytes written by this template
+	 */
+	int size() {
+		return bytes.length;
+	}
+
+	int writeTo(byte[] array, int offset) {
+		System.arraycopy(bytes, 0, array, offset, bytes.length);
+		return offset + bytes.length;
+	}
+
+	/**
+	 * Writes headers of this template except for the ones which a message sets by itself
+	 */
+	int writeTo(byte[] array, int offset, HttpMessage message) {
+		int i = 0;
+		while (i < headers.length && !message.hasOwnHeader(headers[i])) {
+			i++;
+		}
+		if (i == headers.length) return writeTo(array, offset);
+		for (i = 0; i < headers.length; i++) {
+			if (!message.hasOwnHeader(headers[i])) {
+				offset = writeHeader(array, offset, headers[i], values[i]);
+			}
+		}
+		return offset;
+	}
+
+	private static int writeHeader(byte[] array, int offset, HttpHeader header, HttpHeaderValue value) {
+		array[offset++] = CR;
+		array[offset++] = LF;
+		offset = header.writeTo(array, offset);
+		array[offset++] = (byte) ':';
+		array[offset++] = SP;
+		return value.writeTo(array, offset);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("HttpHeadersTemplate{");
+		for (int i = 0; i < headers.length; i++) {
+			if (i != 0) sb.append(", ");
+			sb.append(headers[i]).append(": ").append(values[i]);
+		}
+		return sb.append('}').toString();
+	}
+}
@@ -68,6 +68,8 @@ public abstract class HttpMessage {
 	byte flags;
 
 	final HttpHeadersMultimap<HttpHeader, HttpHeaderValue> headers = new HttpHeadersMultimap<>();
+	@Nullable HttpHeadersTemplate headersTemplate;
+	@Nullable HttpHeadersTemplate serverHeadersTemplate;
 	@Nullable ByteBuf body;
 	@Nullable ChannelSupplier<ByteBuf> bodyStream;
 	Recyclable bufs;
@@ -117,6 +119,19 @@ public abstract class HttpMessage {
 		headers.add(header, value);
 	}
 
+	/**
+	 * Sets a template of headers which are written along with headers of this message
+	 */
+	public void setHeadersTemplate(@NotNull HttpHeadersTemplate headersTemplate) {
+		if (CHECK) checkState(!isRecycled());
+		this.headersTemplate = headersTemplate;
+	}
+
+	@Nullable
+	public final HttpHeadersTemplate getHeadersTemplate() {
+		return headersTemplate;
+	}
+
 	public final Collection<Map.Entry<HttpHeader, HttpHeaderValue>> getHeaders() {
 		return headers.getEntries();
 	}
@@ -153,16 +168,36 @@ public abstract class HttpMessage {
 
 	@Nullable
 	public final String getHeader(@NotNull HttpHeader header) {
-		HttpHeaderValue headerValue = headers.get(header);
+		HttpHeaderValue headerValue = getHeaderValue(header);
 		return headerValue != null ? headerValue.toString() : null;
 	}
 
 	@Nullable
 	public final ByteBuf getHeaderBuf(@NotNull HttpHeader header) {
-		HttpHeaderValue headerBuf = headers.get(header);
+		HttpHeaderValue headerBuf = getHeaderValue(header);
 		return headerBuf != null ? headerBuf.getBuf() : null;
 	}
 
+	@Nullable
+	private HttpHeaderValue getHeaderValue(@NotNull HttpHeader header) {
+		HttpHeaderValue headerValue = headers.get(header);
+		if (headerValue == null && headersTemplate != null) {
+			headerValue = headersTemplate.get(header);
+		}
+		if (headerValue == null && serverHeadersTemplate != null) {
+			headerValue = serverHeadersTemplate.get(header);
+		}
+		return headerValue;
+	}
+
+	/**
+	 * Checks whether a header is set by this message or its own template,
+	 * in which case a header of a server template is not written
+	 */
+	final boolean hasOwnHeader(@NotNull HttpHeader header) {
+		return headers.get(header) != null || headersTemplate != null && headersTemplate.get(header) != null;
+	}
+
 	public void addCookies(@NotNull HttpCookie... cookies) {
 		if (CHECK) checkState(!isRecycled());
 		addCookies(Arrays.asList(cookies));
@@ -424,6 +459,12 @@ public abstract class HttpMessage {
 		if (CHECK) checkState(!isRecycled());
 		byte[] array = buf.array();
 		int offset = buf.tail();
+		if (serverHeadersTemplate != null) {
+			offset = serverHeadersTemplate.writeTo(array, offset, this);
+		}
+		if (headersTemplate != null) {
+			offset = headersTemplate.writeTo(array, offset);
+		}
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
 			HttpHeader k = (HttpHeader) headers.kvPairs[i];
 			if (k != null) {
@@ -446,6 +487,12 @@ public abstract class HttpMessage {
 	protected int estimateSize(int firstLineSize) {
 		if (CHECK) checkState(!isRecycled());
 		int size = firstLineSize;
+		if (serverHeadersTemplate != null) {
+			size += serverHeadersTemplate.size();
+		}
+		if (headersTemplate != null) {
+			size += headersTemplate.size();
+		}
 		// CR,LF,header,": ",value
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
 			HttpHeader k = (HttpHeader) headers.kvPairs[i];
@@ -22,12 +22,14 @@ import io.activej.common.api.WithInitializer;
 import io.activej.csp.ChannelSupplier;
 import io.activej.http.HttpHeaderValue.HttpHeaderValueOfSimpleCookies;
 import io.activej.http.MultipartDecoder.MultipartDataHandler;
+import io.activej.http.MultipartDecoder.MultipartPart;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -67,6 +69,9 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 	private final HttpServerConnection connection;
 	private InetAddress remoteAddress;
 	private Map<String, String> pathParameters;
+	private String[] pathParameterNames;
+	private int[] pathParameterPositions;
+	private int pathParameterCount;
 	private Map<String, String> queryParameters;
 	private Map<String, String> postParameters;
 
@@ -324,11 +329,21 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 
 	@NotNull
 	public Map<String, String> getPathParameters() {
+		decodePathParameters();
 		return pathParameters != null ? pathParameters : emptyMap();
 	}
 
 	@NotNull
 	public String getPathParameter(@NotNull String key) {
+		for (int i = pathParameterCount - 1; i >= 0; i--) {
+			if (pathParameterNames[i].equals(key)) {
+				String pathParameter = decodePathParameter(i);
+				if (pathParameter != null) {
+					return pathParameter;
+				}
+				break;
+			}
+		}
 		if (pathParameters != null) {
 			String pathParameter = pathParameters.get(key);
 			if (pathParameter != null) {
@@ -340,16 +355,41 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 
 	public Promise<Void> handleMultipart(MultipartDataHandler multipartDataHandler) {
 		if (CHECK) checkState(!isRecycled());
+		String boundary = getMultipartBoundary();
+		if (boundary == null) {
+			return Promise.ofException(HttpError.ofCode(400, "Content type is not multipart/form-data"));
+		}
+		return MultipartDecoder.create(boundary)
+				.split(getBodyStream(), multipartDataHandler);
+	}
+
+	/**
+	 * Returns a channel of parts of a multipart body, each part being streamed
+	 * from a body stream of this request as it is consumed.
+	 *
+	 * @see MultipartDecoder#parts(ChannelSupplier)
+	 */
+	public ChannelSupplier<MultipartPart> getMultipartParts() {
+		if (CHECK) checkState(!isRecycled());
+		String boundary = getMultipartBoundary();
+		if (boundary == null) {
+			return ChannelSupplier.ofException(HttpError.ofCode(400, "Content type is not multipart/form-data"));
+		}
+		return MultipartDecoder.create(boundary)
+				.parts(getBodyStream());
+	}
+
+	@Nullable
+	private String getMultipartBoundary() {
 		String contentType = getHeader(CONTENT_TYPE);
 		if (contentType == null || !contentType.startsWith("multipart/form-data; boundary=")) {
-			return Promise.ofException(HttpError.ofCode(400, "Content type is not multipart/form-data"));
+			return null;
 		}
 		String boundary = contentType.substring(30);
 		if (boundary.startsWith("\"") && boundary.endsWith("\"")) {
 			boundary = boundary.substring(1, boundary.length() - 1);
 		}
-		return MultipartDecoder.create(boundary)
-				.split(getBodyStream(), multipartDataHandler);
+		return boundary;
 	}
 
 	int getPos() {
@@ -376,12 +416,69 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 	}
 
 	void putPathParameter(String key, @NotNull String value) {
+		decodePathParameters();
 		if (pathParameters == null) {
 			pathParameters = new HashMap<>();
 		}
 		pathParameters.put(key, UrlParser.urlParse(value));
 	}
 
+	/**
+	 * Records a path parameter as a span of a raw URL, the value is decoded
+	 * only when it is requested
+	 */
+	void pushPathParameter(String key, int start, int end) {
+		if (pathParameterNames == null) {
+			pathParameterNames = new String[4];
+			pathParameterPositions = new int[8];
+		} else if (pathParameterCount == pathParameterNames.length) {
+			pathParameterNames = Arrays.copyOf(pathParameterNames, pathParameterCount * 2);
+			pathParameterPositions = Arrays.copyOf(pathParameterPositions, pathParameterCount * 4);
+		}
+		pathParameterNames[pathParameterCount] = key;
+		pathParameterPositions[pathParameterCount * 2] = start;
+		pathParameterPositions[pathParameterCount * 2 + 1] = end;
+		pathParameterCount++;
+	}
+
+	void popPathParameter() {
+		pathParameterNames[--pathParameterCount] = null;
+	}
+
+	@Nullable
+	private String decodePathParameter(int index) {
+		return UrlParser.urlParse(url.raw.substring(pathParameterPositions[index * 2], pathParameterPositions[index * 2 + 1]));
+	}
+
+	private void decodePathParameters() {
+		if (pathParameterCount == 0) return;
+		if (pathParameters == null) {
+			pathParameters = new HashMap<>();
+		}
+		for (int i = 0; i < pathParameterCount; i++) {
+			pathParameters.put(pathParameterNames[i], decodePathParameter(i));
+			pathParameterNames[i] = null;
+		}
+		pathParameterCount = 0;
+	}
+
+	/**
+	 * Returns a bodiless copy of this request which stays valid after this request is recycled,
+	 * a copy is routed independently of this request
+	 */
+	HttpRequest copyWithoutBody() {
+		HttpRequest copy = new HttpRequest(getVersion(), method, url.copy(), null);
+		copy.remoteAddress = remoteAddress;
+		for (Map.Entry<HttpHeader, HttpHeaderValue> entry : getHeaders()) {
+			copy.headers.add(entry.getKey(), HttpHeaderValue.of(entry.getValue().toString()));
+		}
+		decodePathParameters();
+		if (pathParameters != null) {
+			copy.pathParameters = new HashMap<>(pathParameters);
+		}
+		return copy;
+	}
+
 	@Override
 	protected int estimateSize() {
 		return estimateSize(LONGEST_HTTP_METHOD_SIZE
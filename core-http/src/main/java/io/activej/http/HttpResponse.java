@@ -252,8 +252,11 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 			offset = 0;
 		}
 		response.addHeader(CONTENT_LENGTH, Long.toString(contentLength));
-		response.setBodyStream(ChannelSupplier.ofPromise(downloader.getFileSlice(offset, contentLength)));
-		return Promise.of(response);
+		return downloader.getFileSlice(offset, contentLength)
+				.map(supplier -> {
+					response.setBodyStream(supplier);
+					return response;
+				});
 	}
 
 	@NotNull
@@ -281,6 +284,15 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 		return this;
 	}
 
+	/**
+	 * Attaches a template of precomputed headers to this response
+	 */
+	@NotNull
+	public HttpResponse withHeaders(@NotNull HttpHeadersTemplate headersTemplate) {
+		setHeadersTemplate(headersTemplate);
+		return this;
+	}
+
 	@NotNull
 	public HttpResponse withCookies(@NotNull List<HttpCookie> cookies) {
 		addCookies(cookies);
@@ -18,6 +18,7 @@ package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
 import io.activej.common.Utils;
@@ -34,10 +35,12 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 
 import static io.activej.bytebuf.ByteBufStrings.*;
 import static io.activej.common.Checks.checkState;
+import static io.activej.common.MemSize.kilobytes;
 import static io.activej.csp.ChannelSupplier.ofLazyProvider;
 import static io.activej.csp.ChannelSuppliers.concat;
 import static io.activej.http.HttpHeaderValue.ofBytes;
@@ -45,6 +48,7 @@ import static io.activej.http.HttpHeaderValue.ofDecimal;
 import static io.activej.http.HttpHeaders.*;
 import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
 import static io.activej.http.HttpMethod.*;
+import static io.activej.http.HttpUtils.translateToHttpException;
 import static io.activej.http.HttpVersion.HTTP_1_0;
 import static io.activej.http.HttpVersion.HTTP_1_1;
 import static io.activej.http.Protocol.*;
@@ -60,6 +64,7 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 	private static final boolean CHECK = Checks.isEnabled(HttpServerConnection.class);
 
 	private static final boolean DETAILED_ERROR_MESSAGES = ApplicationSettings.getBoolean(HttpServerConnection.class, "detailedErrorMessages", false);
+	private static final int SEPARATE_BODY_WRITE_THRESHOLD = ApplicationSettings.getMemSize(HttpServerConnection.class, "separateBodyWriteThreshold", kilobytes(8)).toInt();
 
 	private static final int HEADERS_SLOTS = 256;
 	private static final int MAX_PROBINGS = 2;
@@ -94,6 +99,18 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 	@Nullable
 	private ByteBuf writeBuf;
 
+	/**
+	 * Pipelined requests whose responses have not been sent yet, in order of their arrival.
+	 * It is {@code null} if pipelining is disabled
+	 */
+	@Nullable
+	private final ArrayDeque<PipelinedRequest> pipeline;
+	private boolean pipelinePaused;
+	private boolean pipelineClosing;
+	private boolean pipelineWriting;
+
+	private static final MalformedHttpException PIPELINED_WEB_SOCKET = new MalformedHttpException("WebSocket upgrade request cannot be pipelined");
+
 	private static final byte[] EXPECT_100_CONTINUE = encodeAscii("100-continue");
 	private static final byte[] EXPECT_RESPONSE_CONTINUE = encodeAscii("HTTP/1.1 100 Continue\r\n\r\n");
 
@@ -113,6 +130,7 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		this.servlet = servlet;
 		this.inspector = server.inspector;
 		this.charBuffer = charBuffer;
+		this.pipeline = server.pipeliningDepth > 1 ? new ArrayDeque<>() : null;
 	}
 
 	void serve() {
@@ -136,6 +154,17 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 
 	@Override
 	protected void readMessage() throws MalformedHttpException {
+		if (server.http2 && numberOfRequests == 0 && pool == server.poolNew) {
+			int matched = matchHttp2Preface();
+			if (matched == AbstractHttp2Connection.PREFACE.length) {
+				switchToHttp2();
+				return;
+			}
+			if (matched == readBufs.remainingBytes()) {
+				socket.read().whenComplete(readMessageConsumer);
+				return;
+			}
+		}
 		int loopCount = 0;
 		do {
 			loopCount++;
@@ -147,9 +176,16 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 			flags = READING_MESSAGES;
 			readStartLine();
 			if (isClosed()) return;
-		} while (isKeepAlive() && isBodyReceived() && isBodySent() && writeBuf != null && readBufs.hasRemaining());
+		} while (isKeepAlive() && isBodyReceived() && isBodySent() && (writeBuf != null || isPipelining()) && readBufs.hasRemaining());
 		flags &= ~READING_MESSAGES;
-		if (writeBuf != null && writeBuf.canRead()) {
+		if (isPipelining()) {
+			flushPipeline();
+			if (isClosed()) return;
+			resumePipeline();
+			if (isBodyReceived() && isBodySent()) {
+				onHttpMessageComplete();
+			}
+		} else if (writeBuf != null && writeBuf.canRead()) {
 			ByteBuf writeBuf = this.writeBuf;
 			this.writeBuf = loopCount > 1 ? ByteBufPool.allocate(writeBuf.readRemaining()) : null;
 			writeBuf(writeBuf);
@@ -158,6 +194,35 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		}
 	}
 
+	/**
+	 * Returns a number of received bytes which match HTTP/2 connection preface,
+	 * or -1 if received bytes are not a preface
+	 */
+	private int matchHttp2Preface() {
+		byte[] preface = AbstractHttp2Connection.PREFACE;
+		int size = Math.min(readBufs.remainingBytes(), preface.length);
+		for (int i = 0; i < size; i++) {
+			if (readBufs.peekByte(i) != preface[i]) return -1;
+		}
+		return size;
+	}
+
+	/**
+	 * Hands a socket of this connection over to an HTTP/2 connection, which is accounted
+	 * in the pools of a server instead of this one
+	 */
+	private void switchToHttp2() {
+		readBufs.skip(AbstractHttp2Connection.PREFACE.length);
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		flags |= CLOSED;
+		Http2ServerConnection connection = new Http2ServerConnection(eventloop, socket, remoteAddress, server, servlet, this);
+		readBufs.drainTo(connection.readBufs);
+		connection.serve();
+	}
+
 	@Override
 	protected void onClosedWithError(@NotNull Throwable e) {
 		if (inspector != null) {
@@ -283,22 +348,32 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		request.addHeader(header, array, off, len);
 	}
 
-	private void writeHttpResponse(HttpResponse httpResponse) {
-		boolean isWebSocket = isWebSocket();
-		if (!isWebSocket || httpResponse.getCode() != 101) {
-			HttpHeaderValue connectionHeader = (flags & KEEP_ALIVE) != 0 ? CONNECTION_KEEP_ALIVE_HEADER : CONNECTION_CLOSE_HEADER;
-			if (server.keepAliveTimeoutMillis == 0 ||
-					numberOfRequests >= server.maxKeepAliveRequests && server.maxKeepAliveRequests != 0) {
-				connectionHeader = CONNECTION_CLOSE_HEADER;
-			}
-			httpResponse.addHeader(CONNECTION, connectionHeader);
-
-			if (isWebSocket) {
-				// if web socket upgrade request was unsuccessful, it is not a web socket connection
-				flags &= ~WEB_SOCKET;
-			}
+	/**
+	 * Adds server headers and a connection header to a response, so that pipelined
+	 * and non-pipelined responses are rendered the same way.
+	 * A successful web socket upgrade response keeps its own connection header
+	 */
+	private void prepareHttpResponse(HttpResponse httpResponse, boolean keepAlive) {
+		server.addServerHeaders(httpResponse);
+		if (isWebSocket()) {
+			if (httpResponse.getCode() == 101) return;
+			// if web socket upgrade request was unsuccessful, it is not a web socket connection
+			flags &= ~WEB_SOCKET;
 		}
-		if (renderHttpResponse(httpResponse)) {
+		httpResponse.addHeader(CONNECTION, keepAlive ? CONNECTION_KEEP_ALIVE_HEADER : CONNECTION_CLOSE_HEADER);
+	}
+
+	private void writeHttpResponse(HttpResponse httpResponse) {
+		prepareHttpResponse(httpResponse, canKeepAlive());
+		ByteBuf body;
+		if ((flags & READING_MESSAGES) == 0 && (body = renderHttpResponseHeaders(httpResponse)) != null) {
+			ByteBufs bufs = new ByteBufs(2);
+			//noinspection ConstantConditions
+			bufs.add(this.writeBuf);
+			bufs.add(body);
+			this.writeBuf = null;
+			writeBufs(bufs);
+		} else if (renderHttpResponse(httpResponse)) {
 			if ((flags & READING_MESSAGES) != 0) {
 				flags |= BODY_SENT;
 			} else {
@@ -314,6 +389,11 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		httpResponse.recycle();
 	}
 
+	private boolean canKeepAlive() {
+		return (flags & KEEP_ALIVE) != 0 && server.keepAliveTimeoutMillis != 0 &&
+				(server.maxKeepAliveRequests == 0 || numberOfRequests < server.maxKeepAliveRequests);
+	}
+
 	@SuppressWarnings("ConstantConditions")
 		// writeBuf is ensured before accessing
 	boolean renderHttpResponse(HttpMessage httpMessage) {
@@ -352,6 +432,26 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		return false;
 	}
 
+	/**
+	 * Renders only headers of a message with a large body,
+	 * so that the body can be sent along with headers without being copied
+	 *
+	 * @return a body of a message or {@code null} if a message should be rendered as a whole
+	 */
+	@Nullable
+	private ByteBuf renderHttpResponseHeaders(HttpMessage httpMessage) {
+		ByteBuf body = httpMessage.body;
+		if (body == null || (httpMessage.flags & HttpMessage.USE_GZIP) != 0 || body.readRemaining() < SEPARATE_BODY_WRITE_THRESHOLD) {
+			return null;
+		}
+		httpMessage.body = null;
+		httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
+		ensureWriteBuffer(httpMessage.estimateSize());
+		//noinspection ConstantConditions
+		httpMessage.writeTo(writeBuf);
+		return body;
+	}
+
 	private void ensureWriteBuffer(int messageSize) {
 		if (writeBuf == null) {
 			writeBuf = ByteBufPool.allocate(messageSize);
@@ -369,6 +469,10 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		request.body = body;
 		request.bodyStream = bodySupplier;
 		if (isWebSocket()) {
+			if (isPipelining()) {
+				closeWithError(PIPELINED_WEB_SOCKET);
+				return;
+			}
 			if (!processWebSocketRequest(body)) return;
 		} else {
 			request.setProtocol(socket instanceof AsyncTcpSocketSsl ? HTTPS : HTTP);
@@ -387,6 +491,11 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		} catch (UncheckedException u) {
 			servletResult = Promise.ofException(u.getCause());
 		}
+		if (pipeline != null && (isPipelining() ||
+				!servletResult.isComplete() && body != null && !isWebSocket() && canKeepAlive() && readBufs.hasRemaining())) {
+			pipelineRequest(request, servletResult);
+			return;
+		}
 		servletResult.whenComplete((response, e) -> {
 			if (CHECK) checkState(eventloop.inEventloopThread());
 			if (isClosed()) {
@@ -413,6 +522,146 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		});
 	}
 
+	private boolean isPipelining() {
+		return pipeline != null && (!pipeline.isEmpty() || pipelineWriting);
+	}
+
+	/**
+	 * Queues a request whose response should be sent after responses to previous pipelined requests.
+	 * Subsequent requests are read while this one is being served,
+	 * unless the pipelining depth has been reached or the connection is not going to be kept alive.
+	 */
+	private void pipelineRequest(HttpRequest request, Promise<HttpResponse> servletResult) {
+		assert pipeline != null;
+		this.request = null;
+		PipelinedRequest pipelined = new PipelinedRequest(request, canKeepAlive());
+		pipeline.add(pipelined);
+		if (!pipelined.keepAlive) {
+			pipelineClosing = true;
+		} else if (pipeline.size() >= server.pipeliningDepth) {
+			pipelinePaused = true;
+		} else {
+			flags |= BODY_SENT;
+			switchPool(server.poolReadWrite);
+		}
+		servletResult.whenComplete((response, e) -> {
+			if (CHECK) checkState(eventloop.inEventloopThread());
+			if (isClosed()) {
+				request.recycle();
+				if (response != null) {
+					response.recycle();
+				}
+				return;
+			}
+			if (e == null) {
+				if (inspector != null) {
+					inspector.onHttpResponse(request, response);
+				}
+				pipelined.response = response;
+			} else {
+				if (inspector != null) {
+					inspector.onServletException(request, e);
+				}
+				pipelined.response = server.formatHttpError(e);
+			}
+			onPipelinedResponse();
+		});
+	}
+
+	private void onPipelinedResponse() {
+		assert pipeline != null;
+		flushPipeline();
+		if (isClosed() || (flags & READING_MESSAGES) != 0) return;
+		if (resumePipeline()) {
+			if (isBodyReceived()) {
+				onHttpMessageComplete();
+			}
+		} else if (!isPipelining() && !pipelinePaused && !pipelineClosing && pool == server.poolServing) {
+			// all of the pipelined requests have been served while waiting for a next request
+			if (server.keepAliveTimeoutMillis != 0) {
+				switchPool(server.poolKeepAlive);
+			} else {
+				close();
+			}
+		}
+	}
+
+	private boolean resumePipeline() {
+		assert pipeline != null;
+		if (!pipelinePaused || pipeline.size() >= server.pipeliningDepth) return false;
+		pipelinePaused = false;
+		flags |= BODY_SENT;
+		switchPool(server.poolReadWrite);
+		return true;
+	}
+
+	/**
+	 * Sends responses to pipelined requests which have been served, in order of requests.
+	 * Responses without streamed bodies are coalesced into a single write
+	 */
+	private void flushPipeline() {
+		assert pipeline != null;
+		if ((flags & READING_MESSAGES) != 0) return;
+		while (!pipelineWriting) {
+			PipelinedRequest pipelined = pipeline.peek();
+			if (pipelined == null || pipelined.response == null) break;
+			pipeline.poll();
+			HttpResponse response = pipelined.response;
+			prepareHttpResponse(response, pipelined.keepAlive);
+			if (renderHttpResponse(response)) {
+				response.recycle();
+				pipelined.request.recycle();
+				if (!pipelined.keepAlive) {
+					ByteBuf writeBuf = this.writeBuf;
+					this.writeBuf = null;
+					//noinspection ConstantConditions
+					socket.write(writeBuf)
+							.whenComplete(($, e) -> {
+								if (e == null) {
+									close();
+								} else {
+									closeWithError(translateToHttpException(e));
+								}
+							});
+					return;
+				}
+			} else {
+				ByteBuf writeBuf = this.writeBuf;
+				this.writeBuf = null;
+				pipelineWriting = true;
+				writeHttpMessageAsStream(writeBuf, response, ($, e) -> {
+					if (isClosed()) return;
+					if (e != null) {
+						closeWithError(translateToHttpException(e));
+					} else if (!pipelined.keepAlive) {
+						close();
+					} else {
+						pipelineWriting = false;
+						onPipelinedResponse();
+					}
+				});
+				response.recycle();
+				pipelined.request.recycle();
+				return;
+			}
+		}
+		if (writeBuf != null) {
+			ByteBuf writeBuf = this.writeBuf;
+			this.writeBuf = null;
+			if (writeBuf.canRead()) {
+				socket.write(writeBuf)
+						.whenException(e -> closeWithError(translateToHttpException(e)));
+			} else {
+				writeBuf.recycle();
+			}
+		}
+	}
+
+	@Nullable
+	PerMessageDeflate getWebSocketDeflate() {
+		return server.webSocketDeflate;
+	}
+
 	@SuppressWarnings("ConstantConditions")
 	private boolean processWebSocketRequest(@Nullable ByteBuf body) {
 		if (body != null && body.readRemaining() == 0) {
@@ -459,7 +708,8 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		if (isWebSocket()) return;
 
 		if ((flags & KEEP_ALIVE) != 0 && server.keepAliveTimeoutMillis != 0) {
-			switchPool(server.poolKeepAlive);
+			// a connection which still serves pipelined requests is not idle
+			switchPool(isPipelining() ? server.poolServing : server.poolKeepAlive);
 
 			if (socket.isReadAvailable()) {
 				socket.read().whenResult(readBufs::add);
@@ -492,6 +742,28 @@ public final class HttpServerConnection extends AbstractHttpConnection {
 		assert (pool = null) == null;
 		server.onConnectionClosed();
 		writeBuf = Utils.nullify(writeBuf, ByteBuf::recycle);
+		if (pipeline != null) {
+			// requests which are still being served are recycled once a servlet completes
+			for (PipelinedRequest pipelined : pipeline) {
+				if (pipelined.response != null) {
+					pipelined.request.recycle();
+					pipelined.response.recycle();
+				}
+			}
+			pipeline.clear();
+		}
+	}
+
+	private static final class PipelinedRequest {
+		final HttpRequest request;
+		final boolean keepAlive;
+		@Nullable
+		HttpResponse response;
+
+		PipelinedRequest(HttpRequest request, boolean keepAlive) {
+			this.request = request;
+			this.keepAlive = keepAlive;
+		}
 	}
 
 	@Override
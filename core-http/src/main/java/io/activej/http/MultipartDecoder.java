@@ -24,6 +24,7 @@ import io.activej.common.exception.InvalidSizeException;
 import io.activej.common.exception.MalformedDataException;
 import io.activej.common.recycle.Recyclable;
 import io.activej.common.ref.Ref;
+import io.activej.csp.AbstractChannelSupplier;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelConsumers;
 import io.activej.csp.ChannelSupplier;
@@ -83,24 +84,32 @@ public final class MultipartDecoder implements ByteBufsDecoder<MultipartFrame> {
 	}
 
 	private Promise<Map<String, String>> getContentDispositionFields(MultipartFrame frame) {
+		try {
+			return Promise.of(parseContentDisposition(frame));
+		} catch (MalformedHttpException e) {
+			return Promise.ofException(e);
+		}
+	}
+
+	private static Map<String, String> parseContentDisposition(MultipartFrame frame) throws MalformedHttpException {
 		Map<String, String> headers = frame.getHeaders();
 		assert headers != null;
 		String header = headers.get("content-disposition");
 		if (header == null) {
-			return Promise.ofException(new MalformedHttpException("Headers had no Content-Disposition"));
+			throw new MalformedHttpException("Headers had no Content-Disposition");
 		}
 		String[] headerParts = header.split(";");
 		if (headerParts.length == 0 || !"form-data".equals(headerParts[0].trim())) {
-			return Promise.ofException(new MalformedHttpException("Content-Disposition type is not 'form-data'"));
+			throw new MalformedHttpException("Content-Disposition type is not 'form-data'");
 		}
-		return Promise.of(Arrays.stream(headerParts)
+		return Arrays.stream(headerParts)
 				.skip(1)
 				.map(part -> part.trim().split("=", 2))
 				.collect(toMap(s -> s[0], s -> {
 					String value = s.length == 1 ? "" : s[1];
 					// stripping double quotation
 					return value.substring(1, value.length() - 1);
-				})));
+				}));
 	}
 
 	private Promise<Void> doSplit(MultipartFrame headerFrame, ChannelSupplier<MultipartFrame> frames,
@@ -151,6 +160,17 @@ public final class MultipartDecoder implements ByteBufsDecoder<MultipartFrame> {
 				});
 	}
 
+	/**
+	 * Converts a binary channel into a channel of multipart parts, bodies of which
+	 * are streamed directly from the source channel without being buffered.
+	 * <p>
+	 * A body of a part should be consumed before the next part is requested,
+	 * otherwise the rest of the body is skipped. Closing a body of a part closes the whole channel.
+	 */
+	public ChannelSupplier<MultipartPart> parts(ChannelSupplier<ByteBuf> source) {
+		return new PartsSupplier(BinaryChannelSupplier.of(source).decodeStream(this));
+	}
+
 	private boolean sawCrlf = true;
 	private boolean finished = false;
 
@@ -289,6 +309,149 @@ public final class MultipartDecoder implements ByteBufsDecoder<MultipartFrame> {
 		}
 	}
 
+	/**
+	 * A single part of a multipart body, which consists of headers and a body stream
+	 */
+	public static final class MultipartPart {
+		private final Map<String, String> headers;
+		@Nullable
+		private final String fieldName;
+		@Nullable
+		private final String fileName;
+		private final ChannelSupplier<ByteBuf> body;
+
+		private MultipartPart(Map<String, String> headers, @Nullable String fieldName, @Nullable String fileName, ChannelSupplier<ByteBuf> body) {
+			this.headers = headers;
+			this.fieldName = fieldName;
+			this.fileName = fileName;
+			this.body = body;
+		}
+
+		/**
+		 * Returns headers of this part, names of which are in lower case
+		 */
+		public Map<String, String> getHeaders() {
+			return headers;
+		}
+
+		@Nullable
+		public String getHeader(String name) {
+			return headers.get(name.toLowerCase());
+		}
+
+		@Nullable
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		@Nullable
+		public String getFileName() {
+			return fileName;
+		}
+
+		public boolean isFile() {
+			return fileName != null;
+		}
+
+		public ChannelSupplier<ByteBuf> getBodyStream() {
+			return body;
+		}
+
+		@Override
+		public String toString() {
+			return "MultipartPart{" +
+					"fieldName=" + fieldName +
+					", fileName=" + fileName +
+					'}';
+		}
+	}
+
+	private static final class PartsSupplier extends AbstractChannelSupplier<MultipartPart> {
+		private final ChannelSupplier<MultipartFrame> frames;
+
+		@Nullable
+		private PartBody currentBody;
+		@Nullable
+		private MultipartFrame nextHeaders;
+
+		PartsSupplier(ChannelSupplier<MultipartFrame> frames) {
+			super(frames);
+			this.frames = frames;
+		}
+
+		@Override
+		protected Promise<MultipartPart> doGet() {
+			PartBody body = currentBody;
+			if (body == null) {
+				return frames.get()
+						.then(frame -> {
+							if (frame == null) {
+								return Promise.of(null);
+							}
+							if (frame.isHeaders()) {
+								return toPart(frame);
+							}
+							frame.recycle();
+							Exception e = new MalformedHttpException("First frame had no headers");
+							closeEx(e);
+							return Promise.ofException(e);
+						});
+			}
+			if (!body.ended) {
+				return body.streamTo(ChannelConsumers.recycling())
+						.then(this::doGet);
+			}
+			MultipartFrame headers = nextHeaders;
+			if (headers == null) {
+				return Promise.of(null);
+			}
+			nextHeaders = null;
+			return toPart(headers);
+		}
+
+		private Promise<MultipartPart> toPart(MultipartFrame headers) {
+			Map<String, String> contentDispositionFields;
+			try {
+				contentDispositionFields = parseContentDisposition(headers);
+			} catch (MalformedHttpException e) {
+				closeEx(e);
+				return Promise.ofException(e);
+			}
+			PartBody body = new PartBody();
+			currentBody = body;
+			return Promise.of(new MultipartPart(headers.getHeaders(),
+					contentDispositionFields.get("name"), contentDispositionFields.get("filename"), body));
+		}
+
+		private final class PartBody extends AbstractChannelSupplier<ByteBuf> {
+			boolean ended;
+
+			PartBody() {
+				super(frames);
+			}
+
+			@Override
+			protected Promise<ByteBuf> doGet() {
+				if (ended) {
+					return Promise.of(null);
+				}
+				return frames.get()
+						.map(frame -> {
+							if (frame == null) {
+								ended = true;
+								return null;
+							}
+							if (frame.isHeaders()) {
+								ended = true;
+								nextHeaders = frame;
+								return null;
+							}
+							return frame.getData();
+						});
+			}
+		}
+	}
+
 	public interface MultipartDataHandler {
 		Promise<? extends ChannelConsumer<ByteBuf>> handleField(String fieldName);
 
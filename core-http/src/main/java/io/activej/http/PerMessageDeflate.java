@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.zip.Deflater;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * Settings of a <i>permessage-deflate</i> web socket extension (RFC 7692).
+ * <p>
+ * An extension is negotiated during an opening handshake. Once negotiated, data messages
+ * which are at least {@link #withMinMessageSize min message size} long are compressed, each fragment
+ * of a message being compressed and decompressed as it is sent or received.
+ * <p>
+ * Compression contexts are kept between messages unless a peer requests otherwise,
+ * which may be disabled for either side to reduce memory consumed by each web socket.
+ * Window size of compression context cannot be reduced, so offers which require it are declined.
+ */
+public final class PerMessageDeflate {
+	public static final int DEFAULT_LEVEL = ApplicationSettings.getInt(PerMessageDeflate.class, "level", Deflater.DEFAULT_COMPRESSION);
+	public static final MemSize DEFAULT_MIN_MESSAGE_SIZE = ApplicationSettings.getMemSize(PerMessageDeflate.class, "minMessageSize", MemSize.bytes(64));
+
+	static final String EXTENSION_NAME = "permessage-deflate";
+	private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+	private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+	private static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+	private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+	private static final String MAX_WINDOW_BITS = "15";
+
+	private int level = DEFAULT_LEVEL;
+	private int minMessageSize = DEFAULT_MIN_MESSAGE_SIZE.toInt();
+	private boolean serverNoContextTakeover;
+	private boolean clientNoContextTakeover;
+
+	private PerMessageDeflate() {
+	}
+
+	public static PerMessageDeflate create() {
+		return new PerMessageDeflate();
+	}
+
+	/**
+	 * @param level compression level of {@link Deflater}
+	 */
+	public PerMessageDeflate withLevel(int level) {
+		checkArgument(level == Deflater.DEFAULT_COMPRESSION || level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION,
+				"Invalid compression level");
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Messages whose first fragment is shorter than given size are sent uncompressed
+	 */
+	public PerMessageDeflate withMinMessageSize(MemSize minMessageSize) {
+		this.minMessageSize = minMessageSize.toInt();
+		return this;
+	}
+
+	/**
+	 * A server resets its compression context after each message
+	 */
+	public PerMessageDeflate withServerNoContextTakeover() {
+		this.serverNoContextTakeover = true;
+		return this;
+	}
+
+	/**
+	 * A client resets its compression context after each message
+	 */
+	public PerMessageDeflate withClientNoContextTakeover() {
+		this.clientNoContextTakeover = true;
+		return this;
+	}
+
+	// region negotiation
+	String getOffer() {
+		StringBuilder sb = new StringBuilder(EXTENSION_NAME);
+		if (serverNoContextTakeover) sb.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+		if (clientNoContextTakeover) sb.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+		return sb.toString();
+	}
+
+	/**
+	 * Chooses the first acceptable offer of a client
+	 *
+	 * @param offers value of a {@code Sec-WebSocket-Extensions} header of a request
+	 * @return negotiated parameters, or {@code null} if none of the offers are acceptable
+	 */
+	@Nullable
+	Negotiated acceptOffer(@Nullable String offers) {
+		if (offers == null) return null;
+		nextOffer:
+		for (String offer : offers.split(",")) {
+			String[] params = offer.split(";");
+			if (!EXTENSION_NAME.equalsIgnoreCase(params[0].trim())) continue;
+			boolean noContextTakeover = serverNoContextTakeover;
+			for (int i = 1; i < params.length; i++) {
+				String param = params[i].trim();
+				int eq = param.indexOf('=');
+				String name = (eq == -1 ? param : param.substring(0, eq)).trim();
+				String value = eq == -1 ? null : unquote(param.substring(eq + 1).trim());
+				if (SERVER_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(name) && value == null) {
+					noContextTakeover = true;
+				} else if (SERVER_MAX_WINDOW_BITS.equalsIgnoreCase(name)) {
+					if (!MAX_WINDOW_BITS.equals(value)) continue nextOffer;
+				} else if (!CLIENT_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(name) && !CLIENT_MAX_WINDOW_BITS.equalsIgnoreCase(name)) {
+					continue nextOffer;
+				}
+			}
+			StringBuilder response = new StringBuilder(EXTENSION_NAME);
+			if (noContextTakeover) response.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+			if (clientNoContextTakeover) response.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+			return new Negotiated(level, minMessageSize, noContextTakeover, response.toString());
+		}
+		return null;
+	}
+
+	/**
+	 * Validates a response of a server to the offer of this client
+	 *
+	 * @param response value of a {@code Sec-WebSocket-Extensions} header of a response
+	 * @return negotiated parameters, or {@code null} if a server has not accepted an extension
+	 * @throws HttpException if a server has responded with parameters which were not offered
+	 */
+	@Nullable
+	Negotiated acceptResponse(@Nullable String response) throws HttpException {
+		if (response == null || response.trim().isEmpty()) return null;
+		String[] params = response.split(";");
+		if (response.indexOf(',') != -1 || !EXTENSION_NAME.equalsIgnoreCase(params[0].trim())) {
+			throw new HttpException("Server responded with an extension that was not offered: " + response);
+		}
+		boolean noContextTakeover = clientNoContextTakeover;
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i].trim();
+			int eq = param.indexOf('=');
+			String name = (eq == -1 ? param : param.substring(0, eq)).trim();
+			if (CLIENT_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(name)) {
+				noContextTakeover = true;
+			} else if (!SERVER_NO_CONTEXT_TAKEOVER.equalsIgnoreCase(name) && !SERVER_MAX_WINDOW_BITS.equalsIgnoreCase(name)) {
+				throw new HttpException("Unexpected permessage-deflate parameter: " + param);
+			}
+		}
+		return new Negotiated(level, minMessageSize, noContextTakeover, response);
+	}
+
+	private static String unquote(String value) {
+		return value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"' ?
+				value.substring(1, value.length() - 1) :
+				value;
+	}
+	// endregion
+
+	/**
+	 * Parameters of an extension negotiated for a single web socket
+	 */
+	static final class Negotiated {
+		final int level;
+		final int minMessageSize;
+		final boolean noContextTakeover;
+		final String header;
+
+		Negotiated(int level, int minMessageSize, boolean noContextTakeover, String header) {
+			this.level = level;
+			this.minMessageSize = minMessageSize;
+			this.noContextTakeover = noContextTakeover;
+			this.header = header;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PerMessageDeflate{" +
+				"level=" + level +
+				", minMessageSize=" + minMessageSize +
+				", serverNoContextTakeover=" + serverNoContextTakeover +
+				", clientNoContextTakeover=" + clientNoContextTakeover +
+				'}';
+	}
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.api.WithInitializer;
+import io.activej.common.exception.UncheckedException;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.jmx.EventloopJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.jmx.stats.EventStats;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+import static io.activej.common.Checks.checkState;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.HttpMessage.USE_GZIP;
+import static io.activej.http.HttpMethod.GET;
+
+/**
+ * A servlet decorator which caches responses of {@code GET} requests in memory.
+ * <p>
+ * A response is cached for a time specified by {@code s-maxage} or {@code max-age} directives
+ * of its {@code Cache-Control} header, or for a {@link #withDefaultTtl default time} if there are none.
+ * Responses which are private, have cookies or streamed bodies, as well as responses
+ * to requests with {@code Authorization} header are never cached.
+ * Responses with {@code Vary} header are cached separately for each combination of the listed request headers.
+ * <p>
+ * Headers of a cached response are kept as a {@link HttpHeadersTemplate} and its body as an array,
+ * so a hit is served without encoding headers or copying a body.
+ * Concurrent misses of the same key are coalesced, so a servlet is called once for all of them.
+ * Within a {@link #withStaleWhileRevalidate stale-while-revalidate} period an expired response
+ * is still served while it is being refreshed in background.
+ * <p>
+ * Least recently used responses are evicted once a total size of cached responses exceeds a maximum size.
+ * An instance should be used from the thread of its eventloop.
+ */
+public final class ResponseCache implements AsyncServletDecorator, EventloopJmxBean, WithInitializer<ResponseCache> {
+	public static final MemSize DEFAULT_MAX_SIZE = ApplicationSettings.getMemSize(ResponseCache.class, "maxSize", MemSize.megabytes(64));
+	public static final MemSize DEFAULT_MAX_ENTRY_SIZE = ApplicationSettings.getMemSize(ResponseCache.class, "maxEntrySize", MemSize.megabytes(1));
+	public static final Duration DEFAULT_TTL = ApplicationSettings.getDuration(ResponseCache.class, "defaultTtl", Duration.ZERO);
+	public static final Duration DEFAULT_STALE_WHILE_REVALIDATE = ApplicationSettings.getDuration(ResponseCache.class, "staleWhileRevalidate", Duration.ZERO);
+
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+
+	private final Eventloop eventloop;
+
+	private long maxSize = DEFAULT_MAX_SIZE.toLong();
+	private int maxEntrySize = DEFAULT_MAX_ENTRY_SIZE.toInt();
+	private long defaultTtlMillis = DEFAULT_TTL.toMillis();
+	private long staleWhileRevalidateMillis = DEFAULT_STALE_WHILE_REVALIDATE.toMillis();
+	private Function<HttpRequest, String> keyFn = HttpRequest::getPathAndQuery;
+	private HttpHeader[] keyHeaders = new HttpHeader[0];
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, VaryInfo> varies = new HashMap<>();
+	// promises of loaded entries, which are completed with null if a response is not cached
+	private final Map<String, Promise<Entry>> loading = new HashMap<>();
+	private long cachedBytes;
+
+	// region JMX
+	private final EventStats hits = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats staleHits = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats misses = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats coalesced = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats uncacheable = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats evictions = EventStats.create(SMOOTHING_WINDOW);
+	// endregion
+
+	private ResponseCache(Eventloop eventloop) {
+		this.eventloop = eventloop;
+	}
+
+	public static ResponseCache create(Eventloop eventloop) {
+		return new ResponseCache(eventloop);
+	}
+
+	/**
+	 * Sets a maximum total size of cached responses, which should not be less than a maximum entry size
+	 */
+	public ResponseCache withMaxSize(@NotNull MemSize maxSize) {
+		this.maxSize = maxSize.toLong();
+		return this;
+	}
+
+	/**
+	 * Sets a maximum size of a body of a response which may be cached
+	 */
+	public ResponseCache withMaxEntrySize(@NotNull MemSize maxEntrySize) {
+		this.maxEntrySize = maxEntrySize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets a time for which responses without {@code max-age} directive are cached,
+	 * a zero time means that only responses with explicit {@code max-age} are cached
+	 */
+	public ResponseCache withDefaultTtl(@NotNull Duration defaultTtl) {
+		this.defaultTtlMillis = defaultTtl.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a time for which an expired response is served while it is refreshed,
+	 * unless a response specifies it with its own {@code stale-while-revalidate} directive
+	 */
+	public ResponseCache withStaleWhileRevalidate(@NotNull Duration staleWhileRevalidate) {
+		this.staleWhileRevalidateMillis = staleWhileRevalidate.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a function which returns a key of a request, a path with a query by default
+	 */
+	public ResponseCache withKey(@NotNull Function<HttpRequest, String> keyFn) {
+		this.keyFn = keyFn;
+		return this;
+	}
+
+	/**
+	 * Adds values of given request headers to a key of a request,
+	 * like {@code Host} for servers which serve several hosts
+	 */
+	public ResponseCache withKeyHeaders(@NotNull HttpHeader... keyHeaders) {
+		this.keyHeaders = keyHeaders;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public AsyncServlet serve(@NotNull AsyncServlet servlet) {
+		checkState(maxEntrySize <= maxSize, "Max entry size should not be greater than max size");
+		return request -> serve(servlet, request);
+	}
+
+	private Promise<HttpResponse> serve(AsyncServlet servlet, HttpRequest request) {
+		if (request.getMethod() != GET || request.getHeader(AUTHORIZATION) != null) {
+			return servlet.serveAsync(request);
+		}
+		String cacheControl = request.getHeader(CACHE_CONTROL);
+		if (cacheControl != null && hasDirective(cacheControl, "no-store")) {
+			return servlet.serveAsync(request);
+		}
+
+		String baseKey = getBaseKey(request);
+		VaryInfo varyInfo = varies.get(baseKey);
+		String key = varyInfo != null ? getVaryKey(baseKey, varyInfo.headers, request) : baseKey;
+
+		if (cacheControl != null && hasDirective(cacheControl, "no-cache")) {
+			// a response is refreshed, unless it is being loaded already
+			if (loading.containsKey(key)) return servlet.serveAsync(request);
+			misses.recordEvent();
+			return load(servlet, request, baseKey, key);
+		}
+
+		long now = eventloop.currentTimeMillis();
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			if (now < entry.expiresAt) {
+				hits.recordEvent();
+				return Promise.of(entry.toResponse(now));
+			}
+			if (now < entry.staleUntil) {
+				staleHits.recordEvent();
+				if (!loading.containsKey(key)) {
+					load(servlet, request.copyWithoutBody(), baseKey, key)
+							.whenResult(HttpMessage::recycle);
+				}
+				return Promise.of(entry.toResponse(now));
+			}
+			remove(key);
+		}
+
+		Promise<Entry> pending = loading.get(key);
+		if (pending != null) {
+			coalesced.recordEvent();
+			// a response which varies is shared only with waiters of the same variant
+			return pending
+					.then(loaded -> loaded != null && loaded.matches(request) ?
+							Promise.of(loaded.toResponse(eventloop.currentTimeMillis())) :
+							servlet.serveAsync(request));
+		}
+
+		misses.recordEvent();
+		return load(servlet, request, baseKey, key);
+	}
+
+	private Promise<HttpResponse> load(AsyncServlet servlet, HttpRequest request, String baseKey, String key) {
+		SettablePromise<Entry> loadPromise = new SettablePromise<>();
+		loading.put(key, loadPromise);
+		Promise<HttpResponse> responsePromise;
+		try {
+			responsePromise = servlet.serveAsync(request);
+		} catch (UncheckedException u) {
+			responsePromise = Promise.ofException(u.getCause());
+		}
+		return responsePromise
+				.whenComplete((response, e) -> {
+					loading.remove(key, loadPromise);
+					if (e == null) {
+						loadPromise.set(tryCache(request, response, baseKey, key));
+					} else {
+						loadPromise.setException(e);
+					}
+				});
+	}
+
+	@Nullable
+	private Entry tryCache(HttpRequest request, HttpResponse response, String baseKey, String key) {
+		int code = response.getCode();
+		ByteBuf body = response.body;
+		if (code != 200 && code != 301 && code != 404 ||
+				body == null || body.readRemaining() > maxEntrySize ||
+				response.headers.get(SET_COOKIE) != null) {
+			uncacheable.recordEvent();
+			return null;
+		}
+
+		long ttlMillis = defaultTtlMillis;
+		long staleMillis = staleWhileRevalidateMillis;
+		String cacheControl = response.getHeader(CACHE_CONTROL);
+		if (cacheControl != null) {
+			if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "no-cache") ||
+					hasDirective(cacheControl, "private")) {
+				uncacheable.recordEvent();
+				return null;
+			}
+			long maxAge = getDirectiveSeconds(cacheControl, "s-maxage");
+			if (maxAge == -1) maxAge = getDirectiveSeconds(cacheControl, "max-age");
+			if (maxAge != -1) ttlMillis = maxAge * 1000;
+			long stale = getDirectiveSeconds(cacheControl, "stale-while-revalidate");
+			if (stale != -1) staleMillis = stale * 1000;
+		}
+		if (ttlMillis <= 0) {
+			uncacheable.recordEvent();
+			return null;
+		}
+
+		HttpHeader[] varyHeaders = null;
+		String varyHeader = response.getHeader(VARY);
+		if (varyHeader != null) {
+			varyHeaders = parseVary(varyHeader);
+			if (varyHeaders == null) {
+				uncacheable.recordEvent();
+				return null;
+			}
+			VaryInfo varyInfo = varies.computeIfAbsent(baseKey, $ -> new VaryInfo());
+			varyInfo.headers = varyHeaders;
+			key = getVaryKey(baseKey, varyHeaders, request);
+		}
+
+		HttpHeadersTemplate headers = response.headersTemplate != null ? response.headersTemplate : HttpHeadersTemplate.create();
+		for (Map.Entry<HttpHeader, HttpHeaderValue> header : response.getHeaders()) {
+			HttpHeader name = header.getKey();
+			if (name.equals(CONTENT_LENGTH) || name.equals(CONNECTION) || name.equals(TRANSFER_ENCODING)) continue;
+			headers = headers.withHeader(name, header.getValue().toString());
+		}
+
+		long now = eventloop.currentTimeMillis();
+		Entry entry = new Entry(code, headers, body.getArray(), (response.flags & USE_GZIP) != 0,
+				varyHeaders != null ? baseKey : null, varyHeaders, key, now, now + ttlMillis, now + ttlMillis + staleMillis);
+		// along with headers and a key, an entry may not fit into a cache even if its body does
+		if (entry.size > maxSize) {
+			if (varyHeaders != null && varies.get(baseKey).variants == 0) {
+				varies.remove(baseKey);
+			}
+			uncacheable.recordEvent();
+			return null;
+		}
+		put(key, entry);
+		return entry;
+	}
+
+	private void put(String key, Entry entry) {
+		remove(key);
+		entries.put(key, entry);
+		cachedBytes += entry.size;
+		if (entry.varyKey != null) {
+			varies.get(entry.varyKey).variants++;
+		}
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (cachedBytes > maxSize) {
+			Map.Entry<String, Entry> eldest = iterator.next();
+			iterator.remove();
+			onRemoved(eldest.getValue());
+			evictions.recordEvent();
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			onRemoved(entry);
+		}
+	}
+
+	private void onRemoved(Entry entry) {
+		cachedBytes -= entry.size;
+		if (entry.varyKey != null) {
+			VaryInfo varyInfo = varies.get(entry.varyKey);
+			if (--varyInfo.variants == 0) {
+				varies.remove(entry.varyKey);
+			}
+		}
+	}
+
+	private String getBaseKey(HttpRequest request) {
+		String key = keyFn.apply(request);
+		if (keyHeaders.length == 0) return key;
+		StringBuilder sb = new StringBuilder(key);
+		for (HttpHeader header : keyHeaders) {
+			sb.append('\n').append(nullToEmpty(request.getHeader(header)));
+		}
+		return sb.toString();
+	}
+
+	private static String getVaryKey(String baseKey, HttpHeader[] varyHeaders, HttpRequest request) {
+		StringBuilder sb = new StringBuilder(baseKey).append('\0');
+		for (HttpHeader header : varyHeaders) {
+			sb.append('\n').append(nullToEmpty(request.getHeader(header)));
+		}
+		return sb.toString();
+	}
+
+	private static String nullToEmpty(@Nullable String value) {
+		return value != null ? value : "";
+	}
+
+	/**
+	 * Returns headers listed by {@code Vary} header or {@code null} if it is {@code *}
+	 */
+	@Nullable
+	private static HttpHeader[] parseVary(String vary) {
+		List<HttpHeader> headers = new ArrayList<>();
+		for (String name : vary.split(",")) {
+			name = name.trim();
+			if (name.equals("*")) return null;
+			if (!name.isEmpty()) {
+				headers.add(HttpHeaders.of(name));
+			}
+		}
+		return headers.toArray(new HttpHeader[0]);
+	}
+
+	static boolean hasDirective(String cacheControl, String directive) {
+		return getDirective(cacheControl, directive) != null;
+	}
+
+	/**
+	 * Returns a value of a {@code Cache-Control} directive in seconds
+	 * or {@code -1} if there is no such directive or its value is malformed
+	 */
+	static long getDirectiveSeconds(String cacheControl, String directive) {
+		String value = getDirective(cacheControl, directive);
+		if (value == null || value.isEmpty()) return -1;
+		try {
+			return Math.max(Long.parseLong(value), 0);
+		} catch (NumberFormatException ignored) {
+			return -1;
+		}
+	}
+
+	@Nullable
+	private static String getDirective(String cacheControl, String directive) {
+		for (String part : cacheControl.split(",")) {
+			part = part.trim();
+			int eq = part.indexOf('=');
+			String name = eq == -1 ? part : part.substring(0, eq).trim();
+			if (name.equalsIgnoreCase(directive)) {
+				if (eq == -1) return "";
+				String value = part.substring(eq + 1).trim();
+				return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ?
+						value.substring(1, value.length() - 1) :
+						value;
+			}
+		}
+		return null;
+	}
+
+	private static final class Entry {
+		final int code;
+		final HttpHeadersTemplate headers;
+		final byte[] body;
+		final boolean gzip;
+		@Nullable
+		final String varyKey;
+		@Nullable
+		final HttpHeader[] varyHeaders;
+		final String key;
+		final long createdAt;
+		final long expiresAt;
+		final long staleUntil;
+		final int size;
+
+		Entry(int code, HttpHeadersTemplate headers, byte[] body, boolean gzip,
+				@Nullable String varyKey, @Nullable HttpHeader[] varyHeaders, String key,
+				long createdAt, long expiresAt, long staleUntil) {
+			this.code = code;
+			this.headers = headers;
+			this.body = body;
+			this.gzip = gzip;
+			this.varyKey = varyKey;
+			this.varyHeaders = varyHeaders;
+			this.key = key;
+			this.createdAt = createdAt;
+			this.expiresAt = expiresAt;
+			this.staleUntil = staleUntil;
+			this.size = body.length + headers.size() + key.length();
+		}
+
+		/**
+		 * Checks whether this response may be served to a request,
+		 * which is not the case for a different variant of a response with {@code Vary} header
+		 */
+		boolean matches(HttpRequest request) {
+			// vary headers are set along with a vary key
+			//noinspection ConstantConditions
+			return varyKey == null || key.equals(getVaryKey(varyKey, varyHeaders, request));
+		}
+
+		HttpResponse toResponse(long now) {
+			HttpResponse response = HttpResponse.ofCode(code)
+					.withHeaders(headers)
+					.withBody(ByteBuf.wrapForReading(body));
+			int age = (int) ((now - createdAt) / 1000);
+			if (age > 0) {
+				response.addHeader(AGE, HttpHeaderValue.ofDecimal(age));
+			}
+			if (gzip) {
+				response.setBodyGzipCompression();
+			}
+			return response;
+		}
+	}
+
+	private static final class VaryInfo {
+		HttpHeader[] headers;
+		int variants;
+	}
+
+	// region JMX
+	@NotNull
+	@Override
+	public Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	@JmxAttribute
+	public long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	@JmxAttribute
+	public int getEntries() {
+		return entries.size();
+	}
+
+	@JmxAttribute
+	public MemSize getMaxSize() {
+		return MemSize.of(maxSize);
+	}
+
+	@JmxAttribute
+	public EventStats getHits() {
+		return hits;
+	}
+
+	@JmxAttribute
+	public EventStats getStaleHits() {
+		return staleHits;
+	}
+
+	@JmxAttribute
+	public EventStats getMisses() {
+		return misses;
+	}
+
+	@JmxAttribute
+	public EventStats getCoalesced() {
+		return coalesced;
+	}
+
+	@JmxAttribute
+	public EventStats getUncacheable() {
+		return uncacheable;
+	}
+
+	@JmxAttribute
+	public EventStats getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Removes a response cached by a given key, along with all its variants
+	 */
+	@JmxOperation
+	public void invalidate(String key) {
+		varies.remove(key);
+		entries.entrySet().removeIf(e -> {
+			Entry entry = e.getValue();
+			if (e.getKey().equals(key) || key.equals(entry.varyKey)) {
+				cachedBytes -= entry.size;
+				return true;
+			}
+			return false;
+		});
+	}
+
+	@JmxOperation
+	public void invalidateAll() {
+		entries.clear();
+		varies.clear();
+		cachedBytes = 0;
+	}
+	// endregion
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.api.WithInitializer;
+import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelSupplier;
+import io.activej.jmx.api.ConcurrentJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.http.HttpHeaders.*;
+import static java.util.Arrays.asList;
+
+/**
+ * A servlet decorator which compresses responses according to an {@code Accept-Encoding} header of a request.
+ * <ul>
+ *     <li>Responses are compressed with either {@code gzip} or {@code deflate} content coding,
+ *     whichever is preferred by a client</li>
+ *     <li>Only responses of compressible content types are compressed,
+ *     responses with a body shorter than a minimum size are sent as is</li>
+ *     <li>Streamed bodies of unknown length are compressed as they are sent, each chunk of a body being flushed,
+ *     so that a client receives data as soon as it is produced</li>
+ *     <li>Compressors are pooled and are shared between all the decorators</li>
+ * </ul>
+ * Since a decorator may be applied to a single route, different routes may use different compression levels.
+ * A decorator may be shared between servlets of several eventloops.
+ */
+public final class ResponseCompression implements AsyncServletDecorator, ConcurrentJmxBean, WithInitializer<ResponseCompression> {
+	public static final int DEFAULT_LEVEL = ApplicationSettings.getInt(ResponseCompression.class, "level", Deflater.DEFAULT_COMPRESSION);
+	public static final MemSize DEFAULT_MIN_SIZE = ApplicationSettings.getMemSize(ResponseCompression.class, "minSize", MemSize.bytes(1024));
+
+	private static final Set<String> COMPRESSIBLE_MEDIA_TYPES = new HashSet<>(asList(
+			"application/json", "application/javascript", "application/xml", "application/xhtml+xml",
+			"application/x-javascript", "application/rss+xml", "application/atom+xml", "image/svg+xml"));
+
+	private static final HttpHeaderValue GZIP = HttpHeaderValue.of("gzip");
+	private static final HttpHeaderValue DEFLATE = HttpHeaderValue.of("deflate");
+	private static final HttpHeaderValue VARY_ACCEPT_ENCODING = HttpHeaderValue.of("Accept-Encoding");
+
+	private static final int GZIP_FOOTER_SIZE = 8;
+
+	private int level = DEFAULT_LEVEL;
+	private int minSize = DEFAULT_MIN_SIZE.toInt();
+	private Predicate<String> mediaTypes = ResponseCompression::isCompressible;
+	private boolean streaming = true;
+
+	// region JMX
+	private final AtomicLong compressedResponses = new AtomicLong();
+	private final AtomicLong skippedResponses = new AtomicLong();
+	private final AtomicLong uncompressedBytes = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
+	private final AtomicLong compressionTimeNanos = new AtomicLong();
+	// endregion
+
+	private ResponseCompression() {
+	}
+
+	public static ResponseCompression create() {
+		return new ResponseCompression();
+	}
+
+	/**
+	 * @param level compression level of {@link Deflater}
+	 */
+	public ResponseCompression withLevel(int level) {
+		checkArgument(level == Deflater.DEFAULT_COMPRESSION || level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION,
+				"Invalid compression level");
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Responses with a body shorter than a given size are not compressed.
+	 * Streamed bodies are always compressed, as their length is unknown.
+	 */
+	public ResponseCompression withMinSize(@NotNull MemSize minSize) {
+		this.minSize = minSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets a policy of which responses are compressed, a predicate is tested
+	 * against a lower case media type of a response without parameters, like {@code "text/html"}.
+	 * <p>
+	 * By default, textual media types are compressed.
+	 */
+	public ResponseCompression withMediaTypes(@NotNull Predicate<String> mediaTypes) {
+		this.mediaTypes = mediaTypes;
+		return this;
+	}
+
+	/**
+	 * Compresses responses of given media types only
+	 */
+	public ResponseCompression withMediaTypes(@NotNull MediaType... mediaTypes) {
+		Set<String> set = new HashSet<>();
+		for (MediaType mediaType : mediaTypes) {
+			set.add(mediaType.toString().toLowerCase());
+		}
+		return withMediaTypes(set::contains);
+	}
+
+	/**
+	 * Enables or disables compression of streamed bodies
+	 */
+	public ResponseCompression withStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public AsyncServlet serve(@NotNull AsyncServlet servlet) {
+		return request -> servlet.serveAsync(request)
+				.whenResult(response -> compress(request, response));
+	}
+
+	private void compress(HttpRequest request, HttpResponse response) {
+		if (!isCompressible(response)) {
+			return;
+		}
+		response.addHeader(VARY, VARY_ACCEPT_ENCODING);
+
+		ByteBuf body = response.body;
+		if (body != null && body.readRemaining() < minSize) {
+			skippedResponses.incrementAndGet();
+			return;
+		}
+		boolean gzip;
+		String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+		float gzipQuality = acceptEncoding == null ? 0 : getQuality(acceptEncoding, "gzip");
+		float deflateQuality = acceptEncoding == null ? 0 : getQuality(acceptEncoding, "deflate");
+		if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+			gzip = true;
+		} else if (deflateQuality > 0) {
+			gzip = false;
+		} else {
+			skippedResponses.incrementAndGet();
+			return;
+		}
+
+		if (body != null) {
+			int size = body.readRemaining();
+			long start = System.nanoTime();
+			ByteBuf compressed = gzip ? GzipProcessorUtils.toGzip(body, level) : GzipProcessorUtils.toDeflate(body, level);
+			compressionTimeNanos.addAndGet(System.nanoTime() - start);
+			uncompressedBytes.addAndGet(size);
+			compressedBytes.addAndGet(compressed.readRemaining());
+			response.body = compressed;
+		} else {
+			ChannelSupplier<ByteBuf> bodyStream = response.bodyStream;
+			assert bodyStream != null;
+			response.bodyStream = new CompressingSupplier(bodyStream, gzip);
+		}
+		response.addHeader(CONTENT_ENCODING, gzip ? GZIP : DEFLATE);
+		compressedResponses.incrementAndGet();
+	}
+
+	private boolean isCompressible(HttpResponse response) {
+		int code = response.getCode();
+		if (code < 200 || code == 204 || code == 206 || code == 304) return false;
+		if ((response.flags & HttpMessage.USE_GZIP) != 0) return false;
+		if (response.body == null && (!streaming || response.bodyStream == null)) return false;
+		if (response.bodyStream != null && response.headers.get(CONTENT_LENGTH) != null) return false;
+		if (response.getHeaderBuf(CONTENT_ENCODING) != null) return false;
+
+		String contentType = response.getHeader(CONTENT_TYPE);
+		if (contentType == null) return false;
+		int semicolon = contentType.indexOf(';');
+		String mediaType = (semicolon == -1 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase();
+		return mediaTypes.test(mediaType);
+	}
+
+	private static boolean isCompressible(String mediaType) {
+		return mediaType.startsWith("text/") || mediaType.endsWith("+json") || mediaType.endsWith("+xml") ||
+				COMPRESSIBLE_MEDIA_TYPES.contains(mediaType);
+	}
+
+	/**
+	 * Returns a quality of a given content coding in an {@code Accept-Encoding} header
+	 */
+	static float getQuality(String acceptEncoding, String coding) {
+		float wildcard = 0;
+		for (String entry : acceptEncoding.split(",")) {
+			int semicolon = entry.indexOf(';');
+			String name = (semicolon == -1 ? entry : entry.substring(0, semicolon)).trim();
+			float quality = 1;
+			if (semicolon != -1) {
+				String parameter = entry.substring(semicolon + 1).trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Float.parseFloat(parameter.substring(2));
+					} catch (NumberFormatException ignored) {
+						quality = 0;
+					}
+				}
+			}
+			if (name.equalsIgnoreCase(coding)) {
+				return quality;
+			}
+			if (name.equals("*")) {
+				wildcard = quality;
+			}
+		}
+		return wildcard;
+	}
+
+	/**
+	 * Compresses a body stream, each buffer of a stream is flushed to a client as soon as it is received
+	 */
+	private final class CompressingSupplier extends AbstractChannelSupplier<ByteBuf> {
+		private final ChannelSupplier<ByteBuf> input;
+		private final boolean gzip;
+		private final Checksum checksum;
+
+		@Nullable
+		private Deflater deflater;
+		private boolean headerWritten;
+
+		CompressingSupplier(ChannelSupplier<ByteBuf> input, boolean gzip) {
+			super(input);
+			this.input = input;
+			this.gzip = gzip;
+			this.checksum = gzip ? new CRC32() : new Adler32();
+			this.deflater = GzipProcessorUtils.ensureCompressor(level);
+		}
+
+		@Override
+		protected Promise<ByteBuf> doGet() {
+			return input.get()
+					.then(buf -> {
+						Deflater deflater = this.deflater;
+						if (deflater == null) {
+							if (buf != null) buf.recycle();
+							return isClosed() ? Promise.ofException(getException()) : Promise.of(null);
+						}
+						long start = System.nanoTime();
+						ByteBuf result;
+						if (buf != null) {
+							int size = buf.readRemaining();
+							checksum.update(buf.array(), buf.head(), size);
+							deflater.setInput(buf.array(), buf.head(), size);
+							result = deflate(deflater, writeHeader(ByteBufPool.allocate(size + 64)), Deflater.SYNC_FLUSH);
+							buf.recycle();
+							uncompressedBytes.addAndGet(size);
+						} else {
+							deflater.finish();
+							result = deflate(deflater, writeHeader(ByteBufPool.allocate(64)), Deflater.NO_FLUSH);
+							result = ByteBufPool.ensureWriteRemaining(result, GZIP_FOOTER_SIZE);
+							if (gzip) {
+								result.writeInt(Integer.reverseBytes((int) checksum.getValue()));
+								result.writeInt(Integer.reverseBytes(deflater.getTotalIn()));
+							} else {
+								result.writeInt((int) checksum.getValue());
+							}
+							releaseDeflater();
+						}
+						compressionTimeNanos.addAndGet(System.nanoTime() - start);
+						compressedBytes.addAndGet(result.readRemaining());
+						return Promise.of(result);
+					});
+		}
+
+		private ByteBuf writeHeader(ByteBuf buf) {
+			if (!headerWritten) {
+				headerWritten = true;
+				buf = ByteBufPool.ensureWriteRemaining(buf, GzipProcessorUtils.GZIP_HEADER.length);
+				buf.put(gzip ? GzipProcessorUtils.GZIP_HEADER : GzipProcessorUtils.ZLIB_HEADER);
+			}
+			return buf;
+		}
+
+		private ByteBuf deflate(Deflater deflater, ByteBuf buf, int flush) {
+			while (true) {
+				int count = deflater.deflate(buf.array(), buf.tail(), buf.writeRemaining(), flush);
+				buf.moveTail(count);
+				if (flush == Deflater.SYNC_FLUSH ? buf.writeRemaining() != 0 : deflater.finished()) {
+					return buf;
+				}
+				buf = ByteBufPool.ensureWriteRemaining(buf, Math.max(buf.readRemaining(), 64));
+			}
+		}
+
+		private void releaseDeflater() {
+			if (deflater != null) {
+				GzipProcessorUtils.moveCompressorToPool(deflater);
+				deflater = null;
+			}
+		}
+
+		@Override
+		protected void onClosed(@NotNull Throwable e) {
+			releaseDeflater();
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public int getLevel() {
+		return level;
+	}
+
+	@JmxAttribute
+	public long getCompressedResponses() {
+		return compressedResponses.get();
+	}
+
+	@JmxAttribute
+	public long getSkippedResponses() {
+		return skippedResponses.get();
+	}
+
+	@JmxAttribute
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+
+	@JmxAttribute
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * Returns a ratio of uncompressed size of compressed responses to their compressed size
+	 */
+	@JmxAttribute
+	public double getCompressionRatio() {
+		long compressed = compressedBytes.get();
+		return compressed == 0 ? 0 : (double) uncompressedBytes.get() / compressed;
+	}
+
+	/**
+	 * Returns a total time spent by threads of eventloops on compression, in milliseconds
+	 */
+	@JmxAttribute
+	public long getCompressionTime() {
+		return compressionTimeNanos.get() / 1_000_000;
+	}
+
+	/**
+	 * Returns an average time spent on compressing a single megabyte of data, in microseconds
+	 */
+	@JmxAttribute
+	public double getCompressionTimePerMegabyte() {
+		long uncompressed = uncompressedBytes.get();
+		return uncompressed == 0 ? 0 : compressionTimeNanos.get() / 1000.0 / uncompressed * (1 << 20);
+	}
+
+	@JmxOperation
+	public void resetStats() {
+		compressedResponses.set(0);
+		skippedResponses.set(0);
+		uncompressedBytes.set(0);
+		compressedBytes.set(0);
+		compressionTimeNanos.set(0);
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "ResponseCompression{" +
+				"level=" + level +
+				", minSize=" + minSize +
+				", streaming=" + streaming +
+				'}';
+	}
+}
@@ -40,7 +40,7 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 	private static final String STAR = "*";
 	private static final String WILDCARD = "/" + STAR;
 
-	private static final int WS_ORDINAL = HttpMethod.values().length;
+	static final int WS_ORDINAL = HttpMethod.values().length;
 	private static final int ANY_HTTP_ORDINAL = WS_ORDINAL + 1;
 
 	protected final AsyncServlet[] rootServlets = new AsyncServlet[ANY_HTTP_ORDINAL + 1];
@@ -152,6 +152,17 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 		return merged;
 	}
 
+	/**
+	 * Compiles this servlet tree into an immutable {@link CompiledRoutingServlet},
+	 * which routes requests without allocations.
+	 * <p>
+	 * Routes which are mapped after compilation are not visible to a compiled servlet.
+	 */
+	@Contract("-> new")
+	public CompiledRoutingServlet compile() {
+		return new CompiledRoutingServlet(this);
+	}
+
 	@NotNull
 	@Override
 	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
@@ -289,7 +300,7 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 	}
 
 	@Nullable
-	private static AsyncServlet getOrDefault(AsyncServlet[] servlets, int ordinal) {
+	static AsyncServlet getOrDefault(AsyncServlet[] servlets, int ordinal) {
 		AsyncServlet maybeResult = servlets[ordinal];
 		if (maybeResult != null || ordinal == WS_ORDINAL) {
 			return maybeResult;
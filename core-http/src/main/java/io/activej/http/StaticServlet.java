@@ -17,10 +17,12 @@
 package io.activej.http;
 
 import io.activej.async.function.AsyncSupplier;
-import io.activej.bytebuf.ByteBuf;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.http.loader.ResourceIsADirectoryException;
 import io.activej.http.loader.ResourceNotFoundException;
+import io.activej.http.loader.StaticContentCache;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticResource;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import org.jetbrains.annotations.NotNull;
@@ -29,27 +31,38 @@ import org.jetbrains.annotations.Nullable;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static io.activej.http.HttpHeaderValue.ofContentType;
-import static io.activej.http.HttpHeaders.CONTENT_TYPE;
+import static io.activej.http.HttpHeaders.*;
 
 /**
  * This servlet allows return HTTP responses by HTTP paths from some predefined storage, mainly the filesystem.
+ * <p>
+ * Resources are loaded along with their metadata (see {@link StaticLoader#loadResource(String)}),
+ * so responses carry whatever entity tags, modification times and precompressed variants a loader provides,
+ * and conditional requests are answered. A {@link StaticContentCache} provides all of them,
+ * even if it is wrapped by {@link StaticLoader#filter} or {@link StaticLoader#map}.
  */
 public final class StaticServlet implements AsyncServlet {
 	public static final Charset DEFAULT_TXT_ENCODING = StandardCharsets.UTF_8;
 
+	private static final HttpHeaderValue CONTENT_ENCODING_GZIP = HttpHeaderValue.of("gzip");
+	private static final HttpHeaderValue VARY_ACCEPT_ENCODING = HttpHeaderValue.of("Accept-Encoding");
+
 	private final StaticLoader resourceLoader;
 	private Function<String, ContentType> contentTypeResolver = StaticServlet::getContentType;
 	private Function<HttpRequest, @Nullable String> pathMapper = HttpRequest::getRelativePath;
 	private Supplier<HttpResponse> responseSupplier = HttpResponse::ok200;
 	private final Set<String> indexResources = new LinkedHashSet<>();
+	private boolean fileTransfer;
 
 	@Nullable
 	private String defaultResource;
@@ -117,6 +130,17 @@ public final class StaticServlet implements AsyncServlet {
 		return this;
 	}
 
+	/**
+	 * Resources that can be opened as files are streamed rather than loaded into memory.
+	 * Over plain TCP connections file contents are transferred directly to a socket.
+	 *
+	 * @see StaticLoader#openFile(String)
+	 */
+	public StaticServlet withFileTransfer() {
+		this.fileTransfer = true;
+		return this;
+	}
+
 	public static ContentType getContentType(String path) {
 		int pos = path.lastIndexOf('.');
 		if (pos == -1) {
@@ -140,10 +164,100 @@ public final class StaticServlet implements AsyncServlet {
 		return type;
 	}
 
-	private HttpResponse createHttpResponse(ByteBuf buf, ContentType contentType) {
+	private HttpResponse createHttpResponse(HttpRequest request, StaticResource resource, ContentType contentType) {
+		boolean gzip = resource.hasGzippedContent() && acceptsGzip(request);
+		String eTag = gzip ? resource.getGzippedETag() : resource.getETag();
+		long lastModified = resource.getLastModified();
+
+		HttpResponse response;
+		if (isNotModified(request, eTag, lastModified)) {
+			response = createNotModifiedResponse();
+		} else {
+			//noinspection ConstantConditions - gzipped content is present
+			response = responseSupplier.get()
+					.withBody(gzip ? resource.getGzippedContent() : resource.getContent())
+					.withHeader(CONTENT_TYPE, ofContentType(contentType));
+			if (gzip) {
+				response.addHeader(CONTENT_ENCODING, CONTENT_ENCODING_GZIP);
+			}
+		}
+		if (resource.hasGzippedContent()) {
+			response.addHeader(VARY, VARY_ACCEPT_ENCODING);
+		}
+		if (eTag != null) {
+			response.addHeader(ETAG, eTag);
+		}
+		if (lastModified != 0) {
+			response.addHeader(LAST_MODIFIED, HttpHeaderValue.ofTimestamp(lastModified));
+		}
+		return response;
+	}
+
+	/**
+	 * A response code cannot be changed, so headers of a configured response are copied to a response with 304 code
+	 */
+	private HttpResponse createNotModifiedResponse() {
+		HttpResponse template = responseSupplier.get();
+		HttpResponse response = HttpResponse.ofCode(304);
+		for (Map.Entry<HttpHeader, HttpHeaderValue> entry : template.getHeaders()) {
+			response.addHeader(entry.getKey(), entry.getValue());
+		}
+		if (template.getHeadersTemplate() != null) {
+			response.setHeadersTemplate(template.getHeadersTemplate());
+		}
+		return response;
+	}
+
+	private HttpResponse createHttpResponse(ChannelFileReader fileReader, ContentType contentType) {
 		return responseSupplier.get()
-				.withBody(buf)
-				.withHeader(CONTENT_TYPE, ofContentType(contentType));
+				.withHeader(CONTENT_LENGTH, Long.toString(fileReader.getLimit()))
+				.withHeader(CONTENT_TYPE, ofContentType(contentType))
+				.withBodyStream(fileReader);
+	}
+
+	private static boolean acceptsGzip(HttpRequest request) {
+		String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+		return acceptEncoding != null && ResponseCompression.getQuality(acceptEncoding, "gzip") > 0;
+	}
+
+	private static boolean isNotModified(HttpRequest request, @Nullable String eTag, long lastModified) {
+		String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			return eTag != null && matchesETag(ifNoneMatch, eTag);
+		}
+		if (lastModified == 0) {
+			return false;
+		}
+		Instant ifModifiedSince = request.getHeader(IF_MODIFIED_SINCE, HttpHeaderValue::toInstant);
+		return ifModifiedSince != null && lastModified / 1000 <= ifModifiedSince.getEpochSecond();
+	}
+
+	private static boolean matchesETag(String ifNoneMatch, String eTag) {
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(eTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Promise<HttpResponse> loadResource(HttpRequest request, String path, ContentType contentType) {
+		if (!fileTransfer) {
+			return loadContent(request, path, contentType);
+		}
+		return resourceLoader.openFile(path)
+				.then(fileReader -> fileReader != null ?
+						Promise.of(createHttpResponse(fileReader, contentType)) :
+						loadContent(request, path, contentType));
+	}
+
+	private Promise<HttpResponse> loadContent(HttpRequest request, String path, ContentType contentType) {
+		return resourceLoader.loadResource(path)
+				.map(resource -> createHttpResponse(request, resource, contentType));
 	}
 
 	@NotNull
@@ -154,12 +268,11 @@ public final class StaticServlet implements AsyncServlet {
 		ContentType contentType = contentTypeResolver.apply(mappedPath);
 		return Promise.complete()
 				.then(() -> (mappedPath.endsWith("/") || mappedPath.isEmpty()) ?
-						tryLoadIndexResource(mappedPath) :
-						resourceLoader.load(mappedPath)
-								.map(byteBuf -> createHttpResponse(byteBuf, contentType))
+						tryLoadIndexResource(request, mappedPath) :
+						loadResource(request, mappedPath, contentType)
 								.thenEx((value, e) -> {
 									if (e instanceof ResourceIsADirectoryException) {
-										return tryLoadIndexResource(mappedPath);
+										return tryLoadIndexResource(request, mappedPath);
 									} else {
 										return Promise.of(value, e);
 									}
@@ -168,7 +281,7 @@ public final class StaticServlet implements AsyncServlet {
 					if (e == null) {
 						return Promise.of(response);
 					} else if (e instanceof ResourceNotFoundException) {
-						return tryLoadDefaultResource();
+						return tryLoadDefaultResource(request);
 					} else {
 						return Promise.ofException(HttpError.ofCode(400, e));
 					}
@@ -176,23 +289,21 @@ public final class StaticServlet implements AsyncServlet {
 	}
 
 	@NotNull
-	private Promise<HttpResponse> tryLoadIndexResource(String mappedPath) {
+	private Promise<HttpResponse> tryLoadIndexResource(HttpRequest request, String mappedPath) {
 		String dirPath = mappedPath.endsWith("/") || mappedPath.isEmpty() ? mappedPath : (mappedPath + '/');
 		return Promises.first(
 				indexResources.stream()
 						.map(indexResource -> AsyncSupplier.of(() ->
-								resourceLoader.load(dirPath + indexResource)
-										.map(byteBuf -> createHttpResponse(byteBuf, contentTypeResolver.apply(indexResource))))))
+								loadResource(request, dirPath + indexResource, contentTypeResolver.apply(indexResource)))))
 				.thenEx(((response, e) -> e == null ?
 						Promise.of(response) :
 						Promise.ofException(new ResourceNotFoundException("Could not find '" + mappedPath + '\'', e))));
 	}
 
 	@NotNull
-	private Promise<? extends HttpResponse> tryLoadDefaultResource() {
+	private Promise<? extends HttpResponse> tryLoadDefaultResource(HttpRequest request) {
 		return defaultResource != null ?
-				resourceLoader.load(defaultResource)
-						.map(buf -> createHttpResponse(buf, contentTypeResolver.apply(defaultResource))) :
+				loadResource(request, defaultResource, contentTypeResolver.apply(defaultResource)) :
 				Promise.ofException(HttpError.notFound404());
 	}
 }
@@ -77,7 +77,7 @@ public final class UrlParser {
 	private static final char IPV6_OPENING_BRACKET = '[';
 	private static final String IPV6_CLOSING_SECTION_WITH_PORT = "]:";
 
-	private final String raw;
+	final String raw;
 
 	private int portValue = -1;
 	private Protocol protocol;
@@ -85,7 +85,7 @@ public final class UrlParser {
 	private short host = -1;
 	private short path = -1;
 	private short port = -1;
-	private short pathEnd = -1;
+	short pathEnd = -1;
 	private short query = -1;
 	private short fragment = -1;
 	short pos = -1;
@@ -114,6 +114,24 @@ public final class UrlParser {
 		httpUrl.parse(true);
 		return httpUrl;
 	}
+
+	/**
+	 * Returns a copy of this parser, so that url parts of a copy are polled independently
+	 */
+	UrlParser copy() {
+		UrlParser copy = new UrlParser(raw);
+		copy.portValue = portValue;
+		copy.protocol = protocol;
+		copy.host = host;
+		copy.path = path;
+		copy.port = port;
+		copy.pathEnd = pathEnd;
+		copy.query = query;
+		copy.fragment = fragment;
+		copy.pos = pos;
+		copy.queryPositions = queryPositions;
+		return copy;
+	}
 	// endregion
 
 	private void parse(boolean isRelativePathAllowed) throws MalformedHttpException {
@@ -17,6 +17,7 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
 import io.activej.bytebuf.ByteBufs;
 import io.activej.common.exception.TruncatedDataException;
 import io.activej.csp.ChannelConsumer;
@@ -27,12 +28,16 @@ import io.activej.csp.binary.ByteBufsDecoder;
 import io.activej.csp.dsl.WithBinaryChannelInput;
 import io.activej.csp.dsl.WithChannelTransformer;
 import io.activej.csp.process.AbstractCommunicatingProcess;
+import io.activej.http.PerMessageDeflate.Negotiated;
 import io.activej.http.WebSocket.Frame;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.charset.CharacterCodingException;
 import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import static io.activej.common.Checks.checkState;
 import static io.activej.csp.binary.ByteBufsDecoder.ofFixedSize;
@@ -54,6 +59,8 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 	private final Consumer<ByteBuf> onPong;
 	private final byte[] mask = new byte[4];
 	private final boolean masked;
+	@Nullable
+	private final Negotiated deflate;
 	private final SettablePromise<WebSocketException> closeReceivedPromise = new SettablePromise<>();
 
 	private ByteBufs bufs;
@@ -65,19 +72,33 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 	private boolean waitingForFin;
 	private WebSocketConstants.OpCode currentOpCode;
 
+	@Nullable
+	private Inflater inflater;
+	private boolean messageCompressed;
+	private long inflatedMessageSize;
+
 	private final ByteBufs frameBufs = new ByteBufs();
 	private final ByteBufs controlMessageBufs = new ByteBufs();
 
 	// region creators
-	WebSocketBufsToFrames(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean masked) {
+	WebSocketBufsToFrames(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean masked, @Nullable Negotiated deflate) {
 		this.maxMessageSize = maxMessageSize;
 		this.onPing = onPing;
 		this.onPong = onPong;
 		this.masked = masked;
+		this.deflate = deflate;
 	}
 
 	public static WebSocketBufsToFrames create(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean maskRequired) {
-		return new WebSocketBufsToFrames(maxMessageSize, onPing, onPong, maskRequired);
+		return new WebSocketBufsToFrames(maxMessageSize, onPing, onPong, maskRequired, null);
+	}
+
+	/**
+	 * Creates a decoder which decompresses data messages with a negotiated <i>permessage-deflate</i> extension
+	 */
+	public static WebSocketBufsToFrames create(long maxMessageSize, Consumer<ByteBuf> onPing, Consumer<ByteBuf> onPong, boolean maskRequired,
+			@Nullable Negotiated deflate) {
+		return new WebSocketBufsToFrames(maxMessageSize, onPing, onPong, maskRequired, deflate);
 	}
 
 	@Override
@@ -120,7 +141,8 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 	private void processOpCode() {
 		input.decode(SINGLE_BYTE_DECODER)
 				.whenResult(firstByte -> {
-					if ((firstByte & RSV_MASK) != 0) {
+					int rsv = firstByte & RSV_MASK;
+					if (rsv != 0 && (rsv != RSV1 || deflate == null)) {
 						onProtocolError(RESERVED_BITS_SET);
 						return;
 					}
@@ -136,6 +158,8 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 					if (currentOpCode.isControlCode()) {
 						if (!isFin) {
 							onProtocolError(FRAGMENTED_CONTROL_MESSAGE);
+						} else if (rsv != 0) {
+							onProtocolError(RESERVED_BITS_SET);
 						} else {
 							processLength();
 						}
@@ -147,12 +171,17 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 							onProtocolError(WAITING_FOR_LAST_FRAME);
 							return;
 						}
+						if (rsv != 0) {
+							onProtocolError(RESERVED_BITS_SET);
+							return;
+						}
 					} else {
 						if (currentOpCode == OP_CONTINUATION) {
 							onProtocolError(UNEXPECTED_CONTINUATION);
 							return;
 						}
-
+						messageCompressed = rsv != 0;
+						inflatedMessageSize = 0;
 					}
 					waitingForFin = !isFin;
 
@@ -241,11 +270,74 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 		if (currentOpCode.isControlCode()) {
 			processControlPayload();
 		} else {
-			output.accept(new Frame(opToFrameType(currentOpCode), frameBufs.takeRemaining(), isFin))
+			ByteBuf payload = frameBufs.takeRemaining();
+			if (messageCompressed) {
+				payload = decompress(payload);
+				if (payload == null) return;
+			}
+			output.accept(new Frame(opToFrameType(currentOpCode), payload, isFin))
 					.whenResult(this::processOpCode);
 		}
 	}
 
+	/**
+	 * Decompresses each fragment of a message as it is received, an empty block which
+	 * was removed by a peer is appended to the last fragment (RFC 7692, section 7.2.2)
+	 */
+	@Nullable
+	private ByteBuf decompress(ByteBuf payload) {
+		if (inflater == null) {
+			inflater = new Inflater(true);
+		}
+		ByteBuf inflated = ByteBufPool.allocate(payload.readRemaining() * 2 + 64);
+		try {
+			inflated = inflate(payload.array(), payload.head(), payload.readRemaining(), inflated);
+			if (isFin && inflated != null) {
+				inflated = inflate(DEFLATE_TAIL, 0, DEFLATE_TAIL.length, inflated);
+			}
+		} catch (DataFormatException e) {
+			onProtocolError(INVALID_COMPRESSED_DATA);
+			return null;
+		} finally {
+			payload.recycle();
+		}
+		if (inflated == null) {
+			onProtocolError(MESSAGE_TOO_BIG);
+		}
+		return inflated;
+	}
+
+	/**
+	 * Inflates given input into a buffer, which is recycled if inflation fails
+	 *
+	 * @return a buffer with inflated data, or {@code null} if a message size limit is exceeded
+	 */
+	@Nullable
+	private ByteBuf inflate(byte[] array, int offset, int length, ByteBuf inflated) throws DataFormatException {
+		assert inflater != null;
+		inflater.setInput(array, offset, length);
+		while (true) {
+			int available = inflated.writeRemaining();
+			int len;
+			try {
+				len = inflater.inflate(inflated.array(), inflated.tail(), available);
+			} catch (DataFormatException e) {
+				inflated.recycle();
+				throw e;
+			}
+			inflated.moveTail(len);
+			inflatedMessageSize += len;
+			if (inflatedMessageSize > maxMessageSize) {
+				inflated.recycle();
+				return null;
+			}
+			if (len < available) {
+				return inflated;
+			}
+			inflated = ByteBufPool.ensureWriteRemaining(inflated, inflated.readRemaining());
+		}
+	}
+
 	private void processControlPayload() {
 		ByteBuf controlPayload = controlMessageBufs.takeRemaining();
 		if (currentOpCode == OP_CLOSE) {
@@ -296,8 +388,9 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 		if (maskIndex == -1 || !buf.canRead()) {
 			return;
 		}
-		for (int head = buf.head(); head < buf.tail(); head++) {
-			buf.set(head, (byte) (buf.at(head) ^ mask[maskIndex++ % 4]));
+		byte[] array = buf.array();
+		for (int i = buf.head(), tail = buf.tail(); i < tail; i++) {
+			array[i] ^= mask[maskIndex++ & 3];
 		}
 	}
 
@@ -320,4 +413,11 @@ final class WebSocketBufsToFrames extends AbstractCommunicatingProcess
 		controlMessageBufs.recycle();
 	}
 
+	@Override
+	protected void afterProcess(@Nullable Throwable e) {
+		if (inflater != null) {
+			inflater.end();
+		}
+	}
+
 }
@@ -35,6 +35,7 @@ public final class WebSocketConstants {
 	static final WebSocketException STATUS_CODE_MISSING = new WebSocketException(1005, "Status code missing");
 	static final WebSocketException CLOSE_FRAME_MISSING = new WebSocketException(1006, "Peer did not send CLOSE frame");
 	static final WebSocketException NOT_A_VALID_UTF_8 = new WebSocketException(1007, "Received TEXT message is not a valid UTF-8 message");
+	static final WebSocketException INVALID_COMPRESSED_DATA = new WebSocketException(1007, "Received message cannot be decompressed");
 	static final WebSocketException MESSAGE_TOO_BIG = new WebSocketException(1009, "Received message is too big");
 	static final WebSocketException SERVER_ERROR = new WebSocketException(1011, "Unexpected server error");
 
@@ -46,6 +47,9 @@ public final class WebSocketConstants {
 
 	static final String MAGIC_STRING = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
 
+	static final byte RSV1 = 0b01000000;
+	static final byte[] DEFLATE_TAIL = {0x00, 0x00, (byte) 0xff, (byte) 0xff};
+
 	enum OpCode {
 		OP_CONTINUATION((byte) 0x0),
 		OP_TEXT((byte) 0x1),
@@ -28,6 +28,7 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.dsl.WithChannelTransformer;
 import io.activej.csp.process.AbstractCommunicatingProcess;
 import io.activej.http.WebSocket.Frame;
+import io.activej.http.PerMessageDeflate.Negotiated;
 import io.activej.http.WebSocket.Frame.FrameType;
 import io.activej.http.WebSocketConstants.*;
 import io.activej.promise.Promise;
@@ -35,6 +36,7 @@ import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Deflater;
 
 import static io.activej.common.Checks.checkState;
 import static io.activej.http.HttpUtils.frameToOpType;
@@ -50,6 +52,8 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 	private static final ThreadLocalRandom RANDOM = ThreadLocalRandom.current();
 
 	private final boolean masked;
+	@Nullable
+	private final Negotiated deflate;
 	private final SettablePromise<Void> closeSentPromise = new SettablePromise<>();
 
 	private ChannelSupplier<Frame> input;
@@ -60,13 +64,25 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 	private boolean closing;
 	private boolean waitingForFin;
 
+	@Nullable
+	private Deflater deflater;
+	private boolean compressingMessage;
+
 	// region creators
-	private WebSocketFramesToBufs(boolean masked) {
+	private WebSocketFramesToBufs(boolean masked, @Nullable Negotiated deflate) {
 		this.masked = masked;
+		this.deflate = deflate;
 	}
 
 	public static WebSocketFramesToBufs create(boolean masked) {
-		return new WebSocketFramesToBufs(masked);
+		return new WebSocketFramesToBufs(masked, null);
+	}
+
+	/**
+	 * Creates an encoder which compresses data messages with a negotiated <i>permessage-deflate</i> extension
+	 */
+	public static WebSocketFramesToBufs create(boolean masked, @Nullable Negotiated deflate) {
+		return new WebSocketFramesToBufs(masked, deflate);
 	}
 
 	@SuppressWarnings("ConstantConditions") //check input for clarity
@@ -110,11 +126,15 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 	}
 
 	private ByteBuf doEncode(ByteBuf payload, OpCode opCode, boolean isLastFrame) {
+		return doEncode(payload, opCode, isLastFrame, false);
+	}
+
+	private ByteBuf doEncode(ByteBuf payload, OpCode opCode, boolean isLastFrame, boolean compressed) {
 		int bufSize = payload.readRemaining();
 		int lenSize = bufSize < 126 ? 1 : bufSize < 65536 ? 3 : 9;
 
 		ByteBuf framedBuf = ByteBufPool.allocate(1 + lenSize + (masked ? 4 : 0) + bufSize);
-		framedBuf.writeByte(isLastFrame ? (byte) (opCode.getCode() | 0x80) : opCode.getCode());
+		framedBuf.writeByte((byte) (opCode.getCode() | (isLastFrame ? 0x80 : 0) | (compressed ? RSV1 : 0)));
 		if (lenSize == 1) {
 			framedBuf.writeByte((byte) bufSize);
 		} else if (lenSize == 3) {
@@ -130,17 +150,70 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 			byte[] mask = new byte[4];
 			RANDOM.nextBytes(mask);
 			framedBuf.put(mask);
-			for (int i = 0, head = payload.head(); head < payload.tail(); head++) {
-				payload.set(head, (byte) (payload.at(head) ^ mask[i++ % 4]));
+			// mask while copying, so that a payload (which may be shared) is left intact
+			byte[] src = payload.array();
+			byte[] dst = framedBuf.array();
+			int srcHead = payload.head();
+			int dstTail = framedBuf.tail();
+			for (int i = 0; i < bufSize; i++) {
+				dst[dstTail + i] = (byte) (src[srcHead + i] ^ mask[i & 3]);
 			}
+			framedBuf.moveTail(bufSize);
+		} else {
+			framedBuf.put(payload);
 		}
-		framedBuf.put(payload);
 		payload.recycle();
 		return framedBuf;
 	}
 
 	private ByteBuf encodeData(Frame frame) {
-		return doEncode(frame.getPayload(), frameToOpType(frame.getType()), frame.isLastFrame());
+		FrameType type = frame.getType();
+		ByteBuf payload = frame.getPayload();
+		if (type != CONTINUATION) {
+			compressingMessage = deflate != null && payload.readRemaining() >= deflate.minMessageSize;
+		}
+		if (!compressingMessage) {
+			return doEncode(payload, frameToOpType(type), frame.isLastFrame());
+		}
+		ByteBuf compressed = compress(payload, frame.isLastFrame());
+		return doEncode(compressed, frameToOpType(type), frame.isLastFrame(), type != CONTINUATION);
+	}
+
+	/**
+	 * Compresses each fragment of a message as it is sent, a compressed message is a concatenation
+	 * of flushed fragments without a trailing empty block (RFC 7692, section 7.2.1)
+	 */
+	private ByteBuf compress(ByteBuf payload, boolean isLastFrame) {
+		assert deflate != null;
+		if (deflater == null) {
+			deflater = new Deflater(deflate.level, true);
+		}
+		deflater.setInput(payload.array(), payload.head(), payload.readRemaining());
+		ByteBuf compressed = ByteBufPool.allocate(payload.readRemaining() / 2 + 64);
+		while (true) {
+			int len = deflater.deflate(compressed.array(), compressed.tail(), compressed.writeRemaining(), Deflater.SYNC_FLUSH);
+			compressed.moveTail(len);
+			if (compressed.canWrite()) break;
+			compressed = ByteBufPool.ensureWriteRemaining(compressed, compressed.readRemaining());
+		}
+		payload.recycle();
+		if (isLastFrame) {
+			// a deflater does not flush anything if there is no new input since the last flush
+			if (endsWithDeflateTail(compressed)) {
+				compressed.moveTail(-DEFLATE_TAIL.length);
+			}
+			if (deflate.noContextTakeover) {
+				deflater.reset();
+			}
+		}
+		return compressed;
+	}
+
+	private static boolean endsWithDeflateTail(ByteBuf buf) {
+		int tail = buf.tail();
+		return buf.readRemaining() >= DEFLATE_TAIL.length &&
+				buf.at(tail - 4) == DEFLATE_TAIL[0] && buf.at(tail - 3) == DEFLATE_TAIL[1] &&
+				buf.at(tail - 2) == DEFLATE_TAIL[2] && buf.at(tail - 1) == DEFLATE_TAIL[3];
 	}
 
 	private ByteBuf encodePong(ByteBuf buf) {
@@ -225,4 +298,11 @@ final class WebSocketFramesToBufs extends AbstractCommunicatingProcess
 		sendCloseFrame(exception);
 	}
 
+	@Override
+	protected void afterProcess(@Nullable Throwable e) {
+		if (deflater != null) {
+			deflater.end();
+		}
+	}
+
 }
@@ -20,9 +20,11 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.common.exception.UncheckedException;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.queue.ChannelZeroBuffer;
+import io.activej.http.PerMessageDeflate.Negotiated;
 import io.activej.promise.Promisable;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 
@@ -75,12 +77,18 @@ public abstract class WebSocketServlet implements AsyncServlet {
 										.withHeader(CONNECTION, "Upgrade")
 										.withHeader(SEC_WEBSOCKET_ACCEPT, answer);
 
-								WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(false);
+								Negotiated deflate = negotiateDeflate(request);
+								if (deflate != null) {
+									response.withHeader(SEC_WEBSOCKET_EXTENSIONS, deflate.header);
+								}
+
+								WebSocketFramesToBufs encoder = WebSocketFramesToBufs.create(false, deflate);
 								WebSocketBufsToFrames decoder = WebSocketBufsToFrames.create(
 										request.maxBodySize,
 										encoder::sendPong,
 										ByteBuf::recycle,
-										true);
+										true,
+										deflate);
 
 								bindWebSocketTransformers(rawStream, encoder, decoder);
 
@@ -98,6 +106,15 @@ public abstract class WebSocketServlet implements AsyncServlet {
 				});
 	}
 
+	@Nullable
+	private static Negotiated negotiateDeflate(HttpRequest request) {
+		HttpServerConnection connection = request.getConnection();
+		PerMessageDeflate webSocketDeflate = connection != null ? connection.getWebSocketDeflate() : null;
+		return webSocketDeflate != null ?
+				webSocketDeflate.acceptOffer(request.getHeader(SEC_WEBSOCKET_EXTENSIONS)) :
+				null;
+	}
+
 	private static void bindWebSocketTransformers(ChannelSupplier<ByteBuf> rawStream, WebSocketFramesToBufs encoder, WebSocketBufsToFrames decoder) {
 		encoder.getCloseSentPromise()
 				.then(decoder::getCloseReceivedPromise)
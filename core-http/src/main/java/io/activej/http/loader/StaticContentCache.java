@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.api.WithInitializer;
+import io.activej.csp.file.ChannelFileReader;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.jmx.EventloopJmxBean;
+import io.activej.http.GzipProcessorUtils;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.jmx.stats.EventStats;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A memory-bounded cache of resources of a {@link StaticLoader}.
+ * <ul>
+ *     <li>Resources are evicted in LRU order once a total size of cached resources exceeds a byte budget</li>
+ *     <li>Concurrent loads of the same resource are coalesced into a single load</li>
+ *     <li>Each resource is given an entity tag and, optionally, a gzip variant which is compressed once at load time</li>
+ *     <li>If a revalidation interval is set, modification time of a cached resource is checked
+ *     at most once per interval, and a modified resource is reloaded</li>
+ *     <li>Missing resources are not cached unless a {@link #withNotFoundTtl TTL} is set for them,
+ *     in which case they are kept apart from resources, in a small store of a bounded number of paths</li>
+ * </ul>
+ * A cache is not thread-safe and should be used from the thread of its eventloop.
+ */
+public final class StaticContentCache implements StaticLoader, EventloopJmxBean, WithInitializer<StaticContentCache> {
+	public static final MemSize DEFAULT_MAX_SIZE = ApplicationSettings.getMemSize(StaticContentCache.class, "maxSize", MemSize.megabytes(64));
+	public static final MemSize DEFAULT_MIN_GZIP_SIZE = ApplicationSettings.getMemSize(StaticContentCache.class, "minGzipSize", MemSize.bytes(1024));
+	public static final Duration DEFAULT_REVALIDATION_INTERVAL = ApplicationSettings.getDuration(StaticContentCache.class, "revalidationInterval", Duration.ZERO);
+	public static final Duration DEFAULT_NOT_FOUND_TTL = ApplicationSettings.getDuration(StaticContentCache.class, "notFoundTtl", Duration.ZERO);
+	public static final int DEFAULT_MAX_NOT_FOUND = ApplicationSettings.getInt(StaticContentCache.class, "maxNotFound", 1024);
+
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+	private static final int ENTRY_OVERHEAD = 64;
+
+	private final Eventloop eventloop;
+	private final StaticLoader loader;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Promise<Entry>> loading = new HashMap<>();
+	private long cachedBytes;
+
+	/**
+	 * Expiration timestamps of missing resources, in insertion order, which is also an expiration order
+	 */
+	private final LinkedHashMap<String, Long> notFound = new LinkedHashMap<>();
+
+	private long maxSize = DEFAULT_MAX_SIZE.toLong();
+	private long revalidationIntervalMillis = DEFAULT_REVALIDATION_INTERVAL.toMillis();
+	@Nullable
+	private Predicate<String> gzipPredicate;
+	private int minGzipSize = DEFAULT_MIN_GZIP_SIZE.toInt();
+	private long notFoundTtlMillis = DEFAULT_NOT_FOUND_TTL.toMillis();
+	private int maxNotFound = DEFAULT_MAX_NOT_FOUND;
+
+	// region JMX
+	private final EventStats hits = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats misses = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats coalescedLoads = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats evictions = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats invalidations = EventStats.create(SMOOTHING_WINDOW);
+	// endregion
+
+	private StaticContentCache(Eventloop eventloop, StaticLoader loader) {
+		this.eventloop = eventloop;
+		this.loader = loader;
+	}
+
+	public static StaticContentCache create(Eventloop eventloop, StaticLoader loader) {
+		return new StaticContentCache(eventloop, loader);
+	}
+
+	/**
+	 * Sets a maximum total size of cached resources, including their gzip variants.
+	 * Resources which alone exceed this size are not cached.
+	 */
+	public StaticContentCache withMaxSize(@NotNull MemSize maxSize) {
+		this.maxSize = maxSize.toLong();
+		return this;
+	}
+
+	/**
+	 * Sets an interval after which a modification time of a cached resource is checked again.
+	 * A zero interval means that cached resources are never revalidated.
+	 *
+	 * @see StaticLoader#getLastModified(String)
+	 */
+	public StaticContentCache withRevalidationInterval(@NotNull Duration revalidationInterval) {
+		this.revalidationIntervalMillis = revalidationInterval.toMillis();
+		return this;
+	}
+
+	/**
+	 * Stores gzip variants of resources which are at least {@link #DEFAULT_MIN_GZIP_SIZE} long,
+	 * a variant is kept only if it is noticeably smaller than an original content
+	 */
+	public StaticContentCache withGzip() {
+		return withGzip($ -> true);
+	}
+
+	/**
+	 * Stores gzip variants of resources whose paths match a given predicate
+	 */
+	public StaticContentCache withGzip(@NotNull Predicate<String> pathPredicate) {
+		this.gzipPredicate = pathPredicate;
+		return this;
+	}
+
+	public StaticContentCache withMinGzipSize(@NotNull MemSize minGzipSize) {
+		this.minGzipSize = minGzipSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets a time for which a missing resource is not looked up again.
+	 * A zero TTL means that missing resources are not cached.
+	 */
+	public StaticContentCache withNotFoundTtl(@NotNull Duration notFoundTtl) {
+		this.notFoundTtlMillis = notFoundTtl.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of cached missing resources, the oldest ones are evicted first
+	 */
+	public StaticContentCache withMaxNotFound(int maxNotFound) {
+		this.maxNotFound = maxNotFound;
+		return this;
+	}
+
+	@Override
+	public Promise<ByteBuf> load(String path) {
+		return loadResource(path)
+				.map(StaticResource::getContent);
+	}
+
+	@Override
+	public Promise<@Nullable ChannelFileReader> openFile(String path) {
+		return Promise.of(null);
+	}
+
+	@Override
+	public Promise<Long> getLastModified(String path) {
+		return loader.getLastModified(path);
+	}
+
+	@Override
+	public Promise<StaticResource> loadResource(String path) {
+		Entry entry = entries.get(path);
+		if (entry != null && (revalidationIntervalMillis == 0 ||
+				eventloop.currentTimeMillis() - entry.checkTimestamp < revalidationIntervalMillis)) {
+			hits.recordEvent();
+			return Promise.of(entry.resource);
+		}
+
+		if (!notFound.isEmpty() && isNotFound(path)) {
+			hits.recordEvent();
+			return Promise.ofException(new ResourceNotFoundException("Could not find '" + path + '\''));
+		}
+
+		Promise<Entry> pending = loading.get(path);
+		if (pending != null) {
+			coalescedLoads.recordEvent();
+			return pending.map(loaded -> loaded.resource);
+		}
+
+		Promise<Entry> promise;
+		if (entry != null) {
+			promise = revalidate(path, entry);
+		} else {
+			misses.recordEvent();
+			promise = doLoad(path);
+		}
+		if (!promise.isComplete()) {
+			loading.put(path, promise);
+			promise.whenComplete(() -> loading.remove(path));
+		}
+		return promise.map(loaded -> loaded.resource);
+	}
+
+	/**
+	 * Removes a resource from this cache, so that it is loaded again on the next request
+	 */
+	public void invalidate(String path) {
+		notFound.remove(path);
+		Entry entry = entries.remove(path);
+		if (entry != null) {
+			cachedBytes -= entry.size;
+			invalidations.recordEvent();
+		}
+	}
+
+	@JmxOperation
+	public void invalidateAll() {
+		notFound.clear();
+		entries.clear();
+		cachedBytes = 0;
+	}
+
+	private Promise<Entry> revalidate(String path, Entry entry) {
+		return loader.getLastModified(path)
+				.thenEx((lastModified, e) -> {
+					if (e == null && (lastModified == 0 || lastModified == entry.resource.getLastModified())) {
+						entry.checkTimestamp = eventloop.currentTimeMillis();
+						hits.recordEvent();
+						return Promise.of(entry);
+					}
+					if (entries.get(path) == entry) {
+						invalidate(path);
+					}
+					misses.recordEvent();
+					return doLoad(path);
+				});
+	}
+
+	private Promise<Entry> doLoad(String path) {
+		return loader.loadResource(path)
+				.thenEx((resource, e) -> {
+					if (e == null) {
+						return Promise.of(put(path, new Entry(prepare(path, resource), eventloop.currentTimeMillis())));
+					}
+					if (e instanceof ResourceNotFoundException && notFoundTtlMillis != 0) {
+						putNotFound(path);
+					}
+					return Promise.ofException(e);
+				});
+	}
+
+	private boolean isNotFound(String path) {
+		Long expiration = notFound.get(path);
+		if (expiration == null) return false;
+		if (eventloop.currentTimeMillis() < expiration) return true;
+		notFound.remove(path);
+		return false;
+	}
+
+	private void putNotFound(String path) {
+		long now = eventloop.currentTimeMillis();
+		Iterator<Long> iterator = notFound.values().iterator();
+		while (iterator.hasNext()) {
+			long expiration = iterator.next();
+			if (notFound.size() < maxNotFound && expiration > now) break;
+			iterator.remove();
+		}
+		notFound.put(path, now + notFoundTtlMillis);
+	}
+
+	private StaticResource prepare(String path, StaticResource resource) {
+		resource = resource.withContentETag();
+		if (gzipPredicate == null || resource.getSize() < minGzipSize || !gzipPredicate.test(path)) {
+			return resource;
+		}
+		ByteBuf gzipped = GzipProcessorUtils.toGzip(resource.getContent());
+		int size = resource.getSize();
+		if (gzipped.readRemaining() > size - size / 8) {
+			gzipped.recycle();
+			return resource;
+		}
+		byte[] bytes = gzipped.getArray();
+		gzipped.recycle();
+		return resource.withGzippedContent(bytes);
+	}
+
+	private Entry put(String path, Entry entry) {
+		entry.size = ENTRY_OVERHEAD + path.length() * 2L + entry.resource.getSize();
+		if (entry.size > maxSize) {
+			return entry;
+		}
+		Entry previous = entries.put(path, entry);
+		if (previous != null) {
+			cachedBytes -= previous.size;
+		}
+		cachedBytes += entry.size;
+		evict();
+		return entry;
+	}
+
+	private void evict() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (cachedBytes > maxSize) {
+			Entry evicted = iterator.next();
+			iterator.remove();
+			cachedBytes -= evicted.size;
+			evictions.recordEvent();
+		}
+	}
+
+	private static final class Entry {
+		final StaticResource resource;
+		long checkTimestamp;
+		long size;
+
+		Entry(StaticResource resource, long checkTimestamp) {
+			this.resource = resource;
+			this.checkTimestamp = checkTimestamp;
+		}
+	}
+
+	// region JMX
+	@NotNull
+	@Override
+	public Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	@JmxAttribute
+	public EventStats getHits() {
+		return hits;
+	}
+
+	@JmxAttribute
+	public EventStats getMisses() {
+		return misses;
+	}
+
+	@JmxAttribute
+	public EventStats getCoalescedLoads() {
+		return coalescedLoads;
+	}
+
+	@JmxAttribute
+	public EventStats getEvictions() {
+		return evictions;
+	}
+
+	@JmxAttribute
+	public EventStats getInvalidations() {
+		return invalidations;
+	}
+
+	@JmxAttribute
+	public long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	@JmxAttribute
+	public int getCachedResources() {
+		return entries.size();
+	}
+
+	@JmxAttribute
+	public int getCachedNotFound() {
+		return notFound.size();
+	}
+
+	@JmxAttribute
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	@JmxAttribute
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "StaticContentCache{" +
+				"resources=" + entries.size() +
+				", cachedBytes=" + cachedBytes +
+				", maxSize=" + maxSize +
+				'}';
+	}
+}
@@ -17,8 +17,12 @@
 package io.activej.http.loader;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.csp.file.ChannelFileReader;
+import io.activej.eventloop.Eventloop;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -35,14 +39,95 @@ public interface StaticLoader {
 
 	Promise<ByteBuf> load(String path);
 
+	/**
+	 * Opens a resource as a file reader whose limit is set to the size of the file,
+	 * so that the resource can be sent without being loaded into memory.
+	 * <p>
+	 * A {@code null} result means that the resource can only be loaded as a whole.
+	 */
+	default Promise<@Nullable ChannelFileReader> openFile(String path) {
+		return Promise.of(null);
+	}
+
+	/**
+	 * Loads a resource along with its metadata, which is used to answer conditional requests.
+	 * <p>
+	 * By default a resource is loaded without metadata. Loaders that keep entity tags, modification times
+	 * or precompressed variants of their resources override this method, and wrapping loaders delegate to it.
+	 */
+	default Promise<StaticResource> loadResource(String path) {
+		return load(path)
+				.map(buf -> {
+					byte[] bytes = buf.getArray();
+					buf.recycle();
+					return StaticResource.of(bytes, 0);
+				});
+	}
+
+	/**
+	 * Returns last modification time of a resource in milliseconds,
+	 * or {@code 0} if it is unknown.
+	 */
+	default Promise<Long> getLastModified(String path) {
+		return Promise.of(0L);
+	}
+
 	default StaticLoader filter(Predicate<String> predicate) {
-		return path -> predicate.test(path) ?
-				load(path) :
-				Promise.ofException(new ResourceNotFoundException("Resource '" + path + "' has been filtered out"));
+		StaticLoader self = this;
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return predicate.test(path) ?
+						self.load(path) :
+						Promise.ofException(new ResourceNotFoundException("Resource '" + path + "' has been filtered out"));
+			}
+
+			@Override
+			public Promise<@Nullable ChannelFileReader> openFile(String path) {
+				return predicate.test(path) ?
+						self.openFile(path) :
+						Promise.ofException(new ResourceNotFoundException("Resource '" + path + "' has been filtered out"));
+			}
+
+			@Override
+			public Promise<StaticResource> loadResource(String path) {
+				return predicate.test(path) ?
+						self.loadResource(path) :
+						Promise.ofException(new ResourceNotFoundException("Resource '" + path + "' has been filtered out"));
+			}
+
+			@Override
+			public Promise<Long> getLastModified(String path) {
+				return predicate.test(path) ?
+						self.getLastModified(path) :
+						Promise.ofException(new ResourceNotFoundException("Resource '" + path + "' has been filtered out"));
+			}
+		};
 	}
 
 	default StaticLoader map(Function<String, String> fn) {
-		return path -> this.load(fn.apply(path));
+		StaticLoader self = this;
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return self.load(fn.apply(path));
+			}
+
+			@Override
+			public Promise<@Nullable ChannelFileReader> openFile(String path) {
+				return self.openFile(fn.apply(path));
+			}
+
+			@Override
+			public Promise<StaticResource> loadResource(String path) {
+				return self.loadResource(fn.apply(path));
+			}
+
+			@Override
+			public Promise<Long> getLastModified(String path) {
+				return self.getLastModified(fn.apply(path));
+			}
+		};
 	}
 
 	default StaticLoader subdirectory(String subdirectory) {
@@ -70,6 +155,16 @@ public interface StaticLoader {
 		return new StaticLoaderCache(loader, get, put);
 	}
 
+	/**
+	 * Creates a memory-bounded cache of resources of a given loader
+	 *
+	 * @see StaticContentCache
+	 */
+	static StaticContentCache cacheOf(Eventloop eventloop, StaticLoader loader, MemSize maxSize) {
+		return StaticContentCache.create(eventloop, loader)
+				.withMaxSize(maxSize);
+	}
+
 	static StaticLoader ofClassPath(@NotNull Executor executor, String root) {
 		return StaticLoaderClassPath.create(executor, root);
 	}
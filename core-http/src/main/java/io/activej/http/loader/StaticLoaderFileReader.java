@@ -21,10 +21,15 @@ import io.activej.bytebuf.ByteBufs;
 import io.activej.csp.file.ChannelFileReader;
 import io.activej.promise.Promise;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.concurrent.Executor;
 
+import static java.nio.file.StandardOpenOption.READ;
+
 class StaticLoaderFileReader implements StaticLoader {
 	private final Executor executor;
 	private final Path root;
@@ -40,6 +45,41 @@ class StaticLoaderFileReader implements StaticLoader {
 
 	@Override
 	public Promise<ByteBuf> load(String path) {
+		return openFile(path)
+				.then(cfr -> cfr.toCollector(ByteBufs.collector()));
+	}
+
+	@Override
+	public Promise<StaticResource> loadResource(String path) {
+		return getLastModified(path)
+				.then(lastModified -> load(path)
+						.map(buf -> {
+							byte[] bytes = buf.getArray();
+							buf.recycle();
+							return StaticResource.of(bytes, lastModified);
+						}));
+	}
+
+	@Override
+	public Promise<Long> getLastModified(String path) {
+		Path file = root.resolve(path).normalize();
+
+		if (!file.startsWith(root)) {
+			return Promise.ofException(new ResourceNotFoundException("Could not find '" + path + '\''));
+		}
+
+		return Promise.ofBlockingCallable(executor,
+				() -> {
+					try {
+						return Files.getLastModifiedTime(file).toMillis();
+					} catch (NoSuchFileException e) {
+						throw new ResourceNotFoundException("Could not find '" + path + '\'', e);
+					}
+				});
+	}
+
+	@Override
+	public Promise<ChannelFileReader> openFile(String path) {
 		Path file = root.resolve(path).normalize();
 
 		if (!file.startsWith(root)) {
@@ -49,7 +89,7 @@ class StaticLoaderFileReader implements StaticLoader {
 		return Promise.ofBlockingCallable(executor,
 				() -> {
 					if (Files.isRegularFile(file)) {
-						return null;
+						return FileChannel.open(file, READ);
 					}
 					if (Files.isDirectory(file)) {
 						throw new ResourceIsADirectoryException("Resource '" + path + "' is a directory");
@@ -57,7 +97,18 @@ class StaticLoaderFileReader implements StaticLoader {
 						throw new ResourceNotFoundException("Could not find '" + path + '\'');
 					}
 				})
-				.then(() -> ChannelFileReader.open(executor, file))
-				.then(cfr -> cfr.toCollector(ByteBufs.collector()));
+				.then(channel -> {
+					try {
+						return Promise.of(ChannelFileReader.create(executor, channel)
+								.withLimit(channel.size()));
+					} catch (IOException e) {
+						try {
+							channel.close();
+						} catch (IOException closeException) {
+							e.addSuppressed(closeException);
+						}
+						return Promise.ofException(e);
+					}
+				});
 	}
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+import io.activej.bytebuf.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.zip.CRC32;
+
+/**
+ * An immutable resource of a {@link StaticLoader} along with its metadata,
+ * which is used to answer conditional requests.
+ * <p>
+ * A resource may also hold a precompressed gzip variant of its content.
+ */
+public final class StaticResource {
+	private final byte[] content;
+	@Nullable
+	private final byte[] gzippedContent;
+	private final long lastModified;
+	@Nullable
+	private final String eTag;
+
+	private StaticResource(byte[] content, @Nullable byte[] gzippedContent, long lastModified, @Nullable String eTag) {
+		this.content = content;
+		this.gzippedContent = gzippedContent;
+		this.lastModified = lastModified;
+		this.eTag = eTag;
+	}
+
+	/**
+	 * Creates a resource without an entity tag
+	 *
+	 * @param content      content of a resource
+	 * @param lastModified last modification time in milliseconds, or {@code 0} if it is unknown
+	 */
+	public static StaticResource of(@NotNull byte[] content, long lastModified) {
+		return new StaticResource(content, null, lastModified, null);
+	}
+
+	/**
+	 * Returns a copy of this resource with a strong entity tag computed from its content
+	 */
+	public StaticResource withContentETag() {
+		CRC32 crc32 = new CRC32();
+		crc32.update(content, 0, content.length);
+		String eTag = '"' + Integer.toHexString(content.length) + '-' + Long.toHexString(crc32.getValue()) + '"';
+		return new StaticResource(content, gzippedContent, lastModified, eTag);
+	}
+
+	/**
+	 * Returns a copy of this resource with a gzip variant of its content
+	 */
+	public StaticResource withGzippedContent(@Nullable byte[] gzippedContent) {
+		return new StaticResource(content, gzippedContent, lastModified, eTag);
+	}
+
+	public ByteBuf getContent() {
+		return ByteBuf.wrapForReading(content);
+	}
+
+	@Nullable
+	public ByteBuf getGzippedContent() {
+		return gzippedContent != null ? ByteBuf.wrapForReading(gzippedContent) : null;
+	}
+
+	public boolean hasGzippedContent() {
+		return gzippedContent != null;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Nullable
+	public String getETag() {
+		return eTag;
+	}
+
+	/**
+	 * Returns an entity tag of a gzip variant, which differs from an entity tag of an identity content
+	 */
+	@Nullable
+	public String getGzippedETag() {
+		return eTag != null && gzippedContent != null ?
+				eTag.substring(0, eTag.length() - 1) + "-gzip\"" :
+				null;
+	}
+
+	/**
+	 * Returns a number of bytes held by this resource, including a gzip variant
+	 */
+	public int getSize() {
+		return content.length + (gzippedContent != null ? gzippedContent.length : 0);
+	}
+
+	@Override
+	public String toString() {
+		return "StaticResource{" +
+				"size=" + content.length +
+				", gzipped=" + (gzippedContent != null ? gzippedContent.length : null) +
+				", lastModified=" + lastModified +
+				", eTag=" + eTag +
+				'}';
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.session;
+
+import io.activej.async.service.EventloopService;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.api.WithInitializer;
+import io.activej.common.time.CurrentTimeProvider;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.ConcurrentJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * An in-memory session storage which may be shared between worker eventloops.
+ * <p>
+ * Sessions are distributed between lock-striped shards. Each shard keeps its sessions
+ * in the order of last access, so that expired sessions are always at the head of a shard
+ * and are evicted without scanning live ones. Expired sessions are evicted on every access
+ * to a shard, as well as periodically by a timer of this service's eventloop.
+ * <p>
+ * A number of stored sessions may be bounded, in which case least recently used sessions
+ * are evicted once a bound is reached.
+ */
+public final class SessionStoreSharded<T> implements SessionStore<T>, EventloopService, ConcurrentJmxBean, WithInitializer<SessionStoreSharded<T>> {
+	public static final int DEFAULT_SHARDS = ApplicationSettings.getInt(SessionStoreSharded.class, "shards", 16);
+	public static final Duration DEFAULT_EVICTION_INTERVAL = ApplicationSettings.getDuration(SessionStoreSharded.class, "evictionInterval", Duration.ofSeconds(1));
+
+	private final Eventloop eventloop;
+
+	private Shard<T>[] shards;
+	private int maxSessions;
+	@Nullable
+	private Duration sessionLifetime;
+	private long sessionLifetimeMillis;
+	private long evictionIntervalMillis = DEFAULT_EVICTION_INTERVAL.toMillis();
+
+	@Nullable
+	private ScheduledRunnable evictionTask;
+
+	CurrentTimeProvider now = CurrentTimeProvider.ofSystem();
+
+	// region JMX
+	private final AtomicLong savedSessions = new AtomicLong();
+	private final AtomicLong expiredSessions = new AtomicLong();
+	private final AtomicLong evictedSessions = new AtomicLong();
+	// endregion
+
+	private SessionStoreSharded(Eventloop eventloop) {
+		this.eventloop = eventloop;
+		this.shards = createShards(DEFAULT_SHARDS);
+	}
+
+	public static <T> SessionStoreSharded<T> create(Eventloop eventloop) {
+		return new SessionStoreSharded<>(eventloop);
+	}
+
+	public SessionStoreSharded<T> withLifetime(Duration sessionLifetime) {
+		this.sessionLifetime = sessionLifetime;
+		this.sessionLifetimeMillis = sessionLifetime.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a number of shards, which is rounded up to a power of two
+	 */
+	public SessionStoreSharded<T> withShards(int shards) {
+		checkArgument(shards > 0, "Number of shards should be positive");
+		this.shards = createShards(shards);
+		return this;
+	}
+
+	/**
+	 * Bounds a number of stored sessions, least recently used sessions are evicted to stay within the bound.
+	 * The bound is split evenly between shards.
+	 */
+	public SessionStoreSharded<T> withMaxSessions(int maxSessions) {
+		checkArgument(maxSessions >= 0, "Max sessions should not be negative");
+		this.maxSessions = maxSessions;
+		return this;
+	}
+
+	/**
+	 * Sets an interval of evicting expired sessions by a timer
+	 */
+	public SessionStoreSharded<T> withEvictionInterval(Duration evictionInterval) {
+		this.evictionIntervalMillis = evictionInterval.toMillis();
+		return this;
+	}
+
+	@Override
+	public Promise<Void> save(String sessionId, T sessionObject) {
+		long timestamp = now.currentTimeMillis();
+		Shard<T> shard = shardOf(sessionId);
+		synchronized (shard) {
+			evictExpired(shard, timestamp);
+			shard.sessions.put(sessionId, new TWithTimestamp<>(sessionObject, timestamp));
+			evictOverflow(shard);
+		}
+		savedSessions.incrementAndGet();
+		return Promise.complete();
+	}
+
+	@Override
+	public Promise<@Nullable T> get(String sessionId) {
+		long timestamp = now.currentTimeMillis();
+		Shard<T> shard = shardOf(sessionId);
+		synchronized (shard) {
+			evictExpired(shard, timestamp);
+			TWithTimestamp<T> tWithTimestamp = shard.sessions.get(sessionId);
+			if (tWithTimestamp == null) {
+				return Promise.of(null);
+			}
+			tWithTimestamp.timestamp = timestamp;
+			return Promise.of(tWithTimestamp.value);
+		}
+	}
+
+	@Override
+	public Promise<Void> remove(String sessionId) {
+		Shard<T> shard = shardOf(sessionId);
+		synchronized (shard) {
+			shard.sessions.remove(sessionId);
+		}
+		return Promise.complete();
+	}
+
+	@Override
+	@Nullable
+	public Duration getSessionLifetimeHint() {
+		return sessionLifetime;
+	}
+
+	@NotNull
+	@Override
+	public Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	@NotNull
+	@Override
+	public Promise<?> start() {
+		if (sessionLifetime != null && evictionIntervalMillis != 0) {
+			scheduleEviction();
+		}
+		return Promise.complete();
+	}
+
+	@NotNull
+	@Override
+	public Promise<?> stop() {
+		if (evictionTask != null) {
+			evictionTask.cancel();
+			evictionTask = null;
+		}
+		return Promise.complete();
+	}
+
+	private void scheduleEviction() {
+		evictionTask = eventloop.delayBackground(evictionIntervalMillis, () -> {
+			evictExpired();
+			scheduleEviction();
+		});
+	}
+
+	/**
+	 * Evicts expired sessions from all of the shards
+	 *
+	 * @return number of evicted sessions
+	 */
+	@JmxOperation
+	public int evictExpired() {
+		if (sessionLifetime == null) return 0;
+		int evicted = 0;
+		for (Shard<T> shard : shards) {
+			long timestamp = now.currentTimeMillis();
+			synchronized (shard) {
+				evicted += evictExpired(shard, timestamp);
+			}
+		}
+		return evicted;
+	}
+
+	private int evictExpired(Shard<T> shard, long timestamp) {
+		if (sessionLifetime == null) return 0;
+		int evicted = 0;
+		Iterator<TWithTimestamp<T>> iterator = shard.sessions.values().iterator();
+		while (iterator.hasNext()) {
+			TWithTimestamp<T> tWithTimestamp = iterator.next();
+			if (tWithTimestamp.timestamp + sessionLifetimeMillis >= timestamp) {
+				break;
+			}
+			iterator.remove();
+			evicted++;
+		}
+		if (evicted != 0) {
+			expiredSessions.addAndGet(evicted);
+		}
+		return evicted;
+	}
+
+	private void evictOverflow(Shard<T> shard) {
+		if (maxSessions == 0) return;
+		int maxShardSessions = (maxSessions + shards.length - 1) / shards.length;
+		Iterator<TWithTimestamp<T>> iterator = shard.sessions.values().iterator();
+		while (shard.sessions.size() > maxShardSessions) {
+			iterator.next();
+			iterator.remove();
+			evictedSessions.incrementAndGet();
+		}
+	}
+
+	private Shard<T> shardOf(String sessionId) {
+		int hash = sessionId.hashCode();
+		return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+	}
+
+	private static <T> Shard<T>[] createShards(int shards) {
+		int count = Integer.highestOneBit(shards - 1) << 1;
+		@SuppressWarnings("unchecked")
+		Shard<T>[] result = new Shard[Math.max(count, 1)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new Shard<>();
+		}
+		return result;
+	}
+
+	private static final class Shard<T> {
+		final LinkedHashMap<String, TWithTimestamp<T>> sessions = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	private static final class TWithTimestamp<T> {
+		final T value;
+		long timestamp;
+
+		TWithTimestamp(T value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public int getSessions() {
+		int sessions = 0;
+		for (Shard<T> shard : shards) {
+			synchronized (shard) {
+				sessions += shard.sessions.size();
+			}
+		}
+		return sessions;
+	}
+
+	@JmxAttribute
+	public int getShards() {
+		return shards.length;
+	}
+
+	@JmxAttribute
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	@JmxAttribute
+	public long getSavedSessions() {
+		return savedSessions.get();
+	}
+
+	@JmxAttribute
+	public long getExpiredSessions() {
+		return expiredSessions.get();
+	}
+
+	@JmxAttribute
+	public long getEvictedSessions() {
+		return evictedSessions.get();
+	}
+	// endregion
+}
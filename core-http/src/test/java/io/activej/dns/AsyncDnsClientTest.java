@@ -92,6 +92,23 @@ public final class AsyncDnsClientTest {
 		assertEquals(TIMED_OUT, e.getResult().getErrorCode());
 	}
 
+	@Test
+	public void testDnsClientFailover() {
+		RemoteAsyncDnsClient.JmxInspector inspector = new RemoteAsyncDnsClient.JmxInspector();
+		RemoteAsyncDnsClient dnsClient = RemoteAsyncDnsClient.create(Eventloop.getCurrentEventloop())
+				.withTimeout(Duration.ofMillis(100))
+				.withInspector(inspector)
+				.withDnsServerAddresses(Arrays.asList(UNREACHABLE_DNS, RemoteAsyncDnsClient.GOOGLE_PUBLIC_DNS));
+
+		DnsResponse first = await(dnsClient.resolve4("www.google.com"));
+		assertTrue(first.isSuccessful());
+
+		// an unreachable server is in backoff now, so a query goes directly to a second server
+		DnsResponse second = await(dnsClient.resolve4("www.github.com"));
+		assertTrue(second.isSuccessful());
+		assertEquals(1, inspector.getFailovers().getTotalCount());
+	}
+
 	@Test
 	public void testDnsNameError() {
 		AsyncDnsClient dnsClient = RemoteAsyncDnsClient.create(Eventloop.getCurrentEventloop());
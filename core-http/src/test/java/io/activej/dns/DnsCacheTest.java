@@ -0,0 +1,140 @@
+package io.activej.dns;
+
+import io.activej.dns.DnsCache.DnsQueryCacheResult;
+import io.activej.dns.protocol.DnsQuery;
+import io.activej.dns.protocol.DnsResourceRecord;
+import io.activej.dns.protocol.DnsResponse;
+import io.activej.dns.protocol.DnsTransaction;
+import io.activej.eventloop.Eventloop;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.activej.dns.protocol.DnsProtocol.ResponseErrorCode.SERVER_FAILURE;
+import static org.junit.Assert.*;
+
+public final class DnsCacheTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private final AtomicLong time = new AtomicLong(1_000_000);
+
+	private DnsCache cache;
+
+	@Before
+	public void setUp() {
+		cache = DnsCache.create(Eventloop.getCurrentEventloop())
+				.withHardExpirationDelta(Duration.ofSeconds(10));
+		cache.now = time::get;
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() {
+		DnsQuery query = DnsQuery.ipv4("example.com");
+		cache.add(query, response(query, 5, "1.1.1.1"));
+
+		DnsQueryCacheResult result = cache.tryToResolve(query);
+		assertNotNull(result);
+		assertFalse(result.doesNeedRefreshing());
+
+		time.addAndGet(6_000);
+		cache.performCleanup();
+		result = cache.tryToResolve(query);
+		assertNotNull(result);
+		assertTrue(result.doesNeedRefreshing());
+
+		time.addAndGet(10_000);
+		assertNull(cache.tryToResolve(query));
+		cache.performCleanup();
+		assertEquals(0, cache.getDomainsCount());
+	}
+
+	@Test
+	public void testRefreshAhead() {
+		cache.withRefreshAhead(Duration.ofSeconds(2));
+		DnsQuery query = DnsQuery.ipv4("example.com");
+		cache.add(query, response(query, 5, "1.1.1.1"));
+
+		time.addAndGet(2_000);
+		DnsQueryCacheResult result = cache.tryToResolve(query);
+		assertNotNull(result);
+		assertFalse(result.doesNeedRefreshing());
+
+		time.addAndGet(1_500);
+		result = cache.tryToResolve(query);
+		assertNotNull(result);
+		assertTrue(result.doesNeedRefreshing());
+	}
+
+	@Test
+	public void testMaxSizeEvictsClosestToExpiration() {
+		cache.withMaxSize(2);
+		DnsQuery first = DnsQuery.ipv4("first.com");
+		DnsQuery second = DnsQuery.ipv4("second.com");
+		DnsQuery third = DnsQuery.ipv4("third.com");
+		cache.add(first, response(first, 100, "1.1.1.1"));
+		cache.add(second, response(second, 10, "2.2.2.2"));
+		cache.add(third, response(third, 50, "3.3.3.3"));
+
+		assertEquals(2, cache.getDomainsCount());
+		assertEquals(1, cache.getEvictedDomainsCount());
+		assertNotNull(cache.tryToResolve(first));
+		assertNull(cache.tryToResolve(second));
+		assertNotNull(cache.tryToResolve(third));
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		DnsQuery query = DnsQuery.ipv4("example.com");
+		DnsQuery expiring = DnsQuery.ipv4("expiring.com");
+		DnsQuery failed = DnsQuery.ipv4("failed.com");
+		cache.add(query, response(query, 100, "1.1.1.1", "2.2.2.2"));
+		cache.add(expiring, response(expiring, 1, "3.3.3.3"));
+		cache.add(failed, DnsResponse.ofFailure(DnsTransaction.of((short) 0, failed), SERVER_FAILURE));
+
+		Path file = tmpFolder.getRoot().toPath().resolve("dns.snapshot");
+		cache.saveSnapshot(file);
+
+		time.addAndGet(20_000);
+		DnsCache restored = DnsCache.create(Eventloop.getCurrentEventloop())
+				.withHardExpirationDelta(Duration.ofSeconds(10));
+		restored.now = time::get;
+		assertEquals(1, restored.loadSnapshot(file));
+
+		DnsQueryCacheResult result = restored.tryToResolve(query);
+		assertNotNull(result);
+		assertFalse(result.doesNeedRefreshing());
+		DnsResourceRecord record = result.getResponseAsPromise().getResult().getRecord();
+		assertNotNull(record);
+		assertEquals(100, record.getMinTtl());
+		assertEquals(2, record.getIps().length);
+		assertNull(restored.tryToResolve(expiring));
+		assertNull(restored.tryToResolve(failed));
+
+		assertEquals(0, restored.loadSnapshot(file.resolveSibling("missing")));
+	}
+
+	private static DnsResponse response(DnsQuery query, int ttl, String... ips) {
+		InetAddress[] addresses = new InetAddress[ips.length];
+		try {
+			for (int i = 0; i < ips.length; i++) {
+				addresses[i] = InetAddress.getByName(ips[i]);
+			}
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return DnsResponse.of(DnsTransaction.of((short) 0, query), DnsResourceRecord.of(addresses, ttl));
+	}
+}
@@ -0,0 +1,174 @@
+package io.activej.http;
+
+import io.activej.common.exception.UncheckedException;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AdmissionControl.ConcurrencyLimit;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.promise.TestUtils.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.*;
+
+public final class AdmissionControlTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private final List<SettablePromise<HttpResponse>> pending = new ArrayList<>();
+	private final List<String> served = new ArrayList<>();
+
+	private final AsyncServlet servlet = request -> {
+		served.add(request.getPath());
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		pending.add(promise);
+		return promise;
+	};
+
+	@Test
+	public void testRejectsOverLimit() {
+		AdmissionControl admissionControl = AdmissionControl.create(Eventloop.getCurrentEventloop(), 2);
+		AsyncServlet limited = admissionControl.serve(servlet);
+
+		Promise<HttpResponse> first = limited.serveAsync(request("/1"));
+		Promise<HttpResponse> second = limited.serveAsync(request("/2"));
+		Promise<HttpResponse> third = limited.serveAsync(request("/3"));
+
+		assertFalse(first.isComplete());
+		assertFalse(second.isComplete());
+		assertEquals(503, third.getResult().getCode());
+		assertEquals(2, admissionControl.getInFlight());
+
+		pending.get(0).set(HttpResponse.ok200());
+		assertEquals(200, first.getResult().getCode());
+
+		Promise<HttpResponse> fourth = limited.serveAsync(request("/4"));
+		assertFalse(fourth.isComplete());
+		assertEquals(2, admissionControl.getInFlight());
+		assertEquals(1, admissionControl.getRejected().getTotalCount());
+		assertEquals(3, admissionControl.getAdmitted().getTotalCount());
+	}
+
+	@Test
+	public void testPriorities() {
+		AdmissionControl admissionControl = AdmissionControl.create(Eventloop.getCurrentEventloop(), 1)
+				.withMaxQueueSize(2)
+				.withPriorities(2, request -> request.getPath().startsWith("/critical") ? 0 : 1);
+		AsyncServlet limited = admissionControl.serve(servlet);
+
+		limited.serveAsync(request("/first"));
+		Promise<HttpResponse> regular1 = limited.serveAsync(request("/regular1"));
+		Promise<HttpResponse> regular2 = limited.serveAsync(request("/regular2"));
+		Promise<HttpResponse> critical = limited.serveAsync(request("/critical"));
+
+		// the most recent request of a less critical class is shed
+		assertEquals(503, regular2.getResult().getCode());
+		assertEquals(2, admissionControl.getQueueSize());
+		assertEquals(1, admissionControl.getShed().getTotalCount());
+
+		pending.get(0).set(HttpResponse.ok200());
+		pending.get(1).set(HttpResponse.ok200());
+		assertEquals(200, critical.getResult().getCode());
+		pending.get(2).set(HttpResponse.ok200());
+		assertEquals(200, regular1.getResult().getCode());
+
+		assertEquals(3, served.size());
+		assertEquals("/critical", served.get(1));
+		assertEquals("/regular1", served.get(2));
+	}
+
+	@Test
+	public void testServletThrows() {
+		AsyncServlet failing = request -> {
+			if (request.getPath().startsWith("/fail")) {
+				throw new UncheckedException(new HttpException("Failed"));
+			}
+			return servlet.serveAsync(request);
+		};
+		AdmissionControl admissionControl = AdmissionControl.create(Eventloop.getCurrentEventloop(), 1)
+				.withMaxQueueSize(1);
+		AsyncServlet limited = admissionControl.serve(failing);
+
+		Promise<HttpResponse> failed = limited.serveAsync(request("/fail1"));
+		assertThat(failed.getException(), instanceOf(HttpException.class));
+		assertEquals(0, admissionControl.getInFlight());
+
+		Promise<HttpResponse> first = limited.serveAsync(request("/1"));
+		Promise<HttpResponse> queued = limited.serveAsync(request("/fail2"));
+		assertFalse(queued.isComplete());
+
+		pending.get(0).set(HttpResponse.ok200());
+		assertEquals(200, first.getResult().getCode());
+		assertThat(queued.getException(), instanceOf(HttpException.class));
+		assertEquals(0, admissionControl.getInFlight());
+
+		Promise<HttpResponse> next = limited.serveAsync(request("/2"));
+		assertFalse(next.isComplete());
+		assertEquals(1, admissionControl.getInFlight());
+	}
+
+	@Test
+	public void testQueueTimeout() {
+		AdmissionControl admissionControl = AdmissionControl.create(Eventloop.getCurrentEventloop(), 1)
+				.withMaxQueueSize(1)
+				.withQueueTimeout(Duration.ofMillis(10));
+		AsyncServlet limited = admissionControl.serve(servlet);
+
+		limited.serveAsync(request("/1"));
+		HttpResponse response = await(limited.serveAsync(request("/2")));
+
+		assertEquals(503, response.getCode());
+		assertEquals(0, admissionControl.getQueueSize());
+		assertEquals(1, admissionControl.getTimedOut().getTotalCount());
+		assertEquals(1, served.size());
+	}
+
+	@Test
+	public void testAimdLimit() {
+		ConcurrencyLimit limit = ConcurrencyLimit.aimd(10, 2, 20, Duration.ofMillis(100), 0.5);
+
+		limit.onSample(10, 10);
+		assertEquals(11, limit.getLimit());
+
+		// limit is not increased while it is not used
+		limit.onSample(10, 1);
+		assertEquals(11, limit.getLimit());
+
+		limit.onSample(200, 11);
+		assertEquals(5, limit.getLimit());
+		limit.onSample(200, 5);
+		limit.onSample(200, 5);
+		assertEquals(2, limit.getLimit());
+	}
+
+	@Test
+	public void testGradientLimit() {
+		ConcurrencyLimit limit = ConcurrencyLimit.gradient(20, 5, 100);
+
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(10, limit.getLimit());
+		}
+		int grown = limit.getLimit();
+		assertTrue(grown > 20);
+
+		for (int i = 0; i < 50; i++) {
+			limit.onSample(100, limit.getLimit());
+		}
+		assertTrue(limit.getLimit() < grown);
+	}
+
+	private static HttpRequest request(String path) {
+		return HttpRequest.get("http://example.com" + path);
+	}
+}
@@ -3,6 +3,7 @@ package io.activej.http;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.common.exception.CloseException;
 import io.activej.common.ref.Ref;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.binary.BinaryChannelSupplier;
@@ -182,6 +183,117 @@ public final class AsyncHttpClientTest {
 		assertEquals(0, inspector.getActiveRequests());
 	}
 
+	@Test
+	public void testMaxConnectionsPerAddress() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		Ref<Integer> activeRequests = new Ref<>(0);
+		Ref<Integer> maxActiveRequests = new Ref<>(0);
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> {
+					activeRequests.set(activeRequests.get() + 1);
+					maxActiveRequests.set(Math.max(maxActiveRequests.get(), activeRequests.get()));
+					return Promise.<HttpResponse>ofCallback(cb -> eventloop.delay(10, () -> {
+						activeRequests.set(activeRequests.get() - 1);
+						cb.set(HttpResponse.ok200());
+					}));
+				})
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient httpClient = AsyncHttpClient.create(eventloop)
+				.withMaxConnectionsPerAddress(2)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withInspector(inspector);
+
+		List<Integer> codes = await(Promises.toList(IntStream.range(0, 10)
+				.mapToObj(i -> httpClient.request(HttpRequest.get("http://127.0.0.1:" + PORT))
+						.map(HttpResponse::getCode)))
+				.whenComplete(() -> {
+					assertEquals(2, httpClient.getConnectionsCount());
+					assertEquals(0, httpClient.getPendingRequestsCount());
+					server.close();
+					httpClient.stop();
+				}));
+
+		assertEquals(10, codes.size());
+		codes.forEach(code -> assertEquals(200, (int) code));
+		assertEquals(2, (int) maxActiveRequests.get());
+		assertEquals(1, inspector.getAddressStats().size());
+	}
+
+	@Test
+	public void testPoolWaitTimeout() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> Promise.<HttpResponse>ofCallback(cb -> eventloop.delay(200, () -> cb.set(HttpResponse.ok200()))))
+				.withListenPort(PORT);
+		server.listen();
+
+		AsyncHttpClient httpClient = AsyncHttpClient.create(eventloop)
+				.withMaxConnectionsPerAddress(1)
+				.withPoolWaitTimeout(Duration.ofMillis(20));
+
+		Promise<HttpResponse> first = httpClient.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+		Exception e = awaitException(httpClient.request(HttpRequest.get("http://127.0.0.1:" + PORT))
+				.whenComplete(() -> first.whenComplete(() -> {
+					assertEquals(200, first.getResult().getCode());
+					server.close();
+					httpClient.stop();
+				})));
+
+		assertThat(e, instanceOf(AsyncTimeoutException.class));
+	}
+
+	@Test
+	public void testPendingRequestsAreFailedOnStop() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> Promise.<HttpResponse>ofCallback(cb -> eventloop.delay(50, () -> cb.set(HttpResponse.ok200()))))
+				.withListenPort(PORT);
+		server.listen();
+
+		AsyncHttpClient httpClient = AsyncHttpClient.create(eventloop)
+				.withMaxConnectionsPerAddress(1);
+
+		Promise<HttpResponse> first = httpClient.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+		Promise<HttpResponse> second = httpClient.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+		Exception e = awaitException(httpClient.stop()
+				.then(() -> second)
+				.whenComplete(() -> first.whenComplete(server::close)));
+
+		assertThat(e, instanceOf(CloseException.class));
+		assertEquals(200, first.getResult().getCode());
+	}
+
+	@Test
+	public void testPrewarm() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop, request -> HttpResponse.ok200())
+				.withListenPort(PORT);
+		server.listen();
+
+		AsyncHttpClient httpClient = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30));
+
+		int code = await(httpClient.prewarm("http://127.0.0.1:" + PORT, 3)
+				.then(() -> {
+					assertEquals(3, httpClient.getConnectionsKeepAliveCount());
+					return httpClient.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+				})
+				.map(HttpResponse::getCode)
+				.whenComplete(() -> {
+					assertEquals(3, httpClient.getConnectionsCount());
+					server.close();
+					httpClient.stop();
+				}));
+		assertEquals(200, code);
+	}
+
 	@Test
 	public void testClientNoContentLength() throws Exception {
 		String text = "content";
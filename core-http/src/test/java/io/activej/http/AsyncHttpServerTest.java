@@ -290,6 +290,56 @@ public final class AsyncHttpServerTest {
 		thread.join();
 	}
 
+	@Test
+	public void testPipeliningWithDepth() throws Exception {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		int port = getFreePort();
+		doTestPipelining(eventloop, delayedHttpServer(eventloop, port).withPipeliningDepth(4), port);
+	}
+
+	@Test
+	public void testPipelinedRequestsServedConcurrently() throws Exception {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		int port = getFreePort();
+		int[] concurrentRequests = new int[2];
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> {
+					concurrentRequests[1] = Math.max(concurrentRequests[1], ++concurrentRequests[0]);
+					String path = request.getPath();
+					// later requests are served faster
+					return Promises.delay(50 - 10L * Integer.parseInt(path.substring(1)),
+							HttpResponse.ok200().withBody(encodeAscii(path)))
+							.whenComplete(() -> concurrentRequests[0]--);
+				})
+				.withListenPort(port)
+				.withPipeliningDepth(4);
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		Socket socket = new Socket();
+		socket.connect(new InetSocketAddress("localhost", port));
+
+		socket.getOutputStream().write(encodeAscii("" +
+				"GET /1 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+				"GET /2 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+				"GET /3 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+				"GET /4 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+				"GET /5 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+
+		for (int i = 1; i <= 4; i++) {
+			readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 2\r\n\r\n/" + i);
+		}
+		readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/5");
+		assertEquals(0, toByteArray(socket.getInputStream()).length);
+		socket.close();
+
+		server.closeFuture().get();
+		thread.join();
+
+		assertEquals(4, concurrentRequests[1]);
+	}
+
 	@Test
 	@Ignore("does not work")
 	public void testPipelining2() throws Exception {
@@ -400,6 +450,40 @@ public final class AsyncHttpServerTest {
 		thread.join();
 	}
 
+	@Test
+	public void testHeadersTemplateAndDateHeader() throws Exception {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		int port = getFreePort();
+		AsyncHttpServer server = blockingHttpServer(eventloop, port)
+				.withHeaders(HttpHeadersTemplate.create().withHeader(HttpHeaders.SERVER, "activej"))
+				.withDateHeader(true);
+
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		Socket socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(new InetSocketAddress("localhost", port));
+
+		String dateLine = "Date: Thu, 01 Jan 1970 00:00:00 GMT";
+		String expected = "HTTP/1.1 200 OK\r\nServer: activej\r\n" + dateLine + "\r\nConnection: close\r\nContent-Length: 4\r\n\r\n/abc";
+		writeByRandomParts(socket, "GET /abc HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+		byte[] bytes = new byte[expected.length()];
+		readFully(socket.getInputStream(), bytes);
+		String actual = decodeAscii(bytes);
+
+		assertTrue(actual.matches("(?s).*\r\nDate: \\w{3}, \\d{2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n.*"));
+		assertEquals(new LinkedHashSet<>(asList(expected.replace(dateLine + "\r\n", "").split("\r\n"))),
+				new LinkedHashSet<>(asList(actual.replaceFirst("Date: [^\r]*\r\n", "").split("\r\n"))));
+
+		assertEquals(0, toByteArray(socket.getInputStream()).length);
+		socket.close();
+
+		server.closeFuture().get();
+		thread.join();
+	}
+
 	@Test
 	public void testBodyRecycledOnce() throws IOException, InterruptedException {
 		int port = getFreePort();
@@ -0,0 +1,115 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.HttpHeaderValue.of;
+import static io.activej.http.HttpHeaders.*;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class HpackTest {
+	@Test
+	public void testHuffmanEncoding() throws MalformedHttpException {
+		// RFC 7541, C.4.1
+		byte[] value = encodeAscii("www.example.com");
+		ByteBuf buf = ByteBufPool.allocate(64);
+		Hpack.huffmanEncode(value, 0, value.length, buf);
+		assertEquals("f1e3c2e5f23a6ba0ab90f4ff", toHex(buf));
+		assertEquals(buf.readRemaining(), Hpack.huffmanEncodedLength(value, 0, value.length));
+
+		assertArrayEquals(value, Hpack.huffmanDecode(buf.array(), buf.head(), buf.readRemaining()));
+		buf.recycle();
+	}
+
+	@Test
+	public void testHuffmanRoundTrip() throws MalformedHttpException {
+		byte[] value = new byte[256];
+		for (int i = 0; i < value.length; i++) {
+			value[i] = (byte) i;
+		}
+		ByteBuf buf = ByteBufPool.allocate(1024);
+		Hpack.huffmanEncode(value, 0, value.length, buf);
+		assertArrayEquals(value, Hpack.huffmanDecode(buf.array(), buf.head(), buf.readRemaining()));
+		buf.recycle();
+	}
+
+	@Test
+	public void testDecodingWithDynamicTable() throws MalformedHttpException {
+		HpackDecoder decoder = new HpackDecoder(4096, 65536);
+
+		// RFC 7541, C.3.1
+		assertEquals(asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+				decode(decoder, "828684410f7777772e6578616d706c652e636f6d"));
+		assertEquals(1, decoder.getTableLength());
+		assertEquals(57, decoder.getTableSize());
+
+		// RFC 7541, C.3.2
+		assertEquals(asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com", "cache-control", "no-cache"),
+				decode(decoder, "828684be58086e6f2d6361636865"));
+		assertEquals(2, decoder.getTableLength());
+		assertEquals(110, decoder.getTableSize());
+	}
+
+	@Test
+	public void testMalformedBlock() {
+		HpackDecoder decoder = new HpackDecoder(4096, 65536);
+		try {
+			decode(decoder, "80");
+			fail();
+		} catch (MalformedHttpException ignored) {
+		}
+		try {
+			decode(decoder, "410f7777772e");
+			fail();
+		} catch (MalformedHttpException ignored) {
+		}
+	}
+
+	@Test
+	public void testEncoderRoundTrip() throws MalformedHttpException {
+		HpackEncoder encoder = new HpackEncoder();
+		ByteBuf buf = ByteBufPool.allocate(256);
+		encoder.encodeStatus(buf, 200);
+		encoder.encodeStatus(buf, 418);
+		encoder.encodeHeader(buf, CONTENT_TYPE, of("text/html"));
+		encoder.encodeHeader(buf, HttpHeaders.of("X-Custom-Header"), of("some value"));
+
+		List<String> fields = new ArrayList<>();
+		new HpackDecoder(4096, 65536).decode(buf.array(), buf.head(), buf.readRemaining(),
+				(name, value) -> {
+					fields.add(decodeAscii(name));
+					fields.add(decodeAscii(value));
+				});
+		buf.recycle();
+
+		assertEquals(asList(":status", "200", ":status", "418", "content-type", "text/html", "x-custom-header", "some value"), fields);
+	}
+
+	private static List<String> decode(HpackDecoder decoder, String hex) throws MalformedHttpException {
+		byte[] block = new byte[hex.length() / 2];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		List<String> fields = new ArrayList<>();
+		decoder.decode(block, 0, block.length, (name, value) -> {
+			fields.add(decodeAscii(name));
+			fields.add(decodeAscii(value));
+		});
+		return fields;
+	}
+
+	private static String toHex(ByteBuf buf) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = buf.head(); i < buf.tail(); i++) {
+			sb.append(String.format("%02x", buf.array()[i] & 0xFF));
+		}
+		return sb.toString();
+	}
+}
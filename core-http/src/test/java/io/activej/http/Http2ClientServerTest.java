@@ -0,0 +1,261 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufStrings;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.https.SslUtils.createTestSslContext;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public final class Http2ClientServerTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private int port;
+	private String url;
+
+	@Before
+	public void setUp() {
+		port = getFreePort();
+		url = "http://127.0.0.1:" + port;
+	}
+
+	@Test
+	public void testMultiplexedRequests() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200()
+						.withHeader(CONTENT_TYPE, "text/plain")
+						.withBody(wrapUtf8(request.getVersion() + " " + request.getPath() + " " + request.getHeader(HOST))))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		List<String> responses = await(Promises.toList(IntStream.range(0, 50)
+				.mapToObj(i -> client.request(HttpRequest.get(url + "/path" + i))
+						.then(response -> {
+							assertEquals(HttpVersion.HTTP_2_0, response.getVersion());
+							assertEquals("text/plain", response.getHeader(CONTENT_TYPE));
+							return response.loadBody();
+						})
+						.map(body -> body.getString(UTF_8))))
+				.whenComplete(() -> {
+					assertEquals(1, client.getConnectionsCount());
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(IntStream.range(0, 50)
+						.mapToObj(i -> "HTTP_2_0 /path" + i + " 127.0.0.1:" + port)
+						.collect(Collectors.toList()),
+				responses);
+	}
+
+	@Test
+	public void testHeadersTemplatesAndDateHeader() throws IOException {
+		HttpHeadersTemplate template = HttpHeadersTemplate.create()
+				.withHeader(CONTENT_TYPE, "text/plain")
+				.withHeader(CACHE_CONTROL, "max-age=60");
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200()
+						.withHeaders(template)
+						.withBody(wrapUtf8("Hello")))
+				.withListenPort(port)
+				.withHttp2(true)
+				.withHeaders(HttpHeadersTemplate.create().withHeader(SERVER, "ActiveJ"))
+				.withDateHeader(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		HttpResponse response = await(client.request(HttpRequest.get(url))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(HttpVersion.HTTP_2_0, response.getVersion());
+		assertEquals("text/plain", response.getHeader(CONTENT_TYPE));
+		assertEquals("max-age=60", response.getHeader(CACHE_CONTROL));
+		assertEquals("ActiveJ", response.getHeader(SERVER));
+		assertNotNull(response.getHeader(DATE));
+	}
+
+	@Test
+	public void testLargeBodies() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> request.loadBody()
+						.map(body -> HttpResponse.ok200().withBody(body.getArray())))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		byte[] bytes = new byte[3 * 1024 * 1024];
+		new Random(0).nextBytes(bytes);
+
+		byte[] body = await(client.request(HttpRequest.post(url).withBody(bytes))
+				.then(HttpMessage::loadBody)
+				.map(ByteBuf::getArray)
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertArrayEquals(bytes, body);
+	}
+
+	@Test
+	public void testBufferedBodyIsLimitedWithoutMaxBodySize() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> request.loadBody()
+						.map(body -> HttpResponse.ok200()))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		byte[] bytes = new byte[AbstractHttp2Connection.MAX_BODY_SIZE.toInt() + 1];
+		Throwable e = awaitException(client.request(HttpRequest.post(url).withBody(bytes))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertTrue(e instanceof HttpException);
+	}
+
+	@Test
+	public void testStreamedAndGzippedResponse() throws IOException {
+		String chunk = "Hello, HTTP/2! ";
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200()
+						.withBodyGzipCompression()
+						.withBodyStream(ChannelSupplier.ofStream(IntStream.range(0, 1000)
+								.mapToObj(i -> ByteBufStrings.wrapAscii(chunk)))))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		String body = await(client.request(HttpRequest.get(url))
+				.then(response -> {
+					assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+					return response.loadBody();
+				})
+				.map(buf -> buf.getString(UTF_8))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			expected.append(chunk);
+		}
+		assertEquals(expected.toString(), body);
+	}
+
+	@Test
+	public void testSecureConnection() throws IOException {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200().withBody(wrapUtf8(request.getVersion() + " " + request.getProtocol())))
+				.withSslListenPort(createTestSslContext(), executor, port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withSslEnabled(createTestSslContext(), executor)
+				.withHttp2(true);
+
+		List<String> responses = await(Promises.toList(IntStream.range(0, 10)
+				.mapToObj(i -> client.request(HttpRequest.get("https://127.0.0.1:" + port))
+						.then(HttpMessage::loadBody)
+						.map(body -> body.getString(UTF_8))))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+					executor.shutdown();
+				}));
+
+		assertEquals(10, responses.size());
+		responses.forEach(response -> assertEquals("HTTP_2_0 HTTPS", response));
+	}
+
+	@Test
+	public void testHttp1ClientIsServed() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200().withBody(wrapUtf8(request.getVersion().toString())))
+				.withListenPort(port)
+				.withHttp2(true)
+				.withAcceptOnce();
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		String body = await(client.request(HttpRequest.get(url))
+				.then(HttpMessage::loadBody)
+				.map(buf -> buf.getString(UTF_8)));
+
+		assertEquals("HTTP_1_1", body);
+	}
+
+	@Test
+	public void testServletError() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> Promise.ofException(HttpError.notFound404()))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		int code = await(client.request(HttpRequest.get(url))
+				.map(HttpResponse::getCode)
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(404, code);
+	}
+}
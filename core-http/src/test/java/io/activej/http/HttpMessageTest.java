@@ -49,6 +49,49 @@ public final class HttpMessageTest {
 				HttpResponse.ofCode(200).withCookies(asList(HttpCookie.of("cookie1", "value1"), HttpCookie.of("cookie2", "value2"))));
 	}
 
+	@Test
+	public void testHeadersTemplate() {
+		HttpHeadersTemplate template = HttpHeadersTemplate.create()
+				.withHeader(HttpHeaders.SERVER, "activej")
+				.withHeader(HttpHeaders.CONTENT_TYPE, HttpHeaderValue.ofContentType(ContentType.of(MediaTypes.JSON)));
+
+		HttpResponse response = HttpResponse.ok200().withHeaders(template).withBody("{}".getBytes(StandardCharsets.UTF_8));
+		assertEquals("activej", response.getHeader(HttpHeaders.SERVER));
+		assertEquals("application/json", response.getHeader(HttpHeaders.CONTENT_TYPE));
+		assertHttpMessageEquals("HTTP/1.1 200 OK\r\nServer: activej\r\nContent-Type: application/json\r\nContent-Length: 2\r\n\r\n{}", response);
+	}
+
+	@Test
+	public void testServerHeadersTemplate() {
+		HttpResponse response = HttpResponse.ok200()
+				.withHeaders(HttpHeadersTemplate.create().withHeader(HttpHeaders.CONTENT_TYPE, "application/json"))
+				.withHeader(HttpHeaders.CACHE_CONTROL, "max-age=60")
+				.withBody("{}".getBytes(StandardCharsets.UTF_8));
+		response.serverHeadersTemplate = HttpHeadersTemplate.create()
+				.withHeader(HttpHeaders.SERVER, "activej")
+				.withHeader(HttpHeaders.CONTENT_TYPE, "text/html")
+				.withHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+
+		// headers which a response sets by itself are not taken from a server template
+		assertEquals("activej", response.getHeader(HttpHeaders.SERVER));
+		assertEquals("application/json", response.getHeader(HttpHeaders.CONTENT_TYPE));
+		assertEquals("max-age=60", response.getHeader(HttpHeaders.CACHE_CONTROL));
+		assertHttpMessageEquals("HTTP/1.1 200 OK\r\nServer: activej\r\nContent-Type: application/json\r\n" +
+				"Cache-Control: max-age=60\r\nContent-Length: 2\r\n\r\n{}", response);
+	}
+
+	@Test
+	public void testCopyWithoutBodyIsRoutedIndependently() {
+		HttpRequest request = HttpRequest.get("http://test.com/a/b?x=1");
+		HttpRequest copy = request.copyWithoutBody();
+		assertEquals("a", request.pollUrlPart());
+		assertEquals("b", request.getRelativePath());
+		assertEquals("a/b", copy.getRelativePath());
+		assertEquals("1", copy.getQueryParameter("x"));
+		request.recycle();
+		copy.recycle();
+	}
+
 	@Test
 	public void testHttpRequest() {
 		assertHttpMessageEquals("GET /index.html HTTP/1.1\r\nHost: test.com\r\n\r\n", HttpRequest.get("http://test.com/index.html"));
@@ -2,9 +2,11 @@ package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufStrings;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.binary.BinaryChannelSupplier;
+import io.activej.http.MultipartDecoder.MultipartPart;
 import io.activej.promise.Promise;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
@@ -17,12 +19,13 @@ import java.util.Map;
 
 import static io.activej.common.collection.CollectionUtils.map;
 import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.mapping;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.*;
 
 public final class MultipartDecoderTest {
 	private static final String BOUNDARY = "--test-boundary-123";
@@ -46,6 +49,21 @@ public final class MultipartDecoderTest {
 			"line, huh\n" +
 			CRLF + BOUNDARY + "--" + CRLF;
 
+	private static final String PARTS_DATA = BOUNDARY + CRLF +
+			"Content-Disposition: form-data; name=\"description\"" + CRLF +
+			CRLF +
+			"Some text" +
+			CRLF + BOUNDARY + CRLF +
+			"Content-Disposition: form-data; name=\"file\"; filename=\"test.txt\"" + CRLF +
+			"Content-Type: text/plain" + CRLF +
+			CRLF +
+			"File content\r\nwith CRLF" +
+			CRLF + BOUNDARY + CRLF +
+			"Content-Disposition: form-data; name=\"other\"; filename=\"other.txt\"" + CRLF +
+			CRLF +
+			"Other file" +
+			CRLF + BOUNDARY + "--" + CRLF;
+
 	@ClassRule
 	public static final EventloopRule eventloopRule = new EventloopRule();
 
@@ -55,14 +73,7 @@ public final class MultipartDecoderTest {
 	@SuppressWarnings("ConstantConditions")
 	@Test
 	public void test() {
-		List<ByteBuf> split = new ArrayList<>();
-		int i = 0;
-		while (i < DATA.length() / 5 - 1) {
-			split.add(ByteBuf.wrapForReading(DATA.substring(i * 5, ++i * 5).getBytes(UTF_8)));
-		}
-		if (DATA.length() != (i *= 5)) {
-			split.add(ByteBuf.wrapForReading(DATA.substring(i).getBytes(UTF_8)));
-		}
+		List<ByteBuf> split = splitIntoBufs(DATA);
 
 		List<Map<String, String>> headers = new ArrayList<>();
 
@@ -108,4 +119,74 @@ public final class MultipartDecoderTest {
 			}
 		}));
 	}
+
+	@Test
+	public void testParts() {
+		ChannelSupplier<MultipartPart> parts = MultipartDecoder.create(BOUNDARY.substring(2))
+				.parts(ChannelSupplier.ofList(splitIntoBufs(PARTS_DATA)));
+
+		MultipartPart field = await(parts.get());
+		assertEquals("description", field.getFieldName());
+		assertFalse(field.isFile());
+		assertEquals("Some text", await(field.getBodyStream().toCollector(ByteBufs.collector())).asString(UTF_8));
+
+		MultipartPart file = await(parts.get());
+		assertEquals("file", file.getFieldName());
+		assertEquals("test.txt", file.getFileName());
+		assertEquals("text/plain", file.getHeader("Content-Type"));
+		assertEquals("File content\r\nwith CRLF", await(file.getBodyStream().toCollector(ByteBufs.collector())).asString(UTF_8));
+
+		MultipartPart other = await(parts.get());
+		assertEquals("other.txt", other.getFileName());
+		assertEquals("Other file", await(other.getBodyStream().toCollector(ByteBufs.collector())).asString(UTF_8));
+
+		assertNull(await(parts.get()));
+	}
+
+	@Test
+	public void testPartsSkipUnconsumedBodies() {
+		ChannelSupplier<MultipartPart> parts = MultipartDecoder.create(BOUNDARY.substring(2))
+				.parts(ChannelSupplier.ofList(splitIntoBufs(PARTS_DATA)));
+
+		List<String> fileNames = new ArrayList<>();
+		await(parts.streamTo(ChannelConsumer.of(part -> {
+			if (part.isFile()) {
+				fileNames.add(part.getFileName());
+			}
+			return Promise.complete();
+		})));
+
+		assertEquals(asList("test.txt", "other.txt"), fileNames);
+	}
+
+	@Test
+	public void testPartsOnlyLastPart() {
+		ByteBuf buf = ByteBufStrings.wrapUtf8(BOUNDARY + "--" + CRLF);
+
+		assertNull(await(MultipartDecoder.create(BOUNDARY.substring(2))
+				.parts(ChannelSupplier.of(buf))
+				.get()));
+	}
+
+	@Test
+	public void testPartsNoHeaders() {
+		ByteBuf buf = ByteBufStrings.wrapUtf8("Some data" + CRLF + BOUNDARY + "--" + CRLF);
+
+		Throwable e = awaitException(MultipartDecoder.create(BOUNDARY.substring(2))
+				.parts(ChannelSupplier.of(buf))
+				.get());
+		assertThat(e, instanceOf(MalformedHttpException.class));
+	}
+
+	private static List<ByteBuf> splitIntoBufs(String data) {
+		List<ByteBuf> split = new ArrayList<>();
+		int i = 0;
+		while (i < data.length() / 5 - 1) {
+			split.add(ByteBuf.wrapForReading(data.substring(i * 5, ++i * 5).getBytes(UTF_8)));
+		}
+		if (data.length() != (i *= 5)) {
+			split.add(ByteBuf.wrapForReading(data.substring(i).getBytes(UTF_8)));
+		}
+		return split;
+	}
 }
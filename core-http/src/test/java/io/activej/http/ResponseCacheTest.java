@@ -0,0 +1,326 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBufs;
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public final class ResponseCacheTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private final List<String> served = new ArrayList<>();
+
+	private final AsyncServlet servlet = request -> {
+		String path = request.getPath();
+		served.add(path);
+		HttpResponse response = HttpResponse.ok200()
+				.withHeader(CONTENT_TYPE, HttpHeaderValue.ofContentType(ContentTypes.PLAIN_TEXT_UTF_8))
+				.withPlainText(path + " " + served.size());
+		String cacheControl = request.getQueryParameter("cc");
+		if (cacheControl != null) response.addHeader(CACHE_CONTROL, cacheControl);
+		return response;
+	};
+
+	@Test
+	public void testHitsAndMisses() {
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop());
+		AsyncServlet cached = cache.serve(servlet);
+
+		assertEquals("/a 1", body(await(cached.serveAsync(request("/a?cc=max-age=60")))));
+		HttpResponse hit = await(cached.serveAsync(request("/a?cc=max-age=60")));
+		assertEquals("/a 1", body(hit));
+		assertEquals("max-age=60", hit.getHeader(CACHE_CONTROL));
+		assertEquals("text/plain; charset=utf-8", hit.getHeader(CONTENT_TYPE));
+
+		// responses without max-age are not cached by default
+		assertEquals("/b 2", body(await(cached.serveAsync(request("/b")))));
+		assertEquals("/b 3", body(await(cached.serveAsync(request("/b")))));
+
+		// request with no-cache refreshes a response
+		assertEquals("/a 4", body(await(cached.serveAsync(request("/a?cc=max-age=60")
+				.withHeader(CACHE_CONTROL, "no-cache")))));
+		assertEquals("/a 4", body(await(cached.serveAsync(request("/a?cc=max-age=60")))));
+
+		assertEquals(2, cache.getHits().getTotalCount());
+		assertEquals(4, cache.getMisses().getTotalCount());
+		assertEquals(1, cache.getEntries());
+	}
+
+	@Test
+	public void testUncacheable() {
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop())
+				.withDefaultTtl(Duration.ofMinutes(1));
+		AsyncServlet cached = cache.serve(request -> {
+			served.add(request.getPath());
+			switch (request.getPath()) {
+				case "/cookie":
+					return HttpResponse.ok200().withCookie(HttpCookie.of("session", "1")).withBody(new byte[1]);
+				case "/private":
+					return HttpResponse.ok200().withHeader(CACHE_CONTROL, "private, max-age=60").withBody(new byte[1]);
+				case "/no-store":
+					return HttpResponse.ok200().withHeader(CACHE_CONTROL, "no-store").withBody(new byte[1]);
+				case "/error":
+					return HttpResponse.ofCode(500).withBody(new byte[1]);
+				default:
+					return HttpResponse.ok200().withBody(new byte[1]);
+			}
+		});
+
+		for (String path : new String[]{"/cookie", "/private", "/no-store", "/error"}) {
+			await(cached.serveAsync(request(path)));
+			await(cached.serveAsync(request(path)));
+		}
+		await(cached.serveAsync(request("/authorized").withHeader(AUTHORIZATION, "Basic dXNlcjpwYXNz")));
+		await(cached.serveAsync(request("/authorized").withHeader(AUTHORIZATION, "Basic dXNlcjpwYXNz")));
+
+		assertEquals(10, served.size());
+		assertEquals(0, cache.getEntries());
+		assertEquals(8, cache.getUncacheable().getTotalCount());
+	}
+
+	@Test
+	public void testCoalescing() {
+		List<SettablePromise<HttpResponse>> pending = new ArrayList<>();
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop());
+		AsyncServlet cached = cache.serve(request -> {
+			SettablePromise<HttpResponse> promise = new SettablePromise<>();
+			pending.add(promise);
+			return promise;
+		});
+
+		Promise<HttpResponse> first = cached.serveAsync(request("/a"));
+		Promise<HttpResponse> second = cached.serveAsync(request("/a"));
+		Promise<HttpResponse> third = cached.serveAsync(request("/a"));
+		assertEquals(1, pending.size());
+		assertEquals(2, cache.getCoalesced().getTotalCount());
+
+		pending.get(0).set(HttpResponse.ok200().withHeader(CACHE_CONTROL, "max-age=60").withPlainText("shared"));
+
+		assertEquals("shared", body(first.getResult()));
+		assertEquals("shared", body(second.getResult()));
+		assertEquals("shared", body(third.getResult()));
+		assertEquals(1, cache.getEntries());
+	}
+
+	@Test
+	public void testCoalescingUncacheable() {
+		List<SettablePromise<HttpResponse>> pending = new ArrayList<>();
+		AsyncServlet cached = ResponseCache.create(Eventloop.getCurrentEventloop())
+				.serve(request -> {
+					SettablePromise<HttpResponse> promise = new SettablePromise<>();
+					pending.add(promise);
+					return promise;
+				});
+
+		Promise<HttpResponse> first = cached.serveAsync(request("/a"));
+		Promise<HttpResponse> second = cached.serveAsync(request("/a"));
+		assertEquals(1, pending.size());
+
+		// a response which is not cached can not be shared, so a waiter is served separately
+		pending.get(0).set(HttpResponse.ok200().withPlainText("first"));
+		assertEquals(2, pending.size());
+		pending.get(1).set(HttpResponse.ok200().withPlainText("second"));
+
+		assertEquals("first", body(first.getResult()));
+		assertEquals("second", body(second.getResult()));
+	}
+
+	@Test
+	public void testVary() {
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop());
+		AsyncServlet cached = cache.serve(request -> {
+			served.add(request.getPath());
+			return HttpResponse.ok200()
+					.withHeader(CACHE_CONTROL, "max-age=60")
+					.withHeader(VARY, "Accept-Language")
+					.withPlainText(request.getHeader(ACCEPT_LANGUAGE));
+		});
+
+		assertEquals("en", body(await(cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "en")))));
+		assertEquals("de", body(await(cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "de")))));
+		assertEquals("en", body(await(cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "en")))));
+		assertEquals("de", body(await(cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "de")))));
+
+		assertEquals(2, served.size());
+		assertEquals(2, cache.getEntries());
+
+		cache.invalidate("/");
+		assertEquals(0, cache.getEntries());
+		assertEquals(0, cache.getCachedBytes());
+	}
+
+	@Test
+	public void testCoalescingVary() {
+		List<SettablePromise<HttpResponse>> pending = new ArrayList<>();
+		AsyncServlet cached = ResponseCache.create(Eventloop.getCurrentEventloop())
+				.serve(request -> {
+					SettablePromise<HttpResponse> promise = new SettablePromise<>();
+					pending.add(promise);
+					return promise.map(response -> response.withPlainText(request.getHeader(ACCEPT_LANGUAGE)));
+				});
+
+		Promise<HttpResponse> en = cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "en"));
+		Promise<HttpResponse> otherEn = cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "en"));
+		Promise<HttpResponse> de = cached.serveAsync(request("/").withHeader(ACCEPT_LANGUAGE, "de"));
+		assertEquals(1, pending.size());
+
+		// a variant is not known until a response is loaded, so a waiter of another variant is served separately
+		pending.get(0).set(HttpResponse.ok200().withHeader(CACHE_CONTROL, "max-age=60").withHeader(VARY, "Accept-Language"));
+		assertEquals(2, pending.size());
+		pending.get(1).set(HttpResponse.ok200().withHeader(CACHE_CONTROL, "max-age=60").withHeader(VARY, "Accept-Language"));
+
+		assertEquals("en", body(en.getResult()));
+		assertEquals("en", body(otherEn.getResult()));
+		assertEquals("de", body(de.getResult()));
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() {
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop())
+				.withDefaultTtl(Duration.ofMillis(10))
+				.withStaleWhileRevalidate(Duration.ofMinutes(1));
+		AsyncServlet cached = cache.serve(servlet);
+
+		assertEquals("/a 1", body(await(cached.serveAsync(request("/a")))));
+		await(Promises.delay(Duration.ofMillis(20)));
+
+		// a stale response is served and refreshed in background
+		assertEquals("/a 1", body(await(cached.serveAsync(request("/a")))));
+		assertEquals(2, served.size());
+		assertEquals("/a 2", body(await(cached.serveAsync(request("/a")))));
+
+		assertEquals(1, cache.getStaleHits().getTotalCount());
+		assertEquals(1, cache.getHits().getTotalCount());
+	}
+
+	@Test
+	public void testEviction() {
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop())
+				.withMaxEntrySize(MemSize.kilobytes(1))
+				.withMaxSize(MemSize.kilobytes(2))
+				.withDefaultTtl(Duration.ofMinutes(1));
+		AsyncServlet cached = cache.serve(request -> HttpResponse.ok200().withBody(new byte[700]));
+
+		await(cached.serveAsync(request("/a")));
+		await(cached.serveAsync(request("/b")));
+		await(cached.serveAsync(request("/a")));
+		await(cached.serveAsync(request("/c")));
+
+		// the least recently used response is evicted
+		assertEquals(2, cache.getEntries());
+		assertEquals(1, cache.getEvictions().getTotalCount());
+		assertTrue(cache.getCachedBytes() <= MemSize.kilobytes(2).toLong());
+		await(cached.serveAsync(request("/a")));
+		assertEquals(2, cache.getHits().getTotalCount());
+	}
+
+	@Test
+	public void testEntryLargerThanCache() {
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop())
+				.withMaxSize(MemSize.kilobytes(1))
+				.withMaxEntrySize(MemSize.kilobytes(1))
+				.withDefaultTtl(Duration.ofMinutes(1));
+		AsyncServlet cached = cache.serve(request -> HttpResponse.ok200()
+				.withBody(new byte[request.getPath().equals("/big") ? 1024 : 100]));
+
+		await(cached.serveAsync(request("/a")));
+		// a body fits into max entry size, but along with headers and a key it exceeds max size
+		await(cached.serveAsync(request("/big")));
+
+		assertEquals(1, cache.getEntries());
+		assertEquals(0, cache.getEvictions().getTotalCount());
+		assertEquals(1, cache.getUncacheable().getTotalCount());
+		await(cached.serveAsync(request("/a")));
+		assertEquals(1, cache.getHits().getTotalCount());
+	}
+
+	@Test
+	public void testSizeValidation() {
+		// sizes are validated when a cache is applied, regardless of the order in which they are set
+		ResponseCache.create(Eventloop.getCurrentEventloop())
+				.withMaxSize(MemSize.kilobytes(1))
+				.withMaxEntrySize(MemSize.bytes(512))
+				.serve(servlet);
+
+		try {
+			ResponseCache.create(Eventloop.getCurrentEventloop())
+					.withMaxSize(MemSize.kilobytes(1))
+					.serve(servlet);
+			fail();
+		} catch (IllegalStateException ignored) {
+		}
+	}
+
+	@Test
+	public void testHitOverHttp2() throws IOException {
+		int port = getFreePort();
+		ResponseCache cache = ResponseCache.create(Eventloop.getCurrentEventloop());
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				cache.serve(request -> HttpResponse.ok200()
+						.withHeader(CONTENT_TYPE, HttpHeaderValue.ofContentType(ContentTypes.PLAIN_TEXT_UTF_8))
+						.withHeader(CACHE_CONTROL, "max-age=60")
+						.withHeader(ETAG, "\"1\"")
+						.withPlainText("cached")))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+		String url = "http://127.0.0.1:" + port + "/a";
+
+		List<String> hit = await(client.request(HttpRequest.get(url))
+				.then(HttpMessage::loadBody)
+				.then(() -> client.request(HttpRequest.get(url)))
+				.then(response -> response.loadBody()
+						.map(body -> Arrays.asList(response.getVersion().name(), body.getString(UTF_8),
+								response.getHeader(CONTENT_TYPE), response.getHeader(CACHE_CONTROL), response.getHeader(ETAG))))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(1, cache.getHits().getTotalCount());
+		assertEquals(Arrays.asList("HTTP_2_0", "cached", "text/plain; charset=utf-8", "max-age=60", "\"1\""), hit);
+	}
+
+	@Test
+	public void testCacheControlDirectives() {
+		assertEquals(60, ResponseCache.getDirectiveSeconds("public, max-age=60", "max-age"));
+		assertEquals(30, ResponseCache.getDirectiveSeconds("max-age=\"30\", s-maxage=10", "max-age"));
+		assertEquals(-1, ResponseCache.getDirectiveSeconds("public", "max-age"));
+		assertEquals(-1, ResponseCache.getDirectiveSeconds("max-age=abc", "max-age"));
+		assertTrue(ResponseCache.hasDirective("Private, max-age=0", "private"));
+		assertFalse(ResponseCache.hasDirective("no-cache-please", "no-cache"));
+	}
+
+	private static HttpRequest request(String pathAndQuery) {
+		return HttpRequest.get("http://example.com" + pathAndQuery);
+	}
+
+	private static String body(HttpResponse response) {
+		return await(response.getBodyStream().toCollector(ByteBufs.collector())).asString(UTF_8);
+	}
+}
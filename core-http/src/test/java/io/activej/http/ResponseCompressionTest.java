@@ -0,0 +1,168 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufs;
+import io.activej.common.MemSize;
+import io.activej.csp.ChannelSupplier;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.promise.TestUtils.await;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public final class ResponseCompressionTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private static final String JSON = createJson(1000);
+
+	@Test
+	public void testGzip() throws IOException {
+		ResponseCompression compression = ResponseCompression.create();
+		AsyncServlet servlet = compression.serve(request -> HttpResponse.ok200().withJson(JSON));
+
+		HttpResponse response = await(servlet.serveAsync(request("deflate;q=0.5, gzip")));
+
+		assertEquals("gzip", response.getHeader(CONTENT_ENCODING));
+		assertEquals("Accept-Encoding", response.getHeader(VARY));
+		byte[] compressed = readBody(response);
+		assertEquals(JSON, new String(decompress(new GZIPInputStream(new ByteArrayInputStream(compressed))), UTF_8));
+
+		assertEquals(1, compression.getCompressedResponses());
+		assertEquals(JSON.length(), compression.getUncompressedBytes());
+		assertEquals(compressed.length, compression.getCompressedBytes());
+		assertTrue(compression.getCompressionRatio() > 1);
+	}
+
+	@Test
+	public void testDeflate() throws IOException {
+		AsyncServlet servlet = ResponseCompression.create()
+				.withLevel(9)
+				.serve(request -> HttpResponse.ok200().withPlainText(JSON));
+
+		HttpResponse response = await(servlet.serveAsync(request("gzip;q=0, deflate")));
+
+		assertEquals("deflate", response.getHeader(CONTENT_ENCODING));
+		byte[] compressed = readBody(response);
+		assertEquals(JSON, new String(decompress(new InflaterInputStream(new ByteArrayInputStream(compressed))), UTF_8));
+	}
+
+	@Test
+	public void testNotCompressed() {
+		ResponseCompression compression = ResponseCompression.create()
+				.withMinSize(MemSize.kilobytes(1));
+		AsyncServlet servlet = compression.serve(request -> {
+			String path = request.getPath();
+			if (path.equals("/small")) return HttpResponse.ok200().withJson("{}");
+			if (path.equals("/binary")) return HttpResponse.ok200().withBody(JSON.getBytes(UTF_8));
+			return HttpResponse.ok200().withJson(JSON);
+		});
+
+		assertNotCompressed(await(servlet.serveAsync(request("/small", "gzip"))), "{}");
+		assertNotCompressed(await(servlet.serveAsync(request("/binary", "gzip"))), JSON);
+		assertNotCompressed(await(servlet.serveAsync(request("/json", "identity"))), JSON);
+		assertNotCompressed(await(servlet.serveAsync(HttpRequest.get("http://example.com/json"))), JSON);
+
+		assertEquals(0, compression.getCompressedResponses());
+		assertEquals(3, compression.getSkippedResponses());
+	}
+
+	@Test
+	public void testStreaming() throws IOException {
+		AsyncServlet servlet = ResponseCompression.create()
+				.serve(request -> HttpResponse.ok200()
+						.withHeader(CONTENT_TYPE, HttpHeaderValue.ofContentType(ContentTypes.PLAIN_TEXT_UTF_8))
+						.withBodyStream(ChannelSupplier.of(wrapUtf8("first chunk;"), wrapUtf8("second chunk;"), wrapUtf8(JSON))));
+
+		HttpResponse response = await(servlet.serveAsync(request("gzip")));
+		assertEquals("gzip", response.getHeader(CONTENT_ENCODING));
+
+		ChannelSupplier<ByteBuf> bodyStream = response.getBodyStream();
+
+		// each chunk is flushed, so it can be decompressed before the rest of a stream is received
+		ByteBuf first = await(bodyStream.get());
+		Inflater inflater = new Inflater(true);
+		byte[] firstBytes = first.getArray();
+		inflater.setInput(firstBytes, 10, firstBytes.length - 10);
+		byte[] inflated = new byte[100];
+		int inflatedSize;
+		try {
+			inflatedSize = inflater.inflate(inflated);
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		} finally {
+			inflater.end();
+		}
+		assertEquals("first chunk;", new String(inflated, 0, inflatedSize, UTF_8));
+
+		ByteBuf rest = await(bodyStream.toCollector(ByteBufs.collector()));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(firstBytes);
+		out.write(rest.asArray());
+		first.recycle();
+
+		assertEquals("first chunk;second chunk;" + JSON,
+				new String(decompress(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))), UTF_8));
+	}
+
+	@Test
+	public void testQuality() {
+		assertEquals(1, ResponseCompression.getQuality("gzip, deflate", "gzip"), 0);
+		assertEquals(0.5, ResponseCompression.getQuality("deflate, gzip;q=0.5", "gzip"), 0);
+		assertEquals(0.3, ResponseCompression.getQuality("br, *;q=0.3", "deflate"), 0.001);
+		assertEquals(0, ResponseCompression.getQuality("br", "gzip"), 0);
+	}
+
+	private static HttpRequest request(String acceptEncoding) {
+		return request("/", acceptEncoding);
+	}
+
+	private static HttpRequest request(String path, String acceptEncoding) {
+		return HttpRequest.get("http://example.com" + path)
+				.withHeader(ACCEPT_ENCODING, acceptEncoding);
+	}
+
+	private static void assertNotCompressed(HttpResponse response, String expected) {
+		assertNull(response.getHeader(CONTENT_ENCODING));
+		assertEquals(expected, new String(readBody(response), UTF_8));
+	}
+
+	private static byte[] readBody(HttpResponse response) {
+		return await(response.getBodyStream().toCollector(ByteBufs.collector())).asArray();
+	}
+
+	private static byte[] decompress(InputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	private static String createJson(int entries) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < entries; i++) {
+			if (i != 0) sb.append(',');
+			sb.append("{\"id\":").append(i).append(",\"name\":\"entry ").append(i).append("\"}");
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -373,4 +373,59 @@ public final class RoutingServletTest {
 		check(main.serve(HttpRequest.post(TEMPLATE + wsPath)), "", 404);
 	}
 
+	@Test
+	public void testCompiled() {
+		AsyncServlet printPath = request -> HttpResponse.ok200()
+				.withBody(wrapUtf8(request.getPath() + " " + request.getPathParameters() + " " + request.getRelativePath()));
+
+		RoutingServlet servlet = RoutingServlet.create()
+				.map(GET, "/", printPath)
+				.map(GET, "/api/users", printPath)
+				.map(GET, "/api/user", printPath)
+				.map(POST, "/api/user", printPath)
+				.map(GET, "/api/user/:id", printPath)
+				.map(GET, "/api/user/:id/orders/:order", printPath)
+				.map(GET, "/api/user/:id/a/b", printPath)
+				.map("/api/user/:uid/a/*", printPath)
+				.map(GET, "/api/u/:id", printPath)
+				.map(GET, "/api/apples", printPath)
+				.map("/static/*", printPath)
+				.mapWebSocket("/api/user", request -> HttpResponse.ok200())
+				.map("/*", printPath);
+		CompiledRoutingServlet compiled = servlet.compile();
+
+		String[] urls = {"/", "/api", "/api/users", "/api/user", "/api/use", "/api/userss", "/api/user/", "/api/user/1",
+				"/api/user/1/orders/2", "/api/user/1/orders", "/api/user/1/a/b", "/api/user/1/a/c/d", "/api/user/%20x+y/a/b",
+				"/api/u/42?query=string", "/api/apples#fragment", "/api/app", "/static/css/main.css", "/static", "//api"};
+		for (String url : urls) {
+			for (HttpMethod method : new HttpMethod[]{GET, POST}) {
+				assertEquals(url, serveToString(servlet, HttpRequest.of(method, TEMPLATE + url)),
+						serveToString(compiled, HttpRequest.of(method, TEMPLATE + url)));
+			}
+			assertEquals(url, serveToString(servlet, HttpRequest.get(TEMPLATE_WS + url)),
+					serveToString(compiled, HttpRequest.get(TEMPLATE_WS + url)));
+		}
+	}
+
+	@Test
+	public void testCompiledParameters() {
+		CompiledRoutingServlet servlet = RoutingServlet.create()
+				.map(GET, "/:id/a/:uid", request -> HttpResponse.ok200()
+						.withBody(wrapUtf8(request.getPathParameter("id") + " " + request.getPathParameter("uid"))))
+				.compile();
+
+		check(servlet.serve(HttpRequest.get(TEMPLATE + "/1%202/a/x+y")), "1 2 x y", 200);
+		check(servlet.serve(HttpRequest.get(TEMPLATE + "/1/b/2")), "", 404);
+	}
+
+	private static String serveToString(AsyncServlet servlet, HttpRequest request) {
+		Promise<HttpResponse> promise = servlet.serveAsync(request);
+		assertTrue(promise.isComplete());
+		if (promise.isException()) {
+			Throwable e = promise.getException();
+			return e instanceof HttpError ? "error " + ((HttpError) e).getCode() : e.toString();
+		}
+		HttpResponse response = promise.getResult();
+		return response.getCode() + " " + response.getBody().asString(UTF_8);
+	}
 }
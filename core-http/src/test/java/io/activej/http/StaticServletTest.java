@@ -1,7 +1,14 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.loader.ResourceNotFoundException;
+import io.activej.http.loader.StaticContentCache;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticResource;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.BeforeClass;
@@ -12,15 +19,20 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.HttpHeaders.*;
 import static io.activej.http.loader.StaticLoader.ofClassPath;
 import static io.activej.http.loader.StaticLoader.ofPath;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.Executors.newCachedThreadPool;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public final class StaticServletTest {
 	public static final String EXPECTED_CONTENT = "Test";
@@ -53,6 +65,18 @@ public final class StaticServletTest {
 		assertEquals(EXPECTED_CONTENT, body.asString(UTF_8));
 	}
 
+	@Test
+	public void testPathLoaderFileTransfer() {
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath))
+				.withFileTransfer();
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		assertEquals(String.valueOf(EXPECTED_CONTENT.length()), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+		await(response.loadBody());
+		ByteBuf body = response.getBody();
+
+		assertEquals(EXPECTED_CONTENT, body.asString(UTF_8));
+	}
+
 	@Test
 	public void testFileNotFoundPathLoader() {
 		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath));
@@ -127,4 +151,174 @@ public final class StaticServletTest {
 		assertEquals(customContent, body.asString(UTF_8));
 		assertEquals(customType, response.getHeader(HttpHeaders.CONTENT_TYPE));
 	}
+
+	@Test
+	public void testConditionalRequests() {
+		StaticServlet staticServlet = StaticServlet.create(StaticContentCache.create(Eventloop.getCurrentEventloop(),
+				ofPath(newCachedThreadPool(), resourcesPath)));
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		String eTag = response.getHeader(ETAG);
+		String lastModified = response.getHeader(LAST_MODIFIED);
+		assertNotNull(eTag);
+		assertNotNull(lastModified);
+
+		assertEquals(304, await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(IF_NONE_MATCH, "\"other\", " + eTag))).getCode());
+		assertEquals(304, await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(IF_MODIFIED_SINCE, lastModified))).getCode());
+
+		HttpResponse modified = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(IF_NONE_MATCH, "\"other\"")
+				.withHeader(IF_MODIFIED_SINCE, lastModified)));
+		assertEquals(200, modified.getCode());
+		assertEquals(EXPECTED_CONTENT, modified.getBody().asString(UTF_8));
+	}
+
+	@Test
+	public void testConditionalRequestsThroughWrappedCache() {
+		StaticServlet staticServlet = StaticServlet.create(StaticContentCache.create(Eventloop.getCurrentEventloop(),
+				ofPath(newCachedThreadPool(), resourcesPath))
+				.filter(path -> path.endsWith(".html"))
+				.map(path -> path));
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		String eTag = response.getHeader(ETAG);
+		assertNotNull(eTag);
+
+		assertEquals(304, await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(IF_NONE_MATCH, eTag))).getCode());
+	}
+
+	@Test
+	public void testNotModifiedResponseHeaders() {
+		StaticServlet staticServlet = StaticServlet.create(StaticContentCache.create(Eventloop.getCurrentEventloop(),
+				ofPath(newCachedThreadPool(), resourcesPath)))
+				.withResponse(() -> HttpResponse.ok200().withHeader(CACHE_CONTROL, "max-age=60"));
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		assertEquals("max-age=60", response.getHeader(CACHE_CONTROL));
+
+		HttpResponse notModified = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(IF_NONE_MATCH, response.getHeader(ETAG))));
+		assertEquals(304, notModified.getCode());
+		assertEquals("max-age=60", notModified.getHeader(CACHE_CONTROL));
+		assertEquals(response.getHeader(ETAG), notModified.getHeader(ETAG));
+	}
+
+	@Test
+	public void testPrecompressedVariant() throws IOException, MalformedHttpException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("line ").append(i % 10).append('\n');
+		}
+		String content = sb.toString();
+		Files.write(resourcesPath.resolve("big.txt"), encodeAscii(content));
+
+		StaticServlet staticServlet = StaticServlet.create(StaticContentCache.create(Eventloop.getCurrentEventloop(),
+				ofPath(newCachedThreadPool(), resourcesPath))
+				.withGzip());
+
+		HttpResponse plain = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/big.txt")));
+		assertNull(plain.getHeader(CONTENT_ENCODING));
+		assertEquals("Accept-Encoding", plain.getHeader(VARY));
+		assertEquals(content, plain.getBody().asString(UTF_8));
+
+		HttpResponse gzipped = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/big.txt")
+				.withHeader(ACCEPT_ENCODING, "gzip, deflate")));
+		assertEquals("gzip", gzipped.getHeader(CONTENT_ENCODING));
+		assertNotEquals(plain.getHeader(ETAG), gzipped.getHeader(ETAG));
+		assertTrue(gzipped.getBody().readRemaining() < content.length());
+		ByteBuf inflated = GzipProcessorUtils.fromGzip(gzipped.getBody(), content.length() * 2);
+		assertEquals(content, inflated.asString(UTF_8));
+
+		HttpResponse refused = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/big.txt")
+				.withHeader(ACCEPT_ENCODING, "gzip;q=0, deflate")));
+		assertNull(refused.getHeader(CONTENT_ENCODING));
+		assertEquals(content, refused.getBody().asString(UTF_8));
+	}
+
+	@Test
+	public void testNotFoundCaching() throws IOException {
+		int[] loads = new int[1];
+		StaticLoader loader = path -> {
+			loads[0]++;
+			return Promise.ofException(new ResourceNotFoundException("Could not find '" + path + '\''));
+		};
+		StaticContentCache cache = StaticContentCache.create(Eventloop.getCurrentEventloop(), loader);
+		awaitException(cache.loadResource("missing"));
+		awaitException(cache.loadResource("missing"));
+		assertEquals(2, loads[0]);
+		assertEquals(0, cache.getCachedNotFound());
+
+		cache.withNotFoundTtl(Duration.ofMinutes(1))
+				.withMaxNotFound(2);
+		awaitException(cache.loadResource("missing"));
+		awaitException(cache.loadResource("missing"));
+		assertEquals(3, loads[0]);
+
+		awaitException(cache.loadResource("other1"));
+		awaitException(cache.loadResource("other2"));
+		assertEquals(2, cache.getCachedNotFound());
+		assertEquals(0, cache.getCachedResources());
+		awaitException(cache.loadResource("missing"));
+		assertEquals(6, loads[0]);
+
+		// a file which is created later is served once a missing resource is not cached
+		StaticContentCache fileCache = StaticContentCache.create(Eventloop.getCurrentEventloop(),
+				ofPath(newCachedThreadPool(), resourcesPath));
+		awaitException(fileCache.load("created.txt"));
+		Files.write(resourcesPath.resolve("created.txt"), encodeAscii("created"));
+		assertEquals("created", await(fileCache.load("created.txt")).asString(UTF_8));
+	}
+
+	@Test
+	public void testCacheCoalescingAndEviction() {
+		int[] loads = new int[1];
+		StaticLoader loader = path -> {
+			loads[0]++;
+			return Promise.ofCallback(cb -> Eventloop.getCurrentEventloop().delay(10, () ->
+					cb.set(ByteBuf.wrapForReading(new byte[1000]))));
+		};
+		StaticContentCache cache = StaticContentCache.create(Eventloop.getCurrentEventloop(), loader)
+				.withMaxSize(MemSize.bytes(1500));
+
+		List<StaticResource> resources = await(Promises.toList(IntStream.range(0, 10)
+				.mapToObj($ -> cache.loadResource("a"))));
+		assertEquals(1, loads[0]);
+		resources.forEach(resource -> assertSame(resources.get(0), resource));
+		assertEquals(9, cache.getCoalescedLoads().getTotalCount());
+
+		await(cache.loadResource("b"));
+		assertEquals(2, loads[0]);
+		assertEquals(1, cache.getCachedResources());
+		assertEquals(1, cache.getEvictions().getTotalCount());
+		assertTrue(cache.getCachedBytes() <= 1500);
+
+		await(cache.loadResource("b"));
+		await(cache.loadResource("a"));
+		assertEquals(3, loads[0]);
+		assertEquals(1, cache.getHits().getTotalCount());
+	}
+
+	@Test
+	public void testCacheRevalidation() throws IOException, InterruptedException {
+		Path file = resourcesPath.resolve("changing.txt");
+		Files.write(file, encodeAscii("first"));
+		StaticContentCache cache = StaticContentCache.create(Eventloop.getCurrentEventloop(),
+				ofPath(newCachedThreadPool(), resourcesPath))
+				.withRevalidationInterval(Duration.ofMillis(1));
+
+		assertEquals("first", await(cache.load("changing.txt")).asString(UTF_8));
+
+		Files.write(file, encodeAscii("second"));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+		Thread.sleep(10);
+		Eventloop.getCurrentEventloop().refreshTimestampAndGet();
+
+		assertEquals("second", await(cache.load("changing.txt")).asString(UTF_8));
+		assertEquals(1, cache.getInvalidations().getTotalCount());
+
+		Thread.sleep(10);
+		Eventloop.getCurrentEventloop().refreshTimestampAndGet();
+		assertEquals("second", await(cache.load("changing.txt")).asString(UTF_8));
+		assertEquals(1, cache.getInvalidations().getTotalCount());
+	}
 }
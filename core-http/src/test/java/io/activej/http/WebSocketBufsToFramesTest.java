@@ -13,6 +13,7 @@ import static io.activej.bytebuf.ByteBuf.wrapForReading;
 import static io.activej.http.TestUtils.*;
 import static io.activej.http.WebSocket.Frame.FrameType.*;
 import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.*;
 
@@ -112,6 +113,56 @@ public final class WebSocketBufsToFramesTest {
 		assertTrue(result.isLastFrame());
 	}
 
+	@Test
+	public void decodeCompressedTextMessage() {
+		// Compressed "Hello" message, RFC 7692 - 7.2.3.1
+		byte[] frame = new byte[]{(byte) 0xc1, (byte) 0x07, (byte) 0xf2, (byte) 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, (byte) 0x07, (byte) 0x00};
+
+		Frame result = await(ChannelSupplier.of(wrapForReading(frame))
+				.transformWith(chunker())
+				.transformWith(WebSocketBufsToFrames.create(MAX_MESSAGE_SIZE, failOnItem(), failOnItem(), false,
+						PerMessageDeflate.create().acceptOffer("permessage-deflate")))
+				.get());
+
+		assertEquals(TEXT, result.getType());
+		assertEquals("Hello", result.getPayload().asString(UTF_8));
+		assertTrue(result.isLastFrame());
+	}
+
+	@Test
+	public void decodeFragmentedCompressedTextMessage() {
+		// Compressed "Hello" message split into two fragments, RFC 7692 - 7.2.3.1
+		byte[] frame1 = new byte[]{(byte) 0x41, (byte) 0x03, (byte) 0xf2, (byte) 0x48, (byte) 0xcd};
+		byte[] frame2 = new byte[]{(byte) 0x80, (byte) 0x04, (byte) 0xc9, (byte) 0xc9, (byte) 0x07, (byte) 0x00};
+
+		ChannelSupplier<Frame> supplier = ChannelSupplier.of(wrapForReading(frame1), wrapForReading(frame2))
+				.transformWith(chunker())
+				.transformWith(WebSocketBufsToFrames.create(MAX_MESSAGE_SIZE, failOnItem(), failOnItem(), false,
+						PerMessageDeflate.create().acceptOffer("permessage-deflate")));
+
+		Frame firstFrame = await(supplier.get());
+		assertEquals(TEXT, firstFrame.getType());
+		String first = firstFrame.getPayload().asString(UTF_8);
+		assertFalse(firstFrame.isLastFrame());
+
+		Frame secondFrame = await(supplier.get());
+		assertEquals(CONTINUATION, secondFrame.getType());
+		assertEquals("Hello", first + secondFrame.getPayload().asString(UTF_8));
+		assertTrue(secondFrame.isLastFrame());
+	}
+
+	@Test
+	public void decodeCompressedMessageWithoutExtension() {
+		byte[] frame = new byte[]{(byte) 0xc1, (byte) 0x07, (byte) 0xf2, (byte) 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, (byte) 0x07, (byte) 0x00};
+
+		Throwable e = awaitException(ChannelSupplier.of(wrapForReading(frame))
+				.transformWith(chunker())
+				.transformWith(WebSocketBufsToFrames.create(MAX_MESSAGE_SIZE, failOnItem(), failOnItem(), false))
+				.get());
+
+		assertSame(WebSocketConstants.RESERVED_BITS_SET, e);
+	}
+
 	@Test
 	public void decodeUnmaskedPing() {
 		// Unmasked Ping request, RFC 6455 - 5.7
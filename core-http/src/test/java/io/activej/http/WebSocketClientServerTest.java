@@ -1,5 +1,6 @@
 package io.activej.http;
 
+import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.common.ref.Ref;
 import io.activej.common.ref.RefBoolean;
@@ -7,7 +8,9 @@ import io.activej.common.ref.RefInt;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
 import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.net.SocketSettings;
 import io.activej.http.WebSocket.Message;
+import io.activej.net.SimpleServer;
 import io.activej.promise.Promisable;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
@@ -21,19 +24,23 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
 import static io.activej.http.WebSocketConstants.HANDSHAKE_FAILED;
 import static io.activej.https.SslUtils.createTestSslContext;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
@@ -74,6 +81,71 @@ public final class WebSocketClientServerTest {
 		assertEquals(IntStream.range(0, 100).mapToObj(String::valueOf).collect(joining()), result);
 	}
 
+	@Test
+	public void testEchoCompressed() throws IOException {
+		startTestServer(ws -> {
+			assertEquals("permessage-deflate; server_no_context_takeover", ws.getResponse().getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS));
+			ws.messageReadChannel().streamTo(ws.messageWriteChannel());
+		}, server -> server.withWebSocketCompression(PerMessageDeflate.create()));
+
+		List<String> messages = IntStream.range(0, 50)
+				.mapToObj(i -> i % 2 == 0 ? String.valueOf(i) : repeat("{\"id\":" + i + ",\"payload\":\"compressible\"}", 100))
+				.collect(toList());
+
+		List<String> result = new ArrayList<>();
+		await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketCompression(PerMessageDeflate.create().withServerNoContextTakeover())
+				.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + PORT))
+				.then(ws -> Promises.sequence(messages.stream()
+						.map(message -> () -> ws.writeMessage(Message.text(message))
+								.then(ws::readMessage)
+								.whenResult(echo -> result.add(echo.getText()))
+								.toVoid()))
+						.whenComplete(ws::close)));
+
+		assertEquals(messages, result);
+	}
+
+	@Test
+	public void testCompressedFragments() throws IOException {
+		String text = repeat("fragment ", 1000);
+		startTestServer(ws -> ws.readMessage()
+						.then(message -> ws.writeFrame(WebSocket.Frame.text(wrapUtf8(message.getText()), false)))
+						.then(() -> ws.writeFrame(WebSocket.Frame.next(wrapUtf8(text), false)))
+						.then(() -> ws.writeFrame(WebSocket.Frame.next(ByteBuf.empty(), true)))
+						.then(() -> ws.writeMessage(null)),
+				server -> server.withWebSocketCompression(PerMessageDeflate.create()));
+
+		String result = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketCompression(PerMessageDeflate.create())
+				.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + PORT))
+				.then(ws -> ws.writeMessage(Message.text(text))
+						.then(ws::readMessage)
+						.map(Message::getText)
+						.whenComplete(ws::close)));
+
+		assertEquals(text + text, result);
+	}
+
+	@Test
+	public void testCompressionNotAccepted() throws IOException {
+		startTestServer(ws -> ws.messageReadChannel().streamTo(ws.messageWriteChannel()));
+
+		String text = repeat("not compressed ", 100);
+		String result = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketCompression(PerMessageDeflate.create())
+				.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + PORT))
+				.then(ws -> {
+					assertNull(ws.getResponse().getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS));
+					return ws.writeMessage(Message.text(text))
+							.then(ws::readMessage)
+							.map(Message::getText)
+							.whenComplete(ws::close);
+				}));
+
+		assertEquals(text, result);
+	}
+
 	@Test
 	public void testServerWSException() throws IOException {
 		RefInt counter = new RefInt(100);
@@ -167,6 +239,57 @@ public final class WebSocketClientServerTest {
 		assertEquals(HANDSHAKE_FAILED, exception);
 	}
 
+	@Test
+	public void testUnofferedCompressionParameter() throws IOException {
+		SettablePromise<Void> serverClosed = new SettablePromise<>();
+		SimpleServer.create(socket -> {
+			StringBuilder request = new StringBuilder();
+			Promises.<ByteBuf>until(null,
+					$ -> socket.read()
+							.whenResult(buf -> {
+								if (buf != null) request.append(buf.asString(UTF_8));
+							}),
+					buf -> buf == null || request.indexOf("\r\n\r\n") != -1)
+					.then($ -> {
+						String key = null;
+						for (String line : request.toString().split("\r\n")) {
+							if (line.toLowerCase().startsWith("sec-websocket-key:")) {
+								key = line.substring(line.indexOf(':') + 1).trim();
+							}
+						}
+						return socket.write(wrapUtf8("HTTP/1.1 101 Switching Protocols\r\n" +
+								"Upgrade: websocket\r\n" +
+								"Connection: Upgrade\r\n" +
+								"Sec-WebSocket-Accept: " + HttpUtils.getWebSocketAnswer(key) + "\r\n" +
+								"Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits=10\r\n" +
+								"\r\n"));
+					})
+					.then(() -> Promises.<ByteBuf>until(null,
+							$ -> socket.read()
+									.whenResult(buf -> {
+										if (buf != null) buf.recycle();
+									}),
+							Objects::isNull))
+					.whenComplete(socket::close)
+					.toVoid()
+					.whenComplete(serverClosed::accept);
+		})
+				.withSocketSettings(SocketSettings.create().withImplReadTimeout(Duration.ofSeconds(5)))
+				.withListenPort(PORT)
+				.withAcceptOnce()
+				.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketCompression(PerMessageDeflate.create());
+		RefInt connectionsOnFailure = new RefInt(-1);
+		Throwable exception = awaitException(client.webSocketRequest(HttpRequest.get("ws://127.0.0.1:" + PORT))
+				.whenException(e -> connectionsOnFailure.set(client.getConnectionsCount())));
+
+		assertThat(exception, instanceOf(HttpException.class));
+		assertEquals(0, connectionsOnFailure.get());
+		await(serverClosed);
+	}
+
 	@Test
 	public void testCloseByServerWithError() throws IOException {
 		WebSocketException testError = new WebSocketException(4321, "Test error");
@@ -317,11 +440,24 @@ public final class WebSocketClientServerTest {
 	}
 
 	private void startTestServer(Consumer<WebSocket> webSocketConsumer) throws IOException {
-		AsyncHttpServer.create(Eventloop.getCurrentEventloop(), RoutingServlet.create()
+		startTestServer(webSocketConsumer, server -> {});
+	}
+
+	private void startTestServer(Consumer<WebSocket> webSocketConsumer, Consumer<AsyncHttpServer> initializer) throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(), RoutingServlet.create()
 				.mapWebSocket("/", webSocketConsumer))
 				.withListenPort(PORT)
-				.withAcceptOnce()
-				.listen();
+				.withAcceptOnce();
+		initializer.accept(server);
+		server.listen();
+	}
+
+	private static String repeat(String s, int times) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
 	}
 
 	private void startSecureTestServer(Consumer<WebSocket> webSocketConsumer) throws IOException {
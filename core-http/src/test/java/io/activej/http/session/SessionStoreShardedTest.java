@@ -0,0 +1,112 @@
+package io.activej.http.session;
+
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.activej.promise.TestUtils.await;
+import static org.junit.Assert.*;
+
+public final class SessionStoreShardedTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	private final AtomicLong time = new AtomicLong();
+
+	@Test
+	public void testExpiration() {
+		SessionStoreSharded<String> store = this.<String>createStore()
+				.withLifetime(Duration.ofSeconds(10));
+
+		await(store.save("a", "session a"));
+		await(store.save("b", "session b"));
+
+		time.set(6_000);
+		assertEquals("session a", await(store.get("a")));
+
+		time.set(12_000);
+		assertEquals(1, store.evictExpired());
+		assertNull(await(store.get("b")));
+		assertEquals("session a", await(store.get("a")));
+		assertEquals(1, store.getSessions());
+		assertEquals(1, store.getExpiredSessions());
+
+		time.set(30_000);
+		assertNull(await(store.get("a")));
+		assertEquals(0, store.getSessions());
+	}
+
+	@Test
+	public void testMaxSessions() {
+		SessionStoreSharded<Integer> store = this.<Integer>createStore()
+				.withShards(1)
+				.withMaxSessions(3);
+
+		for (int i = 0; i < 5; i++) {
+			time.incrementAndGet();
+			await(store.save("session" + i, i));
+		}
+
+		assertEquals(3, store.getSessions());
+		assertEquals(2, store.getEvictedSessions());
+		assertNull(await(store.get("session0")));
+		assertNull(await(store.get("session1")));
+		assertEquals(4, (int) await(store.get("session4")));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		SessionStoreSharded<Integer> store = this.<Integer>createStore()
+				.withLifetime(Duration.ofMinutes(1));
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int offset = t * 10_000;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					String id = "session" + (offset + i);
+					store.save(id, i);
+					assertEquals(i, (int) store.get(id).getResult());
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40_000, store.getSessions());
+		assertEquals(40_000, store.getSavedSessions());
+	}
+
+	@Test
+	public void testEvictionTimer() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		SessionStoreSharded<String> store = this.<String>createStore()
+				.withLifetime(Duration.ofSeconds(10))
+				.withEvictionInterval(Duration.ofMillis(10));
+
+		await(store.save("a", "session a"));
+		await(store.start());
+		time.set(20_000);
+		await(Promise.ofCallback(cb -> eventloop.delay(50, () -> cb.set(null))));
+		await(store.stop());
+
+		assertEquals(0, store.getSessions());
+		assertEquals(1, store.getExpiredSessions());
+	}
+
+	private <T> SessionStoreSharded<T> createStore() {
+		SessionStoreSharded<T> store = SessionStoreSharded.create(Eventloop.getCurrentEventloop());
+		store.now = time::get;
+		return store;
+	}
+}
@@ -28,6 +28,7 @@ import io.activej.jmx.stats.EventStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
@@ -35,6 +36,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -50,7 +52,6 @@ import java.util.concurrent.Future;
 import static io.activej.common.Checks.checkState;
 import static io.activej.eventloop.net.ServerSocketSettings.DEFAULT_BACKLOG;
 import static io.activej.net.socket.tcp.AsyncTcpSocketNio.wrapChannel;
-import static io.activej.net.socket.tcp.AsyncTcpSocketSsl.wrapServerSocket;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -241,7 +242,7 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	private void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
 		for (InetSocketAddress address : addresses) {
 			try {
-				serverSocketChannels.add(eventloop.listen(address, serverSocketSettings, channel -> doAccept(channel, address, ssl)));
+				doListen(address, ssl);
 			} catch (IOException e) {
 				logger.error("Can't listen on [" + address + "]: " + this, e);
 				close();
@@ -250,6 +251,10 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		}
 	}
 
+	protected void doListen(InetSocketAddress address, boolean ssl) throws IOException {
+		serverSocketChannels.add(eventloop.listen(address, serverSocketSettings, channel -> doAccept(channel, address, ssl)));
+	}
+
 	@Override
 	public final Promise<?> close() {
 		if (CHECK) checkState(eventloop.inEventloopThread(), "Cannot close server from different thread");
@@ -333,6 +338,38 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		}
 	}
 
+	/**
+	 * Accepts a connection from a server socket that is owned by a worker server's eventloop,
+	 * which is the case when primary server listens with {@code SO_REUSEPORT} option.
+	 * <p>
+	 * It is called in the worker eventloop thread, so accept filter should be thread-safe
+	 */
+	final void doAcceptOnWorker(WorkerServer workerServer, SocketChannel channel, InetSocketAddress localAddress, boolean ssl) {
+		Eventloop workerEventloop = workerServer.getEventloop();
+		InetSocketAddress remoteSocketAddress;
+		try {
+			remoteSocketAddress = (InetSocketAddress) channel.getRemoteAddress();
+		} catch (IOException e) {
+			workerEventloop.closeChannel(channel, null);
+			return;
+		}
+		InetAddress remoteAddress = remoteSocketAddress.getAddress();
+
+		if (acceptFilter != null && acceptFilter.filterAccept(channel, localAddress, remoteAddress, ssl)) {
+			if (workerServer instanceof AbstractServer) {
+				((AbstractServer<?>) workerServer).filteredAccepts.recordEvent();
+			}
+			workerEventloop.closeChannel(channel, null);
+			return;
+		}
+
+		workerServer.doAccept(channel, localAddress, remoteSocketAddress, ssl, socketSettings);
+
+		if (acceptOnce) {
+			eventloop.execute(this::closeServerSockets);
+		}
+	}
+
 	@Override
 	public final void doAccept(SocketChannel socketChannel, InetSocketAddress localAddress, InetSocketAddress remoteSocketAddress,
 			boolean ssl, SocketSettings socketSettings) {
@@ -355,10 +392,20 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 			eventloop.closeChannel(socketChannel, null);
 			return;
 		}
-		asyncTcpSocket = ssl ? wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor) : asyncTcpSocket;
+		asyncTcpSocket = ssl ? AsyncTcpSocketSsl.create(asyncTcpSocket, createSslEngine(sslContext), sslExecutor) : asyncTcpSocket;
 		serve(asyncTcpSocket, remoteAddress);
 	}
 
+	/**
+	 * Creates an {@link SSLEngine} for an accepted SSL connection.
+	 * It may be overridden to customize SSL parameters of server connections
+	 */
+	protected SSLEngine createSslEngine(SSLContext sslContext) {
+		SSLEngine sslEngine = sslContext.createSSLEngine();
+		sslEngine.setUseClientMode(false);
+		return sslEngine;
+	}
+
 	public ServerSocketSettings getServerSocketSettings() {
 		return serverSocketSettings;
 	}
@@ -396,7 +443,7 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	@JmxAttribute
 	@Nullable
 	public final EventStats getFilteredAccepts() {
-		return acceptFilter == null ? null : filteredAccepts;
+		return acceptServer.acceptFilter == null ? null : filteredAccepts;
 	}
 
 	@JmxAttribute
@@ -19,7 +19,10 @@ package io.activej.net;
 import io.activej.eventloop.Eventloop;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -28,6 +31,11 @@ import java.util.List;
  * It is a simple balancer server, which dispatches its connections to its {@link WorkerServer WorkerServers}.
  * <p>
  * When an incoming connection takes place, it forwards the request to one of them with a round-robin algorithm.
+ * <p>
+ * If {@link io.activej.eventloop.net.ServerSocketSettings#withReusePort SO_REUSEPORT} option is enabled,
+ * primary server does not accept connections itself. Instead, each worker server binds its own server socket
+ * to the same listen address and accepts connections in its own eventloop,
+ * while the kernel balances incoming connections between worker server sockets.
  */
 public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 
@@ -35,6 +43,8 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 
 	private int currentAcceptor = -1; // first server index is currentAcceptor + 1
 
+	private final List<WorkerServerSocket> workerServerSockets = new ArrayList<>();
+
 	// region builders
 	private PrimaryServer(Eventloop primaryEventloop, WorkerServer[] workerServers) {
 		super(primaryEventloop);
@@ -66,6 +76,46 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	protected void doListen(InetSocketAddress address, boolean ssl) throws IOException {
+		if (!serverSocketSettings.isReusePortEnabled()) {
+			super.doListen(address, ssl);
+			return;
+		}
+		for (WorkerServer workerServer : workerServers) {
+			Eventloop workerEventloop = workerServer.getEventloop();
+			ServerSocketChannel channel = workerEventloop.bind(address, serverSocketSettings);
+			workerServerSockets.add(new WorkerServerSocket(workerEventloop, channel));
+			if (workerEventloop == eventloop) {
+				listenOnWorker(workerServer, channel, address, ssl);
+			} else {
+				workerEventloop.execute(() -> {
+					try {
+						listenOnWorker(workerServer, channel, address, ssl);
+					} catch (IOException e) {
+						logger.error("Can't listen on [" + address + "] in " + workerEventloop + ": " + this, e);
+						workerEventloop.closeChannel(channel, null);
+					}
+				});
+			}
+		}
+	}
+
+	private void listenOnWorker(WorkerServer workerServer, ServerSocketChannel channel, InetSocketAddress address, boolean ssl) throws IOException {
+		workerServer.getEventloop().listen(channel, socketChannel -> doAcceptOnWorker(workerServer, socketChannel, address, ssl));
+	}
+
+	@Override
+	protected void closeServerSockets() {
+		super.closeServerSockets();
+		for (WorkerServerSocket workerServerSocket : workerServerSockets) {
+			Eventloop workerEventloop = workerServerSocket.eventloop;
+			ServerSocketChannel channel = workerServerSocket.channel;
+			workerEventloop.execute(() -> workerEventloop.closeChannel(channel, channel.keyFor(workerEventloop.getSelector())));
+		}
+		workerServerSockets.clear();
+	}
+
 	@Override
 	protected WorkerServer getWorkerServer() {
 		currentAcceptor = (currentAcceptor + 1) % workerServers.length;
@@ -79,7 +129,18 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 				(listenAddresses.isEmpty() ? "" : ", listenAddresses=" + listenAddresses) +
 				(sslListenAddresses.isEmpty() ? "" : ", sslListenAddresses=" + sslListenAddresses) +
 				(acceptOnce ? ", acceptOnce" : "") +
+				(serverSocketSettings.isReusePortEnabled() ? ", reusePort" : "") +
 				", workerServers=" + Arrays.toString(workerServers) +
 				'}';
 	}
+
+	private static final class WorkerServerSocket {
+		final Eventloop eventloop;
+		final ServerSocketChannel channel;
+
+		WorkerServerSocket(Eventloop eventloop, ServerSocketChannel channel) {
+			this.eventloop = eventloop;
+			this.channel = channel;
+		}
+	}
 }
@@ -18,6 +18,7 @@ package io.activej.net.socket.tcp;
 
 import io.activej.async.process.AsyncCloseable;
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufs;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -58,6 +59,21 @@ public interface AsyncTcpSocket extends AsyncCloseable {
 	@NotNull
 	Promise<Void> write(@Nullable ByteBuf buf);
 
+	/**
+	 * Operation to write several bufs to network at once. All of the bufs are taken out of given {@link ByteBufs}.
+	 * <p>
+	 * Implementations may send bufs without concatenating them, by default bufs are concatenated
+	 * and written as a single {@link ByteBuf}.
+	 *
+	 * @param bufs data to be sent to network
+	 * @return promise that represents successful write operation
+	 * @see #write(ByteBuf)
+	 */
+	@NotNull
+	default Promise<Void> writeBufs(@NotNull ByteBufs bufs) {
+		return write(bufs.takeRemaining());
+	}
+
 	boolean isReadAvailable();
 
 	boolean isClosed();
@@ -18,6 +18,8 @@ package io.activej.net.socket.tcp;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufs;
+import io.activej.bytebuf.DirectBufferPool;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
 import io.activej.common.exception.AsyncTimeoutException;
@@ -41,9 +43,11 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.time.Duration;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.activej.common.Checks.checkState;
@@ -57,6 +61,10 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	public static final int DEFAULT_READ_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "readBufferSize", kilobytes(16)).toInt();
 	public static final int NO_TIMEOUT = 0;
+	public static final int MAX_GATHERING_BUFS = ApplicationSettings.getInt(AsyncTcpSocketNio.class, "maxGatheringBufs", 64);
+	public static final boolean DEFAULT_DIRECT_BUFFERS = ApplicationSettings.getBoolean(AsyncTcpSocketNio.class, "directBuffers", false);
+	public static final boolean DEFAULT_READ_AHEAD = ApplicationSettings.getBoolean(AsyncTcpSocketNio.class, "readAhead", false);
+	public static final int MAX_DIRECT_WRITE_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxDirectWriteSize", kilobytes(256)).toInt();
 
 	private static final AtomicInteger CONNECTION_COUNT = new AtomicInteger(0);
 
@@ -70,6 +78,15 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private boolean readEndOfStream;
 	@Nullable
 	private ByteBuf writeBuf;
+	@Nullable
+	private ByteBufs writeBufs;
+	@Nullable
+	private FileChannel transferChannel;
+	private long transferPosition;
+	private long transferRemaining;
+	@Nullable
+	private Executor transferExecutor;
+	private boolean transferring;
 	private boolean writeEndOfStream;
 
 	@Nullable
@@ -83,6 +100,8 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private int readTimeout = NO_TIMEOUT;
 	private int writeTimeout = NO_TIMEOUT;
 	private int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+	private boolean directBuffers = DEFAULT_DIRECT_BUFFERS;
+	private boolean readAhead = DEFAULT_READ_AHEAD;
 
 	@Nullable
 	private ScheduledRunnable scheduledReadTimeout;
@@ -110,6 +129,12 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 		void onWrite(AsyncTcpSocketNio socket, ByteBuf buf, int bytes);
 
+		default void onWrite(AsyncTcpSocketNio socket, ByteBufs bufs, int bytes) {
+		}
+
+		default void onTransfer(AsyncTcpSocketNio socket, long count, long bytes) {
+		}
+
 		void onWriteError(AsyncTcpSocketNio socket, IOException e);
 
 		void onDisconnect(AsyncTcpSocketNio socket);
@@ -166,6 +191,20 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 				writeOverloaded.recordEvent();
 		}
 
+		@Override
+		public void onWrite(AsyncTcpSocketNio socket, ByteBufs bufs, int bytes) {
+			writes.recordValue(bytes);
+			if (bufs.remainingBytes() != bytes)
+				writeOverloaded.recordEvent();
+		}
+
+		@Override
+		public void onTransfer(AsyncTcpSocketNio socket, long count, long bytes) {
+			writes.recordValue(bytes);
+			if (count != bytes)
+				writeOverloaded.recordEvent();
+		}
+
 		@Override
 		public void onWriteError(AsyncTcpSocketNio socket, IOException e) {
 			writeErrors.recordException(e, socket.getRemoteAddress());
@@ -245,6 +284,12 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		if (socketSettings.hasReadBufferSize()) {
 			asyncTcpSocket.readBufferSize = socketSettings.getImplReadBufferSizeBytes();
 		}
+		if (socketSettings.hasImplDirectBuffers()) {
+			asyncTcpSocket.directBuffers = socketSettings.getImplDirectBuffers();
+		}
+		if (socketSettings.hasImplReadAhead()) {
+			asyncTcpSocket.readAhead = socketSettings.getImplReadAhead();
+		}
 		return asyncTcpSocket;
 	}
 
@@ -327,7 +372,8 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void updateInterests() {
 		assert !isClosed() && ops >= 0;
-		byte newOps = (byte) (((readBuf == null && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (writeBuf == null || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
+		boolean readInterest = !readEndOfStream && (readBuf == null || readAhead && readBuf.readRemaining() < readBufferSize);
+		byte newOps = (byte) ((readInterest ? SelectionKey.OP_READ : 0) | (!hasPendingWrites() || writeEndOfStream || transferring ? 0 : SelectionKey.OP_WRITE));
 		if (key == null) {
 			ops = newOps;
 			try {
@@ -389,17 +435,33 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void doRead() throws IOException {
 		assert channel != null;
-		ByteBuf buf = ByteBufPool.allocate(readBufferSize);
-		ByteBuffer buffer = buf.toWriteByteBuffer();
-
+		ByteBuf buf;
 		int numRead;
-		try {
-			numRead = channel.read(buffer);
-			buf.ofWriteByteBuffer(buffer);
-		} catch (IOException e) {
-			buf.recycle();
-			if (inspector != null) inspector.onReadError(this, e);
-			throw e;
+		if (!directBuffers) {
+			buf = ByteBufPool.allocate(readBufferSize);
+			ByteBuffer buffer = buf.toWriteByteBuffer();
+			try {
+				numRead = channel.read(buffer);
+				buf.ofWriteByteBuffer(buffer);
+			} catch (IOException e) {
+				buf.recycle();
+				if (inspector != null) inspector.onReadError(this, e);
+				throw e;
+			}
+		} else {
+			ByteBuffer buffer = DirectBufferPool.allocate(readBufferSize);
+			try {
+				numRead = channel.read(buffer);
+			} catch (IOException e) {
+				DirectBufferPool.recycle(buffer);
+				if (inspector != null) inspector.onReadError(this, e);
+				throw e;
+			}
+			buffer.flip();
+			buf = ByteBufPool.allocate(buffer.remaining());
+			buffer.get(buf.array(), buf.tail(), buffer.remaining());
+			buf.moveTail(buffer.position());
+			DirectBufferPool.recycle(buffer);
 		}
 
 		if (numRead == 0) {
@@ -414,7 +476,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			buf.recycle();
 			if (inspector != null) inspector.onReadEndOfStream(this);
 			readEndOfStream = true;
-			if (writeEndOfStream && writeBuf == null) {
+			if (writeEndOfStream && !hasPendingWrites()) {
 				doClose();
 			}
 			return;
@@ -445,20 +507,121 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 		writeEndOfStream |= buf == null;
 
-		if (writeBuf == null) {
-			if (buf != null && !buf.canRead()) {
+		if (buf != null) {
+			if (buf.canRead()) {
+				addWriteBuf(buf);
+			} else {
 				buf.recycle();
-				return Promise.complete();
+				if (!hasPendingWrites()) return Promise.complete();
 			}
-			writeBuf = buf;
-		} else {
-			if (buf != null) {
-				writeBuf = ByteBufPool.ensureWriteRemaining(this.writeBuf, buf.readRemaining());
-				writeBuf.put(buf.array(), buf.head(), buf.readRemaining());
+		}
+
+		return flush();
+	}
+
+	/**
+	 * Writes all of the given bufs with as few system calls as possible.
+	 * <p>
+	 * Bufs are not concatenated, instead they are sent with a gathering write operation
+	 */
+	@NotNull
+	@Override
+	public Promise<Void> writeBufs(@NotNull ByteBufs bufs) {
+		if (CHECK) {
+			checkState(eventloop.inEventloopThread());
+			checkState(!writeEndOfStream, "End of stream has already been sent");
+		}
+		if (isClosed()) {
+			bufs.recycle();
+			return Promise.ofException(new CloseException());
+		}
+
+		while (bufs.hasRemaining()) {
+			ByteBuf buf = bufs.take();
+			if (buf.canRead()) {
+				addWriteBuf(buf);
+			} else {
 				buf.recycle();
 			}
 		}
+		if (!hasPendingWrites()) return Promise.complete();
+
+		return flush();
+	}
+
+	/**
+	 * Transfers a region of a file directly to this socket, so that file contents are not copied to user space
+	 * (see {@link FileChannel#transferTo}).
+	 * <p>
+	 * Transfer starts after all of the previously written data has been sent.
+	 * No other data should be written to this socket until the returned promise completes.
+	 * File channel is not closed after transfer.
+	 * <p>
+	 * Note that transfer is performed in eventloop thread, so it is preferable to transfer files
+	 * that reside in OS page cache or on fast local storage
+	 *
+	 * @param fileChannel a file channel to be transferred
+	 * @param position    a position in a file to transfer from
+	 * @param count       a number of bytes to transfer
+	 * @return promise that represents successful transfer
+	 */
+	@NotNull
+	public Promise<Void> transferFrom(@NotNull FileChannel fileChannel, long position, long count) {
+		return transferFrom(fileChannel, position, count, null);
+	}
+
+	/**
+	 * Same as {@link #transferFrom(FileChannel, long, long)}, but blocking {@link FileChannel#transferTo} calls
+	 * are made in a given executor, so that reading a file from a disk does not block eventloop thread.
+	 * A socket waits for write readiness in eventloop thread, as usual.
+	 *
+	 * @param fileChannel a file channel to be transferred
+	 * @param position    a position in a file to transfer from
+	 * @param count       a number of bytes to transfer
+	 * @param executor    an executor for blocking transfers, or {@code null} to transfer in eventloop thread
+	 * @return promise that represents successful transfer
+	 */
+	@NotNull
+	public Promise<Void> transferFrom(@NotNull FileChannel fileChannel, long position, long count, @Nullable Executor executor) {
+		if (CHECK) {
+			checkState(eventloop.inEventloopThread());
+			checkState(!writeEndOfStream, "End of stream has already been sent");
+		}
+		if (isClosed()) return Promise.ofException(new CloseException());
+		if (count == 0) return Promise.complete();
+
+		if (write != null) {
+			return write.then(() -> transferFrom(fileChannel, position, count, executor));
+		}
+
+		transferChannel = fileChannel;
+		transferPosition = position;
+		transferRemaining = count;
+		transferExecutor = executor;
 
+		return flush();
+	}
+
+	private void addWriteBuf(ByteBuf buf) {
+		if (!hasPendingWrites()) {
+			writeBuf = buf;
+			return;
+		}
+		if (writeBufs == null) {
+			writeBufs = new ByteBufs();
+		}
+		if (writeBuf != null) {
+			writeBufs.add(writeBuf);
+			writeBuf = null;
+		}
+		writeBufs.add(buf);
+	}
+
+	private boolean hasPendingWrites() {
+		return transferChannel != null || writeBuf != null || writeBufs != null && writeBufs.hasRemaining();
+	}
+
+	private Promise<Void> flush() {
 		if (write != null) return write;
 
 		try {
@@ -468,7 +631,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return Promise.ofException(e);
 		}
 
-		if (this.writeBuf == null) {
+		if (!hasPendingWrites()) {
 			return Promise.complete();
 		}
 		SettablePromise<Void> write = new SettablePromise<>();
@@ -497,7 +660,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			closeEx(e);
 			return;
 		}
-		if (writeBuf == null) {
+		if (!hasPendingWrites()) {
 			SettablePromise<@Nullable Void> write = this.write;
 			this.write = null;
 			write.set(null);
@@ -509,12 +672,19 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void doWrite() throws IOException {
 		assert channel != null;
+		if (transferChannel != null && !doTransfer(transferChannel)) {
+			return;
+		}
 		if (writeBuf != null) {
 			ByteBuf buf = this.writeBuf;
 			ByteBuffer buffer = buf.toReadByteBuffer();
 
 			try {
-				channel.write(buffer);
+				if (directBuffers) {
+					writeDirect(buffer);
+				} else {
+					channel.write(buffer);
+				}
 			} catch (IOException e) {
 				if (inspector != null) inspector.onWriteError(this, e);
 				throw e;
@@ -530,6 +700,10 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 				buf.recycle();
 				writeBuf = null;
 			}
+		} else if (writeBufs != null && writeBufs.hasRemaining()) {
+			if (!doGatheringWrite(writeBufs)) {
+				return;
+			}
 		}
 
 		scheduledWriteTimeout = nullify(scheduledWriteTimeout, ScheduledRunnable::cancel);
@@ -543,6 +717,142 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 	}
 
+	private boolean doTransfer(FileChannel fileChannel) throws IOException {
+		assert channel != null;
+		if (transferExecutor != null) {
+			if (!transferring) {
+				startTransfer(fileChannel, transferExecutor);
+			}
+			return false;
+		}
+		long bytes;
+		try {
+			bytes = transferTo(fileChannel, transferPosition, transferRemaining, channel);
+		} catch (IOException e) {
+			if (inspector != null) inspector.onWriteError(this, e);
+			throw e;
+		}
+		return onTransfer(bytes);
+	}
+
+	private void startTransfer(FileChannel fileChannel, Executor executor) {
+		SocketChannel socketChannel = channel;
+		long position = transferPosition;
+		long count = transferRemaining;
+		transferring = true;
+		Promise.ofBlockingCallable(executor, () -> transferTo(fileChannel, position, count, socketChannel))
+				.whenComplete(this::onTransferCompleted);
+	}
+
+	private void onTransferCompleted(Long bytes, @Nullable Throwable e) {
+		transferring = false;
+		if (isClosed()) return;
+		if (e != null) {
+			if (inspector != null && e instanceof IOException) inspector.onWriteError(this, (IOException) e);
+			closeEx(e);
+			return;
+		}
+		try {
+			// nothing has been transferred if a socket send buffer is full, so write readiness is awaited
+			if (onTransfer(bytes) || bytes != 0) {
+				doWrite();
+			}
+		} catch (IOException ex) {
+			closeEx(ex);
+			return;
+		}
+		if (!hasPendingWrites() && write != null) {
+			SettablePromise<@Nullable Void> write = this.write;
+			this.write = null;
+			write.set(null);
+		}
+		if (isClosed()) return;
+		if (ops >= 0) {
+			updateInterests();
+		}
+	}
+
+	private static long transferTo(FileChannel fileChannel, long position, long count, SocketChannel channel) throws IOException {
+		long bytes = fileChannel.transferTo(position, count, channel);
+		if (bytes == 0 && position >= fileChannel.size()) {
+			throw new IOException("Unexpected end of file, " + count + " bytes have not been transferred");
+		}
+		return bytes;
+	}
+
+	private boolean onTransfer(long bytes) {
+		if (inspector != null) inspector.onTransfer(this, transferRemaining, bytes);
+
+		transferPosition += bytes;
+		transferRemaining -= bytes;
+		if (transferRemaining != 0) {
+			return false;
+		}
+		transferChannel = null;
+		transferExecutor = null;
+		return true;
+	}
+
+	private boolean doGatheringWrite(ByteBufs bufs) throws IOException {
+		assert channel != null;
+		int n = Math.min(bufs.remainingBufs(), MAX_GATHERING_BUFS);
+		ByteBuffer[] buffers = new ByteBuffer[n];
+		for (int i = 0; i < n; i++) {
+			buffers[i] = bufs.peekBuf(i).toReadByteBuffer();
+		}
+
+		long bytes;
+		try {
+			bytes = directBuffers ? writeDirect(buffers) : channel.write(buffers);
+		} catch (IOException e) {
+			if (inspector != null) inspector.onWriteError(this, e);
+			throw e;
+		}
+
+		if (inspector != null) inspector.onWrite(this, bufs, (int) bytes);
+
+		for (ByteBuffer buffer : buffers) {
+			ByteBuf buf = bufs.peekBuf();
+			buf.ofReadByteBuffer(buffer);
+			if (buf.canRead()) {
+				return false;
+			}
+			bufs.take().recycle();
+		}
+		return !bufs.hasRemaining();
+	}
+
+	/**
+	 * Copies heap buffers into a pooled direct buffer, writes it to the channel
+	 * and advances positions of heap buffers by the number of bytes written
+	 */
+	private long writeDirect(ByteBuffer... buffers) throws IOException {
+		assert channel != null;
+		long total = 0;
+		for (ByteBuffer buffer : buffers) {
+			total += buffer.remaining();
+		}
+		ByteBuffer direct = DirectBufferPool.allocate((int) Math.min(total, MAX_DIRECT_WRITE_SIZE));
+		try {
+			for (ByteBuffer buffer : buffers) {
+				int n = Math.min(buffer.remaining(), direct.remaining());
+				direct.put(buffer.array(), buffer.arrayOffset() + buffer.position(), n);
+				if (!direct.hasRemaining()) break;
+			}
+			direct.flip();
+			int written = channel.write(direct);
+			int remaining = written;
+			for (ByteBuffer buffer : buffers) {
+				int n = Math.min(buffer.remaining(), remaining);
+				buffer.position(buffer.position() + n);
+				remaining -= n;
+			}
+			return written;
+		} finally {
+			DirectBufferPool.recycle(direct);
+		}
+	}
+
 	@Override
 	public void closeEx(@NotNull Throwable e) {
 		if (CHECK) checkState(eventloop.inEventloopThread());
@@ -550,6 +860,9 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		doClose();
 		readBuf = nullify(readBuf, ByteBuf::recycle);
 		writeBuf = nullify(writeBuf, ByteBuf::recycle);
+		writeBufs = nullify(writeBufs, ByteBufs::recycle);
+		transferChannel = null;
+		transferExecutor = null;
 		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
 		scheduledWriteTimeout = nullify(scheduledWriteTimeout, ScheduledRunnable::cancel);
 		read = nullify(read, SettablePromise::setException, e);
@@ -579,6 +892,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 				"channel=" + (channel != null ? channel : "") +
 				", readBuf=" + readBuf +
 				", writeBuf=" + writeBuf +
+				", writeBufs=" + writeBufs +
 				", readEndOfStream=" + readEndOfStream +
 				", writeEndOfStream=" + writeEndOfStream +
 				", read=" + read +
@@ -3,8 +3,13 @@ package io.activej.net;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufs;
 import io.activej.bytebuf.ByteBufStrings;
+import io.activej.common.MemSize;
+import io.activej.common.ref.RefInt;
 import io.activej.common.ref.RefLong;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.net.ServerSocketSettings;
 import io.activej.eventloop.net.SocketSettings;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
@@ -16,13 +21,19 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
+import static io.activej.eventloop.net.ServerSocketSettings.DEFAULT_BACKLOG;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 public final class AbstractServerTest {
 	@ClassRule
@@ -75,4 +86,193 @@ public final class AbstractServerTest {
 
 		assertEquals(message, response.asString(UTF_8));
 	}
+
+	@Test
+	public void testWriteBufs() throws IOException {
+		doTestWriteBufs(SocketSettings.create());
+	}
+
+	@Test
+	public void testWriteBufsWithDirectBuffers() throws IOException {
+		doTestWriteBufs(SocketSettings.create().withImplDirectBuffers(true));
+	}
+
+	private void doTestWriteBufs(SocketSettings socketSettings) throws IOException {
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SimpleServer.create(socket -> {
+			ByteBufs bufs = new ByteBufs();
+			Promises.<ByteBuf>until(null,
+					$ -> socket.read()
+							.whenResult(buf -> {
+								if (buf != null) bufs.add(buf);
+							}),
+					Objects::isNull)
+					.then($ -> socket.write(bufs.takeRemaining()))
+					.whenComplete(socket::close);
+		})
+				.withSocketSettings(socketSettings)
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address, null, socketSettings)
+				.then(socket -> {
+					ByteBufs bufs = new ByteBufs();
+					for (int i = 0; i < 100; i++) {
+						bufs.add(ByteBufStrings.wrapAscii("Hello" + i + "!"));
+					}
+					return socket.writeBufs(bufs)
+							.then(() -> socket.write(null))
+							.then(() -> {
+								ByteBufs result = new ByteBufs();
+								return Promises.<ByteBuf>until(null,
+										$ -> socket.read()
+												.whenResult(buf -> {
+													if (buf != null) result.add(buf);
+												}),
+										Objects::isNull)
+										.map($ -> result.takeRemaining());
+							})
+							.whenComplete(socket::close);
+				}));
+
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			expected.append("Hello").append(i).append('!');
+		}
+		assertEquals(expected.toString(), response.asString(UTF_8));
+	}
+
+	@Test
+	public void testReadAhead() throws IOException {
+		int readBufferSize = 1024;
+		int secondReadSize = doTestRead(SocketSettings.create()
+				.withImplReadBufferSize(MemSize.of(readBufferSize))
+				.withImplReadAhead(true));
+
+		assertTrue(secondReadSize >= readBufferSize);
+		assertTrue(secondReadSize < 2 * readBufferSize);
+	}
+
+	@Test
+	public void testNoReadAhead() throws IOException {
+		int readBufferSize = 1024;
+		int secondReadSize = doTestRead(SocketSettings.create()
+				.withImplReadBufferSize(MemSize.of(readBufferSize)));
+
+		assertTrue(secondReadSize <= readBufferSize);
+	}
+
+	private int doTestRead(SocketSettings socketSettings) throws IOException {
+		int size = 64 * 1024;
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SimpleServer.create(socket -> socket.write(ByteBuf.wrapForReading(new byte[size]))
+				.then(() -> socket.write(null))
+				.whenComplete(socket::close))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		RefInt secondReadSize = new RefInt(0);
+		RefInt total = new RefInt(0);
+		await(AsyncTcpSocketNio.connect(address, null, socketSettings)
+				.then(socket -> socket.read()
+						.whenResult(buf -> {
+							total.value += buf.readRemaining();
+							buf.recycle();
+						})
+						.then(() -> Promises.delay(Duration.ofMillis(100)))
+						.then(socket::read)
+						.whenResult(buf -> {
+							secondReadSize.value = buf.readRemaining();
+							total.value += buf.readRemaining();
+							buf.recycle();
+						})
+						.then(() -> Promises.<ByteBuf>until(null,
+								$ -> socket.read()
+										.whenResult(buf -> {
+											if (buf != null) {
+												total.value += buf.readRemaining();
+												buf.recycle();
+											}
+										}),
+								Objects::isNull))
+						.whenComplete(socket::close)));
+
+		assertEquals(size, total.get());
+		return secondReadSize.get();
+	}
+
+	@Test
+	public void testReusePort() throws IOException {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		Consumer<AsyncTcpSocket> echo = socket -> socket.read()
+				.then(socket::write)
+				.whenComplete(socket::close);
+		SimpleServer worker1 = SimpleServer.create(echo);
+		SimpleServer worker2 = SimpleServer.create(echo);
+
+		PrimaryServer.create(getCurrentEventloop(), worker1, worker2)
+				.withServerSocketSettings(ServerSocketSettings.create(DEFAULT_BACKLOG).withReusePort(true))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> socket.write(ByteBufStrings.wrapAscii("Hello!"))
+						.then(socket::read)
+						.whenComplete(socket::close)));
+
+		assertEquals("Hello!", response.asString(UTF_8));
+		assertEquals(1, worker1.getAccepts().getTotalCount() + worker2.getAccepts().getTotalCount());
+	}
+
+	@Test
+	public void testReusePortWithWorkerEventloops() throws IOException, InterruptedException {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		Consumer<AsyncTcpSocket> echo = socket -> socket.read()
+				.then(socket::write)
+				.whenComplete(socket::close);
+		Eventloop workerEventloop1 = Eventloop.create();
+		Eventloop workerEventloop2 = Eventloop.create();
+		SimpleServer worker1 = SimpleServer.create(workerEventloop1, echo);
+		SimpleServer worker2 = SimpleServer.create(workerEventloop2, echo);
+
+		PrimaryServer primaryServer = PrimaryServer.create(getCurrentEventloop(), worker1, worker2)
+				.withServerSocketSettings(ServerSocketSettings.create(DEFAULT_BACKLOG).withReusePort(true))
+				.withListenAddress(address);
+
+		// worker eventloops are not running yet, so listening must not wait for them
+		primaryServer.listen();
+
+		Thread workerThread1 = new Thread(workerEventloop1);
+		Thread workerThread2 = new Thread(workerEventloop2);
+		workerThread1.start();
+		workerThread2.start();
+
+		int connections = 20;
+		List<String> responses = await(Promises.toList(IntStream.range(0, connections)
+				.mapToObj(i -> AsyncTcpSocketNio.connect(address)
+						.then(socket -> socket.write(ByteBufStrings.wrapAscii("Hello" + i))
+								.then(socket::read)
+								.map(buf -> buf.asString(UTF_8))
+								.whenComplete(socket::close)))));
+
+		await(primaryServer.close());
+		workerThread1.join();
+		workerThread2.join();
+
+		for (int i = 0; i < connections; i++) {
+			assertEquals("Hello" + i, responses.get(i));
+		}
+		long accepts1 = worker1.getAccepts().getTotalCount();
+		long accepts2 = worker2.getAccepts().getTotalCount();
+		assertEquals(connections, accepts1 + accepts2);
+		assertTrue(accepts1 > 0);
+		assertTrue(accepts2 > 0);
+	}
 }
@@ -46,11 +46,15 @@ public final class ConfigConverters {
 				Duration timedOutExceptionTtl = config.get(ofDuration(), "timedOutExpiration", DEFAULT_TIMED_OUT_EXPIRATION);
 				Duration hardExpirationDelta = config.get(ofDuration(), "hardExpirationDelta", DEFAULT_HARD_EXPIRATION_DELTA);
 				Duration maxTtl = config.get(ofDuration(), "maxTtl", DEFAULT_MAX_TTL);
+				Duration refreshAhead = config.get(ofDuration(), "refreshAhead", DEFAULT_REFRESH_AHEAD);
+				int maxSize = config.get(ofInteger(), "maxSize", DEFAULT_MAX_SIZE);
 				return DnsCache.create(eventloop)
 						.withErrorCacheExpiration(errorCacheExpiration)
 						.withTimedOutExpiration(timedOutExceptionTtl)
 						.withHardExpirationDelta(hardExpirationDelta)
-						.withMaxTtl(maxTtl);
+						.withMaxTtl(maxTtl)
+						.withRefreshAhead(refreshAhead)
+						.withMaxSize(maxSize);
 			}
 
 			@Nullable
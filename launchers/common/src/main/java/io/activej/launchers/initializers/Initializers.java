@@ -48,10 +48,15 @@ public class Initializers {
 	}
 
 	public static Initializer<Eventloop> ofEventloop(Config config) {
-		return eventloop -> eventloop
-				.withFatalErrorHandler(config.get(ofFatalErrorHandler(), "fatalErrorHandler", eventloop.getFatalErrorHandler()))
-				.withIdleInterval(config.get(ofDuration(), "idleInterval", eventloop.getIdleInterval()))
-				.withThreadPriority(config.get(ofInteger(), "threadPriority", eventloop.getThreadPriority()));
+		return eventloop -> {
+			eventloop
+					.withFatalErrorHandler(config.get(ofFatalErrorHandler(), "fatalErrorHandler", eventloop.getFatalErrorHandler()))
+					.withIdleInterval(config.get(ofDuration(), "idleInterval", eventloop.getIdleInterval()))
+					.withThreadPriority(config.get(ofInteger(), "threadPriority", eventloop.getThreadPriority()));
+			if (config.hasChild("timerWheel")) {
+				eventloop.withTimerWheel(config.get(ofBoolean(), "timerWheel"));
+			}
+		};
 	}
 
 	public static Initializer<EventloopTaskScheduler> ofEventloopTaskScheduler(Config config) {
@@ -74,7 +79,10 @@ public class Initializers {
 		return server -> server
 				.withKeepAliveTimeout(config.get(ofDuration(), "keepAliveTimeout", server.getKeepAliveTimeout()))
 				.withReadWriteTimeout(config.get(ofDuration(), "readWriteTimeout", server.getReadWriteTimeout()))
-				.withMaxBodySize(config.get(ofMemSize(), "maxBodySize", MemSize.ZERO));
+				.withMaxBodySize(config.get(ofMemSize(), "maxBodySize", MemSize.ZERO))
+				.withPipeliningDepth(config.get(ofInteger(), "pipeliningDepth", server.getPipeliningDepth()))
+				.withHttp2(config.get(ofBoolean(), "http2", server.isHttp2()))
+				.withDateHeader(config.get(ofBoolean(), "dateHeader", server.isDateHeader()));
 	}
 
 	public static Initializer<JmxModule> ofGlobalEventloopStats() {